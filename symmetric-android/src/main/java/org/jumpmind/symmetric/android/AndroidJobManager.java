@@ -202,6 +202,9 @@ public class AndroidJobManager implements IJobManager {
             return getName();
         }
 
+        public void wakeUp() {
+        }
+
         public synchronized void start() {
             if (!started) {
                 if (timer == null) {
@@ -42,6 +42,8 @@ public class AndroidSqlTransaction implements ISqlTransaction {
     
     protected boolean needsRolledback = false;
 
+    protected List<Runnable> commitCallbacks = new ArrayList<Runnable>();
+
     public AndroidSqlTransaction(AndroidSqlTemplate sqlTemplate, boolean autoCommit) {
         this.autoCommit = autoCommit;
         this.sqlTemplate = sqlTemplate;
@@ -77,10 +79,26 @@ public class AndroidSqlTransaction implements ISqlTransaction {
             this.database.endTransaction();
             this.database.beginTransaction();
         }
+        runCommitCallbacks();
+    }
+
+    public void addCommitCallback(Runnable callback) {
+        commitCallbacks.add(callback);
+    }
+
+    protected void runCommitCallbacks() {
+        if (commitCallbacks.size() > 0) {
+            List<Runnable> callbacks = new ArrayList<Runnable>(commitCallbacks);
+            commitCallbacks.clear();
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        }
     }
 
     public void rollback() {
         needsRolledback = true;
+        commitCallbacks.clear();
     }
 
     public void close() {
@@ -89,6 +107,9 @@ public class AndroidSqlTransaction implements ISqlTransaction {
         }
         this.database.endTransaction();
         this.database = null;
+        if (!needsRolledback) {
+            runCommitCallbacks();
+        }
     }
 
     public void prepare(String sql) {
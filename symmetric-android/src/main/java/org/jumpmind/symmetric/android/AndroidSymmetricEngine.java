@@ -118,6 +118,14 @@ public class AndroidSymmetricEngine extends AbstractSymmetricEngine {
             public Collection<String> getResourceReferences() {
                 return null;
             }
+
+            public long getMemoryUsedInBytes() {
+                return 0;
+            }
+
+            public long getMemoryBudgetInBytes() {
+                return 0;
+            }
         };
     }
 
@@ -342,7 +342,8 @@ public class ClientSymmetricEngine extends AbstractSymmetricEngine {
     @Override
     protected IStagingManager createStagingManager() {
         String directory = parameterService.getTempDirectory();
-        return new StagingManager(directory);
+        return new StagingManager(directory,
+                parameterService.getLong(ParameterConstants.STREAM_TO_FILE_MEMORY_BUDGET_BYTES));
     }
 
     protected static void waitForAvailableDatabase(DataSource dataSource) {
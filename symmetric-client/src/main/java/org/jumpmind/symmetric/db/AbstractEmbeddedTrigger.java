@@ -50,13 +50,20 @@ import org.jumpmind.symmetric.db.hsqldb.HsqlDbTrigger;
 abstract public class AbstractEmbeddedTrigger {
 
     protected static final char[] HEX = "0123456789abcdef".toCharArray();
-    protected static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.S");
+    protected static final ThreadLocal<SimpleDateFormat> DATE_FORMATTER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.S");
+        }
+    };
     protected static final String KEY_CONDITION_SQL = "CONDITION_SQL";
     protected static final String KEY_INSERT_DATA_SQL = "INSERT_DATA_SQL";
     protected static final String TEMPLATE_TABLE_SUFFIX = "_CONFIG";
     protected String triggerName;
     protected String schemaName;
     protected Map<String, String> templates = null;
+    protected String[] conditionSqlTokens;
+    protected String[] insertDataSqlTokens;
 
     /**
      * This method should be called by the database engine once when
@@ -74,7 +81,12 @@ abstract public class AbstractEmbeddedTrigger {
         if (this.templates == null) {
             this.schemaName = schemaName;
             this.triggerName = triggerName;
-            this.templates = getTemplates(conn);
+            Map<String, String> templates = getTemplates(conn);
+            if (templates != null && templates.size() > 0) {
+                this.conditionSqlTokens = prepareTemplate(templates.get(KEY_CONDITION_SQL)).split("\\?");
+                this.insertDataSqlTokens = prepareTemplate(templates.get(KEY_INSERT_DATA_SQL)).split("\\?");
+            }
+            this.templates = templates;
         }
         if (templates == null || templates.size() == 0) {
             throw new IllegalStateException(String.format(
@@ -82,6 +94,14 @@ abstract public class AbstractEmbeddedTrigger {
         }
     }
 
+    /**
+     * Adjust a template once when the trigger is initialized. The ? markers in
+     * the template are the columns of the virtual old and new table.
+     */
+    protected String prepareTemplate(String sql) {
+        return sql;
+    }
+
     /**
      * This method is called for each triggered action.
      * 
@@ -98,11 +118,11 @@ abstract public class AbstractEmbeddedTrigger {
         String sql = null;
         try {
             Statement stmt = conn.createStatement();
-            sql = fillVirtualTableSql(templates.get(KEY_CONDITION_SQL), oldRow, newRow);
+            sql = fillVirtualTableSql(conditionSqlTokens, oldRow, newRow);
             ResultSet rs = stmt.executeQuery(sql);
             if (rs.next() && rs.getInt(1) > 0) {
                 rs.close();
-                sql = fillVirtualTableSql(templates.get(KEY_INSERT_DATA_SQL), oldRow, newRow);
+                sql = fillVirtualTableSql(insertDataSqlTokens, oldRow, newRow);
                 stmt.executeUpdate(sql);
             }
             stmt.close();
@@ -117,10 +137,9 @@ abstract public class AbstractEmbeddedTrigger {
         }
     }
 
-    protected String fillVirtualTableSql(String sql, Object[] oldRow, Object[] newRow) throws SQLException {
+    protected String fillVirtualTableSql(String[] tokens, Object[] oldRow, Object[] newRow) throws SQLException {
         int columnCount = oldRow != null ? oldRow.length : newRow.length;
         StringBuilder out = new StringBuilder();
-        String[] tokens = sql.split("\\?");
         int tokenIndex = 0;
         tokenIndex = forEachColumn(columnCount, newRow, out, tokenIndex, tokens);
         tokenIndex = forEachColumn(columnCount, oldRow, out, tokenIndex, tokens);
@@ -158,21 +177,21 @@ abstract public class AbstractEmbeddedTrigger {
             out.append(value);
         } else if (value instanceof Boolean) {
             out.append(value);
-        } else if (value instanceof InputStream) {
+        } else if (value instanceof InputStream || value instanceof byte[]) {
             out.append("'");
             try {
-                value = convertBytesToString(readBytesAndClose((InputStream) value, -1));
+                if (value instanceof InputStream) {
+                    value = readBytesAndClose((InputStream) value, -1);
+                }
+                out.append(escapeString(convertBytesToString((byte[]) value)));
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
-            out.append(escapeString(value));
             out.append("'");
 
         } else if (value instanceof Date) {
             out.append("'");
-            synchronized (DATE_FORMATTER) {
-                out.append(DATE_FORMATTER.format(value));
-            }
+            out.append(DATE_FORMATTER.get().format(value));
             out.append("'");
         } else {
             throw new IllegalStateException(String.format("Type not supported: %s", value.getClass().getName()));
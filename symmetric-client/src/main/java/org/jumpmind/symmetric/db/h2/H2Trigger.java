@@ -61,10 +61,8 @@ public class H2Trigger extends AbstractEmbeddedTrigger implements org.h2.api.Tri
     }
     
     @Override
-    protected String fillVirtualTableSql(String sql, Object[] oldRow, Object[] newRow)
-            throws SQLException {
-        sql = sql.replace(TRANSACTION_FUNCTION, TRANSACTION_FUNCTION + " || '-" + startupTime + "'");
-        return super.fillVirtualTableSql(sql, oldRow, newRow);
+    protected String prepareTemplate(String sql) {
+        return sql.replace(TRANSACTION_FUNCTION, TRANSACTION_FUNCTION + " || '-" + startupTime + "'");
     }
 
 }
\ No newline at end of file
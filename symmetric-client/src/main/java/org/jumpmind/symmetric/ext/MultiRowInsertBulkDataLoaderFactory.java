@@ -0,0 +1,66 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.ext;
+
+import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.io.MultiRowInsertBulkDatabaseWriter;
+import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
+import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterConflictResolver;
+import org.jumpmind.symmetric.load.DefaultDataLoaderFactory;
+
+public class MultiRowInsertBulkDataLoaderFactory extends DefaultDataLoaderFactory implements
+        ISymmetricEngineAware {
+
+    public MultiRowInsertBulkDataLoaderFactory() {
+    }
+
+    public String getTypeName() {
+        return "multirow_bulk";
+    }
+
+    @Override
+    protected DefaultDatabaseWriter createDatabaseWriter(IDatabasePlatform platform,
+            IDatabaseWriterConflictResolver conflictResolver, DatabaseWriterSettings settings) {
+        /*
+         * Read for every batch because the parameter can be overridden in the
+         * database
+         */
+        return new MultiRowInsertBulkDatabaseWriter(platform, conflictResolver, settings,
+                parameterService.getInt("multirow.bulk.load.max.rows.per.statement", 100));
+    }
+
+    public void setSymmetricEngine(ISymmetricEngine engine) {
+        this.parameterService = engine.getParameterService();
+    }
+
+    @Override
+    public boolean isPlatformSupported(IDatabasePlatform platform) {
+        String name = platform.getName();
+        return DatabaseNamesConstants.H2.equals(name)
+                || DatabaseNamesConstants.HSQLDB2.equals(name)
+                || DatabaseNamesConstants.DERBY.equals(name)
+                || DatabaseNamesConstants.SQLITE.equals(name);
+    }
+
+}
@@ -0,0 +1,284 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.DmlStatement;
+import org.jumpmind.db.sql.DmlStatement.DmlType;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.writer.ConflictException;
+import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
+import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
+import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
+import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterConflictResolver;
+import org.jumpmind.util.Statistics;
+
+/**
+ * A bulk writer for databases that do not have a native bulk loader.
+ * Consecutive inserts into the same table are held back and written with one
+ * <code>insert ... values (...), (...)</code> statement. The number of rows in
+ * a statement is limited by the configured maximum and by the number of bind
+ * parameters the database allows. If a statement fails, the rows it held are
+ * written one at a time so that conflicts are detected and resolved for each
+ * row, and so an error is reported against the row that caused it.
+ */
+public class MultiRowInsertBulkDatabaseWriter extends DefaultDatabaseWriter {
+
+    protected int maxRowsPerStatement;
+
+    protected boolean writingInsert;
+
+    protected Table insertSourceTable;
+
+    protected Table insertTable;
+
+    protected DmlStatement insertStatement;
+
+    protected int rowsPerStatement;
+
+    protected List<CsvData> insertData = new ArrayList<CsvData>();
+
+    protected List<Object[]> insertValues = new ArrayList<Object[]>();
+
+    /*
+     * The statement count and line number of each held back row so an error
+     * is reported against the row that caused it
+     */
+    protected List<long[]> insertPositions = new ArrayList<long[]>();
+
+    public MultiRowInsertBulkDatabaseWriter(IDatabasePlatform platform,
+            IDatabaseWriterConflictResolver conflictResolver, DatabaseWriterSettings settings,
+            int maxRowsPerStatement) {
+        super(platform, conflictResolver, settings);
+        this.maxRowsPerStatement = maxRowsPerStatement;
+    }
+
+    @Override
+    public boolean start(Table table) {
+        flush();
+        insertTable = null;
+        return super.start(table);
+    }
+
+    @Override
+    public void write(CsvData data) {
+        if (data.getDataEventType() == DataEventType.INSERT) {
+            writingInsert = true;
+            try {
+                super.write(data);
+            } finally {
+                writingInsert = false;
+            }
+        } else {
+            flush();
+            super.write(data);
+        }
+    }
+
+    @Override
+    public void end(Table table) {
+        flush();
+        super.end(table);
+    }
+
+    @Override
+    public void end(Batch batch, boolean inError) {
+        if (inError) {
+            clearInserts();
+        } else {
+            flush();
+        }
+        super.end(batch, inError);
+    }
+
+    @Override
+    protected void commit(boolean earlyCommit) {
+        flush();
+        super.commit(earlyCommit);
+    }
+
+    @Override
+    protected void rollback() {
+        clearInserts();
+        super.rollback();
+    }
+
+    @Override
+    protected LoadStatus insert(CsvData data) {
+        /*
+         * Inserts made while resolving a conflict for another event are
+         * written right away
+         */
+        if (!writingInsert) {
+            flush();
+            return super.insert(data);
+        }
+
+        if (insertTable != targetTable) {
+            flush();
+            insertSourceTable = sourceTable;
+            insertTable = targetTable;
+            insertStatement = platform.createDmlStatement(DmlType.INSERT, targetTable,
+                    writerSettings.getTextColumnExpression());
+            rowsPerStatement = maxRowsPerStatement;
+            int parameterCount = insertStatement.getTypes().length;
+            int maxBindParameters = platform.getDatabaseInfo().getMaxBindParameters();
+            if (maxBindParameters > 0 && parameterCount > 0) {
+                rowsPerStatement = Math.min(rowsPerStatement, maxBindParameters / parameterCount);
+            }
+            try {
+                insertStatement.buildMultiRowInsertSql(2);
+            } catch (IllegalStateException ex) {
+                log.debug("Inserting into {} one row at a time. {}",
+                        targetTable.getFullyQualifiedTableName(), ex.getMessage());
+                rowsPerStatement = 1;
+            }
+        }
+
+        if (rowsPerStatement < 2) {
+            return super.insert(data);
+        }
+
+        insertValues.add(platform.getObjectValues(insertStatement.getObjectValueConverters(
+                platform, batch.getBinaryEncoding(), false, writerSettings.isFitToColumn()),
+                getRowData(data, CsvData.ROW_DATA)));
+        insertData.add(data);
+        insertPositions.add(new long[] {
+                statistics.get(batch).get(DataWriterStatisticConstants.STATEMENTCOUNT),
+                statistics.get(batch).get(DataWriterStatisticConstants.LINENUMBER) });
+        if (insertData.size() >= rowsPerStatement) {
+            flush();
+        }
+        return LoadStatus.SUCCESS;
+    }
+
+    protected void flush() {
+        if (insertData.size() > 0) {
+            List<CsvData> datas = new ArrayList<CsvData>(insertData);
+            List<Object[]> values = new ArrayList<Object[]>(insertValues);
+            List<long[]> positions = new ArrayList<long[]>(insertPositions);
+            clearInserts();
+
+            /*
+             * The transaction is prepared with a statement that the default
+             * writer does not know about
+             */
+            currentDmlStatement = null;
+            int[] types = insertStatement.getTypes();
+            int[] allTypes = new int[types.length * values.size()];
+            Object[] allValues = new Object[types.length * values.size()];
+            for (int i = 0; i < values.size(); i++) {
+                System.arraycopy(types, 0, allTypes, i * types.length, types.length);
+                System.arraycopy(values.get(i), 0, allValues, i * types.length, types.length);
+            }
+
+            boolean writeRowByRow = false;
+            try {
+                statistics.get(batch).startTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+                String sql = insertStatement.buildMultiRowInsertSql(values.size());
+                if (log.isDebugEnabled()) {
+                    log.debug("Inserting {} rows using: {}", values.size(), sql);
+                }
+                transaction.prepare(sql);
+                int count = transaction.addRow(null, allValues, allTypes);
+                statistics.get(batch).increment(DataWriterStatisticConstants.INSERTCOUNT, count);
+            } catch (SqlException ex) {
+                if (platform.getDatabaseInfo().isRequiresSavePointsInTransaction()) {
+                    throw ex;
+                }
+                log.debug("Failed to insert {} rows at once.  Inserting them one at a time. {}",
+                        values.size(), ex.getMessage());
+                writeRowByRow = true;
+            } finally {
+                statistics.get(batch).stopTimer(DataWriterStatisticConstants.DATABASEMILLIS);
+            }
+
+            if (writeRowByRow) {
+                writeRowByRow(datas, positions);
+            }
+        }
+    }
+
+    /**
+     * Write held back rows the way {@link #write(CsvData)} would have written
+     * them. While a row is written, the statement count and line number are
+     * set back to what they were when the row arrived, so a failure is
+     * reported against that row and goes through the error handlers.
+     */
+    protected void writeRowByRow(List<CsvData> datas, List<long[]> positions) {
+        Statistics stats = statistics.get(batch);
+        long statementCount = stats.get(DataWriterStatisticConstants.STATEMENTCOUNT);
+        long lineNumber = stats.get(DataWriterStatisticConstants.LINENUMBER);
+        Table currentSourceTable = sourceTable;
+        Table currentTargetTable = targetTable;
+        sourceTable = insertSourceTable;
+        targetTable = insertTable;
+        try {
+            for (int i = 0; i < datas.size(); i++) {
+                CsvData data = datas.get(i);
+                stats.set(DataWriterStatisticConstants.STATEMENTCOUNT, positions.get(i)[0]);
+                stats.set(DataWriterStatisticConstants.LINENUMBER, positions.get(i)[1]);
+                context.put(CONFLICT_ERROR, null);
+                try {
+                    LoadStatus loadStatus = super.insert(data);
+                    if (loadStatus == LoadStatus.CONFLICT) {
+                        if (conflictResolver != null) {
+                            conflictResolver.needsResolved(this, data, loadStatus);
+                        } else {
+                            throw new ConflictException(data, targetTable, false,
+                                    writerSettings.pickConflict(targetTable, batch),
+                                    (Exception) context.get(CONFLICT_ERROR));
+                        }
+                    }
+                } catch (RuntimeException ex) {
+                    if (filterError(data, ex)) {
+                        if (!(ex instanceof SqlException)) {
+                            logFailureDetails(ex, data, false);
+                        }
+                        throw ex;
+                    } else {
+                        stats.increment(DataWriterStatisticConstants.IGNORECOUNT);
+                    }
+                }
+            }
+            stats.set(DataWriterStatisticConstants.STATEMENTCOUNT, statementCount);
+            stats.set(DataWriterStatisticConstants.LINENUMBER, lineNumber);
+        } finally {
+            sourceTable = currentSourceTable;
+            targetTable = currentTargetTable;
+            currentDmlStatement = null;
+        }
+    }
+
+    protected void clearInserts() {
+        insertData.clear();
+        insertValues.clear();
+        insertPositions.clear();
+    }
+
+}
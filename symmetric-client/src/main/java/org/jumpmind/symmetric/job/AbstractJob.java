@@ -22,6 +22,7 @@ package org.jumpmind.symmetric.job;
 
 import java.util.Date;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.symmetric.ISymmetricEngine;
@@ -73,6 +74,8 @@ abstract public class AbstractJob implements Runnable, IJob {
 
     private boolean autoStartConfigured;
 
+    private AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+
     protected ISymmetricEngine engine;
 
     protected AbstractJob(String jobName, boolean requiresRegistration, boolean autoStartRequired,
@@ -145,6 +148,47 @@ abstract public class AbstractJob implements Runnable, IJob {
         return jobName;
     }
 
+    protected ThreadPoolTaskScheduler getTaskScheduler() {
+        return taskScheduler;
+    }
+
+    /**
+     * Run the job as soon as the debounce period has passed instead of
+     * waiting for the next scheduled run. Calls that arrive before the job
+     * runs are coalesced into a single run. If the job is already running it
+     * runs again after it finishes.
+     */
+    public void wakeUp() {
+        if (started && engine != null
+                && engine.getParameterService().is(ParameterConstants.JOB_WAKE_UP_ENABLED)
+                && wakeUpScheduled.compareAndSet(false, true)) {
+            long debounceMs = engine.getParameterService().getLong(
+                    ParameterConstants.JOB_WAKE_UP_DEBOUNCE_MS, 1000);
+            taskScheduler.schedule(new Runnable() {
+                public void run() {
+                    wakeUpScheduled.set(false);
+                    MDC.put("engineName", engine.getEngineName());
+                    if (!invoke(false) && running) {
+                        wakeUp();
+                    }
+                }
+            }, new Date(System.currentTimeMillis() + debounceMs));
+        }
+    }
+
+    /**
+     * Wake up another job of this engine.
+     */
+    protected void wakeUp(String jobName) {
+        IJobManager jobManager = engine.getJobManager();
+        if (jobManager != null) {
+            IJob job = jobManager.getJob(jobName);
+            if (job != null) {
+                job.wakeUp();
+            }
+        }
+    }
+
     @ManagedOperation(description = "Run this job is it isn't already running")
     public boolean invoke() {
         return invoke(true);
@@ -20,7 +20,11 @@
  */
 package org.jumpmind.symmetric.job;
 
+import java.util.concurrent.ScheduledFuture;
+
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.service.ClusterConstants;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
@@ -29,15 +33,65 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
  * This job calls {@link IRouterService#routeData()} 
  */
 public class RouterJob extends AbstractJob {
+
+    private ScheduledFuture<?> dataProbe;
+
+    private long lastMaxDataId = -1;
     
     public RouterJob(ISymmetricEngine engine, ThreadPoolTaskScheduler taskScheduler) {
         super("job.routing", true, engine.getParameterService().is("start.route.job"),
                 engine, taskScheduler);
     }
+
+    @Override
+    public void start() {
+        super.start();
+        long probePeriodMs = engine.getParameterService().getLong(
+                ParameterConstants.ROUTING_DATA_PROBE_PERIOD_MS, -1);
+        if (isStarted() && dataProbe == null && probePeriodMs > 0
+                && engine.getParameterService().is(ParameterConstants.JOB_WAKE_UP_ENABLED)) {
+            log.info("Starting the data probe for {} every {}ms", getName(), probePeriodMs);
+            dataProbe = getTaskScheduler().scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    probeForData();
+                }
+            }, probePeriodMs);
+        }
+    }
+
+    @Override
+    public boolean stop() {
+        if (dataProbe != null) {
+            dataProbe.cancel(true);
+            dataProbe = null;
+        }
+        return super.stop();
+    }
+
+    /**
+     * Wake up routing when the max data id has moved. This catches data
+     * that was captured by triggers outside of this JVM.
+     */
+    protected void probeForData() {
+        try {
+            if (engine.isStarted()) {
+                long maxDataId = engine.getDataService().findMaxDataId();
+                if (maxDataId != lastMaxDataId) {
+                    lastMaxDataId = maxDataId;
+                    wakeUp();
+                }
+            }
+        } catch (Exception ex) {
+            log.debug("Failed to probe for new data", ex);
+        }
+    }
     
     @Override
     void doJob(boolean force) throws Exception {
-        engine.getRouterService().routeData(force);
+        long dataCount = engine.getRouterService().routeData(force);
+        if (dataCount > 0) {
+            wakeUp(Constants.PUSH_JOB_TIMER);
+        }
     }
 
     public String getClusterLockName() {
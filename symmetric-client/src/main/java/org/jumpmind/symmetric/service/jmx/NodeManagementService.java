@@ -41,7 +41,9 @@ import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.ext.ISymmetricEngineAware;
 import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.SequenceBlockStats;
 import org.jumpmind.symmetric.service.IDataExtractorService;
+import org.jumpmind.symmetric.statistic.LoadStats;
 import org.jumpmind.symmetric.transport.ConcurrentConnectionManager.NodeConnectionStatistics;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
@@ -175,6 +177,54 @@ public class NodeManagementService implements IBuiltInExtensionPoint, ISymmetric
         return out.toString();
     }
 
+    @ManagedAttribute(description = "Get how often block allocated sequences have reserved a new block of values")
+    public String getSequenceBlockStatisticsAsText() {
+        String lineFeed = "\n";
+        if (engine.getParameterService().getString(ParameterConstants.JMX_LINE_FEED).equals("html")) {
+            lineFeed = "</br>";
+        }
+        StringBuilder out = new StringBuilder();
+        for (SequenceBlockStats stats : engine.getSequenceService().getSequenceBlockStats().values()) {
+            out.append(stats.toString());
+            out.append(lineFeed);
+        }
+        return out.toString();
+    }
+
+    @ManagedAttribute(description = "Get the load throughput of each channel since startup")
+    public String getChannelLoadStatisticsAsText() {
+        String lineFeed = "\n";
+        if (engine.getParameterService().getString(ParameterConstants.JMX_LINE_FEED).equals("html")) {
+            lineFeed = "</br>";
+        }
+        StringBuilder out = new StringBuilder();
+        for (LoadStats stats : engine.getStatisticManager().getLoadStatsByChannel().values()) {
+            out.append(stats.toString());
+            out.append(lineFeed);
+        }
+        return out.toString();
+    }
+
+    @ManagedAttribute(description = "Get the number of table definitions found in the table metadata cache")
+    public long getTableCacheHitCount() {
+        return engine.getDatabasePlatform().getTableCacheHitCount();
+    }
+
+    @ManagedAttribute(description = "Get the number of table definitions that had to be read from the database metadata")
+    public long getTableCacheMissCount() {
+        return engine.getDatabasePlatform().getTableCacheMissCount();
+    }
+
+    @ManagedAttribute(description = "Get the number of bytes staged resources are holding in memory")
+    public long getStagingMemoryUsedInBytes() {
+        return engine.getStagingManager().getMemoryUsedInBytes();
+    }
+
+    @ManagedAttribute(description = "Get the number of bytes staged resources may hold in memory before they are written to files")
+    public long getStagingMemoryBudgetInBytes() {
+        return engine.getStagingManager().getMemoryBudgetInBytes();
+    }
+
     @ManagedOperation(description = "Clean up both incoming and outgoing resources that are older than the passed in number of milliseconds")
     @ManagedOperationParameters({ @ManagedOperationParameter(name = "timeToLiveInMS", description = "The number of milliseconds old a resource should be before it is cleaned up") })
     public long cleanStaging(long timeToLiveInMS) {
@@ -0,0 +1,142 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.DbTestUtils;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.h2.H2DatabasePlatform;
+import org.jumpmind.db.util.BasicDataSourcePropertyConstants;
+import org.jumpmind.symmetric.io.MultiRowInsertBulkDatabaseWriter;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.util.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MultiRowInsertBulkDatabaseWriterTest extends AbstractBulkDatabaseWriterTest {
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        if (DbTestUtils.getEnvironmentSpecificProperties(DbTestUtils.ROOT).get(BasicDataSourcePropertyConstants.DB_POOL_DRIVER)
+                .equals("org.h2.Driver")) {
+            platform = DbTestUtils.createDatabasePlatform(DbTestUtils.ROOT);
+            platform.createDatabase(platform.readDatabaseFromXml("/testBulkWriter.xml", true), true, false);
+        }
+    }
+
+    @Before
+    public void setupTest() {
+        setErrorExpected(false);
+    }
+
+    @Test
+    public void testInsertConflictFallsBackToRowByRow() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            String id = getNextId();
+            List<CsvData> data = new ArrayList<CsvData>();
+            for (int i = 0; i < 5; i++) {
+                String[] values = { i == 3 ? id : getNextId(), "string" + i, "string not null", "char", "char not null",
+                        "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0", "47", "67.89", "-0.0747663", encode("string") };
+                data.add(new CsvData(DataEventType.INSERT, values));
+            }
+            String[] values = { id, "updated", "string not null", "char", "char not null",
+                    "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0", "47", "67.89", "-0.0747663", encode("string") };
+            data.add(new CsvData(DataEventType.INSERT, values));
+            writeData(data);
+            Assert.assertEquals(5, countRows(getTestTable()));
+            assertTestTableEquals(id, values);
+        }
+    }
+
+    @Test
+    public void testFailedRowIsReportedAfterFallingBackToRowByRow() {
+        if (shouldTestRun(platform)) {
+            setErrorExpected(true);
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            List<CsvData> data = buildInserts(5, 2);
+            MultiRowInsertBulkDatabaseWriter writer = new MultiRowInsertBulkDatabaseWriter(
+                    platform, null, new DatabaseWriterSettings(), 10);
+            writeData(writer, new TableCsvData(platform.getTableFromCache(getTestTable(), false),
+                    data));
+            Statistics stats = writer.getStatistics().values().iterator().next();
+            Assert.assertEquals(3, stats.get(DataWriterStatisticConstants.STATEMENTCOUNT));
+            Assert.assertEquals(3, stats.get(DataWriterStatisticConstants.LINENUMBER));
+            Assert.assertEquals(0, countRows(getTestTable()));
+        }
+    }
+
+    @Test
+    public void testFailedRowGoesThroughErrorHandlers() {
+        if (shouldTestRun(platform)) {
+            platform.getSqlTemplate().update("truncate table " + getTestTable());
+            List<CsvData> data = buildInserts(5, 2);
+            final List<CsvData> handled = new ArrayList<CsvData>();
+            DatabaseWriterSettings settings = new DatabaseWriterSettings();
+            settings.addErrorHandler(new IDatabaseWriterErrorHandler() {
+                public boolean handleError(DataContext context, Table table, CsvData data,
+                        Exception ex) {
+                    handled.add(data);
+                    return false;
+                }
+            });
+            MultiRowInsertBulkDatabaseWriter writer = new MultiRowInsertBulkDatabaseWriter(
+                    platform, null, settings, 10);
+            writeData(writer, new TableCsvData(platform.getTableFromCache(getTestTable(), false),
+                    data));
+            Assert.assertEquals(1, handled.size());
+            Assert.assertSame(data.get(2), handled.get(0));
+            Assert.assertEquals(4, countRows(getTestTable()));
+            Statistics stats = writer.getStatistics().values().iterator().next();
+            Assert.assertEquals(1, stats.get(DataWriterStatisticConstants.IGNORECOUNT));
+            Assert.assertEquals(5, stats.get(DataWriterStatisticConstants.LINENUMBER));
+        }
+    }
+
+    protected List<CsvData> buildInserts(int count, int failingIndex) {
+        List<CsvData> data = new ArrayList<CsvData>();
+        for (int i = 0; i < count; i++) {
+            String value = i == failingIndex ? StringUtils.repeat("x", 60) : "string" + i;
+            String[] values = { getNextId(), value, "string not null", "char", "char not null", "2007-01-02 00:00:00.000", "2007-02-03 04:05:06.000", "0", "47", "67.89",
+                    "-0.0747663", encode("string") };
+            data.add(new CsvData(DataEventType.INSERT, values));
+        }
+        return data;
+    }
+
+    protected boolean shouldTestRun(IDatabasePlatform platform) {
+        return platform != null && platform instanceof H2DatabasePlatform;
+    }
+
+    protected long writeData(List<CsvData> data) {
+        Table table = platform.getTableFromCache(getTestTable(), false);
+        return writeData(new MultiRowInsertBulkDatabaseWriter(platform, null, null, 10), new TableCsvData(table, data));
+    }
+
+}
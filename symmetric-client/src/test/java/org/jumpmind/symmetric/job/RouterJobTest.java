@@ -0,0 +1,203 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IDataService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IRegistrationService;
+import org.jumpmind.symmetric.service.IRouterService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+public class RouterJobTest {
+
+    ISymmetricEngine engine;
+
+    IParameterService parameterService;
+
+    IRouterService routerService;
+
+    IDataService dataService;
+
+    IJobManager jobManager;
+
+    ThreadPoolTaskScheduler taskScheduler;
+
+    int probeWakeUps;
+
+    @Before
+    public void setup() {
+        engine = mock(ISymmetricEngine.class);
+        parameterService = mock(IParameterService.class);
+        routerService = mock(IRouterService.class);
+        dataService = mock(IDataService.class);
+        jobManager = mock(IJobManager.class);
+        taskScheduler = mock(ThreadPoolTaskScheduler.class);
+        IRegistrationService registrationService = mock(IRegistrationService.class);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getClusterService()).thenReturn(mock(IClusterService.class));
+        when(engine.getRegistrationService()).thenReturn(registrationService);
+        when(engine.getRouterService()).thenReturn(routerService);
+        when(engine.getDataService()).thenReturn(dataService);
+        when(engine.getJobManager()).thenReturn(jobManager);
+        when(engine.getEngineName()).thenReturn("test");
+        when(engine.isStarted()).thenReturn(true);
+        when(registrationService.isRegisteredWithServer()).thenReturn(true);
+        when(parameterService.getExternalId()).thenReturn("00000");
+        when(parameterService.getInt(ParameterConstants.JOB_RANDOM_MAX_START_TIME_MS)).thenReturn(
+                1000);
+        when(parameterService.getInt("job.routing.period.time.ms", -1)).thenReturn(10000);
+        when(parameterService.is(ParameterConstants.JOB_WAKE_UP_ENABLED)).thenReturn(true);
+        when(parameterService.getLong(ParameterConstants.JOB_WAKE_UP_DEBOUNCE_MS, 1000))
+                .thenReturn(1000l);
+    }
+
+    @Test
+    public void testWakeUpIsIgnoredBeforeStart() {
+        RouterJob job = new RouterJob(engine, taskScheduler);
+        job.wakeUp();
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Date.class));
+    }
+
+    @Test
+    public void testWakeUpIsIgnoredWhenDisabled() {
+        when(parameterService.is(ParameterConstants.JOB_WAKE_UP_ENABLED)).thenReturn(false);
+        RouterJob job = new RouterJob(engine, taskScheduler);
+        job.start();
+        job.wakeUp();
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Date.class));
+    }
+
+    @Test
+    public void testWakeUpsAreCoalesced() {
+        RouterJob job = new RouterJob(engine, taskScheduler);
+        job.start();
+        long now = System.currentTimeMillis();
+        job.wakeUp();
+        job.wakeUp();
+        job.wakeUp();
+        ArgumentCaptor<Date> runTime = ArgumentCaptor.forClass(Date.class);
+        List<Runnable> wakeUps = captureWakeUps(1, runTime);
+        assertTrue(runTime.getValue().getTime() >= now + 1000);
+
+        wakeUps.get(0).run();
+        verify(routerService).routeData(false);
+
+        job.wakeUp();
+        captureWakeUps(2, runTime);
+    }
+
+    @Test
+    public void testWakeUpDuringRunRunsAgain() {
+        final RouterJob job = new RouterJob(engine, taskScheduler);
+        when(routerService.routeData(anyBoolean())).thenAnswer(new Answer<Long>() {
+            public Long answer(InvocationOnMock invocation) {
+                job.wakeUp();
+                return 0l;
+            }
+        });
+        job.start();
+        job.wakeUp();
+        captureWakeUps(1, null).get(0).run();
+        List<Runnable> wakeUps = captureWakeUps(2, null);
+        wakeUps.get(1).run();
+        verify(routerService, times(2)).routeData(false);
+    }
+
+    @Test
+    public void testRoutedDataWakesUpPush() {
+        IJob pushJob = mock(IJob.class);
+        when(jobManager.getJob(Constants.PUSH_JOB_TIMER)).thenReturn(pushJob);
+        RouterJob job = new RouterJob(engine, taskScheduler);
+
+        when(routerService.routeData(true)).thenReturn(0l);
+        job.invoke(true);
+        verify(pushJob, never()).wakeUp();
+
+        when(routerService.routeData(true)).thenReturn(5l);
+        job.invoke(true);
+        verify(pushJob).wakeUp();
+    }
+
+    @Test
+    public void testDataProbeWakesUpRoutingWhenMaxDataIdMoves() {
+        RouterJob job = new RouterJob(engine, taskScheduler) {
+            @Override
+            public void wakeUp() {
+                probeWakeUps++;
+            }
+        };
+        when(dataService.findMaxDataId()).thenReturn(10l, 10l, 11l, 11l);
+        for (int i = 0; i < 4; i++) {
+            job.probeForData();
+        }
+        assertEquals(2, probeWakeUps);
+    }
+
+    @Test
+    public void testDataProbeIsScheduledAndCancelled() {
+        when(parameterService.getLong(ParameterConstants.ROUTING_DATA_PROBE_PERIOD_MS, -1))
+                .thenReturn(500l);
+        final ScheduledFuture<?> probe = mock(ScheduledFuture.class);
+        when(taskScheduler.scheduleWithFixedDelay(any(Runnable.class), eq(500l))).thenAnswer(
+                new Answer<ScheduledFuture<?>>() {
+                    public ScheduledFuture<?> answer(InvocationOnMock invocation) {
+                        return probe;
+                    }
+                });
+        RouterJob job = new RouterJob(engine, taskScheduler);
+        job.start();
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), eq(500l));
+        job.stop();
+        verify(probe).cancel(true);
+    }
+
+    protected List<Runnable> captureWakeUps(int count, ArgumentCaptor<Date> runTime) {
+        ArgumentCaptor<Runnable> wakeUps = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, times(count)).schedule(wakeUps.capture(),
+                runTime != null ? runTime.capture() : any(Date.class));
+        return wakeUps.getAllValues();
+    }
+
+}
@@ -733,6 +733,9 @@ abstract public class AbstractSymmetricEngine implements ISymmetricEngine {
         if (nodeCommunicationService != null) {
         	nodeCommunicationService.stop();
         }
+        if (dataExtractorService != null) {
+            dataExtractorService.stop();
+        }
         
         if (statisticManager != null) {
             List<ProcessInfo> infos = statisticManager.getProcessInfos();
@@ -81,6 +81,9 @@ final public class ParameterConstants {
     public final static String FILE_PUSH_LOCK_TIMEOUT_MS = "file.push.lock.timeout.ms";
 
     public final static String JOB_RANDOM_MAX_START_TIME_MS = "job.random.max.start.time.ms";
+    public final static String JOB_WAKE_UP_ENABLED = "job.wake.up.enabled";
+    public final static String JOB_WAKE_UP_DEBOUNCE_MS = "job.wake.up.debounce.ms";
+    public final static String ROUTING_DATA_PROBE_PERIOD_MS = "job.routing.data.probe.period.time.ms";
 
     public final static String REGISTRATION_NUMBER_OF_ATTEMPTS = "registration.number.of.attempts";
     public final static String REGISTRATION_REOPEN_USE_SAME_PASSWORD = "registration.reopen.use.same.password";
@@ -105,6 +108,8 @@ final public class ParameterConstants {
     public final static String AUTO_SYNC_TRIGGERS_AT_STARTUP = "auto.sync.triggers.at.startup";
     public final static String AUTO_SYNC_TRIGGERS_AFTER_CONFIG_CHANGED = "auto.sync.triggers.after.config.change";
     public final static String AUTO_SYNC_TRIGGERS_AFTER_CONFIG_LOADED = "auto.sync.triggers.after.config.loaded";
+    public final static String SYNC_TRIGGERS_BULK_METADATA_ENABLED = "sync.triggers.bulk.metadata.enabled";
+    public final static String SYNC_TRIGGERS_THREAD_COUNT_PER_SERVER = "sync.triggers.thread.count.per.server";
     public final static String AUTO_REFRESH_AFTER_CONFIG_CHANGED = "auto.refresh.after.config.changes.detected";
     public final static String AUTO_CONFIGURE_REG_SVR_SQL_SCRIPT = "auto.config.registration.svr.sql.script";
     public final static String AUTO_CONFIGURE_REG_SVR_DDLUTIL_XML = "auto.config.registration.svr.ddlutil.xml";
@@ -124,6 +129,10 @@ final public class ParameterConstants {
     public final static String INITIAL_LOAD_USE_EXTRACT_JOB = "initial.load.use.extract.job.enabled";
     public final static String INITIAL_LOAD_CONCAT_CSV_IN_SQL_ENABLED = "initial.load.concat.csv.in.sql.enabled";
     public final static String INITIAL_LOAD_EXTRACT_THREAD_COUNT_PER_SERVER = "initial.load.extract.thread.per.server.count";
+    public final static String INITIAL_LOAD_EXTRACT_PARTITION_COUNT = "initial.load.extract.partition.count";
+    public final static String INITIAL_LOAD_EXTRACT_PARTITION_THREAD_COUNT = "initial.load.extract.partition.thread.count";
+    public final static String INITIAL_LOAD_EXTRACT_SHARED_ENABLED = "initial.load.extract.shared.enabled";
+    public final static String INITIAL_LOAD_USE_ESTIMATED_COUNTS = "initial.load.use.estimated.counts";
     public final static String INITIAL_LOAD_EXTRACT_TIMEOUT_MS = "initial.load.extract.timeout.ms";
     public final static String INITIAL_LOAD_EXTRACT_JOB_START = "start.initial.load.extract.job";
     public final static String INITIAL_LOAD_SCHEMA_DUMP_COMMAND = "initial.load.schema.dump.command";
@@ -137,6 +146,8 @@ final public class ParameterConstants {
     public final static String STREAM_TO_FILE_ENABLED = "stream.to.file.enabled";
     public final static String STREAM_TO_FILE_THRESHOLD = "stream.to.file.threshold.bytes";
     public final static String STREAM_TO_FILE_TIME_TO_LIVE_MS = "stream.to.file.ttl.ms";
+    public final static String STREAM_TO_FILE_COPY_TO_TRANSPORT_ENABLED = "stream.to.file.copy.to.transport.enabled";
+    public final static String STREAM_TO_FILE_MEMORY_BUDGET_BYTES = "stream.to.file.memory.budget.bytes";
 
     public final static String PARAMETER_REFRESH_PERIOD_IN_MS = "parameter.reload.timeout.ms";
 
@@ -155,11 +166,15 @@ final public class ParameterConstants {
     public final static String ROUTING_DATA_READER_ORDER_BY_DATA_ID_ENABLED = "routing.data.reader.order.by.gap.id.enabled";
     public final static String ROUTING_DATA_READER_THRESHOLD_GAPS_TO_USE_GREATER_QUERY = "routing.data.reader.threshold.gaps.to.use.greater.than.query";
     public final static String ROUTING_LOG_STATS_ON_BATCH_ERROR = "routing.log.stats.on.batch.error";
+    public final static String ROUTING_CHANNEL_THREAD_COUNT = "routing.channel.thread.count";
+    public final static String ROUTING_USE_FAST_GAP_DETECTOR = "routing.use.fast.gap.detector";
+    public final static String ROUTING_SUBSELECT_CACHE_MAX_ENTRIES = "routing.subselect.cache.max.entries";
 
     public final static String INCOMING_BATCH_SKIP_DUPLICATE_BATCHES_ENABLED = "incoming.batches.skip.duplicates";
     @Deprecated
     public final static String INCOMING_BATCH_DELETE_ON_LOAD = "incoming.batch.delete.on.load";
     public final static String INCOMING_BATCH_RECORD_OK_ENABLED = "incoming.batches.record.ok.enabled";
+    public final static String INCOMING_BATCH_RECORD_IN_LOAD_TRANSACTION = "incoming.batches.record.in.load.transaction";
     public final static String DATA_LOADER_ENABLED = "dataloader.enable";
     public final static String DATA_LOADER_APPLY_CHANGES_ONLY = "dataloader.apply.changes.only";
     public final static String DATA_LOADER_IGNORE_MISSING_TABLES = "dataloader.ignore.missing.tables";
@@ -173,6 +188,9 @@ final public class ParameterConstants {
     public final static String DATA_LOADER_SLEEP_TIME_AFTER_EARLY_COMMIT = "dataloader.sleep.time.after.early.commit";
     public final static String DATA_LOADER_TREAT_DATETIME_AS_VARCHAR = "db.treat.date.time.as.varchar.enabled";
     public final static String DATA_LOADER_USE_PRIMARY_KEYS_FROM_SOURCE = "dataloader.use.primary.keys.from.source";
+    public final static String DATA_LOADER_PIPELINED_LOAD_ENABLED = "dataloader.pipelined.load.enabled";
+    public final static String DATA_LOADER_PIPELINED_LOAD_QUEUE_SIZE = "dataloader.pipelined.load.queue.size";
+    public final static String DATA_LOADER_PARALLEL_CHANNEL_LOAD_ENABLED = "dataloader.parallel.channel.load.enabled";
 
     public final static String DATA_RELOAD_IS_BATCH_INSERT_TRANSACTIONAL = "datareload.batch.insert.transactional";
 
@@ -210,6 +228,7 @@ final public class ParameterConstants {
     public final static String CACHE_TIMEOUT_LOAD_FILTER_IN_MS = "cache.load.filter.time.ms";
     public final static String CACHE_TIMEOUT_CONFLICT_IN_MS = "cache.conflict.time.ms";
     public final static String CACHE_TIMEOUT_TABLES_IN_MS = "cache.table.time.ms";
+    public final static String CACHE_TIMEOUT_ROW_COUNT_IN_MS = "cache.row.count.time.ms";
 
     public final static String TRIGGER_UPDATE_CAPTURE_CHANGED_DATA_ONLY = "trigger.update.capture.changed.data.only.enabled";
     public final static String TRIGGER_CREATE_BEFORE_INITIAL_LOAD = "trigger.create.before.initial.load.enabled";
@@ -276,11 +295,16 @@ final public class ParameterConstants {
     public final static String DB_MASTER_COLLATION = "db.master.collation";
 
     public final static String SEQUENCE_TIMEOUT_MS = "sequence.timeout.ms";
+    public final static String SEQUENCE_BLOCK_SIZE = "sequence.block.size";
 
     public final static String REST_API_ENABLED = "rest.api.enable";
 
     public final static String REST_HEARTBEAT_ON_PULL = "rest.api.heartbeat.on.pull";
 
+    public final static String REST_PULL_MAX_WAIT_MS = "rest.api.pull.max.wait.ms";
+
+    public final static String REST_PULL_MAX_WAITING_THREADS = "rest.api.pull.max.waiting.threads";
+
     public final static String SYNCHRONIZE_ALL_JOBS = "jobs.synchronized.enable";
 
     public final static String FILE_SYNC_ENABLE = "file.sync.enable";
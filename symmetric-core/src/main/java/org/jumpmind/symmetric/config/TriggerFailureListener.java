@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.config;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -37,7 +38,7 @@ public class TriggerFailureListener extends TriggerCreationAdapter implements IB
     private Map<Trigger, Exception> failures;
 
     public TriggerFailureListener() {
-        this.failures = new HashMap<Trigger, Exception>();
+        this.failures = Collections.synchronizedMap(new HashMap<Trigger, Exception>());
     }
 
     @Override
@@ -60,4 +60,6 @@ public interface IJob {
     
     public boolean invoke(boolean force);
 
+    public void wakeUp();
+
 }
\ No newline at end of file
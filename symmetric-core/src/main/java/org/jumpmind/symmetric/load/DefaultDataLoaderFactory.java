@@ -35,6 +35,7 @@ import org.jumpmind.symmetric.io.data.writer.Conflict;
 import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
 import org.jumpmind.symmetric.io.data.writer.DatabaseWriterSettings;
 import org.jumpmind.symmetric.io.data.writer.DefaultTransformWriterConflictResolver;
+import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterConflictResolver;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterErrorHandler;
 import org.jumpmind.symmetric.io.data.writer.IDatabaseWriterFilter;
 import org.jumpmind.symmetric.io.data.writer.ResolvedData;
@@ -65,7 +66,7 @@ public class DefaultDataLoaderFactory implements IDataLoaderFactory, IBuiltInExt
             final ISymmetricDialect symmetricDialect, TransformWriter transformWriter,
             List<IDatabaseWriterFilter> filters, List<IDatabaseWriterErrorHandler> errorHandlers,
             List<? extends Conflict> conflictSettings, List<ResolvedData> resolvedData) {
-        DefaultDatabaseWriter writer = new DefaultDatabaseWriter(symmetricDialect.getPlatform(),
+        DefaultDatabaseWriter writer = createDatabaseWriter(symmetricDialect.getPlatform(),
                 new DefaultTransformWriterConflictResolver(transformWriter) {
                     @Override
                     protected void beforeResolutionAttempt(Conflict conflict) {
@@ -95,6 +96,11 @@ public class DefaultDataLoaderFactory implements IDataLoaderFactory, IBuiltInExt
         return writer;
     }
 
+    protected DefaultDatabaseWriter createDatabaseWriter(IDatabasePlatform platform,
+            IDatabaseWriterConflictResolver conflictResolver, DatabaseWriterSettings settings) {
+        return new DefaultDatabaseWriter(platform, conflictResolver, settings);
+    }
+
     public boolean isPlatformSupported(IDatabasePlatform platform) {
         return true;
     }
@@ -0,0 +1,103 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.model;
+
+import java.util.Date;
+
+/**
+ * How often a block allocated sequence has had to go back to the database to
+ * reserve another block of values.
+ */
+public class SequenceBlockStats {
+
+    private String sequenceName;
+    private long blockSize;
+    private long refillCount;
+    private Date firstRefillTime;
+    private Date lastRefillTime;
+    private long lastRefillIntervalMs;
+
+    public SequenceBlockStats(String sequenceName) {
+        this.sequenceName = sequenceName;
+    }
+
+    public SequenceBlockStats(SequenceBlockStats stats) {
+        this.sequenceName = stats.sequenceName;
+        this.blockSize = stats.blockSize;
+        this.refillCount = stats.refillCount;
+        this.firstRefillTime = stats.firstRefillTime;
+        this.lastRefillTime = stats.lastRefillTime;
+        this.lastRefillIntervalMs = stats.lastRefillIntervalMs;
+    }
+
+    public void refilled(long blockSize) {
+        Date now = new Date();
+        if (lastRefillTime != null) {
+            lastRefillIntervalMs = now.getTime() - lastRefillTime.getTime();
+        } else {
+            firstRefillTime = now;
+        }
+        lastRefillTime = now;
+        this.blockSize = blockSize;
+        refillCount++;
+    }
+
+    public String getSequenceName() {
+        return sequenceName;
+    }
+
+    public long getBlockSize() {
+        return blockSize;
+    }
+
+    public long getRefillCount() {
+        return refillCount;
+    }
+
+    public Date getFirstRefillTime() {
+        return firstRefillTime;
+    }
+
+    public Date getLastRefillTime() {
+        return lastRefillTime;
+    }
+
+    public long getLastRefillIntervalMs() {
+        return lastRefillIntervalMs;
+    }
+
+    public long getAverageRefillIntervalMs() {
+        if (refillCount > 1) {
+            return (lastRefillTime.getTime() - firstRefillTime.getTime()) / (refillCount - 1);
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sequenceName + ": blockSize=" + blockSize + ", refillCount=" + refillCount
+                + ", lastRefillTime=" + lastRefillTime + ", lastRefillIntervalMs="
+                + lastRefillIntervalMs + ", averageRefillIntervalMs="
+                + getAverageRefillIntervalMs();
+    }
+
+}
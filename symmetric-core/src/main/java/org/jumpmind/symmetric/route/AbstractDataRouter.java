@@ -24,6 +24,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -31,9 +32,11 @@ import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.model.Data;
 import org.jumpmind.symmetric.model.DataMetaData;
 import org.jumpmind.symmetric.model.Node;
 import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.TriggerHistory;
 import org.jumpmind.util.LinkedCaseInsensitiveMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,6 +50,8 @@ public abstract class AbstractDataRouter implements IDataRouter {
 
     protected Logger log = LoggerFactory.getLogger(getClass());
 
+    private Map<Integer, DataColumnIndex> columnIndexes = new ConcurrentHashMap<Integer, DataColumnIndex>();
+
     public void contextCommitted(SimpleRouterContext context) {
     }
 
@@ -84,6 +89,107 @@ public abstract class AbstractDataRouter implements IDataRouter {
         return data;
     }
 
+    /**
+     * Look up the column index for the trigger history. The index is built
+     * once per trigger history and reused for every row that is routed.
+     */
+    protected DataColumnIndex getColumnIndex(TriggerHistory triggerHistory) {
+        Integer triggerHistoryId = triggerHistory.getTriggerHistoryId();
+        DataColumnIndex columnIndex = columnIndexes.get(triggerHistoryId);
+        if (columnIndex == null || !columnIndex.isFor(triggerHistory)) {
+            columnIndex = new DataColumnIndex(triggerHistory);
+            columnIndexes.put(triggerHistoryId, columnIndex);
+        }
+        return columnIndex;
+    }
+
+    /**
+     * @return true if {@link #getDataMap(DataMetaData, ISymmetricDialect)}
+     *         would have contained the column
+     */
+    protected boolean isColumnCaptured(DataMetaData dataMetaData, String columnName) {
+        DataColumnIndex.Column column = getColumnIndex(dataMetaData.getTriggerHistory()).get(columnName);
+        if (column == null) {
+            return false;
+        } else if (column.isExternalData()) {
+            return true;
+        } else if (isPkDataOnly(dataMetaData.getData())) {
+            return !column.isOld() && column.getPkIndex() >= 0 && dataMetaData.getData().toParsedPkData() != null;
+        } else if (column.getIndex() < 0) {
+            return false;
+        } else {
+            return getValues(dataMetaData.getData(), column.isOld()) != null
+                    || (column.isOld() && dataMetaData.getData().getDataEventType() == DataEventType.INSERT);
+        }
+    }
+
+    /**
+     * Read a column value straight from the parsed data without building a
+     * data map. Returns the same value that
+     * {@link #getDataMap(DataMetaData, ISymmetricDialect)} would have mapped
+     * the column name to.
+     */
+    protected String getColumnValue(DataMetaData dataMetaData, String columnName,
+            ISymmetricDialect symmetricDialect) {
+        Data data = dataMetaData.getData();
+        TriggerHistory triggerHistory = dataMetaData.getTriggerHistory();
+        DataColumnIndex.Column column = getColumnIndex(triggerHistory).get(columnName);
+        if (column == null) {
+            return null;
+        } else if (column.isExternalData()) {
+            return data.getExternalData();
+        } else if (isPkDataOnly(data)) {
+            String[] pkData = data.toParsedPkData();
+            if (!column.isOld() && column.getPkIndex() >= 0 && pkData != null) {
+                testColumnNamesMatchValues(dataMetaData, symmetricDialect,
+                        triggerHistory.getParsedPkColumnNames(), pkData);
+                return pkData[column.getPkIndex()];
+            }
+        } else if (column.getIndex() >= 0) {
+            String[] values = getValues(data, column.isOld());
+            if (values != null) {
+                testColumnNamesMatchValues(dataMetaData, symmetricDialect,
+                        triggerHistory.getParsedColumnNames(), values);
+                return values[column.getIndex()];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the parsed data that holds the current or old column values for
+     *         the event type
+     */
+    protected String[] getValues(Data data, boolean old) {
+        switch (data.getDataEventType()) {
+            case UPDATE:
+                return old ? data.toParsedOldData() : data.toParsedRowData();
+            case INSERT:
+                return old ? null : data.toParsedRowData();
+            case DELETE:
+                return data.toParsedOldData();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return true if only the primary key columns are available, which is the
+     *         case when there is no captured row or old data
+     */
+    protected boolean isPkDataOnly(Data data) {
+        switch (data.getDataEventType()) {
+            case UPDATE:
+                return data.toParsedRowData() == null && data.toParsedOldData() == null;
+            case INSERT:
+                return false;
+            case DELETE:
+                return data.toParsedOldData() == null;
+            default:
+                return true;
+        }
+    }
+
     protected Map<String, String> getNewDataAsString(String prefix, DataMetaData dataMetaData, ISymmetricDialect symmetricDialect) {
         String[] rowData = dataMetaData.getData().toParsedRowData();
         return getDataAsString(prefix, dataMetaData, symmetricDialect, rowData);
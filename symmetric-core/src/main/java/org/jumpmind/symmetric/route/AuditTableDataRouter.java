@@ -25,6 +25,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
@@ -54,7 +55,7 @@ public class AuditTableDataRouter extends AbstractDataRouter implements IBuiltIn
 
     private ISymmetricEngine engine;
 
-    private Map<String, Table> auditTables = new HashMap<String, Table>();
+    private Map<String, Table> auditTables = new ConcurrentHashMap<String, Table>();
 
     public AuditTableDataRouter(ISymmetricEngine engine) {
         this.engine = engine;
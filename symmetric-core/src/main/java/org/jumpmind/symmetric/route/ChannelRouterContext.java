@@ -57,12 +57,15 @@ public class ChannelRouterContext extends SimpleRouterContext {
 
     private Map<String, OutgoingBatch> batchesByNodes = new HashMap<String, OutgoingBatch>();
     private Map<TriggerRouter, Set<Node>> availableNodes = new HashMap<TriggerRouter, Set<Node>>();
+    private Map<TriggerRouter, Set<Node>> targetEnabledNodes = new HashMap<TriggerRouter, Set<Node>>();
     private Set<IDataRouter> usedDataRouters = new HashSet<IDataRouter>();
     private ISqlTransaction sqlTransaction;
     private boolean needsCommitted = false;
     private long createdTimeInMs = System.currentTimeMillis();
     private Data lastDataProcessed;
     private List<DataEvent> dataEventsToSend = new ArrayList<DataEvent>();
+    private List<Long> uncommittedDataIds = new ArrayList<Long>();
+    private List<Long> committedDataIds = new ArrayList<Long>();
     private boolean produceCommonBatches = false;
     private boolean onlyDefaultRoutersAssigned = false;
     private long lastLoadId = -1;
@@ -91,6 +94,18 @@ public class ChannelRouterContext extends SimpleRouterContext {
 
     public void addDataEvent(long dataId, long batchId, String routerId) {
         dataEventsToSend.add(new DataEvent(dataId, batchId, routerId));
+        int size = uncommittedDataIds.size();
+        if (size == 0 || uncommittedDataIds.get(size - 1) != dataId) {
+            uncommittedDataIds.add(dataId);
+        }
+    }
+
+    /**
+     * @return the ids of the data that had data events committed by this
+     *         context
+     */
+    public List<Long> getCommittedDataIds() {
+        return committedDataIds;
     }
 
     public Map<String, OutgoingBatch> getBatchesByNodes() {
@@ -101,9 +116,14 @@ public class ChannelRouterContext extends SimpleRouterContext {
         return availableNodes;
     }
 
+    public Map<TriggerRouter, Set<Node>> getTargetEnabledNodes() {
+        return targetEnabledNodes;
+    }
+
     public void commit() {
         try {
             sqlTransaction.commit();
+            committedDataIds.addAll(uncommittedDataIds);
         } finally {
             clearState();
         }
@@ -115,7 +135,9 @@ public class ChannelRouterContext extends SimpleRouterContext {
         this.requestGapDetection = false;
         this.batchesByNodes.clear();
         this.availableNodes.clear();
+        this.targetEnabledNodes.clear();
         this.dataEventsToSend.clear();
+        this.uncommittedDataIds.clear();
     }
 
     public void rollback() {
@@ -22,6 +22,8 @@ package org.jumpmind.symmetric.route;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -87,6 +89,9 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
     final static String EXPRESSION_KEY = String.format("%s.Expression.", ColumnMatchDataRouter.class
             .getName());        
     
+    final static String NODE_INDEX_KEY = String.format("%s.NodeIndex.", ColumnMatchDataRouter.class
+            .getName());
+
     public ColumnMatchDataRouter() {
     }
 
@@ -102,15 +107,17 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
             nodeIds = toNodeIds(nodes, null);
         } else {
             List<Expression> expressions = getExpressions(dataMetaData.getRouter(), routingContext);
-            Map<String, String> columnValues = getDataMap(dataMetaData, symmetricDialect);
 
-            if (columnValues != null) {
+            if (dataMetaData.getTriggerHistory() != null) {
                 for (Expression e : expressions) {
                     String column = e.tokens[0].trim();
                     String value = e.tokens[1];
-                    String columnValue = columnValues.get(column);
+                    String columnValue = getColumnValue(dataMetaData, column, symmetricDialect);
 
-                    if (value.equalsIgnoreCase(TokenConstants.NODE_ID)) {
+                    if ((e.hasEquals || e.hasContains) && e.nodeAttribute != null) {
+                        NodeIndex nodeIndex = getNodeIndex(dataMetaData.getRouter(), routingContext, nodes);
+                        nodeIds = runIndexedExpression(e, columnValue, nodeIndex, nodeIds);
+                    } else if (value.equalsIgnoreCase(TokenConstants.NODE_ID)) {
                         for (Node node : nodes) {
                             nodeIds = runExpression(e, columnValue, node.getNodeId(), nodes,
                                     nodeIds, node);
@@ -135,8 +142,8 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
                         String compareValue = value;
                         if (value.equalsIgnoreCase(TokenConstants.EXTERNAL_DATA)) {
                             compareValue = dataMetaData.getData().getExternalData();
-                        } else if (value.startsWith(":")) {
-                            compareValue = columnValues.get(value.substring(1));
+                        } else if (e.compareColumn != null) {
+                            compareValue = getColumnValue(dataMetaData, e.compareColumn, symmetricDialect);
                         } else if (value.equals(NULL_VALUE)) {
                             compareValue = null;
                         }
@@ -184,6 +191,48 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
         return nodeIds;
     }
 
+    /**
+     * Match the nodes that an equals or contains expression against
+     * :NODE_ID, :EXTERNAL_ID or :NODE_GROUP_ID selects with hash lookups
+     * instead of evaluating the expression for every node.
+     */
+    protected Set<String> runIndexedExpression(Expression e, String columnValue, NodeIndex nodeIndex, Set<String> nodeIds) {
+        if (e.hasEquals) {
+            nodeIds = addNodeIds(nodeIndex.get(e.nodeAttribute, columnValue), nodeIds);
+        } else if (columnValue != null) {
+            String[] values = columnValue.split(",");
+            for (String value : values) {
+                nodeIds = addNodeIds(nodeIndex.get(e.nodeAttribute, value), nodeIds);
+            }
+        }
+        return nodeIds;
+    }
+
+    protected Set<String> addNodeIds(List<Node> matchingNodes, Set<String> nodeIds) {
+        if (matchingNodes != null) {
+            nodeIds = nodeIds == null ? new HashSet<String>(matchingNodes.size()) : nodeIds;
+            for (Node node : matchingNodes) {
+                nodeIds.add(node.getNodeId());
+            }
+        }
+        return nodeIds;
+    }
+
+    /**
+     * Cache the node index in the context. The index is rebuilt when the
+     * router is handed a different set of nodes, which happens when the
+     * available nodes are looked up again after node membership changes.
+     */
+    protected NodeIndex getNodeIndex(Router router, SimpleRouterContext context, Set<Node> nodes) {
+        final String KEY = NODE_INDEX_KEY + router.getRouterId();
+        NodeIndex nodeIndex = (NodeIndex) context.getContextCache().get(KEY);
+        if (nodeIndex == null || !nodeIndex.isFor(nodes)) {
+            nodeIndex = new NodeIndex(nodes);
+            context.getContextCache().put(KEY, nodeIndex);
+        }
+        return nodeIndex;
+    }
+
     /**
      * Cache parsed expressions in the context to minimize the amount of parsing
      * we have to do when we have lots of throughput.
@@ -287,6 +336,8 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
         boolean hasNotContains;
         String[] tokens;
         String operator;
+        String compareColumn;
+        String nodeAttribute;
 
         public Expression(String operator, String[] tokens) {
             this.tokens = tokens;
@@ -295,6 +346,10 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
             else if (operator.equals(NOT_EQUALS)) hasNotEquals = true;
             else if (operator.equals(CONTAINS)) hasContains = true;
             else if (operator.equals(NOT_CONTAINS)) hasNotContains = true;
+            if (tokens[1].startsWith(":")) compareColumn = tokens[1].substring(1);
+            if (tokens[1].equalsIgnoreCase(TokenConstants.NODE_ID)) nodeAttribute = TokenConstants.NODE_ID;
+            else if (tokens[1].equalsIgnoreCase(TokenConstants.EXTERNAL_ID)) nodeAttribute = TokenConstants.EXTERNAL_ID;
+            else if (tokens[1].equalsIgnoreCase(TokenConstants.NODE_GROUP_ID)) nodeAttribute = TokenConstants.NODE_GROUP_ID;
         }
         
         public String[] getTokens() {
@@ -321,4 +376,57 @@ public class ColumnMatchDataRouter extends AbstractDataRouter implements IDataRo
             return hasEquals;
         }
     }
+
+    /**
+     * Hash indexes of the nodes a router can route to by node id, external id
+     * and node group id.
+     */
+    static class NodeIndex {
+
+        Set<Node> nodes;
+
+        int size;
+
+        Map<String, List<Node>> byNodeId;
+
+        Map<String, List<Node>> byExternalId;
+
+        Map<String, List<Node>> byNodeGroupId;
+
+        NodeIndex(Set<Node> nodes) {
+            this.nodes = nodes;
+            this.size = nodes.size();
+            this.byNodeId = new HashMap<String, List<Node>>(size);
+            this.byExternalId = new HashMap<String, List<Node>>(size);
+            this.byNodeGroupId = new HashMap<String, List<Node>>();
+            for (Node node : nodes) {
+                add(byNodeId, node.getNodeId(), node);
+                add(byExternalId, node.getExternalId(), node);
+                add(byNodeGroupId, node.getNodeGroupId(), node);
+            }
+        }
+
+        private void add(Map<String, List<Node>> index, String key, Node node) {
+            List<Node> list = index.get(key);
+            if (list == null) {
+                list = new ArrayList<Node>(1);
+                index.put(key, list);
+            }
+            list.add(node);
+        }
+
+        boolean isFor(Set<Node> nodes) {
+            return this.nodes == nodes && this.size == nodes.size();
+        }
+
+        List<Node> get(String nodeAttribute, String value) {
+            if (nodeAttribute.equals(TokenConstants.NODE_ID)) {
+                return byNodeId.get(value);
+            } else if (nodeAttribute.equals(TokenConstants.EXTERNAL_ID)) {
+                return byExternalId.get(value);
+            } else {
+                return byNodeGroupId.get(value);
+            }
+        }
+    }
 }
@@ -0,0 +1,142 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jumpmind.symmetric.model.TriggerHistory;
+
+/**
+ * Resolves the column names a router expression can refer to into indexes of
+ * the parsed row, old and primary key data captured for a
+ * {@link TriggerHistory}. The names are the same ones that
+ * {@link AbstractDataRouter#getDataMap} exposes: the column name for the
+ * current value, the column name prefixed with OLD_ for the old value and
+ * EXTERNAL_DATA. Names are matched as given or upper cased.
+ */
+public class DataColumnIndex {
+
+    public static final String OLD_PREFIX = "OLD_";
+
+    public static final String EXTERNAL_DATA = "EXTERNAL_DATA";
+
+    private String columnNames;
+
+    private String pkColumnNames;
+
+    private Map<String, Column> columns;
+
+    public DataColumnIndex(TriggerHistory triggerHistory) {
+        this.columnNames = triggerHistory.getColumnNames();
+        this.pkColumnNames = triggerHistory.getPkColumnNames();
+        String[] parsedColumnNames = triggerHistory.getParsedColumnNames();
+        String[] parsedPkColumnNames = triggerHistory.getParsedPkColumnNames();
+        parsedColumnNames = parsedColumnNames != null ? parsedColumnNames : new String[0];
+        parsedPkColumnNames = parsedPkColumnNames != null ? parsedPkColumnNames : new String[0];
+        this.columns = new HashMap<String, Column>((parsedColumnNames.length + parsedPkColumnNames.length) * 4);
+
+        for (int i = 0; i < parsedPkColumnNames.length; i++) {
+            put(parsedPkColumnNames[i], new Column(false, -1, i));
+        }
+
+        for (int i = 0; i < parsedColumnNames.length; i++) {
+            String columnName = parsedColumnNames[i];
+            Column pkColumn = get(columnName);
+            put(columnName, new Column(false, i, pkColumn != null ? pkColumn.pkIndex : -1));
+        }
+
+        /*
+         * Old values are put after the current values so that they win the
+         * same way they do in the data map
+         */
+        for (int i = 0; i < parsedColumnNames.length; i++) {
+            put(OLD_PREFIX + parsedColumnNames[i], new Column(true, i, -1));
+        }
+
+        columns.put(EXTERNAL_DATA, Column.EXTERNAL_DATA_COLUMN);
+    }
+
+    protected void put(String columnName, Column column) {
+        columns.put(columnName, column);
+        columns.put(columnName.toUpperCase(), column);
+    }
+
+    /**
+     * @return the resolved column or null if the name does not refer to a
+     *         captured column
+     */
+    public Column get(String columnName) {
+        Column column = columns.get(columnName);
+        if (column == null && columnName != null) {
+            column = columns.get(columnName.toUpperCase());
+        }
+        return column;
+    }
+
+    /**
+     * @return true if this index was built from the same column names as the
+     *         trigger history
+     */
+    public boolean isFor(TriggerHistory triggerHistory) {
+        return equals(columnNames, triggerHistory.getColumnNames())
+                && equals(pkColumnNames, triggerHistory.getPkColumnNames());
+    }
+
+    private static boolean equals(String one, String two) {
+        return one == two || (one != null && one.equals(two));
+    }
+
+    public static class Column {
+
+        static final Column EXTERNAL_DATA_COLUMN = new Column(false, -1, -1);
+
+        final boolean old;
+
+        final int index;
+
+        final int pkIndex;
+
+        Column(boolean old, int index, int pkIndex) {
+            this.old = old;
+            this.index = index;
+            this.pkIndex = pkIndex;
+        }
+
+        public boolean isOld() {
+            return old;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public int getPkIndex() {
+            return pkIndex;
+        }
+
+        public boolean isExternalData() {
+            return this == EXTERNAL_DATA_COLUMN;
+        }
+
+    }
+
+}
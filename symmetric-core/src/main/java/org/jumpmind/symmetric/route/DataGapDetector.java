@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.route;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -106,11 +107,7 @@ public class DataGapDetector {
             boolean supportsTransactionViews = symmetricDialect.supportsTransactionViews();
             long earliestTransactionTime = 0;
             if (supportsTransactionViews) {
-                Date date = symmetricDialect.getEarliestTransactionStartTime();
-                if (date != null) {
-                    earliestTransactionTime = date.getTime() - parameterService.getLong(
-                            ParameterConstants.DBDIALECT_ORACLE_TRANSACTION_VIEW_CLOCK_SYNC_THRESHOLD_MS, 60000);
-                }
+                earliestTransactionTime = getEarliestTransactionTime();
             }
 
             for (final DataGap dataGap : gaps) {
@@ -173,37 +170,10 @@ public class DataGapDetector {
 
                         // if we did not find data in the gap and it was not the
                         // last gap
-                    } else if (!lastGap) {
-                        Date createTime = dataGap.getCreateTime();
-                        if (supportsTransactionViews) {
-                            if (createTime != null && (createTime.getTime() < earliestTransactionTime || earliestTransactionTime == 0)) {
-                                if (dataService.countDataInRange(dataGap.getStartId() - 1, dataGap.getEndId() + 1) == 0) {
-                                    if (dataGap.getStartId() == dataGap.getEndId()) {
-                                        log.info(
-                                                "Found a gap in data_id at {}.  Skipping it because there are no pending transactions in the database",
-                                                dataGap.getStartId());
-                                    } else {
-                                        log.info(
-                                                "Found a gap in data_id from {} to {}.  Skipping it because there are no pending transactions in the database",
-                                                dataGap.getStartId(), dataGap.getEndId());
-                                    }
-
-                                    dataService.deleteDataGap(transaction, dataGap);
-                                    gapsDeleted++;
-                                }
-                            }
-                        } else if (createTime != null && databaseTime - createTime.getTime() > gapTimoutInMs) {
-                            if (dataService.countDataInRange(dataGap.getStartId() - 1, dataGap.getEndId() + 1) == 0) {
-                                if (dataGap.getStartId() == dataGap.getEndId()) {
-                                    log.info("Found a gap in data_id at {}.  Skipping it because the gap expired", dataGap.getStartId());
-                                } else {
-                                    log.info("Found a gap in data_id from {} to {}.  Skipping it because the gap expired",
-                                            dataGap.getStartId(), dataGap.getEndId());
-                                }
-                                dataService.deleteDataGap(transaction, dataGap);
-                                gapsDeleted++;
-                            }
-                        }
+                    } else if (!lastGap && isDataGapExpired(dataGap, databaseTime, gapTimoutInMs,
+                            supportsTransactionViews, earliestTransactionTime)) {
+                        dataService.deleteDataGap(transaction, dataGap);
+                        gapsDeleted++;
                     }
 
                     if (System.currentTimeMillis() - printStats > 30000) {
@@ -253,4 +223,60 @@ public class DataGapDetector {
 
     }
 
+    protected long getEarliestTransactionTime() {
+        long earliestTransactionTime = 0;
+        Date date = symmetricDialect.getEarliestTransactionStartTime();
+        if (date != null) {
+            earliestTransactionTime = date.getTime() - parameterService.getLong(
+                    ParameterConstants.DBDIALECT_ORACLE_TRANSACTION_VIEW_CLOCK_SYNC_THRESHOLD_MS, 60000);
+        }
+        return earliestTransactionTime;
+    }
+
+    /**
+     * A gap that has not been filled for long enough (or that no open
+     * transaction could fill) is skipped as long as there is no data in it.
+     */
+    protected boolean isDataGapExpired(DataGap dataGap, long databaseTime, long gapTimoutInMs,
+            boolean supportsTransactionViews, long earliestTransactionTime) {
+        Date createTime = dataGap.getCreateTime();
+        if (supportsTransactionViews) {
+            if (createTime != null && (createTime.getTime() < earliestTransactionTime || earliestTransactionTime == 0)) {
+                if (dataService.countDataInRange(dataGap.getStartId() - 1, dataGap.getEndId() + 1) == 0) {
+                    if (dataGap.getStartId() == dataGap.getEndId()) {
+                        log.info(
+                                "Found a gap in data_id at {}.  Skipping it because there are no pending transactions in the database",
+                                dataGap.getStartId());
+                    } else {
+                        log.info(
+                                "Found a gap in data_id from {} to {}.  Skipping it because there are no pending transactions in the database",
+                                dataGap.getStartId(), dataGap.getEndId());
+                    }
+                    return true;
+                }
+            }
+        } else if (createTime != null && databaseTime - createTime.getTime() > gapTimoutInMs) {
+            if (dataService.countDataInRange(dataGap.getStartId() - 1, dataGap.getEndId() + 1) == 0) {
+                if (dataGap.getStartId() == dataGap.getEndId()) {
+                    log.info("Found a gap in data_id at {}.  Skipping it because the gap expired", dataGap.getStartId());
+                } else {
+                    log.info("Found a gap in data_id from {} to {}.  Skipping it because the gap expired",
+                            dataGap.getStartId(), dataGap.getEndId());
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called with the ids of data that had data events committed. The default
+     * detector reads sym_data_event instead, so it has no use for them.
+     */
+    public void addDataIds(Collection<Long> dataIds) {
+    }
+
+    public void addDataId(long dataId) {
+    }
+
 }
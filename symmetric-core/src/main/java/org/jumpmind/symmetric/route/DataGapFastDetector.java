@@ -0,0 +1,291 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.mapper.NumberMapper;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfo.Status;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.model.ProcessInfoKey.ProcessType;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IDataService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IRouterService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.util.FormatUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link DataGapDetector} that remembers the data ids that have been routed
+ * instead of selecting them from sym_data_event for every gap each time routing
+ * runs. The router service hands it the data ids as batches are committed.
+ * sym_data_event is only read when the detector first runs, when sym_data_gap
+ * no longer matches what this detector last left in it (another node took over
+ * routing) and, when clustering is enabled, on every run because other nodes
+ * can insert data events directly.
+ */
+public class DataGapFastDetector extends DataGapDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(DataGapFastDetector.class);
+
+    protected IClusterService clusterService;
+
+    protected DataIdRangeSet routedDataIds;
+
+    protected List<Long> dataIdsToAdd = new ArrayList<Long>();
+
+    protected Set<DataGap> gapsLastWritten;
+
+    public DataGapFastDetector(IDataService dataService, IParameterService parameterService,
+            ISymmetricDialect symmetricDialect, IRouterService routerService,
+            IStatisticManager statisticManager, INodeService nodeService,
+            IClusterService clusterService) {
+        super(dataService, parameterService, symmetricDialect, routerService, statisticManager,
+                nodeService);
+        this.clusterService = clusterService;
+    }
+
+    @Override
+    public void addDataIds(Collection<Long> dataIds) {
+        synchronized (dataIdsToAdd) {
+            dataIdsToAdd.addAll(dataIds);
+        }
+    }
+
+    @Override
+    public void addDataId(long dataId) {
+        synchronized (dataIdsToAdd) {
+            dataIdsToAdd.add(dataId);
+        }
+    }
+
+    @Override
+    synchronized public void beforeRouting() {
+        ProcessInfo processInfo = this.statisticManager.newProcessInfo(new ProcessInfoKey(
+                nodeService.findIdentityNodeId(), null, ProcessType.GAP_DETECT));
+        try {
+            long ts = System.currentTimeMillis();
+            processInfo.setStatus(Status.QUERYING);
+            final List<DataGap> gaps = dataService.findDataGaps();
+            final int dataIdIncrementBy = parameterService
+                    .getInt(ParameterConstants.DATA_ID_INCREMENT_BY);
+            final long maxDataToSelect = parameterService
+                    .getLong(ParameterConstants.ROUTING_LARGEST_GAP_SIZE);
+            final long gapTimoutInMs = parameterService
+                    .getLong(ParameterConstants.ROUTING_STALE_DATA_ID_GAP_TIME);
+            long databaseTime = symmetricDialect.getDatabaseTime();
+
+            if (routedDataIds == null) {
+                routedDataIds = new DataIdRangeSet(dataIdIncrementBy);
+            }
+            synchronized (dataIdsToAdd) {
+                routedDataIds.addAll(dataIdsToAdd);
+                dataIdsToAdd.clear();
+            }
+
+            Set<DataGap> gapCheck = new HashSet<DataGap>(gaps);
+            boolean fullGapAnalysis = gapsLastWritten == null
+                    || clusterService.isClusteringEnabled();
+            if (!fullGapAnalysis && !gapsLastWritten.equals(gapCheck)) {
+                log.info("The data gaps were changed by another process.  Looking for routed data in all {} gaps",
+                        gaps.size());
+                fullGapAnalysis = true;
+            }
+
+            int idsFilled = 0;
+            if (fullGapAnalysis) {
+                idsFilled = queryForRoutedDataIds(gaps);
+            }
+            processInfo.setStatus(Status.PROCESSING);
+
+            boolean supportsTransactionViews = symmetricDialect.supportsTransactionViews();
+            long earliestTransactionTime = 0;
+            if (supportsTransactionViews) {
+                earliestTransactionTime = getEarliestTransactionTime();
+            }
+
+            List<DataGap> gapsToInsert = new ArrayList<DataGap>();
+            List<DataGap> gapsToDelete = new ArrayList<DataGap>();
+            long lastDataId = -1;
+            for (int i = 0; i < gaps.size(); i++) {
+                final DataGap dataGap = gaps.get(i);
+                final boolean lastGap = i == gaps.size() - 1;
+                lastDataId = -1;
+                for (DataIdRangeSet.Range range : routedDataIds.getRanges(dataGap.getStartId(),
+                        dataGap.getEndId())) {
+                    processInfo.incrementCurrentDataCount();
+                    if (lastDataId == -1 && dataGap.getStartId() + dataIdIncrementBy <= range.getStartId()) {
+                        // there was a new gap at the start
+                        addDataGap(new DataGap(dataGap.getStartId(), range.getStartId() - 1),
+                                gapCheck, gapsToInsert);
+                    } else if (lastDataId != -1) {
+                        // found a gap somewhere in the existing gap
+                        addDataGap(new DataGap(lastDataId + 1, range.getStartId() - 1), gapCheck,
+                                gapsToInsert);
+                    }
+                    lastDataId = range.getEndId();
+                }
+
+                // if we found data in the gap
+                if (lastDataId != -1) {
+                    if (!lastGap && lastDataId + dataIdIncrementBy <= dataGap.getEndId()) {
+                        addDataGap(new DataGap(lastDataId + dataIdIncrementBy, dataGap.getEndId()),
+                                gapCheck, gapsToInsert);
+                    }
+                    gapsToDelete.add(dataGap);
+
+                    // if we did not find data in the gap and it was not the
+                    // last gap
+                } else if (!lastGap && isDataGapExpired(dataGap, databaseTime, gapTimoutInMs,
+                        supportsTransactionViews, earliestTransactionTime)) {
+                    gapsToDelete.add(dataGap);
+                }
+            }
+
+            if (lastDataId != -1) {
+                addDataGap(new DataGap(lastDataId + 1, lastDataId + maxDataToSelect), gapCheck,
+                        gapsToInsert);
+            }
+
+            saveDataGaps(gapsToInsert, gapsToDelete);
+
+            gapCheck.removeAll(gapsToDelete);
+            gapsLastWritten = gapCheck;
+
+            long minStartId = Long.MAX_VALUE;
+            for (DataGap dataGap : gapCheck) {
+                minStartId = Math.min(minStartId, dataGap.getStartId());
+            }
+            routedDataIds.removeBefore(minStartId);
+
+            long updateTimeInMs = System.currentTimeMillis() - ts;
+            if (updateTimeInMs > 10000) {
+                log.info("Detecting gaps took {} ms", updateTimeInMs);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(
+                        "Detected gaps in {} ms.  Queried sym_data_event: {}, found {} routed data ids, inserted {} new gaps, deleted {} gaps, "
+                                + "and is remembering {} ranges of routed data ids",
+                        new Object[] { updateTimeInMs, fullGapAnalysis, idsFilled,
+                                gapsToInsert.size(), gapsToDelete.size(),
+                                routedDataIds.getRangeCount() });
+            }
+            processInfo.setStatus(Status.OK);
+        } catch (RuntimeException ex) {
+            gapsLastWritten = null;
+            processInfo.setStatus(Status.ERROR);
+            throw ex;
+        }
+    }
+
+    protected void addDataGap(DataGap newGap, Set<DataGap> gapCheck, List<DataGap> gapsToInsert) {
+        if (!gapCheck.contains(newGap)) {
+            gapsToInsert.add(newGap);
+            gapCheck.add(newGap);
+        }
+    }
+
+    /**
+     * Select the data ids that have data events from sym_data_event for all of
+     * the gaps, qualifying as many gaps as allowed in each statement.
+     * 
+     * @return the number of data ids that were found
+     */
+    protected int queryForRoutedDataIds(List<DataGap> gaps) {
+        ISqlTemplate sqlTemplate = symmetricDialect.getPlatform().getSqlTemplate();
+        int maxGapsInSql = parameterService.getInt(
+                ParameterConstants.ROUTING_MAX_GAPS_TO_QUALIFY_IN_SQL, 100);
+        if (maxGapsInSql < 1) {
+            maxGapsInSql = 1;
+        }
+        int idsFilled = 0;
+        for (int i = 0; i < gaps.size(); i += maxGapsInSql) {
+            List<DataGap> gapsInSql = gaps.subList(i, Math.min(gaps.size(), i + maxGapsInSql));
+            StringBuilder gapClause = new StringBuilder();
+            Object[] args = new Object[gapsInSql.size() * 2];
+            for (int j = 0; j < gapsInSql.size(); j++) {
+                if (j > 0) {
+                    gapClause.append(" or ");
+                }
+                gapClause.append("(data_id between ? and ?)");
+                args[j * 2] = gapsInSql.get(j).getStartId();
+                args[j * 2 + 1] = gapsInSql.get(j).getEndId();
+            }
+            String sql = FormatUtils.replace("dataRange", gapClause.toString(),
+                    routerService.getSql("selectDistinctDataIdFromDataEventUsingGapRangesSql"));
+            long queryForIdsTs = System.currentTimeMillis();
+            List<Number> ids = sqlTemplate.query(sql, new NumberMapper(), args);
+            if (System.currentTimeMillis() - queryForIdsTs > Constants.LONG_OPERATION_THRESHOLD) {
+                log.info("It took longer than {}ms to run the following sql for gaps from {} to {}.  {}",
+                        new Object[] { Constants.LONG_OPERATION_THRESHOLD,
+                                gapsInSql.get(0).getStartId(),
+                                gapsInSql.get(gapsInSql.size() - 1).getEndId(), sql });
+            }
+            for (Number id : ids) {
+                routedDataIds.add(id.longValue());
+            }
+            idsFilled += ids.size();
+        }
+        return idsFilled;
+    }
+
+    protected void saveDataGaps(List<DataGap> gapsToInsert, List<DataGap> gapsToDelete) {
+        if (gapsToInsert.size() > 0 || gapsToDelete.size() > 0) {
+            ISqlTransaction transaction = null;
+            try {
+                transaction = symmetricDialect.getPlatform().getSqlTemplate().startSqlTransaction();
+                transaction.setInBatchMode(true);
+                dataService.deleteDataGaps(transaction, gapsToDelete);
+                dataService.insertDataGaps(transaction, gapsToInsert);
+                transaction.commit();
+            } catch (Error ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } finally {
+                if (transaction != null) {
+                    transaction.close();
+                }
+            }
+        }
+    }
+
+}
@@ -25,18 +25,19 @@ import static org.apache.commons.lang.StringUtils.isNotBlank;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.sql.ISqlPositionalRowMapper;
 import org.jumpmind.db.sql.ISqlReadCursor;
-import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.PositionalRow;
 import org.jumpmind.db.sql.Row;
 import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.SymmetricException;
@@ -68,6 +69,8 @@ public class DataGapRouteReader implements IDataToRouteReader {
 
     protected DataGap currentGap;
 
+    protected int currentGapIndex;
+
     protected BlockingQueue<Data> dataQueue;
 
     protected ChannelRouterContext context;
@@ -90,7 +93,7 @@ public class DataGapRouteReader implements IDataToRouteReader {
     
     protected String lastTransactionId = null;
     
-    protected static Map<String, Boolean> lastSelectUsedGreaterThanQueryByEngineName = new HashMap<String, Boolean>(); 
+    protected static Map<String, Boolean> lastSelectUsedGreaterThanQueryByEngineName = new ConcurrentHashMap<String, Boolean>(); 
 
     public DataGapRouteReader(ChannelRouterContext context, ISymmetricEngine engine) {
         this.engine = engine;
@@ -125,15 +128,19 @@ public class DataGapRouteReader implements IDataToRouteReader {
         long maxPeekAheadSizeInBytes = (long)(Runtime.getRuntime().maxMemory() * percentOfHeapToUse);
         ISymmetricDialect symmetricDialect = engine.getSymmetricDialect();
         ISqlReadCursor<Data> cursor = null;
+        /* channels may be read concurrently when routing with more than one thread */
+        String processChannelId = engine.getParameterService().getInt(
+                ParameterConstants.ROUTING_CHANNEL_THREAD_COUNT, 1) > 1 ? context.getChannel()
+                .getChannelId() : null;
         processInfo = engine.getStatisticManager().newProcessInfo(
                 new ProcessInfoKey(engine.getNodeService().findIdentityNodeId(), null,
-                        ProcessType.ROUTER_READER));
+                        ProcessType.ROUTER_READER, processChannelId));
         processInfo.setCurrentChannelId(context.getChannel().getChannelId());
         try {
-            int lastPeekAheadIndex = 0;
+            long lastPeekAheadSequence = 0;
             int dataCount = 0;
             long maxDataToRoute = context.getChannel().getMaxDataToRoute();
-            List<Data> peekAheadQueue = new ArrayList<Data>(peekAheadCount);
+            PeekAheadQueue peekAheadQueue = new PeekAheadQueue();
             boolean transactional = !context.getChannel().getBatchAlgorithm()
                     .equals(NonTransactionalBatchAlgorithm.NAME)
                     || !symmetricDialect.supportsTransactionId();
@@ -151,39 +158,39 @@ public class DataGapRouteReader implements IDataToRouteReader {
                 
                 while (peekAheadQueue.size() > 0 && lastTransactionId == null &&
                         dataCount < maxDataToRoute) {
-                    Data data = peekAheadQueue.remove(0);
+                    Data data = peekAheadQueue.poll();
                     copyToQueue(data);
                     dataCount++;
                     processInfo.incrementCurrentDataCount();
                     processInfo.setCurrentTableName(data.getTableName());
                     lastTransactionId = data.getTransactionId();
-                    context.addTransaction(lastTransactionId);
+                    lastPeekAheadSequence = peekAheadQueue.getLastPolledSequence();
                     dataWithSameTransactionIdCount++;
                 }
 
                 if (lastTransactionId != null && peekAheadQueue.size() > 0) {
-                    Iterator<Data> datas = peekAheadQueue.iterator();
-                    int index = 0;
-                    while (datas.hasNext() && (dataCount < maxDataToRoute || transactional)) {
-                        Data data = datas.next();                        
-                        if (lastTransactionId.equals(data.getTransactionId())) {
-                            dataWithSameTransactionIdCount++;
-                            datas.remove();
-                            copyToQueue(data);
-                            dataCount++;
-                            processInfo.incrementCurrentDataCount();
-                            processInfo.setCurrentTableName(data.getTableName());
-                            lastPeekAheadIndex = index;
-                        } else {
-                            context.addTransaction(data.getTransactionId());
-                            index++;
+                    /*
+                     * The peek ahead queue chains data by transaction id, so
+                     * the rest of the current transaction is pulled straight
+                     * out of it instead of scanning every queued data
+                     */
+                    while (dataCount < maxDataToRoute || transactional) {
+                        Data data = peekAheadQueue.poll(lastTransactionId);
+                        if (data == null) {
+                            break;
                         }
-                        
+                        dataWithSameTransactionIdCount++;
+                        copyToQueue(data);
+                        dataCount++;
+                        processInfo.incrementCurrentDataCount();
+                        processInfo.setCurrentTableName(data.getTableName());
+                        lastPeekAheadSequence = peekAheadQueue.getLastPolledSequence();
                     }
 
-                    if (dataWithSameTransactionIdCount == 0 || peekAheadQueue.size()-lastPeekAheadIndex > peekAheadCount) {
+                    if (dataWithSameTransactionIdCount == 0
+                            || peekAheadQueue.countAfter(lastPeekAheadSequence) > peekAheadCount) {
                         lastTransactionId = null;
-                        lastPeekAheadIndex = 0;
+                        lastPeekAheadSequence = 0;
                     }
 
                 } 
@@ -231,8 +238,8 @@ public class DataGapRouteReader implements IDataToRouteReader {
                     okToProcess = true;
                 } else {
                     // past current gap. move to next gap
-                    if (dataGaps.size() > 0) {
-                        currentGap = dataGaps.remove(0);
+                    if (++currentGapIndex < dataGaps.size()) {
+                        currentGap = dataGaps.get(currentGapIndex);
                     } else {
                         currentGap = null;
                     }
@@ -268,6 +275,9 @@ public class DataGapRouteReader implements IDataToRouteReader {
 
         this.dataGaps = engine.getDataService().findDataGaps();
         if (this.dataGaps != null) {
+            if (!(this.dataGaps instanceof RandomAccess)) {
+                this.dataGaps = new ArrayList<DataGap>(this.dataGaps);
+            }
             context.setDataGaps(new ArrayList<DataGap>(this.dataGaps));
         }
                 
@@ -338,12 +348,21 @@ public class DataGapRouteReader implements IDataToRouteReader {
             }
         }
 
-        this.currentGap = dataGaps.remove(0);
+        /*
+         * gaps are walked with an index so that moving to the next gap does
+         * not shift the list
+         */
+        this.currentGapIndex = 0;
+        this.currentGap = dataGaps.get(0);
 
-        return sqlTemplate.queryForCursor(sql, new ISqlRowMapper<Data>() {
+        return sqlTemplate.queryForCursor(sql, new ISqlPositionalRowMapper<Data>() {
             public Data mapRow(Row row) {
                 return engine.getDataService().mapData(row);
             }
+
+            public Data mapRow(PositionalRow row) {
+                return engine.getDataService().mapData(row);
+            }
         }, args, types);
 
     }
@@ -378,7 +397,7 @@ public class DataGapRouteReader implements IDataToRouteReader {
                 select, channel);
     }
 
-    protected boolean fillPeekAheadQueue(List<Data> peekAheadQueue, int peekAheadCount,
+    protected boolean fillPeekAheadQueue(PeekAheadQueue peekAheadQueue, int peekAheadCount,
             ISqlReadCursor<Data> cursor) throws SQLException {
         boolean moreData = true;
         int dataCount = 0;
@@ -390,6 +409,7 @@ public class DataGapRouteReader implements IDataToRouteReader {
             if (data != null) {
                 if (process(data)) {
                     peekAheadQueue.add(data);
+                    context.addTransaction(data.getTransactionId());
                     peekAheadSizeInBytes += data.getSizeInBytes();                    
                     dataCount++;
                     context.incrementStat(System.currentTimeMillis() - ts,
@@ -0,0 +1,188 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A sorted set of data ids that is stored as ranges of consecutive ids. Ids are
+ * consecutive when they differ by the data id increment, so a set that holds
+ * everything routed in a run is usually only a handful of ranges.
+ */
+public class DataIdRangeSet {
+
+    private final NavigableMap<Long, Long> ranges = new TreeMap<Long, Long>();
+
+    private final long incrementBy;
+
+    public DataIdRangeSet(int incrementBy) {
+        this.incrementBy = incrementBy < 1 ? 1 : incrementBy;
+    }
+
+    public void addAll(Collection<Long> dataIds) {
+        for (Long dataId : dataIds) {
+            add(dataId);
+        }
+    }
+
+    public void add(long dataId) {
+        Map.Entry<Long, Long> lower = ranges.floorEntry(dataId);
+        if (lower != null && dataId <= lower.getValue()) {
+            long offset = (dataId - lower.getKey()) % incrementBy;
+            if (offset != 0) {
+                /*
+                 * The id is inside a range but not on its increment, so split
+                 * the range around it
+                 */
+                long below = dataId - offset;
+                long above = below + incrementBy;
+                ranges.put(lower.getKey(), below);
+                ranges.put(dataId, dataId);
+                if (above <= lower.getValue()) {
+                    ranges.put(above, lower.getValue());
+                }
+            }
+            return;
+        }
+        Map.Entry<Long, Long> higher = ranges.higherEntry(dataId);
+        boolean joinLower = lower != null && lower.getValue() + incrementBy == dataId;
+        boolean joinHigher = higher != null && dataId + incrementBy == higher.getKey();
+        if (joinLower && joinHigher) {
+            ranges.remove(higher.getKey());
+            ranges.put(lower.getKey(), higher.getValue());
+        } else if (joinLower) {
+            ranges.put(lower.getKey(), dataId);
+        } else if (joinHigher) {
+            ranges.remove(higher.getKey());
+            ranges.put(dataId, higher.getValue());
+        } else {
+            ranges.put(dataId, dataId);
+        }
+    }
+
+    public boolean contains(long dataId) {
+        Map.Entry<Long, Long> lower = ranges.floorEntry(dataId);
+        return lower != null && dataId <= lower.getValue()
+                && (dataId - lower.getKey()) % incrementBy == 0;
+    }
+
+    /**
+     * @return the ranges of ids that fall between startId and endId
+     *         (inclusive), trimmed so the first and last ids of each range are
+     *         ids that are actually in the set
+     */
+    public List<Range> getRanges(long startId, long endId) {
+        List<Range> list = new ArrayList<Range>();
+        if (startId > endId) {
+            return list;
+        }
+        Long fromKey = ranges.floorKey(startId);
+        if (fromKey == null || ranges.get(fromKey) < startId) {
+            fromKey = startId;
+        }
+        for (Map.Entry<Long, Long> entry : ranges.subMap(fromKey, true, endId, true).entrySet()) {
+            long rangeStart = entry.getKey();
+            long rangeEnd = entry.getValue();
+            if (rangeStart < startId) {
+                rangeStart += ((startId - rangeStart + incrementBy - 1) / incrementBy) * incrementBy;
+            }
+            if (rangeEnd > endId) {
+                rangeEnd = entry.getKey() + ((endId - entry.getKey()) / incrementBy) * incrementBy;
+            }
+            if (rangeStart <= rangeEnd) {
+                list.add(new Range(rangeStart, rangeEnd));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Forget about all ids that are less than the given id
+     */
+    public void removeBefore(long dataId) {
+        Iterator<Map.Entry<Long, Long>> i = ranges.headMap(dataId, false).entrySet().iterator();
+        Range straddling = null;
+        while (i.hasNext()) {
+            Map.Entry<Long, Long> entry = i.next();
+            if (entry.getValue() >= dataId) {
+                long rangeStart = entry.getKey()
+                        + ((dataId - entry.getKey() + incrementBy - 1) / incrementBy) * incrementBy;
+                if (rangeStart <= entry.getValue()) {
+                    straddling = new Range(rangeStart, entry.getValue());
+                }
+            }
+            i.remove();
+        }
+        if (straddling != null) {
+            ranges.put(straddling.getStartId(), straddling.getEndId());
+        }
+    }
+
+    public void clear() {
+        ranges.clear();
+    }
+
+    public boolean isEmpty() {
+        return ranges.isEmpty();
+    }
+
+    public int getRangeCount() {
+        return ranges.size();
+    }
+
+    @Override
+    public String toString() {
+        return ranges.toString();
+    }
+
+    public static class Range {
+
+        private long startId;
+
+        private long endId;
+
+        public Range(long startId, long endId) {
+            this.startId = startId;
+            this.endId = endId;
+        }
+
+        public long getStartId() {
+            return startId;
+        }
+
+        public long getEndId() {
+            return endId;
+        }
+
+        @Override
+        public String toString() {
+            return startId + "-" + endId;
+        }
+
+    }
+
+}
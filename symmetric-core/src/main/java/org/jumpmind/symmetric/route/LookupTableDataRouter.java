@@ -75,11 +75,10 @@ public class LookupTableDataRouter extends AbstractDataRouter implements IDataRo
         
         params = getParams(router, routingContext);
     
-        Map<String, String> dataMap = getDataMap(dataMetaData, symmetricDialect);
         Map<String, Set<String>> lookupTable = getLookupTable(params, router, routingContext);
         String column = params.get(PARAM_KEY_COLUMN);
-        if (dataMap.containsKey(column)) {
-            String keyData = dataMap.get(column);
+        if (isColumnCaptured(dataMetaData, column)) {
+            String keyData = getColumnValue(dataMetaData, column, symmetricDialect);
             Set<String> externalIds = lookupTable.get(keyData);
             if (externalIds != null) {
                 for (Node node : nodes) {
@@ -0,0 +1,251 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.jumpmind.symmetric.model.Data;
+
+/**
+ * Holds the {@link Data} that the {@link DataGapRouteReader} has read ahead of
+ * what it has handed off for routing. Data is kept in the order it was read,
+ * and is also chained by transaction id so that the rest of a transaction can
+ * be pulled out of the middle of the queue without scanning it. A binary
+ * indexed tree over the read positions of the queued data answers how much
+ * data is still queued behind a given position.
+ */
+public class PeekAheadQueue {
+
+    private Entry head;
+
+    private Entry tail;
+
+    private int size;
+
+    private long addedCount;
+
+    private long lastPolledSequence;
+
+    private Map<String, Transaction> transactions = new HashMap<String, Transaction>();
+
+    private long baseSequence = 1;
+
+    private int[] tree = new int[MIN_TREE_SIZE + 1];
+
+    private static final int MIN_TREE_SIZE = 1024;
+
+    public void add(Data data) {
+        Entry entry = new Entry(data, ++addedCount);
+        if (addedCount - baseSequence + 1 >= tree.length) {
+            rebuildTree();
+        }
+        treeAdd(entry.sequence, 1);
+        if (tail == null) {
+            head = entry;
+        } else {
+            tail.next = entry;
+            entry.prev = tail;
+        }
+        tail = entry;
+        size++;
+
+        String transactionId = data.getTransactionId();
+        if (transactionId != null) {
+            Transaction transaction = transactions.get(transactionId);
+            if (transaction == null) {
+                transactions.put(transactionId, new Transaction(entry));
+            } else {
+                transaction.last.nextInTransaction = entry;
+                transaction.last = entry;
+            }
+        }
+    }
+
+    /**
+     * Remove and return the oldest data in the queue
+     */
+    public Data poll() {
+        Entry entry = head;
+        if (entry != null) {
+            String transactionId = entry.data.getTransactionId();
+            if (transactionId != null) {
+                removeFirstOfTransaction(transactionId);
+            }
+            unlink(entry);
+            return entry.data;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Remove and return the oldest data in the queue that belongs to the
+     * transaction
+     */
+    public Data poll(String transactionId) {
+        Entry entry = transactionId != null ? removeFirstOfTransaction(transactionId) : null;
+        if (entry != null) {
+            unlink(entry);
+            return entry.data;
+        } else {
+            return null;
+        }
+    }
+
+    public boolean containsTransaction(String transactionId) {
+        return transactions.containsKey(transactionId);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of data that have ever been added to this queue
+     */
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * @return the position in read order of the last data that was polled.
+     *         The first data added is at position 1.
+     */
+    public long getLastPolledSequence() {
+        return lastPolledSequence;
+    }
+
+    /**
+     * @return the number of data still in the queue that were read after the
+     *         data at the given position
+     */
+    public int countAfter(long sequence) {
+        return size - treeSum(sequence);
+    }
+
+    public void clear() {
+        head = null;
+        tail = null;
+        size = 0;
+        transactions.clear();
+        baseSequence = addedCount + 1;
+        tree = new int[MIN_TREE_SIZE + 1];
+    }
+
+    protected Entry removeFirstOfTransaction(String transactionId) {
+        Transaction transaction = transactions.get(transactionId);
+        if (transaction != null) {
+            Entry first = transaction.first;
+            if (first.nextInTransaction == null) {
+                transactions.remove(transactionId);
+            } else {
+                transaction.first = first.nextInTransaction;
+            }
+            return first;
+        } else {
+            return null;
+        }
+    }
+
+    protected void unlink(Entry entry) {
+        if (entry.prev == null) {
+            head = entry.next;
+        } else {
+            entry.prev.next = entry.next;
+        }
+        if (entry.next == null) {
+            tail = entry.prev;
+        } else {
+            entry.next.prev = entry.prev;
+        }
+        size--;
+        lastPolledSequence = entry.sequence;
+        treeAdd(entry.sequence, -1);
+    }
+
+    protected void treeAdd(long sequence, int delta) {
+        for (int i = (int) (sequence - baseSequence) + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @return the number of data still in the queue that were read at or
+     *         before the given position
+     */
+    protected int treeSum(long sequence) {
+        int sum = 0;
+        long index = Math.min(sequence - baseSequence + 1, tree.length - 1);
+        for (int i = (int) Math.max(index, 0); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Positions only ever grow, so the tree is rebased on the oldest queued
+     * data and resized to twice the span of positions it has to cover
+     */
+    protected void rebuildTree() {
+        baseSequence = head != null ? head.sequence : addedCount;
+        long span = addedCount - baseSequence + 1;
+        tree = new int[(int) Math.max(MIN_TREE_SIZE, span * 2) + 1];
+        for (Entry entry = head; entry != null; entry = entry.next) {
+            treeAdd(entry.sequence, 1);
+        }
+    }
+
+    static class Entry {
+
+        Data data;
+
+        long sequence;
+
+        Entry prev;
+
+        Entry next;
+
+        Entry nextInTransaction;
+
+        Entry(Data data, long sequence) {
+            this.data = data;
+            this.sequence = sequence;
+        }
+    }
+
+    static class Transaction {
+
+        Entry first;
+
+        Entry last;
+
+        Transaction(Entry entry) {
+            this.first = entry;
+            this.last = entry;
+        }
+    }
+
+}
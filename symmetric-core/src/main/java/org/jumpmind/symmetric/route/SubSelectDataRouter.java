@@ -20,19 +20,25 @@
  */
 package org.jumpmind.symmetric.route;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.sql.ISqlTemplate;
 import org.jumpmind.db.sql.InvalidSqlException;
 import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.extension.IBuiltInExtensionPoint;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.DataMetaData;
 import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.Router;
 import org.jumpmind.symmetric.model.TriggerRouter;
 import org.jumpmind.util.FormatUtils;
 
@@ -59,11 +65,26 @@ import org.jumpmind.util.FormatUtils;
  * <code>
  * c.external_id in (select home_store from employee where employee_id in (:EMPLOYEE_ID, :OLD_EMPLOYEE_ID))
  * </code>
+ * <P/>
+ * The nodes selected for each distinct combination of bound column values are
+ * cached in the routing context for the rest of the routing run, so rows that
+ * bind the same values only query the database once. The number of cached
+ * results is bounded by routing.subselect.cache.max.entries.
  */
 public class SubSelectDataRouter extends AbstractDataRouter implements IBuiltInExtensionPoint {
 
     private static final String SQL = "select c.node_id from $(prefixName)_node c where c.node_group_id=:NODE_GROUP_ID and c.sync_enabled=1 and ";
 
+    private static final String NODE_GROUP_ID = "NODE_GROUP_ID";
+
+    private static final Pattern PARAMETER_PATTERN = Pattern.compile("(?<!:):([A-Za-z_][A-Za-z0-9_]*)");
+
+    final static String PARAMETERS_KEY = String.format("%s.Parameters.",
+            SubSelectDataRouter.class.getName());
+
+    final static String RESULTS_KEY = String.format("%s.Results.",
+            SubSelectDataRouter.class.getName());
+
     private ISymmetricDialect symmetricDialect;
 
     public SubSelectDataRouter(ISymmetricDialect symmetricDialect) {
@@ -78,8 +99,18 @@ public class SubSelectDataRouter extends AbstractDataRouter implements IBuiltInE
         Set<String> nodeIds = null;
         if (!StringUtils.isBlank(subSelect) && !initialLoadSelectUsed) {
             try {
+                Map<List<String>, Set<String>> results = getResults(dataMetaData.getRouter(), routingContext);
+                List<String> key = null;
+                if (results != null) {
+                    key = getKey(dataMetaData, getParameters(dataMetaData.getRouter(), routingContext));
+                    Set<String> cachedNodeIds = results.get(key);
+                    if (cachedNodeIds != null) {
+                        return new HashSet<String>(cachedNodeIds);
+                    }
+                }
+
                 Map<String, Object> sqlParams = getDataObjectMap(dataMetaData, symmetricDialect, true);
-                sqlParams.put("NODE_GROUP_ID", dataMetaData.getRouter().getNodeGroupLink()
+                sqlParams.put(NODE_GROUP_ID, dataMetaData.getRouter().getNodeGroupLink()
                         .getTargetNodeGroupId());
                 sqlParams.put("EXTERNAL_DATA", dataMetaData.getData().getExternalData());
                 ISqlTemplate template = symmetricDialect.getPlatform().getSqlTemplate();
@@ -88,6 +119,10 @@ public class SubSelectDataRouter extends AbstractDataRouter implements IBuiltInE
                 if (ids != null) {
                     nodeIds = new HashSet<String>(ids);
                 }
+
+                if (results != null) {
+                    results.put(key, nodeIds != null ? new HashSet<String>(nodeIds) : new HashSet<String>(0));
+                }
             } catch (InvalidSqlException ex) {
                 log.error("The subselect expression was invalid for the {} subselect router for the '{}' event for table '{}'",
                         new Object[] {dataMetaData.getRouter().getRouterId(), 
@@ -103,4 +138,72 @@ public class SubSelectDataRouter extends AbstractDataRouter implements IBuiltInE
         return nodeIds;
     }
 
+    /**
+     * Build the cache key from the values of the columns that the sub select
+     * binds. The target node group is the same for every row of a router so
+     * it is left out.
+     */
+    protected List<String> getKey(DataMetaData dataMetaData, List<String> parameters) {
+        List<String> key = new ArrayList<String>(parameters.size());
+        for (String parameter : parameters) {
+            key.add(getColumnValue(dataMetaData, parameter, symmetricDialect));
+        }
+        return key;
+    }
+
+    /**
+     * Cache the names of the parameters the sub select binds in the context
+     * to minimize the amount of parsing we have to do.
+     */
+    @SuppressWarnings("unchecked")
+    protected List<String> getParameters(Router router, SimpleRouterContext context) {
+        final String KEY = PARAMETERS_KEY + router.getRouterId();
+        List<String> parameters = (List<String>) context.getContextCache().get(KEY);
+        if (parameters == null) {
+            parameters = parseParameters(router.getRouterExpression());
+            context.getContextCache().put(KEY, parameters);
+        }
+        return parameters;
+    }
+
+    public List<String> parseParameters(String subSelect) {
+        List<String> parameters = new ArrayList<String>();
+        Matcher matcher = PARAMETER_PATTERN.matcher(subSelect);
+        while (matcher.find()) {
+            String parameter = matcher.group(1);
+            if (!parameter.equalsIgnoreCase(NODE_GROUP_ID) && !parameters.contains(parameter)) {
+                parameters.add(parameter);
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return the least recently used results cached for the router in the
+     *         context or null if caching is turned off
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<List<String>, Set<String>> getResults(Router router, SimpleRouterContext context) {
+        final int maxEntries = symmetricDialect.getParameterService().getInt(
+                ParameterConstants.ROUTING_SUBSELECT_CACHE_MAX_ENTRIES);
+        if (maxEntries <= 0) {
+            return null;
+        }
+        final String KEY = RESULTS_KEY + router.getRouterId();
+        Map<List<String>, Set<String>> results = (Map<List<String>, Set<String>>) context
+                .getContextCache().get(KEY);
+        if (results == null) {
+            results = new LinkedHashMap<List<String>, Set<String>>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, Set<String>> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+            context.getContextCache().put(KEY, results);
+        }
+        return results;
+    }
+
 }
\ No newline at end of file
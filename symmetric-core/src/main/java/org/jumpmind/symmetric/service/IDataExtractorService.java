@@ -45,6 +45,15 @@ public interface IDataExtractorService {
     public void extractConfigurationStandalone(Node node, Writer out, String... tablesToIgnore);
 
     public List<OutgoingBatchWithPayload> extractToPayload(ProcessInfo processInfo, Node targetNode, PayloadType payloadType, boolean useJdbcTimestampFormat, boolean useUpsertStatements, boolean useDelimiterIdentifiers);
+
+    /**
+     * Extracts the batches for a node and hands each one with its payload to
+     * the listener as soon as it is extracted. The payloads of the batches
+     * are not kept after they have been handed off.
+     * 
+     * @return a list of batches that were extracted
+     */
+    public List<OutgoingBatch> extractToPayload(ProcessInfo processInfo, Node targetNode, PayloadType payloadType, boolean useJdbcTimestampFormat, boolean useUpsertStatements, boolean useDelimiterIdentifiers, IPayloadListener listener);
     
     /**
      * @return a list of batches that were extracted
@@ -62,5 +71,15 @@ public interface IDataExtractorService {
     
     public void requestExtractRequest(ISqlTransaction transaction, String nodeId, TriggerRouter triggerRouter, long startBatchId, long endBatchId);
 
+    public void stop();
+
+    /**
+     * Receives the batches extracted by
+     * {@link IDataExtractorService#extractToPayload(ProcessInfo, Node, PayloadType, boolean, boolean, boolean, IPayloadListener)}
+     */
+    public interface IPayloadListener {
+        public void payloadExtracted(OutgoingBatchWithPayload batch);
+    }
+
 
 }
\ No newline at end of file
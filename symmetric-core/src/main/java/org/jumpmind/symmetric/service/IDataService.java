@@ -25,6 +25,7 @@ import java.util.List;
 
 import org.jumpmind.db.sql.ISqlReadCursor;
 import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.PositionalRow;
 import org.jumpmind.db.sql.Row;
 import org.jumpmind.symmetric.ext.IHeartbeatListener;
 import org.jumpmind.symmetric.io.data.Batch;
@@ -128,6 +129,8 @@ public interface IDataService {
     public Data createData(ISqlTransaction transaction, String catalogName, String schemaName, String tableName, String whereClause);
 
     public Data mapData(Row row);
+
+    public Data mapData(PositionalRow row);
     
     public List<Number> listDataIds(long batchId, String nodeId);
     
@@ -140,6 +143,10 @@ public interface IDataService {
     public void insertDataGap(ISqlTransaction transaction, DataGap gap);
 
     public void deleteDataGap(ISqlTransaction transaction, DataGap gap);
+
+    public void insertDataGaps(ISqlTransaction transaction, List<DataGap> gaps);
+
+    public void deleteDataGaps(ISqlTransaction transaction, List<DataGap> gaps);
     
     public void deleteDataGap(DataGap gap);
     
@@ -42,12 +42,24 @@ public interface IIncomingBatchService {
     
     public IncomingBatch findIncomingBatch(long batchId, String nodeId);
     
-    public void refreshIncomingBatch(IncomingBatch batch);
+    /**
+     * @return true if the batch was found and refreshed
+     */
+    public boolean refreshIncomingBatch(IncomingBatch batch);
 
     public List<IncomingBatch> findIncomingBatchErrors(int maxRows);
 
     public boolean acquireIncomingBatch(IncomingBatch batch);
 
+    /**
+     * @param deferInsert
+     *            when true, a new batch is not inserted before it loads. The
+     *            caller is responsible for inserting it, preferably in the
+     *            same transaction as the batch data. A row only exists for
+     *            the batch if it is flagged as a retry.
+     */
+    public boolean acquireIncomingBatch(IncomingBatch batch, boolean deferInsert);
+
     public void insertIncomingBatch(ISqlTransaction transaction, IncomingBatch batch);
     
     public void insertIncomingBatch(IncomingBatch batch);
@@ -73,5 +85,7 @@ public interface IIncomingBatchService {
     public boolean isRecordOkBatchesEnabled();
 
     public Map<String,BatchId> findMaxBatchIdsByChannel();
+
+    public Map<String,BatchId> findMaxBatchIdsByChannel(String nodeId);
     
 }
\ No newline at end of file
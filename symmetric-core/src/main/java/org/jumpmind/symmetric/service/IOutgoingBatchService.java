@@ -45,6 +45,8 @@ public interface IOutgoingBatchService {
 
     public OutgoingBatch findOutgoingBatch(long batchId, String nodeId);
 
+    public List<OutgoingBatch> findOutgoingBatches(String nodeId, List<Long> batchIds);
+
     public OutgoingBatches getOutgoingBatches(String nodeId, boolean includeDisabledChannels);
 
     public OutgoingBatches getOutgoingBatchRange(long startBatchId, long endBatchId);
@@ -68,6 +70,8 @@ public interface IOutgoingBatchService {
     public void updateOutgoingBatch(ISqlTransaction transaction, OutgoingBatch outgoingBatch);
 
     public void updateOutgoingBatches(List<OutgoingBatch> batches);
+
+    public void updateOutgoingBatches(ISqlTransaction transaction, List<OutgoingBatch> batches);
 
     public void insertOutgoingBatch(OutgoingBatch outgoingBatch);
     
@@ -93,4 +97,27 @@ public interface IOutgoingBatchService {
     
     public void copyOutgoingBatches(String channelId, long startBatchId, String fromNodeId, String toNodeId);
 
+    /**
+     * @return a count that goes up each time batches are routed to the node
+     *         by this server
+     */
+    public long getBatchesRoutedCount(String nodeId);
+
+    /**
+     * Called by routing after it has committed new batches for the node.
+     */
+    public void notifyBatchesRouted(String nodeId);
+
+    /**
+     * Waits until batches are routed to the node or until the wait time has
+     * passed. Returns right away if the most threads that are allowed to wait
+     * are already waiting.
+     * 
+     * @param batchesRoutedCount
+     *            the value of {@link #getBatchesRoutedCount(String)} that was
+     *            read before the node's batches were last looked for
+     * @return true if batches were routed to the node since the count was read
+     */
+    public boolean waitForBatchesRouted(String nodeId, long batchesRoutedCount, long waitMs);
+
 }
\ No newline at end of file
@@ -20,8 +20,11 @@
  */
 package org.jumpmind.symmetric.service;
 
+import java.util.Map;
+
 import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.symmetric.model.Sequence;
+import org.jumpmind.symmetric.model.SequenceBlockStats;
 
 public interface ISequenceService {
 
@@ -36,5 +39,14 @@ public interface ISequenceService {
     public void create(Sequence sequence);
     
     public void init();
+
+    public Map<String, SequenceBlockStats> getSequenceBlockStats();
+
+    /**
+     * Forget the values of the reserved blocks that have not been handed out
+     * yet, so the next value of each sequence is reserved from the database
+     * again.
+     */
+    public void discardReservedBlocks();
     
 }
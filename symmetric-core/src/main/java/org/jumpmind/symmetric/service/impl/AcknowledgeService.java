@@ -21,14 +21,18 @@
 package org.jumpmind.symmetric.service.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.mapper.NumberMapper;
 import org.jumpmind.symmetric.ISymmetricEngine;
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.io.stage.IStagedResource;
 import org.jumpmind.symmetric.io.stage.IStagedResource.State;
-import org.jumpmind.symmetric.io.stage.IStagingManager;
 import org.jumpmind.symmetric.model.BatchAck;
 import org.jumpmind.symmetric.model.BatchAckResult;
 import org.jumpmind.symmetric.model.Channel;
@@ -57,14 +61,11 @@ public class AcknowledgeService extends AbstractService implements IAcknowledgeS
     public BatchAckResult ack(final BatchAck batch) {
 
         IRegistrationService registrationService = engine.getRegistrationService();
-        IStagingManager stagingManager = engine.getStagingManager();
         IOutgoingBatchService outgoingBatchService = engine.getOutgoingBatchService();
         
     	BatchAckResult result = new BatchAckResult(batch);
     	
-        for (IAcknowledgeEventListener listener : engine.getExtensionService().getExtensionPointList(IAcknowledgeEventListener.class)) {
-            listener.onAcknowledgeEvent(batch);
-        }
+        fireAcknowledgeEvent(batch);
 
         if (batch.getBatchId() == Constants.VIRTUAL_BATCH_FOR_REGISTRATION) {
             if (batch.isOk()) {
@@ -73,83 +74,205 @@ public class AcknowledgeService extends AbstractService implements IAcknowledgeS
         } else {
             OutgoingBatch outgoingBatch = outgoingBatchService
                     .findOutgoingBatch(batch.getBatchId(), batch.getNodeId());
-            Status status = batch.isOk() ? Status.OK : Status.ER;
             if (outgoingBatch != null) {
-                // Allow an outside system/user to indicate that a batch
-                // is OK.
-                if (outgoingBatch.getStatus() != Status.OK && 
-                        outgoingBatch.getStatus() != Status.IG) {
-                    outgoingBatch.setStatus(status);
-                    outgoingBatch.setErrorFlag(!batch.isOk());
-                } else {
-                    // clearing the error flag in case the user set the batch
-                    // status to OK
-                    Status oldStatus = outgoingBatch.getStatus();
-                    outgoingBatch.setStatus(Status.OK);
-                    outgoingBatch.setErrorFlag(false);
-                    log.info("Batch {} for {} was set to {}.  Updating the status to OK",
-                            new Object[] { batch.getBatchId(), batch.getNodeId(), oldStatus.name() });
-                }
-                if (batch.isIgnored()) {
-                    outgoingBatch.incrementIgnoreCount();
-                }
-                outgoingBatch.setNetworkMillis(batch.getNetworkMillis());
-                outgoingBatch.setFilterMillis(batch.getFilterMillis());
-                outgoingBatch.setLoadMillis(batch.getDatabaseMillis());
-                outgoingBatch.setSqlCode(batch.getSqlCode());
-                outgoingBatch.setSqlState(batch.getSqlState());
-                outgoingBatch.setSqlMessage(batch.getSqlMessage());
-
-                if (!batch.isOk() && batch.getErrorLine() != 0) {
-                    List<Number> ids = sqlTemplate.query(getSql("selectDataIdSql"),
-                            new NumberMapper(), outgoingBatch.getBatchId());
-                    if (ids.size() >= batch.getErrorLine()) {
-                        outgoingBatch.setFailedDataId(ids.get((int) batch.getErrorLine() - 1)
-                                .longValue());
-                    }
-                }
-
-                if (status == Status.ER) {
-                    log.error(
-                            "The outgoing batch {} failed{}",
-                            outgoingBatch.getNodeBatchId(), batch.getSqlMessage() != null ? ". " + batch.getSqlMessage() : "");
-                    RouterStats routerStats = engine.getStatisticManager().getRouterStatsByBatch(batch.getBatchId());
-                    if (routerStats != null) {
-                        log.info("Router stats for batch " + outgoingBatch.getBatchId() + ": " + routerStats.toString());
-                    }
-                } else if (!outgoingBatch.isCommonFlag()) {
-                    IStagedResource stagingResource = stagingManager.find(
-                            Constants.STAGING_CATEGORY_OUTGOING, outgoingBatch.getNodeId(),
-                            outgoingBatch.getBatchId());
-                    if (stagingResource != null) {
-                        stagingResource.setState(State.DONE);
-                    }
-                }
-
+                Status status = applyAck(batch, outgoingBatch);
                 outgoingBatchService.updateOutgoingBatch(outgoingBatch);
-                if (status == Status.OK) {
-                    Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
-                    if (channel != null && channel.isFileSyncFlag()){
-                        /* Acknowledge the file_sync in case the file needs deleted. */
-                        engine.getFileSyncService().acknowledgeFiles(outgoingBatch);
-                    }
-                    engine.getStatisticManager().removeRouterStatsByBatch(batch.getBatchId());
-                }
+                afterAck(batch, outgoingBatch, status);
             } else {
-                log.error("Could not find batch {}-{} to acknowledge as {}", new Object[] {batch.getNodeId(), batch.getBatchId(),
-                        status.name()});
+                logBatchNotFound(batch);
                 result.setOk(false);
             }
         }
         return result;
     }
 
+    /**
+     * Acknowledge all the batches from one request. The outgoing batches are
+     * looked up together and updated in one transaction with a batched
+     * statement.
+     */
 	public List<BatchAckResult> ack(List<BatchAck> batches) {
-		
-		List<BatchAckResult> results = new ArrayList<BatchAckResult>();
-		for (BatchAck batch:batches) {
-			results.add(ack(batch));
-		}
-		return results;
+        if (batches.size() <= 1) {
+            List<BatchAckResult> results = new ArrayList<BatchAckResult>(batches.size());
+            for (BatchAck batch : batches) {
+                results.add(ack(batch));
+            }
+            return results;
+        }
+
+        IRegistrationService registrationService = engine.getRegistrationService();
+        IOutgoingBatchService outgoingBatchService = engine.getOutgoingBatchService();
+
+        Map<String, List<Long>> batchIdsByNodeId = new HashMap<String, List<Long>>();
+        for (BatchAck batch : batches) {
+            if (batch.getBatchId() != Constants.VIRTUAL_BATCH_FOR_REGISTRATION
+                    && StringUtils.isNotBlank(batch.getNodeId())) {
+                List<Long> batchIds = batchIdsByNodeId.get(batch.getNodeId());
+                if (batchIds == null) {
+                    batchIds = new ArrayList<Long>();
+                    batchIdsByNodeId.put(batch.getNodeId(), batchIds);
+                }
+                batchIds.add(batch.getBatchId());
+            }
+        }
+
+        Map<String, OutgoingBatch> outgoingBatches = new HashMap<String, OutgoingBatch>();
+        for (Map.Entry<String, List<Long>> entry : batchIdsByNodeId.entrySet()) {
+            for (OutgoingBatch outgoingBatch : outgoingBatchService.findOutgoingBatches(
+                    entry.getKey(), entry.getValue())) {
+                outgoingBatches.put(outgoingBatch.getNodeBatchId(), outgoingBatch);
+            }
+        }
+
+        List<BatchAckResult> results = new ArrayList<BatchAckResult>(batches.size());
+        Map<String, OutgoingBatch> batchesToUpdate = new LinkedHashMap<String, OutgoingBatch>();
+        List<Status> statuses = new ArrayList<Status>(batches.size());
+        List<OutgoingBatch> ackedBatches = new ArrayList<OutgoingBatch>(batches.size());
+        for (BatchAck batch : batches) {
+            BatchAckResult result = new BatchAckResult(batch);
+            results.add(result);
+            fireAcknowledgeEvent(batch);
+
+            Status status = null;
+            OutgoingBatch outgoingBatch = null;
+            if (batch.getBatchId() == Constants.VIRTUAL_BATCH_FOR_REGISTRATION) {
+                if (batch.isOk()) {
+                    registrationService.markNodeAsRegistered(batch.getNodeId());
+                }
+            } else {
+                if (StringUtils.isNotBlank(batch.getNodeId())) {
+                    outgoingBatch = outgoingBatches.get(batch.getNodeId() + "-" + batch.getBatchId());
+                } else {
+                    outgoingBatch = outgoingBatchService.findOutgoingBatch(batch.getBatchId(),
+                            batch.getNodeId());
+                }
+                if (outgoingBatch != null) {
+                    status = applyAck(batch, outgoingBatch);
+                    batchesToUpdate.put(outgoingBatch.getNodeBatchId(), outgoingBatch);
+                } else {
+                    logBatchNotFound(batch);
+                    result.setOk(false);
+                }
+            }
+            statuses.add(status);
+            ackedBatches.add(outgoingBatch);
+        }
+
+        if (batchesToUpdate.size() > 0) {
+            ISqlTransaction transaction = null;
+            try {
+                transaction = sqlTemplate.startSqlTransaction();
+                outgoingBatchService.updateOutgoingBatches(transaction,
+                        new ArrayList<OutgoingBatch>(batchesToUpdate.values()));
+                transaction.commit();
+            } catch (Error ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } finally {
+                close(transaction);
+            }
+        }
+
+        for (int i = 0; i < batches.size(); i++) {
+            OutgoingBatch outgoingBatch = ackedBatches.get(i);
+            if (outgoingBatch != null) {
+                afterAck(batches.get(i), outgoingBatch, statuses.get(i));
+            }
+        }
+
+        return results;
 	}
+
+    protected void fireAcknowledgeEvent(BatchAck batch) {
+        for (IAcknowledgeEventListener listener : engine.getExtensionService().getExtensionPointList(IAcknowledgeEventListener.class)) {
+            listener.onAcknowledgeEvent(batch);
+        }
+    }
+
+    protected void logBatchNotFound(BatchAck batch) {
+        log.error("Could not find batch {}-{} to acknowledge as {}", new Object[] {batch.getNodeId(), batch.getBatchId(),
+                (batch.isOk() ? Status.OK : Status.ER).name()});
+    }
+
+    /**
+     * Copy the acknowledgement onto the outgoing batch. The staged resource of
+     * a batch that loaded is marked as done.
+     * 
+     * @return the status the batch was acknowledged with
+     */
+    protected Status applyAck(BatchAck batch, OutgoingBatch outgoingBatch) {
+        Status status = batch.isOk() ? Status.OK : Status.ER;
+        // Allow an outside system/user to indicate that a batch
+        // is OK.
+        if (outgoingBatch.getStatus() != Status.OK && 
+                outgoingBatch.getStatus() != Status.IG) {
+            outgoingBatch.setStatus(status);
+            outgoingBatch.setErrorFlag(!batch.isOk());
+        } else {
+            // clearing the error flag in case the user set the batch
+            // status to OK
+            Status oldStatus = outgoingBatch.getStatus();
+            outgoingBatch.setStatus(Status.OK);
+            outgoingBatch.setErrorFlag(false);
+            log.info("Batch {} for {} was set to {}.  Updating the status to OK",
+                    new Object[] { batch.getBatchId(), batch.getNodeId(), oldStatus.name() });
+        }
+        if (batch.isIgnored()) {
+            outgoingBatch.incrementIgnoreCount();
+        }
+        outgoingBatch.setNetworkMillis(batch.getNetworkMillis());
+        outgoingBatch.setFilterMillis(batch.getFilterMillis());
+        outgoingBatch.setLoadMillis(batch.getDatabaseMillis());
+        outgoingBatch.setSqlCode(batch.getSqlCode());
+        outgoingBatch.setSqlState(batch.getSqlState());
+        outgoingBatch.setSqlMessage(batch.getSqlMessage());
+
+        if (!batch.isOk() && batch.getErrorLine() != 0) {
+            List<Number> ids = sqlTemplate.query(getSql("selectDataIdSql"),
+                    new NumberMapper(), outgoingBatch.getBatchId());
+            if (ids.size() >= batch.getErrorLine()) {
+                outgoingBatch.setFailedDataId(ids.get((int) batch.getErrorLine() - 1)
+                        .longValue());
+            }
+        }
+
+        if (status == Status.ER) {
+            log.error(
+                    "The outgoing batch {} failed{}",
+                    outgoingBatch.getNodeBatchId(), batch.getSqlMessage() != null ? ". " + batch.getSqlMessage() : "");
+            RouterStats routerStats = engine.getStatisticManager().getRouterStatsByBatch(batch.getBatchId());
+            if (routerStats != null) {
+                log.info("Router stats for batch " + outgoingBatch.getBatchId() + ": " + routerStats.toString());
+            }
+        } else if (!outgoingBatch.isCommonFlag()) {
+            IStagedResource stagingResource = engine.getStagingManager().find(
+                    Constants.STAGING_CATEGORY_OUTGOING, outgoingBatch.getNodeId(),
+                    outgoingBatch.getBatchId());
+            if (stagingResource != null) {
+                stagingResource.setState(State.DONE);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Called once the outgoing batch has been updated
+     */
+    protected void afterAck(BatchAck batch, OutgoingBatch outgoingBatch, Status status) {
+        if (status == Status.OK) {
+            Channel channel = engine.getConfigurationService().getChannel(outgoingBatch.getChannelId());
+            if (channel != null && channel.isFileSyncFlag()){
+                /* Acknowledge the file_sync in case the file needs deleted. */
+                engine.getFileSyncService().acknowledgeFiles(outgoingBatch);
+            }
+            engine.getStatisticManager().removeRouterStatsByBatch(batch.getBatchId());
+        }
+    }
 }
@@ -22,6 +22,8 @@ package org.jumpmind.symmetric.service.impl;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
@@ -34,7 +36,17 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.io.DatabaseXmlUtil;
@@ -42,6 +54,7 @@ import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Database;
 import org.jumpmind.db.model.PlatformColumn;
 import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.platform.DdlBuilderFactory;
 import org.jumpmind.db.platform.IDdlBuilder;
@@ -123,6 +136,8 @@ import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGr
 import org.jumpmind.symmetric.statistic.IStatisticManager;
 import org.jumpmind.symmetric.transport.IOutgoingTransport;
 import org.jumpmind.symmetric.transport.TransportUtils;
+import org.jumpmind.symmetric.util.SymmetricUtils;
+import org.jumpmind.util.FormatUtils;
 import org.jumpmind.util.Statistics;
 
 /**
@@ -135,6 +150,14 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         
     protected enum ExtractMode { FOR_SYM_CLIENT, FOR_PAYLOAD_CLIENT, EXTRACT_ONLY };
 
+    /**
+     * Told about each batch as soon as it has been extracted and marked as
+     * loading
+     */
+    protected interface IExtractListener {
+        public void batchExtracted(OutgoingBatch batch);
+    }
+
     private IOutgoingBatchService outgoingBatchService;
 
     private IRouterService routerService;
@@ -161,6 +184,14 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     private Map<String, Semaphore> locks = new HashMap<String, Semaphore>();
 
+    private ExecutorService partitionExtractThreads;
+
+    private int partitionExtractThreadCount;
+
+    protected ConcurrentMap<String, SharedExtract> sharedExtracts = new ConcurrentHashMap<String, SharedExtract>();
+
+    private AtomicLong sharedExtractIds = new AtomicLong(System.currentTimeMillis());
+
     public DataExtractorService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
         this.outgoingBatchService = engine.getOutgoingBatchService();
@@ -429,6 +460,52 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         return Collections.emptyList();
     }
 
+    public List<OutgoingBatch> extractToPayload(ProcessInfo processInfo, Node targetNode,
+            final PayloadType payloadType, boolean useJdbcTimestampFormat,
+            boolean useUpsertStatements, boolean useDelimiterIdentifiers,
+            final IPayloadListener listener) {
+
+        OutgoingBatches batches = outgoingBatchService.getOutgoingBatches(targetNode.getNodeId(),
+                false);
+
+        if (batches.containsBatches()) {
+
+            ChannelMap channelMap = configurationService.getSuspendIgnoreChannelLists(targetNode
+                    .getNodeId());
+
+            List<OutgoingBatch> activeBatches = filterBatchesForExtraction(batches, channelMap);
+
+            if (activeBatches.size() > 0) {
+                IDdlBuilder builder = DdlBuilderFactory.createDdlBuilder(targetNode
+                        .getDatabaseType());
+                if (builder == null) {
+                    throw new IllegalStateException(
+                            "Could not find a ddl builder registered for the database type of "
+                                    + targetNode.getDatabaseType()
+                                    + ".  Please check the database type setting for node '"
+                                    + targetNode.getNodeId() + "'");
+                }
+                final StructureDataWriter writer = new StructureDataWriter(
+                        symmetricDialect.getPlatform(), targetNode.getDatabaseType(), payloadType,
+                        useDelimiterIdentifiers, symmetricDialect.getBinaryEncoding(),
+                        useJdbcTimestampFormat, useUpsertStatements);
+                return extract(processInfo, targetNode, activeBatches, writer,
+                        ExtractMode.FOR_PAYLOAD_CLIENT, new IExtractListener() {
+                            public void batchExtracted(OutgoingBatch batch) {
+                                OutgoingBatchWithPayload batchWithPayload = new OutgoingBatchWithPayload(
+                                        batch, payloadType);
+                                batchWithPayload.setPayload(writer.getPayloadMap().remove(
+                                        batch.getBatchId()));
+                                batchWithPayload.setPayloadType(payloadType);
+                                listener.payloadExtracted(batchWithPayload);
+                            }
+                        });
+            }
+        }
+
+        return Collections.emptyList();
+    }
+
     public List<OutgoingBatch> extract(ProcessInfo processInfo, Node targetNode,
             IOutgoingTransport transport) {
 
@@ -493,6 +570,12 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     protected List<OutgoingBatch> extract(ProcessInfo processInfo, Node targetNode,
             List<OutgoingBatch> activeBatches, IDataWriter dataWriter, ExtractMode mode) {
+        return extract(processInfo, targetNode, activeBatches, dataWriter, mode, null);
+    }
+
+    protected List<OutgoingBatch> extract(ProcessInfo processInfo, Node targetNode,
+            List<OutgoingBatch> activeBatches, IDataWriter dataWriter, ExtractMode mode,
+            IExtractListener listener) {
         boolean streamToFileEnabled = parameterService
                 .is(ParameterConstants.STREAM_TO_FILE_ENABLED);
         List<OutgoingBatch> processedBatches = new ArrayList<OutgoingBatch>(activeBatches.size());
@@ -562,6 +645,10 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
                         bytesSentCount += currentBatch.getByteCount();
                         batchesSentCount++;
+
+                        if (listener != null) {
+                            listener.batchExtracted(currentBatch);
+                        }
                         
                         if (bytesSentCount >= maxBytesToSync && processedBatches.size() < activeBatches.size()) {
                             log.info(
@@ -735,17 +822,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                             IDataReader dataReader = new ExtractDataReader(
                                     symmetricDialect.getPlatform(), new SelectFromSymDataSource(
                                             currentBatch, sourceNode, targetNode, processInfo));
-                            DataContext ctx = new DataContext();
-                            ctx.put(Constants.DATA_CONTEXT_TARGET_NODE, targetNode);
-                            ctx.put(Constants.DATA_CONTEXT_TARGET_NODE_ID, targetNode.getNodeId());
-                            ctx.put(Constants.DATA_CONTEXT_TARGET_NODE_EXTERNAL_ID, targetNode.getExternalId());
-                            ctx.put(Constants.DATA_CONTEXT_TARGET_NODE_GROUP_ID, targetNode.getNodeGroupId());
-                            ctx.put(Constants.DATA_CONTEXT_TARGET_NODE, targetNode);
-                            ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE, sourceNode);
-                            ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE_ID, sourceNode.getNodeId());
-                            ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE_EXTERNAL_ID, sourceNode.getExternalId());
-                            ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE_GROUP_ID, sourceNode.getNodeGroupId());
-                            
+                            DataContext ctx = createExtractContext(sourceNode, targetNode);
                             new DataProcessor(dataReader, transformExtractWriter, "extract").process(ctx);
                             extractTimeInMs = System.currentTimeMillis() - ts;
                             Statistics stats = transformExtractWriter.getNestedWriter()
@@ -807,6 +884,19 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         return currentBatch;
     }
 
+    protected DataContext createExtractContext(Node sourceNode, Node targetNode) {
+        DataContext ctx = new DataContext();
+        ctx.put(Constants.DATA_CONTEXT_TARGET_NODE, targetNode);
+        ctx.put(Constants.DATA_CONTEXT_TARGET_NODE_ID, targetNode.getNodeId());
+        ctx.put(Constants.DATA_CONTEXT_TARGET_NODE_EXTERNAL_ID, targetNode.getExternalId());
+        ctx.put(Constants.DATA_CONTEXT_TARGET_NODE_GROUP_ID, targetNode.getNodeGroupId());
+        ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE, sourceNode);
+        ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE_ID, sourceNode.getNodeId());
+        ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE_EXTERNAL_ID, sourceNode.getExternalId());
+        ctx.put(Constants.DATA_CONTEXT_SOURCE_NODE_GROUP_ID, sourceNode.getNodeGroupId());
+        return ctx;
+    }
+
     protected IStagedResource getStagedResource(OutgoingBatch currentBatch) {
         return stagingManager.find(Constants.STAGING_CATEGORY_OUTGOING,
                 currentBatch.getStagedLocation(), currentBatch.getBatchId());
@@ -835,7 +925,18 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             long ts = System.currentTimeMillis();
 
             IStagedResource extractedBatch = getStagedResource(currentBatch);
-            if (extractedBatch != null) {
+            if (extractedBatch != null && canCopyStagedBatch(extractedBatch, dataWriter)) {
+                Statistics stats = extractedBatch.getStatistics();
+                processInfo.setCurrentBatchId(currentBatch.getBatchId());
+                processInfo.setCurrentChannelId(currentBatch.getChannelId());
+                processInfo.incrementBatchCount();
+                ((ProtocolDataWriter) dataWriter).writeStagedBatch(extractedBatch);
+                long statementCount = stats.get(DataWriterStatisticConstants.STATEMENTCOUNT);
+                processInfo.setCurrentDataCount(statementCount);
+                statisticManager.incrementDataSent(currentBatch.getChannelId(), statementCount);
+                statisticManager.incrementDataBytesSent(currentBatch.getChannelId(),
+                        stats.get(DataWriterStatisticConstants.BYTECOUNT));
+            } else if (extractedBatch != null) {
                 IDataReader dataReader = new ProtocolDataReader(BatchType.EXTRACT,
                         currentBatch.getNodeId(), extractedBatch);
 
@@ -869,6 +970,18 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
     }
 
+    /**
+     * A staged batch can be copied to the transport as is when it was staged
+     * during this run (so its statistics are known) and the target node
+     * understands the protocol format that was used to stage it.
+     */
+    protected boolean canCopyStagedBatch(IStagedResource extractedBatch, IDataWriter dataWriter) {
+        return extractedBatch.getStatistics() != null
+                && dataWriter instanceof ProtocolDataWriter
+                && !((ProtocolDataWriter) dataWriter).isBackwardsCompatible()
+                && parameterService.is(ParameterConstants.STREAM_TO_FILE_COPY_TO_TRANSPORT_ENABLED, true);
+    }
+
     public boolean extractBatchRange(Writer writer, String nodeId, long startBatchId,
             long endBatchId) {
         boolean foundBatch = false;
@@ -1068,6 +1181,7 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
      */
     public void execute(NodeCommunication nodeCommunication, RemoteNodeStatus status) {
         List<ExtractRequest> requests = getExtractRequestsForNode(nodeCommunication.getNodeId());
+        purgeSharedExtracts();
         long ts = System.currentTimeMillis();
         /*
          * Process extract requests until it has taken longer than 30 seconds, and then
@@ -1105,14 +1219,29 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
 
                     Channel channel = configurationService
                             .getChannel(batches.get(0).getChannelId());
-                    /*
-                     * "Trick" the extractor to extract one reload batch, but we
-                     * will split it across the N batches when writing it
-                     */
-                    extractOutgoingBatch(processInfo, targetNode,
-                            new MultiBatchStagingWriter(identity.getNodeId(), stagingManager,
-                                    batches, channel.getMaxBatchSize()), batches.get(0), false,
-                            false, ExtractMode.FOR_SYM_CLIENT);
+                    SelectFromTableEvent event = new SelectFromTableEvent(targetNode,
+                            request.getTriggerRouter(), null, null);
+                    String sharedExtractKey = getSharedExtractKey(identity, targetNode, event);
+                    if (sharedExtractKey == null
+                            || !extractFromSharedExtract(processInfo, identity, targetNode,
+                                    request, event, sharedExtractKey, batches, channel)) {
+                        List<String> partitionSelects = getInitialLoadPartitionSelects(
+                                targetNode, event, batches.size());
+                        if (partitionSelects.size() > 1) {
+                            extractInitialLoadPartitions(processInfo, identity, targetNode,
+                                    event, partitionSelects, batches, channel);
+                        } else {
+                            /*
+                             * "Trick" the extractor to extract one reload
+                             * batch, but we will split it across the N
+                             * batches when writing it
+                             */
+                            extractOutgoingBatch(processInfo, targetNode,
+                                    new MultiBatchStagingWriter(identity.getNodeId(),
+                                            stagingManager, batches, channel.getMaxBatchSize()),
+                                    batches.get(0), false, false, ExtractMode.FOR_SYM_CLIENT);
+                        }
+                    }
 
                 } else {
                     log.info("Batches already had an OK status for request {}, batches {} to {}.  Not extracting", new Object[] { request.getRequestId(), request.getStartBatchId(),
@@ -1188,6 +1317,487 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         }
     }
 
+    /**
+     * An initial load can be extracted once and shared by every node in the
+     * target node group when the rows that are selected do not depend on the
+     * node.
+     * 
+     * @return the key that identifies the shared extract, or null if each
+     *         node needs its own extract
+     */
+    protected String getSharedExtractKey(Node sourceNode, Node targetNode,
+            SelectFromTableEvent event) {
+        if (!parameterService.is(ParameterConstants.INITIAL_LOAD_EXTRACT_SHARED_ENABLED, false)) {
+            return null;
+        }
+
+        TriggerRouter triggerRouter = event.getTriggerRouter();
+        TriggerHistory triggerHistory = event.getTriggerHistory();
+        String routerType = triggerRouter.getRouter().getRouterType();
+        String initialLoadSelect = StringUtils.trimToEmpty(triggerRouter.getInitialLoadSelect());
+        if (triggerHistory == null
+                || (StringUtils.isNotBlank(routerType) && !"default".equals(routerType))
+                || initialLoadSelect.contains("$(groupId)")
+                || initialLoadSelect.contains("$(externalId)")
+                || initialLoadSelect.contains("$(nodeId)")) {
+            return null;
+        }
+
+        List<TransformTableNodeGroupLink> transforms = transformService.findTransformsFor(
+                new NodeGroupLink(sourceNode.getNodeGroupId(), targetNode.getNodeGroupId()),
+                TransformPoint.EXTRACT);
+        if (transforms != null && transforms.size() > 0) {
+            return null;
+        }
+
+        return triggerRouter.getTrigger().getTriggerId() + "-"
+                + triggerRouter.getRouter().getRouterId() + "-"
+                + triggerHistory.getTriggerHistoryId() + "-" + initialLoadSelect;
+    }
+
+    /**
+     * Splits the shared extract of an initial load across the request's
+     * batches. The shared extract is only used if it was started after the
+     * request was made, otherwise it is extracted again first. A table is only
+     * extracted to share when more than one request is waiting for it.
+     * <p>
+     * Each request copies the shared extract into the staged resources of its
+     * own batches. Once every request the extract was made for has used it,
+     * the extract is deleted.
+     * 
+     * @return false if the table should be extracted for this request alone
+     */
+    protected boolean extractFromSharedExtract(ProcessInfo processInfo, Node sourceNode,
+            Node targetNode, ExtractRequest request, SelectFromTableEvent event,
+            String sharedExtractKey, List<OutgoingBatch> batches, Channel channel) {
+        SharedExtract sharedExtract = lockUsableSharedExtract(processInfo, sourceNode,
+                targetNode, request, event, sharedExtractKey, channel);
+        if (sharedExtract == null) {
+            return false;
+        }
+
+        ReentrantReadWriteLock lock = sharedExtract.lock;
+        try {
+            log.info("Using the shared extract of {} for request {}",
+                    event.getTriggerHistory().getSourceTableName(), request.getRequestId());
+            sharedExtract.resource.refreshLastUpdateTime();
+            IDataReader dataReader = new ProtocolDataReader(BatchType.EXTRACT,
+                    targetNode.getNodeId(), sharedExtract.resource);
+            IDataWriter dataWriter = new ProcessInfoDataWriter(new MultiBatchStagingWriter(
+                    sourceNode.getNodeId(), stagingManager, batches, channel.getMaxBatchSize()),
+                    processInfo);
+            new DataProcessor(dataReader, dataWriter, "extract from shared").process(createExtractContext(
+                    sourceNode, targetNode));
+            sharedExtract.requestIds.remove(request.getRequestId());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (sharedExtract.requestIds.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                if (!sharedExtract.removed && sharedExtract.requestIds.isEmpty()) {
+                    removeSharedExtract(sharedExtractKey, sharedExtract);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the shared extract for the key and extract it first if it cannot
+     * be used for the request.
+     * 
+     * @return the shared extract with its read lock held, or null if the table
+     *         should be extracted for this request alone
+     */
+    protected SharedExtract lockUsableSharedExtract(ProcessInfo processInfo, Node sourceNode,
+            Node targetNode, ExtractRequest request, SelectFromTableEvent event,
+            String sharedExtractKey, Channel channel) {
+        while (true) {
+            SharedExtract sharedExtract = lockSharedExtract(sharedExtractKey);
+            if (sharedExtract.isUsableFor(request)) {
+                return sharedExtract;
+            }
+
+            ReentrantReadWriteLock lock = sharedExtract.lock;
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                if (sharedExtract.removed) {
+                    /* another request removed it, so look it up again */
+                    continue;
+                }
+                if (!sharedExtract.isUsableFor(request)) {
+                    Set<Long> requestIds = findExtractRequestIds(event.getTriggerRouter());
+                    if (requestIds.size() <= 1) {
+                        removeSharedExtract(sharedExtractKey, sharedExtract);
+                        return null;
+                    }
+                    extractSharedExtract(processInfo, sourceNode, targetNode, event,
+                            sharedExtract, requestIds, channel);
+                    if (!sharedExtract.isUsableFor(request)) {
+                        return null;
+                    }
+                }
+                /* downgrade to the read lock before the write lock is released */
+                lock.readLock().lock();
+                return sharedExtract;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the shared extract for the key with its read lock held
+     */
+    protected SharedExtract lockSharedExtract(String sharedExtractKey) {
+        while (true) {
+            SharedExtract sharedExtract = sharedExtracts.get(sharedExtractKey);
+            if (sharedExtract == null) {
+                SharedExtract newSharedExtract = new SharedExtract();
+                sharedExtract = sharedExtracts.putIfAbsent(sharedExtractKey, newSharedExtract);
+                if (sharedExtract == null) {
+                    sharedExtract = newSharedExtract;
+                }
+            }
+            sharedExtract.lock.readLock().lock();
+            if (!sharedExtract.removed) {
+                return sharedExtract;
+            }
+            sharedExtract.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Must be called with the shared extract's write lock held
+     */
+    protected void removeSharedExtract(String sharedExtractKey, SharedExtract sharedExtract) {
+        sharedExtract.deleteResource();
+        sharedExtract.removed = true;
+        sharedExtracts.remove(sharedExtractKey, sharedExtract);
+    }
+
+    /**
+     * The staging purge does not delete a shared extract that is still
+     * tracked, so remove the ones that were not used within the staging time
+     * to live, which happens when a request they were made for never used them
+     */
+    protected void purgeSharedExtracts() {
+        long expireBefore = System.currentTimeMillis()
+                - parameterService.getLong(ParameterConstants.STREAM_TO_FILE_TIME_TO_LIVE_MS);
+        for (Map.Entry<String, SharedExtract> entry : sharedExtracts.entrySet()) {
+            SharedExtract sharedExtract = entry.getValue();
+            if (sharedExtract.lock.writeLock().tryLock()) {
+                try {
+                    if (!sharedExtract.removed
+                            && sharedExtract.resource != null
+                            && (!sharedExtract.resource.exists() || sharedExtract.resource
+                                    .getLastUpdateTime() < expireBefore)) {
+                        removeSharedExtract(entry.getKey(), sharedExtract);
+                    }
+                } finally {
+                    sharedExtract.lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the ids of the extract requests for the trigger router that have
+     *         not been extracted yet
+     */
+    protected Set<Long> findExtractRequestIds(TriggerRouter triggerRouter) {
+        return new HashSet<Long>(sqlTemplate.query(
+                getSql("selectExtractRequestIdsForTriggerRouterSql"), new ISqlRowMapper<Long>() {
+                    public Long mapRow(Row row) {
+                        return row.getLong("request_id");
+                    }
+                }, triggerRouter.getTrigger().getTriggerId(), triggerRouter.getRouter()
+                        .getRouterId(), ExtractStatus.NE.name()));
+    }
+
+    protected void extractSharedExtract(ProcessInfo processInfo, Node sourceNode,
+            Node targetNode, SelectFromTableEvent event, SharedExtract sharedExtract,
+            Set<Long> requestIds, Channel channel) {
+        sharedExtract.deleteResource();
+
+        /*
+         * Only requests that can be seen before the select starts are
+         * guaranteed to have been made before the data was read
+         */
+        sharedExtract.requestIds = Collections.synchronizedSet(requestIds);
+
+        log.info("Extracting {} once to share with the {} requests for it",
+                event.getTriggerHistory().getSourceTableName(), sharedExtract.requestIds.size());
+        Batch batch = new Batch(BatchType.EXTRACT, sharedExtractIds.incrementAndGet(),
+                channel.getChannelId(), symmetricDialect.getBinaryEncoding(),
+                sourceNode.getNodeId(), targetNode.getNodeId(), true);
+        List<SelectFromTableEvent> events = new ArrayList<SelectFromTableEvent>(1);
+        events.add(event);
+        IDataReader dataReader = new ExtractDataReader(symmetricDialect.getPlatform(),
+                new SelectFromTableSource(batch, events));
+        long memoryThresholdInBytes = parameterService
+                .getLong(ParameterConstants.STREAM_TO_FILE_THRESHOLD);
+        IDataWriter dataWriter = new ProcessInfoDataWriter(new StagingDataWriter(
+                memoryThresholdInBytes, sourceNode.getNodeId(),
+                Constants.STAGING_CATEGORY_OUTGOING, stagingManager), processInfo);
+        try {
+            new DataProcessor(dataReader, dataWriter, "extract shared").process(createExtractContext(
+                    sourceNode, targetNode));
+        } finally {
+            sharedExtract.resource = stagingManager.find(Constants.STAGING_CATEGORY_OUTGOING,
+                    batch.getStagedLocation(), batch.getBatchId());
+            if (sharedExtract.resource != null) {
+                if (sharedExtract.resource.getState() == State.READY) {
+                    /*
+                     * Keep the staging purge from deleting the extract while
+                     * requests are still waiting to copy it
+                     */
+                    sharedExtract.resource.reference();
+                } else {
+                    sharedExtract.resource.close();
+                    sharedExtract.resource.delete();
+                    sharedExtract.resource = null;
+                }
+            }
+        }
+    }
+
+    static class SharedExtract {
+
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        IStagedResource resource;
+
+        /*
+         * The requests that may use the extract and have not used it yet
+         */
+        Set<Long> requestIds = Collections.synchronizedSet(new HashSet<Long>(0));
+
+        boolean removed;
+
+        boolean isUsableFor(ExtractRequest request) {
+            return resource != null && resource.exists() && resource.getState() == State.READY
+                    && requestIds.contains(request.getRequestId());
+        }
+
+        void deleteResource() {
+            if (resource != null) {
+                resource.dereference();
+                resource.delete();
+                resource = null;
+            }
+        }
+
+    }
+
+    /**
+     * Splits an initial load into where clauses that each select one range of
+     * the table's primary key. The ranges are evenly sized between the
+     * smallest and largest key. The first and last ranges are left open so
+     * rows added during the extract are not missed.
+     * 
+     * @return an empty list if the table should be extracted in one pass
+     */
+    protected List<String> getInitialLoadPartitionSelects(Node targetNode,
+            SelectFromTableEvent event, int batchCount) {
+        int partitionCount = Math.min(batchCount,
+                parameterService.getInt(ParameterConstants.INITIAL_LOAD_EXTRACT_PARTITION_COUNT, 1));
+        TriggerRouter triggerRouter = event.getTriggerRouter();
+        TriggerHistory triggerHistory = event.getTriggerHistory();
+        if (partitionCount <= 1 || triggerHistory == null) {
+            return Collections.emptyList();
+        }
+
+        Table table = platform.getTableFromCache(triggerHistory.getSourceCatalogName(),
+                triggerHistory.getSourceSchemaName(), triggerHistory.getSourceTableName(), false);
+        Column[] pkColumns = table != null ? table.getPrimaryKeyColumns() : new Column[0];
+        if (pkColumns.length != 1 || !isPartitionable(pkColumns[0])) {
+            log.debug("Not partitioning the initial load of {} because it does not have a single integer primary key",
+                    triggerHistory.getSourceTableName());
+            return Collections.emptyList();
+        }
+
+        String initialLoadSelect = StringUtils.isBlank(triggerRouter.getInitialLoadSelect()) ? Constants.ALWAYS_TRUE_CONDITION
+                : triggerRouter.getInitialLoadSelect();
+        String alias = symmetricDialect.getInitialLoadTableAlias();
+        String pkColumn = alias + "." + SymmetricUtils.quote(symmetricDialect, pkColumns[0].getName());
+        DatabaseInfo dbInfo = platform.getDatabaseInfo();
+        String sql = String.format("select min(%s) as min_value, max(%s) as max_value from %s %s where %s",
+                pkColumn, pkColumn, table.getQualifiedTableName(dbInfo.getDelimiterToken(),
+                        dbInfo.getCatalogSeparator(), dbInfo.getSchemaSeparator()), alias,
+                initialLoadSelect);
+        sql = FormatUtils.replace("groupId", targetNode.getNodeGroupId(), sql);
+        sql = FormatUtils.replace("externalId", targetNode.getExternalId(), sql);
+        sql = FormatUtils.replace("nodeId", targetNode.getNodeId(), sql);
+        Row row = sqlTemplate.queryForRow(sql);
+        if (row == null || row.get("min_value") == null || row.get("max_value") == null) {
+            return Collections.emptyList();
+        }
+
+        BigInteger min = new BigDecimal(row.get("min_value").toString()).toBigInteger();
+        BigInteger max = new BigDecimal(row.get("max_value").toString()).toBigInteger();
+        BigInteger range = max.subtract(min).add(BigInteger.ONE);
+        if (range.compareTo(BigInteger.valueOf(partitionCount)) < 0) {
+            return Collections.emptyList();
+        }
+
+        List<String> partitionSelects = new ArrayList<String>(partitionCount);
+        BigInteger lower = null;
+        for (int i = 1; i <= partitionCount; i++) {
+            BigInteger upper = i < partitionCount ? min.add(range.multiply(BigInteger.valueOf(i))
+                    .divide(BigInteger.valueOf(partitionCount))) : null;
+            StringBuilder partitionSelect = new StringBuilder("(").append(initialLoadSelect)
+                    .append(")");
+            if (lower != null) {
+                partitionSelect.append(" and ").append(pkColumn).append(" >= ").append(lower);
+            }
+            if (upper != null) {
+                partitionSelect.append(" and ").append(pkColumn).append(" < ").append(upper);
+            }
+            partitionSelects.add(partitionSelect.toString());
+            lower = upper;
+        }
+        return partitionSelects;
+    }
+
+    protected boolean isPartitionable(Column column) {
+        switch (column.getMappedTypeCode()) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return true;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return column.getScale() == 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Extracts each partition of an initial load on its own thread. The
+     * request's batches are divided between the partitions in order, and
+     * each partition splits its rows across its own batches.
+     */
+    protected void extractInitialLoadPartitions(final ProcessInfo processInfo,
+            final Node sourceNode, final Node targetNode, final SelectFromTableEvent event,
+            List<String> partitionSelects, List<OutgoingBatch> batches, final Channel channel) {
+        ExecutorService executor = getPartitionExtractThreads();
+        int partitionCount = partitionSelects.size();
+        List<Future<?>> futures = new ArrayList<Future<?>>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            final SelectFromTableEvent partitionEvent = new SelectFromTableEvent(targetNode,
+                    event.getTriggerRouter(), event.getTriggerHistory(), partitionSelects.get(i));
+            final List<OutgoingBatch> partitionBatches = new ArrayList<OutgoingBatch>(
+                    batches.subList(batches.size() * i / partitionCount, batches.size() * (i + 1)
+                            / partitionCount));
+            futures.add(executor.submit(new Runnable() {
+                public void run() {
+                    extractInitialLoadPartition(processInfo, sourceNode, targetNode,
+                            partitionEvent, partitionBatches, channel);
+                }
+            }));
+        }
+
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            throw new org.jumpmind.exception.InterruptedException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new SymmetricException("Failed to extract the initial load for %s", cause,
+                        event.getTriggerHistory().getSourceTableName());
+            }
+        } finally {
+            for (Future<?> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    protected void extractInitialLoadPartition(ProcessInfo processInfo, Node sourceNode,
+            Node targetNode, SelectFromTableEvent event, List<OutgoingBatch> partitionBatches,
+            Channel channel) {
+        OutgoingBatch firstBatch = partitionBatches.get(0);
+        Batch batch = new Batch(BatchType.EXTRACT, firstBatch.getBatchId(),
+                firstBatch.getChannelId(), symmetricDialect.getBinaryEncoding(),
+                sourceNode.getNodeId(), firstBatch.getNodeId(), firstBatch.isCommonFlag());
+        IDataReader dataReader = new ExtractDataReader(symmetricDialect.getPlatform(),
+                new SelectFromTableSource(firstBatch, batch, event));
+        IDataWriter dataWriter = createTransformDataWriter(sourceNode, targetNode,
+                new ProcessInfoDataWriter(new MultiBatchStagingWriter(sourceNode.getNodeId(),
+                        stagingManager, partitionBatches, channel.getMaxBatchSize()), processInfo));
+        try {
+            new DataProcessor(dataReader, dataWriter, "extract").process(createExtractContext(
+                    sourceNode, targetNode));
+        } catch (RuntimeException ex) {
+            for (OutgoingBatch outgoingBatch : partitionBatches) {
+                IStagedResource resource = getStagedResource(outgoingBatch);
+                if (resource != null) {
+                    resource.close();
+                    resource.delete();
+                }
+            }
+            throw ex;
+        }
+    }
+
+    protected synchronized ExecutorService getPartitionExtractThreads() {
+        int threadCount = parameterService.getInt(
+                ParameterConstants.INITIAL_LOAD_EXTRACT_PARTITION_THREAD_COUNT, 4);
+        if (partitionExtractThreads != null && threadCount != partitionExtractThreadCount) {
+            partitionExtractThreads.shutdown();
+            partitionExtractThreads = null;
+        }
+
+        if (partitionExtractThreads == null) {
+            partitionExtractThreadCount = threadCount;
+            partitionExtractThreads = Executors.newFixedThreadPool(Math.max(threadCount, 1),
+                    new ThreadFactory() {
+                        final AtomicInteger threadNumber = new AtomicInteger(1);
+                        final String namePrefix = parameterService.getEngineName().toLowerCase()
+                                + "-extract-partition-";
+
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r);
+                            t.setName(namePrefix + threadNumber.getAndIncrement());
+                            if (t.isDaemon()) {
+                                t.setDaemon(false);
+                            }
+                            if (t.getPriority() != Thread.NORM_PRIORITY) {
+                                t.setPriority(Thread.NORM_PRIORITY);
+                            }
+                            return t;
+                        }
+                    });
+        }
+        return partitionExtractThreads;
+    }
+
+    public synchronized void stop() {
+        if (partitionExtractThreads != null) {
+            try {
+                partitionExtractThreads.shutdown();
+                partitionExtractThreads = null;
+            } catch (Exception ex) {
+                log.error("", ex);
+            }
+        }
+    }
+
     class ExtractRequestMapper implements ISqlRowMapper<ExtractRequest> {
         public ExtractRequest mapRow(Row row) {
             ExtractRequest request = new ExtractRequest();
@@ -1259,6 +1869,15 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         }
 
         public void start(Batch batch) {
+            if (batch.getBatchId() != outgoingBatch.getBatchId()) {
+                /*
+                 * The data is being copied from a shared extract, so label it
+                 * with the batch it is written to
+                 */
+                batch = new Batch(BatchType.EXTRACT, outgoingBatch.getBatchId(),
+                        outgoingBatch.getChannelId(), symmetricDialect.getBinaryEncoding(),
+                        sourceNodeId, outgoingBatch.getNodeId(), false);
+            }
             this.batch = batch;
             this.currentDataWriter.start(batch);
         }
@@ -1325,6 +1944,15 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
             this.inError = inError;
             if (this.currentDataWriter != null) {
                 this.currentDataWriter.end(this.batch, inError);
+                /*
+                 * Stage the batches that there were no rows left for so they
+                 * are not mistaken for purged batches and extracted again
+                 */
+                while (!inError && this.batches.size() > 0) {
+                    this.currentDataWriter.close();
+                    startNewBatchWriter();
+                    this.currentDataWriter.end(this.batch, false);
+                }
             }
         }
         
@@ -1349,6 +1977,11 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
         }
 
         protected void startNewBatch() {
+            startNewBatchWriter();
+            this.currentDataWriter.start(table);
+        }
+
+        protected void startNewBatchWriter() {
             this.nextBatch();
             long memoryThresholdInBytes = parameterService
                     .getLong(ParameterConstants.STREAM_TO_FILE_THRESHOLD);            
@@ -1360,7 +1993,6 @@ public class DataExtractorService extends AbstractService implements IDataExtrac
                     sourceNodeId, outgoingBatch.getNodeId(), false);
             this.currentDataWriter.open(context);
             this.currentDataWriter.start(batch);
-            this.currentDataWriter.start(table);
         }
 
     }
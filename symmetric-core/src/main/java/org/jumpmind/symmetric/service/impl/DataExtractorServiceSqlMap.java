@@ -34,6 +34,8 @@ public class DataExtractorServiceSqlMap extends AbstractSqlMap {
         putSql("selectNodeIdsForExtractSql", "select distinct(node_id) from $(extract_request) where status=?");
         
         putSql("selectExtractRequestForNodeSql", "select * from $(extract_request) where node_id=? and status=? order by request_id");
+
+        putSql("selectExtractRequestIdsForTriggerRouterSql", "select request_id from $(extract_request) where trigger_id=? and router_id=? and status=?");
         
         putSql("insertExtractRequestSql", "insert into $(extract_request) (request_id, node_id, status, start_batch_id, end_batch_id, trigger_id, router_id, last_update_time, create_time) values(?, ?, ?, ?, ?, ?, ?, current_timestamp, current_timestamp)");
         
@@ -33,11 +33,22 @@ import java.net.UnknownHostException;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.exception.ExceptionUtils;
@@ -160,6 +171,8 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
     
     private final LogSuppressor logSuppressor = new LogSuppressor(log);
 
+    private ExecutorService loaderThreads;
+
     public DataLoaderService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
         this.incomingBatchService = engine.getIncomingBatchService();
@@ -456,11 +469,29 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 processInfo.setStatus(ProcessInfo.Status.TRANSFERRING);
                 IDataReader dataReader = new ProtocolDataReader(BatchType.LOAD, targetNodeId,
                         transport.openReader());
+                LoadIntoDatabaseOnArrivalListener loadListener = null;
+                int queueSize = parameterService.getInt(
+                        ParameterConstants.DATA_LOADER_PIPELINED_LOAD_QUEUE_SIZE, 10);
+                if (parameterService.is(ParameterConstants.DATA_LOADER_PARALLEL_CHANNEL_LOAD_ENABLED)) {
+                    loadListener = new ParallelChannelLoadIntoDatabaseListener(processInfo,
+                            sourceNode.getNodeId(), listener, ctx, queueSize);
+                } else if (parameterService.is(ParameterConstants.DATA_LOADER_PIPELINED_LOAD_ENABLED)) {
+                    loadListener = new PipelinedLoadIntoDatabaseListener(processInfo,
+                            sourceNode.getNodeId(), listener, ctx, queueSize);
+                } else {
+                    loadListener = new LoadIntoDatabaseOnArrivalListener(processInfo,
+                            sourceNode.getNodeId(), listener);
+                }
                 IDataWriter dataWriter = new StagingDataWriter(memoryThresholdInBytes,
                         sourceNode.getNodeId(), Constants.STAGING_CATEGORY_INCOMING,
-                        stagingManager, new LoadIntoDatabaseOnArrivalListener(processInfo,
-                                sourceNode.getNodeId(), listener));
-                new DataProcessor(dataReader, dataWriter, "transfer to stage").process(ctx);
+                        stagingManager, loadListener);
+                boolean transferred = false;
+                try {
+                    new DataProcessor(dataReader, dataWriter, "transfer to stage").process(ctx);
+                    transferred = true;
+                } finally {
+                    loadListener.finish(transferred);
+                }
                 totalNetworkMillis = System.currentTimeMillis() - totalNetworkMillis;
             } else {
                 DataProcessor processor = new DataProcessor(new ProtocolDataReader(BatchType.LOAD,
@@ -817,13 +848,13 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
 
     class LoadIntoDatabaseOnArrivalListener implements IProtocolDataWriterListener {
 
-        private ManageIncomingBatchListener listener;
+        protected ManageIncomingBatchListener listener;
 
-        private long batchStartsToArriveTimeInMs;
+        protected long batchStartsToArriveTimeInMs;
 
-        private String sourceNodeId;
+        protected String sourceNodeId;
 
-        private ProcessInfo processInfo;
+        protected ProcessInfo processInfo;
 
         public LoadIntoDatabaseOnArrivalListener(ProcessInfo processInfo, String sourceNodeId,
                 ManageIncomingBatchListener listener) {
@@ -838,9 +869,34 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         }
 
         public void end(DataContext ctx, Batch batch, IStagedResource resource) {
-
             long networkMillis = System.currentTimeMillis() - batchStartsToArriveTimeInMs;
+            load(ctx, batch, resource, networkMillis);
+        }
+
+        /**
+         * Called after the transport has been read. Loads that have not
+         * happened yet are waited for.
+         * 
+         * @param throwError
+         *            whether to throw an error that a load ran into. This is
+         *            false when the transfer itself failed so that its error is
+         *            the one that gets reported.
+         */
+        public void finish(boolean throwError) {
+        }
 
+        protected void rethrow(Throwable ex) {
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            } else if (ex instanceof Error) {
+                throw (Error) ex;
+            } else if (ex != null) {
+                throw new IoException((Exception) ex);
+            }
+        }
+
+        protected void load(DataContext ctx, Batch batch, IStagedResource resource,
+                long networkMillis) {
             try {
                 processInfo.setStatus(ProcessInfo.Status.LOADING);
                 DataProcessor processor = new DataProcessor(new ProtocolDataReader(BatchType.LOAD,
@@ -865,18 +921,345 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
         }
     }
 
+    /**
+     * Hands batches to a loader thread as soon as they are staged so the
+     * transport can continue to be read while a batch is being loaded. Batches
+     * are loaded in the order they arrived. At most queueSize staged batches
+     * wait to be loaded before the reading thread blocks. If a batch fails to
+     * load, the rest of the queued batches are not loaded and the error is
+     * thrown on the reading thread. The reading thread never waits on a loader
+     * thread that has stopped.
+     */
+    class PipelinedLoadIntoDatabaseListener extends LoadIntoDatabaseOnArrivalListener implements
+            Runnable {
+
+        private final StagedBatch END = new StagedBatch(null, null, 0);
+
+        private BlockingQueue<StagedBatch> queue;
+
+        private DataContext loadContext;
+
+        private volatile Throwable error;
+
+        private volatile boolean stopped;
+
+        private Future<?> future;
+
+        public PipelinedLoadIntoDatabaseListener(ProcessInfo processInfo, String sourceNodeId,
+                ManageIncomingBatchListener listener, DataContext ctx, int queueSize) {
+            super(processInfo, sourceNodeId, listener);
+            this.queue = new ArrayBlockingQueue<StagedBatch>(Math.max(queueSize, 1));
+            /*
+             * The loader thread gets its own context because the reading thread
+             * keeps updating the current batch, table and data on its context
+             */
+            this.loadContext = new DataContext();
+            this.loadContext.getContext().putAll(ctx.getContext());
+            this.future = getLoaderThreads().submit(this);
+        }
+
+        @Override
+        public void start(DataContext ctx, Batch batch) {
+            checkForError();
+            super.start(ctx, batch);
+        }
+
+        @Override
+        public void end(DataContext ctx, Batch batch, IStagedResource resource) {
+            long networkMillis = System.currentTimeMillis() - batchStartsToArriveTimeInMs;
+            if (error != null) {
+                resource.setState(State.DONE);
+                checkForError();
+            } else if (!put(new StagedBatch(batch, resource, networkMillis))) {
+                checkForError();
+            }
+        }
+
+        public void run() {
+            try {
+                StagedBatch stagedBatch = take();
+                while (stagedBatch != END) {
+                    if (error == null) {
+                        try {
+                            load(loadContext, stagedBatch.batch, stagedBatch.resource,
+                                    stagedBatch.networkMillis);
+                        } catch (Throwable ex) {
+                            error = ex;
+                        }
+                    } else {
+                        stagedBatch.resource.setState(State.DONE);
+                    }
+                    stagedBatch = take();
+                }
+            } finally {
+                stopped = true;
+                drain();
+            }
+        }
+
+        @Override
+        public void finish(boolean throwError) {
+            put(END);
+            try {
+                future.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IoException(ex);
+            } catch (ExecutionException ex) {
+                error = ex.getCause();
+            }
+            if (throwError) {
+                checkForError();
+            }
+        }
+
+        protected Throwable getError() {
+            return error;
+        }
+
+        protected void checkForError() {
+            rethrow(error);
+        }
+
+        /**
+         * @return false if the loader thread stopped before the batch could be
+         *         queued, in which case the batch will not be loaded
+         */
+        protected boolean put(StagedBatch stagedBatch) {
+            try {
+                while (!queue.offer(stagedBatch, 100, TimeUnit.MILLISECONDS)) {
+                    if (stopped) {
+                        if (stagedBatch != END) {
+                            stagedBatch.resource.setState(State.DONE);
+                        }
+                        return false;
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IoException(ex);
+            }
+            if (stopped) {
+                drain();
+                return false;
+            }
+            return true;
+        }
+
+        protected void drain() {
+            StagedBatch stagedBatch = queue.poll();
+            while (stagedBatch != null) {
+                if (stagedBatch != END) {
+                    stagedBatch.resource.setState(State.DONE);
+                }
+                stagedBatch = queue.poll();
+            }
+        }
+
+        protected StagedBatch take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException ex) {
+                error = ex;
+                return END;
+            }
+        }
+    }
+
+    /**
+     * Loads the batches of each channel on a loader thread of their own so
+     * batches of different channels load concurrently, each in its own
+     * transaction. Batches are loaded in the order they arrived within a
+     * channel. If a batch fails to load, the remaining batches of its channel
+     * are not loaded but the other channels continue.
+     * <p>
+     * Batches on the config channel can change the configuration that other
+     * batches are loaded with, so all other loads are finished before a config
+     * batch is loaded on the reading thread.
+     */
+    class ParallelChannelLoadIntoDatabaseListener extends LoadIntoDatabaseOnArrivalListener {
+
+        private ManageIncomingBatchListener batchesListener;
+
+        private DataContext ctx;
+
+        private int queueSize;
+
+        private Map<String, PipelinedLoadIntoDatabaseListener> loaders = new HashMap<String, PipelinedLoadIntoDatabaseListener>();
+
+        private List<ManageIncomingBatchListener> listeners = new ArrayList<ManageIncomingBatchListener>();
+
+        private Map<Long, Integer> arrivalOrder = new HashMap<Long, Integer>();
+
+        private Throwable error;
+
+        public ParallelChannelLoadIntoDatabaseListener(ProcessInfo processInfo,
+                String sourceNodeId, ManageIncomingBatchListener listener, DataContext ctx,
+                int queueSize) {
+            super(processInfo, sourceNodeId, new ManageIncomingBatchListener());
+            this.batchesListener = listener;
+            this.ctx = ctx;
+            this.queueSize = queueSize;
+            this.listeners.add(this.listener);
+        }
+
+        @Override
+        public void end(DataContext ctx, Batch batch, IStagedResource resource) {
+            long networkMillis = System.currentTimeMillis() - batchStartsToArriveTimeInMs;
+            arrivalOrder.put(batch.getBatchId(), arrivalOrder.size());
+            if (Constants.CHANNEL_CONFIG.equals(batch.getChannelId())) {
+                finishLoaders();
+                load(ctx, batch, resource, networkMillis);
+            } else {
+                PipelinedLoadIntoDatabaseListener loader = getLoader(batch.getChannelId());
+                if (loader.getError() == null) {
+                    loader.put(new StagedBatch(batch, resource, networkMillis));
+                } else {
+                    resource.setState(State.DONE);
+                }
+            }
+        }
+
+        @Override
+        public void finish(boolean throwError) {
+            finishLoaders();
+
+            List<IncomingBatch> batches = new ArrayList<IncomingBatch>();
+            for (ManageIncomingBatchListener l : listeners) {
+                batches.addAll(l.getBatchesProcessed());
+            }
+            Collections.sort(batches, new Comparator<IncomingBatch>() {
+                public int compare(IncomingBatch o1, IncomingBatch o2) {
+                    return getArrivalOrder(o1) - getArrivalOrder(o2);
+                }
+            });
+            batchesListener.getBatchesProcessed().addAll(batches);
+
+            if (throwError) {
+                rethrow(error);
+            }
+        }
+
+        protected int getArrivalOrder(IncomingBatch batch) {
+            Integer order = arrivalOrder.get(batch.getBatchId());
+            return order != null ? order : Integer.MAX_VALUE;
+        }
+
+        protected PipelinedLoadIntoDatabaseListener getLoader(String channelId) {
+            PipelinedLoadIntoDatabaseListener loader = loaders.get(channelId);
+            if (loader == null) {
+                ManageIncomingBatchListener channelListener = new ManageIncomingBatchListener();
+                listeners.add(channelListener);
+                loader = newLoader(channelListener, ctx, queueSize);
+                loaders.put(channelId, loader);
+            }
+            return loader;
+        }
+
+        protected PipelinedLoadIntoDatabaseListener newLoader(
+                ManageIncomingBatchListener channelListener, DataContext ctx, int queueSize) {
+            return new PipelinedLoadIntoDatabaseListener(processInfo, sourceNodeId,
+                    channelListener, ctx, queueSize);
+        }
+
+        protected void finishLoaders() {
+            for (PipelinedLoadIntoDatabaseListener loader : loaders.values()) {
+                loader.finish(false);
+                if (error == null) {
+                    error = loader.getError();
+                }
+            }
+            loaders.clear();
+        }
+    }
+
+    static class StagedBatch {
+
+        Batch batch;
+
+        IStagedResource resource;
+
+        long networkMillis;
+
+        StagedBatch(Batch batch, IStagedResource resource, long networkMillis) {
+            this.batch = batch;
+            this.resource = resource;
+            this.networkMillis = networkMillis;
+        }
+    }
+
+    protected synchronized ExecutorService getLoaderThreads() {
+        if (loaderThreads == null) {
+            loaderThreads = Executors.newCachedThreadPool(new ThreadFactory() {
+                final AtomicInteger threadNumber = new AtomicInteger(1);
+                final String namePrefix = parameterService.getEngineName().toLowerCase()
+                        + "-dataloader-";
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName(namePrefix + threadNumber.getAndIncrement());
+                    t.setDaemon(true);
+                    if (t.getPriority() != Thread.NORM_PRIORITY) {
+                        t.setPriority(Thread.NORM_PRIORITY);
+                    }
+                    return t;
+                }
+            });
+        }
+        return loaderThreads;
+    }
+
     class ManageIncomingBatchListener implements IDataProcessorListener {
 
         protected List<IncomingBatch> batchesProcessed = new ArrayList<IncomingBatch>();
 
         protected IncomingBatch currentBatch;
 
+        protected long batchStartTime;
+
+        /*
+         * Whether a row for the current batch existed in the incoming_batch
+         * table before it started to load
+         */
+        protected boolean currentBatchPersisted;
+
+        /*
+         * Whether the row for the current batch was written in the load
+         * transaction, which can still be rolled back
+         */
+        protected boolean currentBatchRecorded;
+
+        protected Status currentBatchStatus;
+
         public void beforeBatchEnd(DataContext context) {
             enableSyncTriggers(context);
+            ISqlTransaction transaction = context.findTransaction();
+            if (transaction != null && this.currentBatch != null
+                    && incomingBatchService.isRecordOkBatchesEnabled()
+                    && parameterService.is(ParameterConstants.INCOMING_BATCH_RECORD_IN_LOAD_TRANSACTION)) {
+                Batch batch = context.getBatch();
+                this.currentBatchStatus = this.currentBatch.getStatus();
+                this.currentBatch.setValues(context.getReader().getStatistics().get(batch), context
+                        .getWriter().getStatistics().get(batch), true);
+                this.currentBatch.setStatus(Status.OK);
+                try {
+                    if (this.currentBatchPersisted) {
+                        incomingBatchService.updateIncomingBatch(transaction, this.currentBatch);
+                    } else {
+                        incomingBatchService.insertIncomingBatch(transaction, this.currentBatch);
+                    }
+                    this.currentBatchRecorded = true;
+                } catch (RuntimeException ex) {
+                    this.currentBatch.setStatus(this.currentBatchStatus);
+                    throw ex;
+                }
+            }
         }
 
         public boolean beforeBatchStarted(DataContext context) {
             this.currentBatch = null;
+            this.currentBatchRecorded = false;
+            this.batchStartTime = System.currentTimeMillis();
             Batch batch = context.getBatch();
             if (parameterService.is(ParameterConstants.DATA_LOADER_ENABLED)
                     || (batch.getChannelId() != null && batch.getChannelId().equals(
@@ -892,7 +1275,11 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 }
                 IncomingBatch incomingBatch = new IncomingBatch(batch);
                 this.batchesProcessed.add(incomingBatch);
-                if (incomingBatchService.acquireIncomingBatch(incomingBatch)) {
+                boolean deferInsert = parameterService
+                        .is(ParameterConstants.INCOMING_BATCH_RECORD_IN_LOAD_TRANSACTION);
+                if (incomingBatchService.acquireIncomingBatch(incomingBatch, deferInsert)) {
+                    this.currentBatchPersisted = incomingBatch.isRetry()
+                            || (!deferInsert && incomingBatchService.isRecordOkBatchesEnabled());
                     this.currentBatch = incomingBatch;
                     return true;
                 }
@@ -916,11 +1303,26 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                     this.currentBatch.getStatementCount());
             statisticManager.incrementDataBytesLoaded(this.currentBatch.getChannelId(),
                     this.currentBatch.getByteCount());
+            statisticManager.addLoadStats(this.currentBatch.getChannelId(),
+                    this.currentBatch.getStatementCount(), this.currentBatch.getByteCount(),
+                    System.currentTimeMillis() - batchStartTime);
+            if (this.currentBatchRecorded) {
+                /*
+                 * The OK row was committed with the batch. It keeps the
+                 * statistics from before the writer flushed and committed
+                 * rather than paying for another commit per batch.
+                 */
+                return;
+            }
             Status oldStatus = this.currentBatch.getStatus();
             try {
                 this.currentBatch.setStatus(Status.OK);
                 if (incomingBatchService.isRecordOkBatchesEnabled()) {
-                    incomingBatchService.updateIncomingBatch(this.currentBatch);
+                    if (this.currentBatchPersisted) {
+                        incomingBatchService.updateIncomingBatch(this.currentBatch);
+                    } else {
+                        incomingBatchService.insertIncomingBatch(this.currentBatch);
+                    }
                 } else if (this.currentBatch.isRetry()) {
                     incomingBatchService.deleteIncomingBatch(this.currentBatch);
                 }
@@ -950,11 +1352,23 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                      */
                     throw ex;
                 }
+
+                if (this.currentBatchRecorded) {
+                    /*
+                     * The row written in the load transaction was rolled back
+                     * with it
+                     */
+                    this.currentBatch.setStatus(this.currentBatchStatus);
+                    this.currentBatchRecorded = false;
+                }
                 
                 /*
-                 * Reread batch to make sure it wasn't set to IG or OK
+                 * Reread batch to make sure it wasn't set to IG or OK. The row
+                 * might have been written by another instance in a cluster.
                  */
-                engine.getIncomingBatchService().refreshIncomingBatch(currentBatch);
+                if (engine.getIncomingBatchService().refreshIncomingBatch(currentBatch)) {
+                    this.currentBatchPersisted = true;
+                }
                 
                 Batch batch = context.getBatch();
                 if (context.getWriter() != null
@@ -1049,18 +1463,24 @@ public class DataLoaderService extends AbstractService implements IDataLoaderSer
                 }
 
                 if (transaction != null) {
-                    if (incomingBatchService.isRecordOkBatchesEnabled()
-                            || this.currentBatch.isRetry()) {
+                    if (this.currentBatchPersisted) {
                         incomingBatchService.updateIncomingBatch(transaction, this.currentBatch);
                     } else {
-                        incomingBatchService.insertIncomingBatch(transaction, this.currentBatch);
+                        try {
+                            incomingBatchService.insertIncomingBatch(transaction, this.currentBatch);
+                        } catch (UniqueKeyException e) {
+                            incomingBatchService.updateIncomingBatch(transaction, this.currentBatch);
+                        }
                     }
                 } else {
-                    if (incomingBatchService.isRecordOkBatchesEnabled()
-                            || this.currentBatch.isRetry()) {
+                    if (this.currentBatchPersisted) {
                         incomingBatchService.updateIncomingBatch(this.currentBatch);
                     } else {
-                        incomingBatchService.insertIncomingBatch(this.currentBatch);
+                        try {
+                            incomingBatchService.insertIncomingBatch(this.currentBatch);
+                        } catch (UniqueKeyException e) {
+                            incomingBatchService.updateIncomingBatch(this.currentBatch);
+                        }
                     }
                 }
             } catch (Throwable e) {
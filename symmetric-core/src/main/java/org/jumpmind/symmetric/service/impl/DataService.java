@@ -27,20 +27,26 @@ import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.sql.ISqlPositionalRowMapper;
+import org.jumpmind.db.sql.ISqlRow;
 import org.jumpmind.db.sql.ISqlReadCursor;
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.PositionalRow;
 import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.SqlException;
 import org.jumpmind.db.sql.UniqueKeyException;
 import org.jumpmind.db.sql.mapper.NumberMapper;
 import org.jumpmind.exception.IoException;
@@ -55,6 +61,8 @@ import org.jumpmind.symmetric.io.data.CsvData;
 import org.jumpmind.symmetric.io.data.CsvUtils;
 import org.jumpmind.symmetric.io.data.DataEventType;
 import org.jumpmind.symmetric.io.data.reader.TableExtractDataReaderSource;
+import org.jumpmind.symmetric.job.IJob;
+import org.jumpmind.symmetric.job.IJobManager;
 import org.jumpmind.symmetric.job.PushHeartbeatListener;
 import org.jumpmind.symmetric.load.IReloadListener;
 import org.jumpmind.symmetric.model.Channel;
@@ -73,11 +81,13 @@ import org.jumpmind.symmetric.model.TableReloadRequestKey;
 import org.jumpmind.symmetric.model.Trigger;
 import org.jumpmind.symmetric.model.TriggerHistory;
 import org.jumpmind.symmetric.model.TriggerRouter;
+import org.jumpmind.symmetric.route.DataGapDetector;
 import org.jumpmind.symmetric.service.ClusterConstants;
 import org.jumpmind.symmetric.service.IDataService;
 import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.IFileSyncService;
 import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IRouterService;
 import org.jumpmind.symmetric.service.ITriggerRouterService;
 import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
 import org.jumpmind.util.AppUtils;
@@ -106,6 +116,8 @@ public class DataService extends AbstractService implements IDataService {
 
     protected Map<IHeartbeatListener, Long> lastHeartbeatTimestamps = new HashMap<IHeartbeatListener, Long>();
 
+    protected Map<String, CachedRowCount> rowCountCache = new ConcurrentHashMap<String, CachedRowCount>();
+
     public boolean insertReloadEvent(TableReloadRequest request, boolean deleteAtClient) {
         boolean successful = false;
         if (request != null && request.isReloadEnabled()) {
@@ -604,10 +616,7 @@ public class DataService extends AbstractService implements IDataService {
             Map<Integer, List<TriggerRouter>> triggerRoutersByHistoryId, boolean transactional,
             ISqlTransaction transaction) {
         Map<String, Channel> channels = engine.getConfigurationService().getChannels(false);
-        DatabaseInfo dbInfo = platform.getDatabaseInfo();
-        String quote = dbInfo.getDelimiterToken();
-        String catalogSeparator = dbInfo.getCatalogSeparator();
-        String schemaSeparator = dbInfo.getSchemaSeparator();
+        Map<NodeGroupLink, Map<String, Integer>> transformCounts = null;
         for (TriggerHistory triggerHistory : triggerHistories) {
             List<TriggerRouter> triggerRouters = triggerRoutersByHistoryId.get(triggerHistory
                     .getTriggerHistoryId());
@@ -624,26 +633,18 @@ public class DataService extends AbstractService implements IDataService {
                             Table table = platform.getTableFromCache(
                                     triggerHistory.getSourceCatalogName(), triggerHistory.getSourceSchemaName(),
                                     triggerHistory.getSourceTableName(), false);                            
-                            String sql = String.format("select count(*) from %s where %s", table
-                                    .getQualifiedTableName(quote, catalogSeparator, schemaSeparator),
-                                    StringUtils.isBlank(triggerRouter.getInitialLoadSelect()) ? Constants.ALWAYS_TRUE_CONDITION
-                                            : triggerRouter.getInitialLoadSelect());
-                            sql = FormatUtils.replace("groupId", targetNode.getNodeGroupId(), sql);
-                            sql = FormatUtils
-                                    .replace("externalId", targetNode.getExternalId(), sql);
-                            sql = FormatUtils.replace("nodeId", targetNode.getNodeId(), sql);
-                            int rowCount = sqlTemplate.queryForInt(sql);
-                            int transformMultiplier = 0;
-                            for (TransformService.TransformTableNodeGroupLink transform : engine.getTransformService().getTransformTables(false)) {
-                            	if (triggerRouter.getRouter().getNodeGroupLink().equals(transform.getNodeGroupLink()) && 
-                            			transform.getSourceTableName().equals(table.getName())) {
-                            		transformMultiplier++;
-                            	}
+                            long rowCount = getInitialLoadRowCount(targetNode, triggerRouter, table);
+                            if (transformCounts == null) {
+                                transformCounts = getTransformCountsByTable();
                             }
-                            if (transformMultiplier == 0) { transformMultiplier = 1; }
+                            Map<String, Integer> transformCountsForLink = transformCounts
+                                    .get(triggerRouter.getRouter().getNodeGroupLink());
+                            Integer transformMultiplier = transformCountsForLink != null ? transformCountsForLink
+                                    .get(table.getName()) : null;
+                            if (transformMultiplier == null) { transformMultiplier = 1; }
                             
                             if (rowCount > 0) {
-                                numberOfBatches = (rowCount * transformMultiplier / channel.getMaxBatchSize()) + 1;
+                                numberOfBatches = (int) (rowCount * transformMultiplier / channel.getMaxBatchSize()) + 1;
                             } else {
                                 numberOfBatches = 1;
                             }
@@ -675,6 +676,94 @@ public class DataService extends AbstractService implements IDataService {
         }
     }
 
+    /**
+     * Counts the rows an initial load will select so the number of batches
+     * can be sized. When there is no initial load select, the count is
+     * estimated from the database statistics if the platform supports it.
+     * Counts that are the same for every node are cached for
+     * {@link ParameterConstants#CACHE_TIMEOUT_ROW_COUNT_IN_MS}.
+     */
+    protected long getInitialLoadRowCount(Node targetNode, TriggerRouter triggerRouter, Table table) {
+        DatabaseInfo dbInfo = platform.getDatabaseInfo();
+        String countSql = String.format("select count(*) from %s where %s", table
+                .getQualifiedTableName(dbInfo.getDelimiterToken(), dbInfo.getCatalogSeparator(),
+                        dbInfo.getSchemaSeparator()),
+                StringUtils.isBlank(triggerRouter.getInitialLoadSelect()) ? Constants.ALWAYS_TRUE_CONDITION
+                        : triggerRouter.getInitialLoadSelect());
+        String sql = FormatUtils.replace("groupId", targetNode.getNodeGroupId(), countSql);
+        sql = FormatUtils.replace("externalId", targetNode.getExternalId(), sql);
+        sql = FormatUtils.replace("nodeId", targetNode.getNodeId(), sql);
+        boolean cacheable = sql.equals(countSql);
+
+        long cacheTimeoutInMs = parameterService.getLong(
+                ParameterConstants.CACHE_TIMEOUT_ROW_COUNT_IN_MS, 600000);
+        if (cacheable) {
+            CachedRowCount cachedRowCount = rowCountCache.get(sql);
+            if (cachedRowCount != null && !cachedRowCount.isExpired(cacheTimeoutInMs)) {
+                return cachedRowCount.rowCount;
+            }
+        }
+
+        long rowCount = -1;
+        if (StringUtils.isBlank(triggerRouter.getInitialLoadSelect())
+                && parameterService.is(ParameterConstants.INITIAL_LOAD_USE_ESTIMATED_COUNTS, false)) {
+            try {
+                rowCount = platform.getEstimatedRowCount(table);
+            } catch (SqlException ex) {
+                log.debug("Could not estimate the row count for " + table.getFullyQualifiedTableName(), ex);
+            }
+        }
+
+        if (rowCount <= 0) {
+            rowCount = sqlTemplate.queryForLong(sql);
+        }
+
+        if (cacheable) {
+            Iterator<CachedRowCount> i = rowCountCache.values().iterator();
+            while (i.hasNext()) {
+                if (i.next().isExpired(cacheTimeoutInMs)) {
+                    i.remove();
+                }
+            }
+            rowCountCache.put(sql, new CachedRowCount(rowCount));
+        }
+        return rowCount;
+    }
+
+    /**
+     * @return the number of transforms for each source table name, by node
+     *         group link
+     */
+    protected Map<NodeGroupLink, Map<String, Integer>> getTransformCountsByTable() {
+        Map<NodeGroupLink, Map<String, Integer>> transformCounts = new HashMap<NodeGroupLink, Map<String, Integer>>();
+        for (TransformTableNodeGroupLink transform : engine.getTransformService().getTransformTables(false)) {
+            Map<String, Integer> countsByTable = transformCounts.get(transform.getNodeGroupLink());
+            if (countsByTable == null) {
+                countsByTable = new HashMap<String, Integer>();
+                transformCounts.put(transform.getNodeGroupLink(), countsByTable);
+            }
+            Integer count = countsByTable.get(transform.getSourceTableName());
+            countsByTable.put(transform.getSourceTableName(), count == null ? 1 : count + 1);
+        }
+        return transformCounts;
+    }
+
+    static class CachedRowCount {
+
+        long rowCount;
+
+        long countTime = System.currentTimeMillis();
+
+        CachedRowCount(long rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        boolean isExpired(long cacheTimeoutInMs) {
+            return System.currentTimeMillis() - countTime >= cacheTimeoutInMs;
+        }
+
+    }
+
     private void insertFileSyncBatchForReload(Node targetNode, long loadId, String createBy,
             boolean transactional, ISqlTransaction transaction) {
         if (parameterService.is(ParameterConstants.FILE_SYNC_ENABLE)
@@ -901,6 +990,7 @@ public class DataService extends AbstractService implements IDataService {
             transaction = sqlTemplate.startSqlTransaction();
             dataId = insertData(transaction, data);
             transaction.commit();
+            wakeUpRouting();
             return dataId;
         } catch (Error ex) {
             if (transaction != null) {
@@ -917,6 +1007,19 @@ public class DataService extends AbstractService implements IDataService {
         }
     }
 
+    /**
+     * Let the routing job know that there is new data to route
+     */
+    protected void wakeUpRouting() {
+        IJobManager jobManager = engine.getJobManager();
+        if (jobManager != null) {
+            IJob job = jobManager.getJob(Constants.ROUTE_JOB_TIMER);
+            if (job != null) {
+                job.wakeUp();
+            }
+        }
+    }
+
     protected long insertData(ISqlTransaction transaction, final Data data) {
         long id = transaction.insertWithGeneratedKey(
                 getSql("insertIntoDataSql"),
@@ -1061,7 +1164,7 @@ public class DataService extends AbstractService implements IDataService {
      *            TODO
      * @return The inserted batch id
      */
-    protected long insertDataEventAndOutgoingBatch(ISqlTransaction transaction, long dataId,
+    protected long insertDataEventAndOutgoingBatch(ISqlTransaction transaction, final long dataId,
             String channelId, String nodeId, DataEventType eventType, String routerId,
             boolean isLoad, long loadId, String createBy, Status status) {
         OutgoingBatch outgoingBatch = new OutgoingBatch(nodeId, channelId, status);
@@ -1074,6 +1177,19 @@ public class DataService extends AbstractService implements IDataService {
         }
         engine.getOutgoingBatchService().insertOutgoingBatch(transaction, outgoingBatch);
         insertDataEvent(transaction, new DataEvent(dataId, outgoingBatch.getBatchId(), routerId));
+        IRouterService routerService = engine.getRouterService();
+        if (routerService != null) {
+            /*
+             * This data will not be routed, so a gap detector that remembers
+             * routed data ids needs to be told about it once it is committed
+             */
+            final DataGapDetector gapDetector = routerService.getDataGapDetector();
+            transaction.addCommitCallback(new Runnable() {
+                public void run() {
+                    gapDetector.addDataId(dataId);
+                }
+            });
+        }
         return outgoingBatch.getBatchId();
     }
 
@@ -1496,6 +1612,31 @@ public class DataService extends AbstractService implements IDataService {
                         symmetricDialect.getSqlTypeForIds() });
     }
 
+    public void insertDataGaps(ISqlTransaction transaction, List<DataGap> gaps) {
+        if (gaps.size() > 0) {
+            String hostName = AppUtils.getHostName();
+            transaction.prepare(getSql("insertDataGapSql"));
+            for (DataGap gap : gaps) {
+                transaction.addRow(gap, new Object[] { DataGap.Status.GP.name(), hostName,
+                        gap.getStartId(), gap.getEndId() }, new int[] { Types.VARCHAR,
+                        Types.VARCHAR, Types.NUMERIC, Types.NUMERIC });
+            }
+            transaction.flush();
+        }
+    }
+
+    public void deleteDataGaps(ISqlTransaction transaction, List<DataGap> gaps) {
+        if (gaps.size() > 0) {
+            transaction.prepare(getSql("deleteDataGapSql"));
+            for (DataGap gap : gaps) {
+                transaction.addRow(gap, new Object[] { gap.getStartId(), gap.getEndId() },
+                        new int[] { symmetricDialect.getSqlTypeForIds(),
+                                symmetricDialect.getSqlTypeForIds() });
+            }
+            transaction.flush();
+        }
+    }
+
     public Date findCreateTimeOfEvent(long dataId) {
         return sqlTemplate.queryForObject(getSql("findDataEventCreateTimeSql"), Date.class, dataId);
     }
@@ -1580,6 +1721,10 @@ public class DataService extends AbstractService implements IDataService {
         return dataMapper.mapRow(row);
     }
 
+    public Data mapData(PositionalRow row) {
+        return dataMapper.mapRow(row);
+    }
+
     public ISqlReadCursor<Data> selectDataFor(Batch batch) {
         return sqlTemplate.queryForCursor(
                 getDataSelectSql(batch.getBatchId(), -1l, batch.getChannelId()), dataMapper,
@@ -1619,8 +1764,17 @@ public class DataService extends AbstractService implements IDataService {
         }
     }
 
-    public class DataMapper implements ISqlRowMapper<Data> {
+    public class DataMapper implements ISqlPositionalRowMapper<Data> {
+
         public Data mapRow(Row row) {
+            return mapData(row);
+        }
+
+        public Data mapRow(PositionalRow row) {
+            return mapData(row);
+        }
+
+        protected Data mapData(ISqlRow row) {
             Data data = new Data();
             data.putCsvData(CsvData.ROW_DATA, row.getString("ROW_DATA", false));
             data.putCsvData(CsvData.PK_DATA, row.getString("PK_DATA", false));
@@ -1635,7 +1789,11 @@ public class DataService extends AbstractService implements IDataService {
             data.putAttribute(CsvData.ATTRIBUTE_DATA_ID, row.getLong("DATA_ID"));
             data.putAttribute(CsvData.ATTRIBUTE_CREATE_TIME, row.getDateTime("CREATE_TIME"));
             data.putAttribute(CsvData.ATTRIBUTE_ROUTER_ID, row.getString("ROUTER_ID", false));
-            int triggerHistId = row.getInt("TRIGGER_HIST_ID");
+            setTriggerHistory(data, row.getInt("TRIGGER_HIST_ID"));
+            return data;
+        }
+
+        protected void setTriggerHistory(Data data, int triggerHistId) {
             data.putAttribute(CsvData.ATTRIBUTE_TABLE_ID, triggerHistId);
             TriggerHistory triggerHistory = engine.getTriggerRouterService().getTriggerHistory(
                     triggerHistId);
@@ -1655,7 +1813,6 @@ public class DataService extends AbstractService implements IDataService {
                 }
             }
             data.setTriggerHistory(triggerHistory);
-            return data;
         }
     }
 
@@ -26,6 +26,9 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
@@ -51,6 +54,12 @@ import org.jumpmind.util.FormatUtils;
 public class IncomingBatchService extends AbstractService implements IIncomingBatchService {
 
     protected IClusterService clusterService;
+
+    /*
+     * The highest batch id known to have been recorded (or acquired) by node
+     * and channel. A batch id above it has never been seen before.
+     */
+    protected ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> maxBatchIdsByNode = new ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>>();
     
     @Override
     public List<String> getNodesInError() {
@@ -65,10 +74,10 @@ public class IncomingBatchService extends AbstractService implements IIncomingBa
                 createSqlReplacementTokens()));
     }
     
-    public void refreshIncomingBatch(IncomingBatch batch) {
-        sqlTemplate.queryForObject(
+    public boolean refreshIncomingBatch(IncomingBatch batch) {
+        return sqlTemplate.queryForObject(
                 getSql("selectIncomingBatchPrefixSql", "findIncomingBatchSql"),
-                new IncomingBatchMapper(batch), batch.getBatchId(), batch.getNodeId());        
+                new IncomingBatchMapper(batch), batch.getBatchId(), batch.getNodeId()) != null;
     }
 
     public IncomingBatch findIncomingBatch(long batchId, String nodeId) {
@@ -112,6 +121,7 @@ public class IncomingBatchService extends AbstractService implements IIncomingBa
 
     public void removingIncomingBatches(String nodeId) {
         sqlTemplate.update(getSql("deleteIncomingBatchByNodeSql"), nodeId);
+        maxBatchIdsByNode.remove(nodeId);
     }
 
     public List<IncomingBatch> listIncomingBatchesInErrorFor(String nodeId) {
@@ -188,11 +198,28 @@ public class IncomingBatchService extends AbstractService implements IIncomingBa
     }
 
     public boolean acquireIncomingBatch(IncomingBatch batch) {
+        return acquireIncomingBatch(batch, false);
+    }
+
+    public boolean acquireIncomingBatch(IncomingBatch batch, boolean deferInsert) {
         boolean okayToProcess = true;
         if (batch.isPersistable()) {
             IncomingBatch existingBatch = null;
 
-            if (isRecordOkBatchesEnabled()) {
+            if (deferInsert) {
+                /*
+                 * Only a batch id that is not above the watermark might
+                 * already have been recorded. The watermark only knows about
+                 * batches seen by this instance, so it can't be used when
+                 * other instances in a cluster load batches too.
+                 */
+                if (clusterService.isClusteringEnabled() || !advanceMaxBatchId(batch)) {
+                    existingBatch = findIncomingBatch(batch.getBatchId(), batch.getNodeId());
+                    if (existingBatch != null) {
+                        batch.setRetry(true);
+                    }
+                }
+            } else if (isRecordOkBatchesEnabled()) {
                 try {
                     insertIncomingBatch(batch);
                 } catch (UniqueKeyException e) {
@@ -249,6 +276,9 @@ public class IncomingBatchService extends AbstractService implements IIncomingBa
         		}
         	}
         	if (!alreadyExists) {
+        	    if (maxBatchIdsByNode.containsKey(batch.getNodeId())) {
+        	        advanceMaxBatchId(batch);
+        	    }
 	        	batch.setLastUpdatedHostName(clusterService.getServerId());
 	            batch.setLastUpdatedTime(new Date());
 	            transaction.prepareAndExecute(
@@ -361,6 +391,56 @@ public class IncomingBatchService extends AbstractService implements IIncomingBa
         return ids;
     }
 
+    public Map<String, BatchId> findMaxBatchIdsByChannel(String nodeId) {
+        Map<String, BatchId> ids = new HashMap<String, BatchId>();
+        sqlTemplate.query(getSql("maxBatchIdsByNodeSql"), new BatchIdMapper(ids), nodeId);
+        return ids;
+    }
+
+    /**
+     * Raise the watermark for the batch's node and channel to the batch id.
+     * 
+     * @return true if the batch id was above the watermark, which means it has
+     *         not been recorded before
+     */
+    protected boolean advanceMaxBatchId(IncomingBatch batch) {
+        AtomicLong maxBatchId = getMaxBatchId(batch.getNodeId(), batch.getChannelId());
+        long current = maxBatchId.get();
+        while (batch.getBatchId() > current) {
+            if (maxBatchId.compareAndSet(current, batch.getBatchId())) {
+                return true;
+            }
+            current = maxBatchId.get();
+        }
+        return false;
+    }
+
+    protected AtomicLong getMaxBatchId(String nodeId, String channelId) {
+        ConcurrentMap<String, AtomicLong> maxBatchIds = maxBatchIdsByNode.get(nodeId);
+        if (maxBatchIds == null) {
+            ConcurrentMap<String, AtomicLong> seededIds = new ConcurrentHashMap<String, AtomicLong>();
+            Map<String, BatchId> ids = findMaxBatchIdsByChannel(nodeId);
+            for (Map.Entry<String, BatchId> entry : ids.entrySet()) {
+                seededIds.put(entry.getKey(), new AtomicLong(entry.getValue().getBatchId()));
+            }
+            maxBatchIds = maxBatchIdsByNode.putIfAbsent(nodeId, seededIds);
+            if (maxBatchIds == null) {
+                maxBatchIds = seededIds;
+            }
+        }
+
+        String key = channelId != null ? channelId : "";
+        AtomicLong maxBatchId = maxBatchIds.get(key);
+        if (maxBatchId == null) {
+            AtomicLong newMaxBatchId = new AtomicLong(-1);
+            maxBatchId = maxBatchIds.putIfAbsent(key, newMaxBatchId);
+            if (maxBatchId == null) {
+                maxBatchId = newMaxBatchId;
+            }
+        }
+        return maxBatchId;
+    }
+
     class BatchIdMapper implements ISqlRowMapper<BatchId> {
         Map<String, BatchId> ids;
 
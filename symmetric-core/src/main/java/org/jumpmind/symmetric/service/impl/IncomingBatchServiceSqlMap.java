@@ -75,6 +75,8 @@ public class IncomingBatchServiceSqlMap extends AbstractSqlMap {
         putSql("deleteIncomingBatchByNodeSql" ,"delete from $(incoming_batch) where node_id = ?");
         
         putSql("maxBatchIdsSql", "select max(batch_id) as batch_id, node_id, channel_id from $(incoming_batch) where status = ? group by node_id, channel_id");
+
+        putSql("maxBatchIdsByNodeSql", "select max(batch_id) as batch_id, node_id, channel_id from $(incoming_batch) where node_id = ? group by node_id, channel_id");
     }
 
 }
\ No newline at end of file
@@ -30,10 +30,17 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.sql.ISqlPositionalRowMapper;
+import org.jumpmind.db.sql.ISqlRow;
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.PositionalRow;
 import org.jumpmind.db.sql.Row;
 import org.jumpmind.db.sql.mapper.StringMapper;
 import org.jumpmind.symmetric.common.Constants;
@@ -65,6 +72,8 @@ import org.jumpmind.util.FormatUtils;
  */
 public class OutgoingBatchService extends AbstractService implements IOutgoingBatchService {
 
+    private static final int MAX_BATCH_IDS_TO_QUALIFY_IN_SQL = 500;
+
     private INodeService nodeService;
 
     private IConfigurationService configurationService;
@@ -75,6 +84,10 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
     
     private IExtensionService extensionService;
 
+    private ConcurrentMap<String, AtomicLong> batchesRoutedCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+    private AtomicInteger batchesRoutedWaiterCount = new AtomicInteger();
+
     public OutgoingBatchService(IParameterService parameterService,
             ISymmetricDialect symmetricDialect, INodeService nodeService,
             IConfigurationService configurationService, ISequenceService sequenceService,
@@ -188,30 +201,64 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
     public void updateOutgoingBatch(ISqlTransaction transaction, OutgoingBatch outgoingBatch) {
         outgoingBatch.setLastUpdatedTime(new Date());
         outgoingBatch.setLastUpdatedHostName(clusterService.getServerId());
-        transaction.prepareAndExecute(
-                getSql("updateOutgoingBatchSql"),
-                new Object[] { outgoingBatch.getStatus().name(), outgoingBatch.getLoadId(),
-                       outgoingBatch.isExtractJobFlag() ? 1: 0,
-                        outgoingBatch.isLoadFlag() ? 1 : 0, outgoingBatch.isErrorFlag() ? 1 : 0,
-                        outgoingBatch.getByteCount(), outgoingBatch.getExtractCount(),
-                        outgoingBatch.getSentCount(), outgoingBatch.getLoadCount(),
-                        outgoingBatch.getDataEventCount(), outgoingBatch.getReloadEventCount(),
-                        outgoingBatch.getInsertEventCount(), outgoingBatch.getUpdateEventCount(),
-                        outgoingBatch.getDeleteEventCount(), outgoingBatch.getOtherEventCount(),
-                        outgoingBatch.getIgnoreCount(), outgoingBatch.getRouterMillis(),
-                        outgoingBatch.getNetworkMillis(), outgoingBatch.getFilterMillis(),
-                        outgoingBatch.getLoadMillis(), outgoingBatch.getExtractMillis(),
-                        outgoingBatch.getSqlState(), outgoingBatch.getSqlCode(),
-                        FormatUtils.abbreviateForLogging(outgoingBatch.getSqlMessage()),
-                        outgoingBatch.getFailedDataId(), outgoingBatch.getLastUpdatedHostName(),
-                        outgoingBatch.getLastUpdatedTime(), outgoingBatch.getBatchId(),
-                        outgoingBatch.getNodeId() }, new int[] { Types.CHAR, Types.BIGINT,
-                        Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.BIGINT, Types.BIGINT, Types.BIGINT,
-                        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
-                        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
-                        Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.NUMERIC,
-                        Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, symmetricDialect.getSqlTypeForIds(),
-                        Types.VARCHAR });
+        transaction.prepareAndExecute(getSql("updateOutgoingBatchSql"),
+                getUpdateOutgoingBatchArgs(outgoingBatch), getUpdateOutgoingBatchTypes());
+    }
+
+    public void updateOutgoingBatches(ISqlTransaction transaction, List<OutgoingBatch> outgoingBatches) {
+        if (outgoingBatches.size() > 0) {
+            Date lastUpdatedTime = new Date();
+            String lastUpdatedHostName = clusterService.getServerId();
+            int[] types = getUpdateOutgoingBatchTypes();
+            int updateCount = 0;
+            boolean inBatchMode = transaction.isInBatchMode();
+            try {
+                transaction.setInBatchMode(true);
+                transaction.prepare(getSql("updateOutgoingBatchSql"));
+                for (OutgoingBatch outgoingBatch : outgoingBatches) {
+                    outgoingBatch.setLastUpdatedTime(lastUpdatedTime);
+                    outgoingBatch.setLastUpdatedHostName(lastUpdatedHostName);
+                    updateCount += transaction.addRow(outgoingBatch,
+                            getUpdateOutgoingBatchArgs(outgoingBatch), types);
+                }
+                updateCount += transaction.flush();
+            } finally {
+                transaction.setInBatchMode(inBatchMode);
+            }
+            if (updateCount != outgoingBatches.size()) {
+                log.warn("Updated {} outgoing batch rows for {} outgoing batches", updateCount,
+                        outgoingBatches.size());
+            }
+        }
+    }
+
+    protected Object[] getUpdateOutgoingBatchArgs(OutgoingBatch outgoingBatch) {
+        return new Object[] { outgoingBatch.getStatus().name(), outgoingBatch.getLoadId(),
+                outgoingBatch.isExtractJobFlag() ? 1: 0,
+                outgoingBatch.isLoadFlag() ? 1 : 0, outgoingBatch.isErrorFlag() ? 1 : 0,
+                outgoingBatch.getByteCount(), outgoingBatch.getExtractCount(),
+                outgoingBatch.getSentCount(), outgoingBatch.getLoadCount(),
+                outgoingBatch.getDataEventCount(), outgoingBatch.getReloadEventCount(),
+                outgoingBatch.getInsertEventCount(), outgoingBatch.getUpdateEventCount(),
+                outgoingBatch.getDeleteEventCount(), outgoingBatch.getOtherEventCount(),
+                outgoingBatch.getIgnoreCount(), outgoingBatch.getRouterMillis(),
+                outgoingBatch.getNetworkMillis(), outgoingBatch.getFilterMillis(),
+                outgoingBatch.getLoadMillis(), outgoingBatch.getExtractMillis(),
+                outgoingBatch.getSqlState(), outgoingBatch.getSqlCode(),
+                FormatUtils.abbreviateForLogging(outgoingBatch.getSqlMessage()),
+                outgoingBatch.getFailedDataId(), outgoingBatch.getLastUpdatedHostName(),
+                outgoingBatch.getLastUpdatedTime(), outgoingBatch.getBatchId(),
+                outgoingBatch.getNodeId() };
+    }
+
+    protected int[] getUpdateOutgoingBatchTypes() {
+        return new int[] { Types.CHAR, Types.BIGINT,
+                Types.NUMERIC, Types.NUMERIC, Types.NUMERIC, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.BIGINT,
+                Types.BIGINT, Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.NUMERIC,
+                Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.TIMESTAMP, symmetricDialect.getSqlTypeForIds(),
+                Types.VARCHAR };
     }
 
     public void insertOutgoingBatch(final OutgoingBatch outgoingBatch) {
@@ -275,6 +322,19 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         }
     }
 
+    public List<OutgoingBatch> findOutgoingBatches(String nodeId, List<Long> batchIds) {
+        List<OutgoingBatch> list = new ArrayList<OutgoingBatch>(batchIds.size());
+        for (int i = 0; i < batchIds.size(); i += MAX_BATCH_IDS_TO_QUALIFY_IN_SQL) {
+            List<Long> ids = batchIds.subList(i,
+                    Math.min(i + MAX_BATCH_IDS_TO_QUALIFY_IN_SQL, batchIds.size()));
+            String sql = FormatUtils.replace("batchIds", StringUtils.join(ids, ","),
+                    getSql("selectOutgoingBatchPrefixSql", "findOutgoingBatchesSql"));
+            list.addAll(sqlTemplate.query(sql, new OutgoingBatchMapper(true),
+                    new Object[] { nodeId }, new int[] { Types.VARCHAR }));
+        }
+        return list;
+    }
+
     public int countOutgoingBatchesInError() {
         return sqlTemplate.queryForInt(getSql("countOutgoingBatchesErrorsSql"));
     }
@@ -595,6 +655,61 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         return loads;
     }
 
+    public long getBatchesRoutedCount(String nodeId) {
+        return getBatchesRoutedCounter(nodeId).get();
+    }
+
+    public void notifyBatchesRouted(String nodeId) {
+        AtomicLong counter = getBatchesRoutedCounter(nodeId);
+        synchronized (counter) {
+            counter.incrementAndGet();
+            counter.notifyAll();
+        }
+    }
+
+    public boolean waitForBatchesRouted(String nodeId, long batchesRoutedCount, long waitMs) {
+        AtomicLong counter = getBatchesRoutedCounter(nodeId);
+        int maxWaiterCount = parameterService.getInt(
+                ParameterConstants.REST_PULL_MAX_WAITING_THREADS, 10);
+        if (batchesRoutedWaiterCount.incrementAndGet() > maxWaiterCount) {
+            batchesRoutedWaiterCount.decrementAndGet();
+            log.debug("Not waiting for batches to be routed to {} because {} threads are already waiting",
+                    nodeId, maxWaiterCount);
+            return counter.get() != batchesRoutedCount;
+        }
+
+        try {
+            long waitUntil = System.currentTimeMillis() + waitMs;
+            synchronized (counter) {
+                long timeLeft = waitMs;
+                while (counter.get() == batchesRoutedCount && timeLeft > 0) {
+                    try {
+                        counter.wait(timeLeft);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                    timeLeft = waitUntil - System.currentTimeMillis();
+                }
+                return counter.get() != batchesRoutedCount;
+            }
+        } finally {
+            batchesRoutedWaiterCount.decrementAndGet();
+        }
+    }
+
+    protected AtomicLong getBatchesRoutedCounter(String nodeId) {
+        AtomicLong counter = batchesRoutedCounts.get(nodeId);
+        if (counter == null) {
+            AtomicLong newCounter = new AtomicLong();
+            counter = batchesRoutedCounts.putIfAbsent(nodeId, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
     class OutgoingBatchSummaryMapper implements ISqlRowMapper<OutgoingBatchSummary> {
         public OutgoingBatchSummary mapRow(Row rs) {
             OutgoingBatchSummary summary = new OutgoingBatchSummary();
@@ -607,7 +722,7 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         }
     }
 
-    class OutgoingBatchMapper implements ISqlRowMapper<OutgoingBatch> {
+    class OutgoingBatchMapper implements ISqlPositionalRowMapper<OutgoingBatch> {
 
         private boolean statusOnly = false;
         private boolean includeDisabledChannels = false;
@@ -624,6 +739,14 @@ public class OutgoingBatchService extends AbstractService implements IOutgoingBa
         }
 
         public OutgoingBatch mapRow(Row rs) {
+            return mapBatch(rs);
+        }
+
+        public OutgoingBatch mapRow(PositionalRow rs) {
+            return mapBatch(rs);
+        }
+
+        protected OutgoingBatch mapBatch(ISqlRow rs) {
             String channelId = rs.getString("channel_id");
             Channel channel = channels.get(channelId);
             if (channel != null && (includeDisabledChannels || channel.isEnabled())) {
@@ -30,8 +30,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -40,6 +44,7 @@ import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.SymmetricException;
 import org.jumpmind.symmetric.SyntaxParsingException;
 import org.jumpmind.symmetric.common.Constants;
 import org.jumpmind.symmetric.common.ParameterConstants;
@@ -70,6 +75,7 @@ import org.jumpmind.symmetric.route.ColumnMatchDataRouter;
 import org.jumpmind.symmetric.route.ConfigurationChangedDataRouter;
 import org.jumpmind.symmetric.route.DBFRouter;
 import org.jumpmind.symmetric.route.DataGapDetector;
+import org.jumpmind.symmetric.route.DataGapFastDetector;
 import org.jumpmind.symmetric.route.DataGapRouteReader;
 import org.jumpmind.symmetric.route.DefaultBatchAlgorithm;
 import org.jumpmind.symmetric.route.DefaultDataRouter;
@@ -88,6 +94,7 @@ import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IExtensionService;
 import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IRouterService;
+import org.jumpmind.symmetric.statistic.RouterStats;
 import org.jumpmind.symmetric.statistic.StatisticConstants;
 
 /**
@@ -95,13 +102,28 @@ import org.jumpmind.symmetric.statistic.StatisticConstants;
  */
 public class RouterService extends AbstractService implements IRouterService {
 
-    protected  Map<String, Boolean> commonBatchesLastKnownState = new HashMap<String, Boolean>();
+    protected  Map<String, Boolean> commonBatchesLastKnownState = new ConcurrentHashMap<String, Boolean>();
     
     
-    protected  Map<String, Boolean> defaultRouterOnlyLastKnownState = new HashMap<String, Boolean>();
+    protected  Map<String, Boolean> defaultRouterOnlyLastKnownState = new ConcurrentHashMap<String, Boolean>();
 
     protected transient ExecutorService readThread = null;
 
+    /*
+     * Channels can be routed concurrently, so the reader pool is created
+     * under its own lock.  The service monitor is held by routeData while it
+     * waits on the channel threads.
+     */
+    private final Object readThreadLock = new Object();
+
+    protected transient ExecutorService channelRouterThreads = null;
+
+    protected int channelRouterThreadCount = 0;
+
+    protected DataGapDetector gapDetector;
+
+    private final Object gapDetectorLock = new Object();
+
     protected ISymmetricEngine engine;
     
     protected IExtensionService extensionService;
@@ -149,11 +171,21 @@ public class RouterService extends AbstractService implements IRouterService {
     }
 
     public synchronized void stop() {
-        if (readThread != null) {
+        synchronized (readThreadLock) {
+            if (readThread != null) {
+                try {
+                    log.info("RouterService is shutting down");
+                    readThread.shutdown();
+                    readThread = null;
+                } catch (Exception ex) {
+                    log.error("", ex);
+                }
+            }
+        }
+        if (channelRouterThreads != null) {
             try {
-                log.info("RouterService is shutting down");
-                readThread.shutdown();
-                readThread = null;
+                channelRouterThreads.shutdown();
+                channelRouterThreads = null;
             } catch (Exception ex) {
                 log.error("", ex);
             }
@@ -169,6 +201,15 @@ public class RouterService extends AbstractService implements IRouterService {
         if (identity != null) {
             if (force || engine.getClusterService().lock(ClusterConstants.ROUTE)) {
                 try {
+                    if (parameterService.is(ParameterConstants.CLUSTER_LOCKING_ENABLED)) {
+                        /*
+                         * Another cluster node may have routed with ids
+                         * reserved after ours, so reserve new ones to keep
+                         * batches in order
+                         */
+                        engine.getSequenceService().discardReservedBlocks();
+                    }
+                    
                     if (firstTimeCheckForAbandonedBatches) {
                         engine.getOutgoingBatchService().updateAbandonedRoutingBatches();
                         firstTimeCheckForAbandonedBatches = false;
@@ -177,9 +218,7 @@ public class RouterService extends AbstractService implements IRouterService {
                     insertInitialLoadEvents();
                     
                     long ts = System.currentTimeMillis();
-                    DataGapDetector gapDetector = new DataGapDetector(
-                            engine.getDataService(), parameterService, symmetricDialect, 
-                            this, engine.getStatisticManager(), engine.getNodeService());
+                    DataGapDetector gapDetector = getDataGapDetector();
                     gapDetector.beforeRouting();
                     dataCount = routeDataForEachChannel(gapDetector);
                     ts = System.currentTimeMillis() - ts;
@@ -316,10 +355,11 @@ public class RouterService extends AbstractService implements IRouterService {
     }
 
     /**
-     * We route data channel by channel for two reasons. One is that if/when we
-     * decide to multi-thread the routing it is a simple matter of inserting a
-     * thread pool here and waiting for all channels to be processed. The other
-     * reason is to reduce the number of connections we are required to have.
+     * We route data channel by channel for two reasons. One is that the
+     * channels can be routed concurrently by a pool of router threads (see
+     * {@link ParameterConstants#ROUTING_CHANNEL_THREAD_COUNT}) while we wait
+     * for all channels to be processed. The other reason is to reduce the
+     * number of connections we are required to have.
      */
     protected int routeDataForEachChannel(DataGapDetector gapDetector) {
         int dataCount = 0;
@@ -330,13 +370,10 @@ public class RouterService extends AbstractService implements IRouterService {
         try {
             final List<NodeChannel> channels = engine.getConfigurationService().getNodeChannels(
                     false);
+            List<NodeChannel> channelsToRoute = new ArrayList<NodeChannel>(channels.size());
             for (NodeChannel nodeChannel : channels) {
                 if (nodeChannel.isEnabled()) {
-                    processInfo.setCurrentChannelId(nodeChannel.getChannelId());
-                    dataCount += routeDataForChannel(processInfo,
-                            nodeChannel,
-                            sourceNode
-                            , gapDetector);
+                    channelsToRoute.add(nodeChannel);
                 } else {
                     if (log.isDebugEnabled()) {
                         log.debug(
@@ -345,6 +382,20 @@ public class RouterService extends AbstractService implements IRouterService {
                     }
                 }
             }
+
+            ExecutorService channelThreads = getChannelRouterThreads();
+            if (channelThreads != null && channelsToRoute.size() > 1) {
+                dataCount = routeDataForEachChannelInParallel(channelThreads, channelsToRoute,
+                        sourceNode, gapDetector);
+            } else {
+                for (NodeChannel nodeChannel : channelsToRoute) {
+                    processInfo.setCurrentChannelId(nodeChannel.getChannelId());
+                    dataCount += routeDataForChannel(processInfo,
+                            nodeChannel,
+                            sourceNode
+                            , gapDetector);
+                }
+            }
             processInfo.setStatus(ProcessInfo.Status.OK);
         } catch (RuntimeException ex) {
             processInfo.setStatus(ProcessInfo.Status.ERROR);
@@ -354,6 +405,115 @@ public class RouterService extends AbstractService implements IRouterService {
         return dataCount;
     }
 
+    /**
+     * Submit each channel to the router thread pool. Every channel gets its own
+     * {@link ChannelRouterContext}, and therefore its own SQL transaction, and
+     * its own {@link ProcessInfo} so progress can be tracked per channel.
+     */
+    protected int routeDataForEachChannelInParallel(ExecutorService channelThreads,
+            List<NodeChannel> channelsToRoute, final Node sourceNode,
+            final DataGapDetector gapDetector) {
+        long ts = System.currentTimeMillis();
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>(channelsToRoute.size());
+        for (final NodeChannel nodeChannel : channelsToRoute) {
+            futures.add(channelThreads.submit(new Callable<Integer>() {
+                public Integer call() throws Exception {
+                    ProcessInfo channelProcessInfo = engine.getStatisticManager().newProcessInfo(
+                            new ProcessInfoKey(sourceNode.getNodeId(), null,
+                                    ProcessType.ROUTER_JOB, nodeChannel.getChannelId()));
+                    channelProcessInfo.setCurrentChannelId(nodeChannel.getChannelId());
+                    channelProcessInfo.setStatus(ProcessInfo.Status.PROCESSING);
+                    try {
+                        int count = routeDataForChannel(channelProcessInfo, nodeChannel,
+                                sourceNode, gapDetector);
+                        channelProcessInfo.setStatus(ProcessInfo.Status.OK);
+                        return count;
+                    } catch (RuntimeException ex) {
+                        channelProcessInfo.setStatus(ProcessInfo.Status.ERROR);
+                        throw ex;
+                    }
+                }
+            }));
+        }
+
+        int dataCount = 0;
+        RuntimeException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                dataCount += futures.get(i).get();
+            } catch (InterruptedException ex) {
+                log.warn("The routing process was interrupted while waiting for the {} channel",
+                        channelsToRoute.get(i).getChannelId());
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (failure == null) {
+                    failure = cause instanceof RuntimeException ? (RuntimeException) cause
+                            : new SymmetricException(cause);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+        if (log.isDebugEnabled()) {
+            long totalChannelTime = 0;
+            Map<String, RouterStats> statsByChannel = engine.getStatisticManager()
+                    .getRouterStatsByChannel();
+            for (NodeChannel nodeChannel : channelsToRoute) {
+                RouterStats stats = statsByChannel.get(nodeChannel.getChannelId());
+                if (stats != null) {
+                    totalChannelTime += stats.getRouteTimeMs();
+                }
+            }
+            log.debug(
+                    "Routed {} channels using {} threads.  The channels were routed for a combined {} ms in {} ms of elapsed time",
+                    new Object[] { channelsToRoute.size(), channelRouterThreadCount,
+                            totalChannelTime, System.currentTimeMillis() - ts });
+        }
+        return dataCount;
+    }
+
+    /**
+     * @return the pool of threads used to route channels concurrently or null
+     *         if channels should be routed one at a time on the calling thread
+     */
+    protected ExecutorService getChannelRouterThreads() {
+        int threadCount = parameterService.getInt(ParameterConstants.ROUTING_CHANNEL_THREAD_COUNT, 1);
+        if (threadCount <= 1 || parameterService.is(ParameterConstants.SYNCHRONIZE_ALL_JOBS)) {
+            return null;
+        }
+
+        if (channelRouterThreads != null && threadCount != channelRouterThreadCount) {
+            channelRouterThreads.shutdown();
+            channelRouterThreads = null;
+        }
+
+        if (channelRouterThreads == null) {
+            channelRouterThreadCount = threadCount;
+            channelRouterThreads = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+                final AtomicInteger threadNumber = new AtomicInteger(1);
+                final String namePrefix = parameterService.getEngineName().toLowerCase()
+                        + "-router-channel-";
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName(namePrefix + threadNumber.getAndIncrement());
+                    if (t.isDaemon()) {
+                        t.setDaemon(false);
+                    }
+                    if (t.getPriority() != Thread.NORM_PRIORITY) {
+                        t.setPriority(Thread.NORM_PRIORITY);
+                    }
+                    return t;
+                }
+            });
+        }
+        return channelRouterThreads;
+    }
+
     protected boolean producesCommonBatches(Channel channel, String nodeGroupId, List<TriggerRouter> triggerRouters) {
         String channelId = channel.getChannelId();
         Boolean producesCommonBatches = !Constants.CHANNEL_CONFIG.equals(channelId)
@@ -462,6 +622,10 @@ public class RouterService extends AbstractService implements IRouterService {
         ChannelRouterContext context = null;
         long ts = System.currentTimeMillis();
         int dataCount = -1;
+        RouterStats channelStats = new RouterStats();
+        channelStats.setChannelId(nodeChannel.getChannelId());
+        channelStats.setThreadName(Thread.currentThread().getName());
+        channelStats.setStartTime(ts);
         try {
             List<TriggerRouter> triggerRouters = engine.getTriggerRouterService().getTriggerRouters(false);
             boolean producesCommonBatches = producesCommonBatches(nodeChannel.getChannel(), parameterService.getNodeGroupId(),
@@ -539,10 +703,25 @@ public class RouterService extends AbstractService implements IRouterService {
                 long totalTime = System.currentTimeMillis() - ts;
                 context.incrementStat(totalTime, ChannelRouterContext.STAT_ROUTE_TOTAL_TIME);
                 context.logStats(log, totalTime);
+                channelStats.setEndTime(System.currentTimeMillis());
+                channelStats.setStartDataId(context.getStartDataId());
+                channelStats.setEndDataId(context.getEndDataId());
+                channelStats.setDataReadCount(context.getDataReadCount());
+                channelStats.setPeekAheadFillCount(context.getPeekAheadFillCount());
+                channelStats.setDataRoutedCount(context.getStat(ChannelRouterContext.STAT_DATA_ROUTED_COUNT));
+                channelStats.setDataEventsInsertedCount(context.getStat(ChannelRouterContext.STAT_DATA_EVENTS_INSERTED));
+                engine.getStatisticManager().setRouterStatsByChannel(nodeChannel.getChannelId(), channelStats);
+                gapDetector.addDataIds(context.getCommittedDataIds());
                 boolean detectGaps = context.isRequestGapDetection();
                 context.cleanup();
                 if (detectGaps) {
-                    gapDetector.beforeRouting();
+                    /*
+                     * Channels might be routed concurrently, so only one
+                     * thread at a time may update sym_data_gap
+                     */
+                    synchronized (gapDetector) {
+                        gapDetector.beforeRouting();
+                    }
                 }
             }
         }
@@ -571,6 +750,9 @@ public class RouterService extends AbstractService implements IRouterService {
                 batch.setStatus(Status.NE);
             }
             engine.getOutgoingBatchService().updateOutgoingBatch(batch);
+            if (batch.getStatus() == Status.NE) {
+                engine.getOutgoingBatchService().notifyBatchesRouted(batch.getNodeId());
+            }
             context.getBatchesByNodes().remove(batch.getNodeId());
         }
 
@@ -581,6 +763,15 @@ public class RouterService extends AbstractService implements IRouterService {
     }
 
     protected Set<Node> findAvailableNodes(TriggerRouter triggerRouter, ChannelRouterContext context) {
+        /*
+         * Hand out the same set for the rest of the context so routers can
+         * keep indexes that are built from it
+         */
+        Set<Node> targetEnabledNodes = context.getTargetEnabledNodes().get(triggerRouter);
+        if (targetEnabledNodes != null) {
+            return targetEnabledNodes;
+        }
+
         Set<Node> nodes = context.getAvailableNodes().get(triggerRouter);
         if (nodes == null) {
             nodes = new HashSet<Node>();
@@ -600,7 +791,9 @@ public class RouterService extends AbstractService implements IRouterService {
             context.getAvailableNodes().put(triggerRouter, nodes);
         }
         
-        return engine.getGroupletService().getTargetEnabled(triggerRouter, nodes);
+        targetEnabledNodes = engine.getGroupletService().getTargetEnabled(triggerRouter, nodes);
+        context.getTargetEnabledNodes().put(triggerRouter, targetEnabledNodes);
+        return targetEnabledNodes;
     }
 
 	protected IDataToRouteReader startReading(ChannelRouterContext context) {
@@ -608,6 +801,14 @@ public class RouterService extends AbstractService implements IRouterService {
 		if (parameterService.is(ParameterConstants.SYNCHRONIZE_ALL_JOBS)) {
 			reader.run();
 		} else {
+			getReadThread().execute(reader);
+		}
+
+		return reader;
+	}
+
+	protected ExecutorService getReadThread() {
+		synchronized (readThreadLock) {
 			if (readThread == null) {
 				readThread = Executors.newCachedThreadPool(new ThreadFactory() {
 					final AtomicInteger threadNumber = new AtomicInteger(1);
@@ -627,10 +828,8 @@ public class RouterService extends AbstractService implements IRouterService {
 					}
 				});
 			}
-			readThread.execute(reader);
+			return readThread;
 		}
-
-		return reader;
 	}
 
     /**
@@ -947,6 +1146,31 @@ public class RouterService extends AbstractService implements IRouterService {
         return extensionService.getExtensionPointMap(IDataRouter.class);
     }
 
+    /**
+     * The gap detector is kept between routing runs so that the fast detector
+     * can remember the data ids that have been routed.
+     */
+    public DataGapDetector getDataGapDetector() {
+        synchronized (gapDetectorLock) {
+            boolean useFastGapDetector = parameterService.is(
+                    ParameterConstants.ROUTING_USE_FAST_GAP_DETECTOR, false);
+            if (gapDetector == null
+                    || useFastGapDetector != (gapDetector instanceof DataGapFastDetector)) {
+                if (useFastGapDetector) {
+                    gapDetector = new DataGapFastDetector(engine.getDataService(),
+                            parameterService, symmetricDialect, this,
+                            engine.getStatisticManager(), engine.getNodeService(),
+                            engine.getClusterService());
+                } else {
+                    gapDetector = new DataGapDetector(engine.getDataService(), parameterService,
+                            symmetricDialect, this, engine.getStatisticManager(),
+                            engine.getNodeService());
+                }
+            }
+            return gapDetector;
+        }
+    }
+
     protected Table buildTableFromTriggerHistory(TriggerHistory triggerHistory) {
     	Table table = new Table(triggerHistory.getSourceCatalogName(), triggerHistory.getSourceSchemaName(), triggerHistory.getSourceTableName());
     	String[] columnNames = triggerHistory.getColumnNames().split(",");
@@ -52,6 +52,10 @@ public class RouterServiceSqlMap extends AbstractSqlMap {
                 ""
                         + "select distinct(data_id) from $(data_event) where data_id >=? and data_id <= ? order by data_id asc   ");
 
+        putSql("selectDistinctDataIdFromDataEventUsingGapRangesSql",
+                ""
+                        + "select distinct(data_id) from $(data_event) where $(dataRange)   ");
+
         putSql("selectUnroutedCountForChannelSql", ""
                 + "select count(*) from $(data) where channel_id=? and data_id >=?   ");
 
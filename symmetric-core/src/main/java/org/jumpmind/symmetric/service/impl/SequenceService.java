@@ -24,6 +24,8 @@ import java.sql.Types;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jumpmind.db.sql.ISqlRowMapper;
 import org.jumpmind.db.sql.ISqlTransaction;
@@ -34,12 +36,17 @@ import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.common.TableConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.Sequence;
+import org.jumpmind.symmetric.model.SequenceBlockStats;
 import org.jumpmind.symmetric.service.IParameterService;
 import org.jumpmind.symmetric.service.ISequenceService;
 
 public class SequenceService extends AbstractService implements ISequenceService {
 
-    private Map<String, Sequence> sequenceDefinitionCache = new HashMap<String, Sequence>();
+    private Map<String, Sequence> sequenceDefinitionCache = new ConcurrentHashMap<String, Sequence>();
+
+    private Map<String, SequenceBlock> sequenceBlocks = new ConcurrentHashMap<String, SequenceBlock>();
+
+    private Map<String, SequenceBlockStats> sequenceBlockStats = new ConcurrentHashMap<String, SequenceBlockStats>();
 
     public SequenceService(IParameterService parameterService, ISymmetricDialect symmetricDialect) {
         super(parameterService, symmetricDialect);
@@ -83,6 +90,10 @@ public class SequenceService extends AbstractService implements ISequenceService
     }
 
     public long nextVal(String name) {
+        int blockSize = getBlockSize(name);
+        if (blockSize > 1) {
+            return nextValFromBlock(name, blockSize);
+        }
         ISqlTransaction transaction = null;
         try {
             transaction = sqlTemplate.startSqlTransaction();
@@ -105,8 +116,11 @@ public class SequenceService extends AbstractService implements ISequenceService
     }
 
     public long nextVal(ISqlTransaction transaction, String name) {
+        int blockSize = getBlockSize(name);
         if (transaction == null) {
             return nextVal(name);
+        } else if (blockSize > 1) {
+            return nextValFromBlock(name, blockSize);
         } else {
             long sequenceTimeoutInMs = parameterService.getLong(
                     ParameterConstants.SEQUENCE_TIMEOUT_MS, 5000);
@@ -126,6 +140,144 @@ public class SequenceService extends AbstractService implements ISequenceService
 
     protected long tryToGetNextVal(ISqlTransaction transaction, String name) {
         long currVal = currVal(transaction, name);
+        Sequence sequence = getSequenceDefinition(transaction, name);
+        long nextVal = calculateNextVal(sequence, currVal);
+
+        if (!updateCurrentValue(transaction, name, nextVal, currVal)) {
+            nextVal = -1;
+        }
+
+        return nextVal;
+    }
+
+    /**
+     * Block allocation only applies to the ids that are handed out for every
+     * outgoing batch and load. Those ids may have gaps. Each reservation is
+     * committed in its own transaction, so the blocks of cluster nodes never
+     * overlap. Routing discards the reserved blocks when it takes the cluster
+     * lock so batches are still created in order across cluster nodes.
+     */
+    protected int getBlockSize(String name) {
+        if (Constants.SEQUENCE_OUTGOING_BATCH.equals(name)
+                || Constants.SEQUENCE_OUTGOING_BATCH_LOAD_ID.equals(name)) {
+            return parameterService.getInt(ParameterConstants.SEQUENCE_BLOCK_SIZE, 1);
+        } else {
+            return 1;
+        }
+    }
+
+    public void discardReservedBlocks() {
+        synchronized (sequenceBlocks) {
+            sequenceBlocks.clear();
+        }
+    }
+
+    protected long nextValFromBlock(String name, int blockSize) {
+        SequenceBlock block = sequenceBlocks.get(name);
+        long nextVal = block != null ? block.next() : -1;
+        if (nextVal < 0) {
+            synchronized (sequenceBlocks) {
+                block = sequenceBlocks.get(name);
+                nextVal = block != null ? block.next() : -1;
+                if (nextVal < 0) {
+                    block = reserveBlock(name, blockSize);
+                    sequenceBlocks.put(name, block);
+                    nextVal = block.next();
+                }
+            }
+        }
+        return nextVal;
+    }
+
+    /**
+     * Reserve the next block of values in its own transaction so the sequence
+     * row is not held locked by the caller's transaction. The compare and set
+     * update keeps reservations made by other cluster nodes from overlapping.
+     * Values that are not handed out before a restart are skipped.
+     */
+    protected SequenceBlock reserveBlock(String name, int blockSize) {
+        long sequenceTimeoutInMs = parameterService.getLong(
+                ParameterConstants.SEQUENCE_TIMEOUT_MS, 5000);
+        long ts = System.currentTimeMillis();
+        do {
+            SequenceBlock block = null;
+            ISqlTransaction transaction = null;
+            try {
+                transaction = sqlTemplate.startSqlTransaction();
+                block = tryToReserveBlock(transaction, name, blockSize);
+                transaction.commit();
+            } catch (Error ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } catch (RuntimeException ex) {
+                if (transaction != null) {
+                    transaction.rollback();
+                }
+                throw ex;
+            } finally {
+                close(transaction);
+            }
+
+            if (block != null) {
+                SequenceBlockStats stats = sequenceBlockStats.get(name);
+                if (stats == null) {
+                    stats = new SequenceBlockStats(name);
+                    sequenceBlockStats.put(name, stats);
+                }
+                stats.refilled(block.getSize());
+                log.debug("Reserved {} values for the {} sequence starting at {}.  The last block lasted {} ms",
+                        new Object[] { block.getSize(), name, block.getFirstValue(),
+                                stats.getLastRefillIntervalMs() });
+                return block;
+            }
+        } while (System.currentTimeMillis() - sequenceTimeoutInMs < ts);
+
+        throw new IllegalStateException(String.format(
+                "Timed out after %d ms trying to reserve a block of values for %s",
+                System.currentTimeMillis() - ts, name));
+    }
+
+    protected SequenceBlock tryToReserveBlock(ISqlTransaction transaction, String name,
+            int blockSize) {
+        long currVal = currVal(transaction, name);
+        Sequence sequence = getSequenceDefinition(transaction, name);
+        long firstVal = calculateNextVal(sequence, currVal);
+        long incrementBy = sequence.getIncrementBy();
+        long size = blockSize;
+        if (incrementBy > 0) {
+            size = Math.min(size, (sequence.getMaxValue() - firstVal) / incrementBy + 1);
+        } else if (incrementBy < 0) {
+            size = Math.min(size, (firstVal - sequence.getMinValue()) / -incrementBy + 1);
+        }
+        long lastVal = firstVal + (size - 1) * incrementBy;
+
+        if (updateCurrentValue(transaction, name, lastVal, currVal)) {
+            return new SequenceBlock(firstVal, incrementBy, size);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return true if the current value was still expectedVal and was updated
+     */
+    protected boolean updateCurrentValue(ISqlTransaction transaction, String name, long newVal,
+            long expectedVal) {
+        return transaction.prepareAndExecute(getSql("updateCurrentValueSql"), newVal, name,
+                expectedVal) == 1;
+    }
+
+    public Map<String, SequenceBlockStats> getSequenceBlockStats() {
+        Map<String, SequenceBlockStats> stats = new HashMap<String, SequenceBlockStats>();
+        for (SequenceBlockStats sequenceStats : sequenceBlockStats.values()) {
+            stats.put(sequenceStats.getSequenceName(), new SequenceBlockStats(sequenceStats));
+        }
+        return stats;
+    }
+
+    protected Sequence getSequenceDefinition(ISqlTransaction transaction, String name) {
         Sequence sequence = sequenceDefinitionCache.get(name);
         if (sequence == null) {
             sequence = get(transaction, name);
@@ -137,7 +289,11 @@ public class SequenceService extends AbstractService implements ISequenceService
                         TableConstants.getTableName(getTablePrefix(), TableConstants.SYM_SEQUENCE)));
             }
         }
+        return sequence;
+    }
 
+    protected long calculateNextVal(Sequence sequence, long currVal) {
+        String name = sequence.getSequenceName();
         long nextVal = currVal + sequence.getIncrementBy();
         if (nextVal > sequence.getMaxValue()) {
             if (sequence.isCycle()) {
@@ -156,13 +312,6 @@ public class SequenceService extends AbstractService implements ISequenceService
                                 + "No more numbers can be handled out.", name));
             }
         }
-
-        int updateCount = transaction.prepareAndExecute(getSql("updateCurrentValueSql"), nextVal,
-                name, currVal);
-        if (updateCount != 1) {
-            nextVal = -1;
-        }
-
         return nextVal;
     }
 
@@ -216,6 +365,39 @@ public class SequenceService extends AbstractService implements ISequenceService
         return map;
     }
 
+    static class SequenceBlock {
+
+        private final long firstValue;
+
+        private final long incrementBy;
+
+        private final long size;
+
+        private final AtomicLong index = new AtomicLong();
+
+        SequenceBlock(long firstValue, long incrementBy, long size) {
+            this.firstValue = firstValue;
+            this.incrementBy = incrementBy;
+            this.size = size;
+        }
+
+        /**
+         * @return the next value or -1 if the block has been used up
+         */
+        long next() {
+            long i = index.getAndIncrement();
+            return i < size ? firstValue + i * incrementBy : -1;
+        }
+
+        long getFirstValue() {
+            return firstValue;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+
     class SequenceRowMapper implements ISqlRowMapper<Sequence> {
         public Sequence mapRow(Row rs) {
             Sequence sequence = new Sequence();
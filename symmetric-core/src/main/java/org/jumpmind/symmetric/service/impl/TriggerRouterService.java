@@ -34,6 +34,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Column;
@@ -126,7 +134,19 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
      * Cache the history for performance. History never changes and does not
      * grow big so this should be OK.
      */
-    private HashMap<Integer, TriggerHistory> historyMap = new HashMap<Integer, TriggerHistory>();
+    private Map<Integer, TriggerHistory> historyMap = new ConcurrentHashMap<Integer, TriggerHistory>();
+
+    /*
+     * Tables read in bulk at the start of a full sync triggers, keyed by fully
+     * qualified table name. Only set while syncTriggers is running.
+     */
+    protected volatile Map<String, Table> prefetchedTables;
+
+    /*
+     * Trigger names handed out to each trigger id while triggers are being
+     * synchronized in parallel. Only set while syncTriggers is running.
+     */
+    protected volatile ConcurrentMap<String, String> reservedTriggerNames;
 
     public TriggerRouterService(ISymmetricEngine engine) {
         super(engine.getParameterService(), engine.getSymmetricDialect());
@@ -317,14 +337,21 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
     }
 
     protected boolean isTriggerNameInUse(List<TriggerHistory> activeTriggerHistories, String triggerId, String triggerName) {
-        for (TriggerHistory triggerHistory : activeTriggerHistories) {
-            if (!triggerHistory.getTriggerId().equals(triggerId) && (
-                    (triggerHistory.getNameForDeleteTrigger() != null && triggerHistory.getNameForDeleteTrigger().equals(triggerName)) ||
-                    (triggerHistory.getNameForInsertTrigger() != null && triggerHistory.getNameForInsertTrigger().equals(triggerName)) || 
-                    (triggerHistory.getNameForUpdateTrigger() != null && triggerHistory.getNameForUpdateTrigger().equals(triggerName)))) {
-                return true;
+        synchronized (activeTriggerHistories) {
+            for (TriggerHistory triggerHistory : activeTriggerHistories) {
+                if (!triggerHistory.getTriggerId().equals(triggerId) && (
+                        (triggerHistory.getNameForDeleteTrigger() != null && triggerHistory.getNameForDeleteTrigger().equals(triggerName)) ||
+                        (triggerHistory.getNameForInsertTrigger() != null && triggerHistory.getNameForInsertTrigger().equals(triggerName)) || 
+                        (triggerHistory.getNameForUpdateTrigger() != null && triggerHistory.getNameForUpdateTrigger().equals(triggerName)))) {
+                    return true;
+                }
             }
         }
+        ConcurrentMap<String, String> reserved = reservedTriggerNames;
+        if (reserved != null) {
+            String reservedBy = reserved.putIfAbsent(triggerName, triggerId);
+            return reservedBy != null && !reservedBy.equals(triggerId);
+        }
         return false;
     }
 
@@ -369,7 +396,9 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         if (history == null && histId >= 0) {
             history = (TriggerHistory) sqlTemplate.queryForObject(getSql("triggerHistSql"),
                     new TriggerHistoryMapper(), histId);
-            historyMap.put(histId, history);
+            if (history != null) {
+                historyMap.put(histId, history);
+            }
         }
         return history;
     }
@@ -388,20 +417,28 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         List<TriggerHistory> triggerHistories = sqlTemplate.query(getSql("latestTriggerHistSql"),
                 new TriggerHistoryMapper(), triggerId, tableName);
         for (TriggerHistory triggerHistory : triggerHistories) {
-            if ((StringUtils.isBlank(catalogName) && StringUtils.isBlank(triggerHistory
-                    .getSourceCatalogName()))
-                    || (StringUtils.isNotBlank(catalogName) && catalogName.equals(triggerHistory
-                            .getSourceCatalogName()))) {
-                if ((StringUtils.isBlank(schemaName) && StringUtils.isBlank(triggerHistory
-                        .getSourceSchemaName()))
-                        || (StringUtils.isNotBlank(schemaName) && schemaName.equals(triggerHistory
-                                .getSourceSchemaName()))) {
-                    return triggerHistory;
-                }
+            if (isSameCatalogAndSchema(triggerHistory, catalogName, schemaName)) {
+                return triggerHistory;
             }
         }
         return null;
     }
+
+    protected boolean isSameCatalogAndSchema(TriggerHistory triggerHistory, String catalogName,
+            String schemaName) {
+        if ((StringUtils.isBlank(catalogName) && StringUtils.isBlank(triggerHistory
+                .getSourceCatalogName()))
+                || (StringUtils.isNotBlank(catalogName) && catalogName.equals(triggerHistory
+                        .getSourceCatalogName()))) {
+            if ((StringUtils.isBlank(schemaName) && StringUtils.isBlank(triggerHistory
+                    .getSourceSchemaName()))
+                    || (StringUtils.isNotBlank(schemaName) && schemaName.equals(triggerHistory
+                            .getSourceSchemaName()))) {
+                return true;
+            }
+        }
+        return false;
+    }
     
     @SuppressWarnings("unchecked")
     @Override
@@ -1178,12 +1215,17 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                             triggersForCurrentNode.clear();
                         }
 
+                        if (parameterService.is(ParameterConstants.SYNC_TRIGGERS_BULK_METADATA_ENABLED)) {
+                            prefetchedTables = readTablesInBulk(triggersForCurrentNode);
+                        }
+
                         List<TriggerHistory> activeTriggerHistories = getActiveTriggerHistories();
                         inactivateTriggers(triggersForCurrentNode, sqlBuffer, activeTriggerHistories);
                         updateOrCreateDatabaseTriggers(triggersForCurrentNode, sqlBuffer, force,
                                 true, activeTriggerHistories, true);
                         resetTriggerRouterCacheByNodeGroupId();
                     } finally {
+                        prefetchedTables = null;
                         clusterService.unlock(ClusterConstants.SYNCTRIGGERS);
                         log.info("Done synchronizing triggers");
                     }
@@ -1201,6 +1243,77 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         }
     }
 
+    /**
+     * Read the tables of all the triggers that name a single table with one
+     * pass over the database metadata per catalog and schema.
+     */
+    protected Map<String, Table> readTablesInBulk(List<Trigger> triggers) {
+        Map<String, Map<String, Set<String>>> tableNamesBySchemaByCatalog = new HashMap<String, Map<String, Set<String>>>();
+        for (Trigger trigger : triggers) {
+            if (!trigger.isSourceCatalogNameWildCarded() && !trigger.isSourceSchemaNameWildCarded()
+                    && !trigger.isSourceTableNameWildCarded()) {
+                String catalogName = isBlank(trigger.getSourceCatalogName()) ? platform
+                        .getDefaultCatalog() : trigger.getSourceCatalogName();
+                String schemaName = isBlank(trigger.getSourceSchemaName()) ? platform
+                        .getDefaultSchema() : trigger.getSourceSchemaName();
+                Map<String, Set<String>> tableNamesBySchema = tableNamesBySchemaByCatalog.get(catalogName);
+                if (tableNamesBySchema == null) {
+                    tableNamesBySchema = new HashMap<String, Set<String>>();
+                    tableNamesBySchemaByCatalog.put(catalogName, tableNamesBySchema);
+                }
+                Set<String> tableNames = tableNamesBySchema.get(schemaName);
+                if (tableNames == null) {
+                    tableNames = new HashSet<String>();
+                    tableNamesBySchema.put(schemaName, tableNames);
+                }
+                tableNames.add(trigger.getSourceTableName());
+            }
+        }
+
+        Map<String, Table> tables = new HashMap<String, Table>();
+        for (Map.Entry<String, Map<String, Set<String>>> catalogEntry : tableNamesBySchemaByCatalog.entrySet()) {
+            for (Map.Entry<String, Set<String>> schemaEntry : catalogEntry.getValue().entrySet()) {
+                long ts = System.currentTimeMillis();
+                try {
+                    List<Table> tablesRead = platform.getDdlReader().readTablesByName(
+                            catalogEntry.getKey(), schemaEntry.getKey(), schemaEntry.getValue());
+                    for (Table table : tablesRead) {
+                        String tableName = Table.getFullyQualifiedTableName(catalogEntry.getKey(),
+                                schemaEntry.getKey(), table.getName());
+                        tables.put(tableName, table);
+                        String upperCaseTableName = tableName.toUpperCase();
+                        if (!tables.containsKey(upperCaseTableName)) {
+                            tables.put(upperCaseTableName, table);
+                        }
+                    }
+                    log.info("Read {} tables from {} in {} ms", new Object[] { tablesRead.size(),
+                            Table.getFullyQualifiedTablePrefix(catalogEntry.getKey(), schemaEntry.getKey()),
+                            System.currentTimeMillis() - ts });
+                } catch (Exception ex) {
+                    log.warn("Failed to read the tables of "
+                            + Table.getFullyQualifiedTablePrefix(catalogEntry.getKey(),
+                                    schemaEntry.getKey()) + " in bulk.  They will be read one at a time", ex);
+                }
+            }
+        }
+        return tables;
+    }
+
+    protected Table getPrefetchedTable(String catalogName, String schemaName, String tableName,
+            boolean ignoreCase) {
+        Map<String, Table> tables = prefetchedTables;
+        Table table = null;
+        if (tables != null) {
+            String fullyQualifiedTableName = Table.getFullyQualifiedTableName(catalogName,
+                    schemaName, tableName);
+            table = tables.get(fullyQualifiedTableName);
+            if (table == null && ignoreCase) {
+                table = tables.get(fullyQualifiedTableName.toUpperCase());
+            }
+        }
+        return table;
+    }
+
     public void clearCache() {
         synchronized (cacheLock) {
             this.triggerRouterPerNodeCacheTime = 0;
@@ -1408,9 +1521,13 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                             }
                         }
                     } else {
-                        Table table = symmetricDialect.getPlatform().getTableFromCache(
-                                catalogName, schemaName,
-                                trigger.getSourceTableName(), !useTableCache);
+                        Table table = getPrefetchedTable(catalogName, schemaName,
+                                trigger.getSourceTableName(), ignoreCase);
+                        if (table == null) {
+                            table = symmetricDialect.getPlatform().getTableFromCache(
+                                    catalogName, schemaName,
+                                    trigger.getSourceTableName(), !useTableCache);
+                        }
                         if (table != null) {
                             tables.add(table);
                         }
@@ -1446,7 +1563,7 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         boolean ignoreCase = this.parameterService.is(ParameterConstants.DB_METADATA_IGNORE_CASE);
 
         /* Re-lookup just in case the table was just altered */
-        platform.resetCachedTableModel();
+        platform.resetCachedTableModel(table.getCatalog(), table.getSchema(), table.getName());
         table = platform.getTableFromCache(table.getCatalog(), table.getSchema(), table.getName(),
                 true);
         List<Trigger> triggersForCurrentNode = getTriggersForCurrentNode();
@@ -1461,10 +1578,57 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         }
     }
 
-    protected void updateOrCreateDatabaseTriggers(List<Trigger> triggers, StringBuilder sqlBuffer,
-            boolean force, boolean verifyInDatabase, List<TriggerHistory> activeTriggerHistories, boolean useTableCache) {
-        for (Trigger trigger : triggers) {
-            updateOrCreateDatabaseTrigger(trigger, triggers, sqlBuffer, force, verifyInDatabase, activeTriggerHistories, useTableCache);
+    protected void updateOrCreateDatabaseTriggers(final List<Trigger> triggers, final StringBuilder sqlBuffer,
+            final boolean force, final boolean verifyInDatabase, List<TriggerHistory> activeTriggerHistories, final boolean useTableCache) {
+        int threadCount = parameterService.getInt(ParameterConstants.SYNC_TRIGGERS_THREAD_COUNT_PER_SERVER, 1);
+        if (threadCount <= 1 || triggers.size() <= 1 || sqlBuffer != null) {
+            for (Trigger trigger : triggers) {
+                updateOrCreateDatabaseTrigger(trigger, triggers, sqlBuffer, force, verifyInDatabase, activeTriggerHistories, useTableCache);
+            }
+        } else {
+            final List<TriggerHistory> histories = Collections.synchronizedList(activeTriggerHistories);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+                final AtomicInteger threadNumber = new AtomicInteger(1);
+                final String namePrefix = parameterService.getEngineName().toLowerCase()
+                        + "-sync-triggers-";
+
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName(namePrefix + threadNumber.getAndIncrement());
+                    if (t.isDaemon()) {
+                        t.setDaemon(false);
+                    }
+                    if (t.getPriority() != Thread.NORM_PRIORITY) {
+                        t.setPriority(Thread.NORM_PRIORITY);
+                    }
+                    return t;
+                }
+            });
+            reservedTriggerNames = new ConcurrentHashMap<String, String>();
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(triggers.size());
+                for (final Trigger trigger : triggers) {
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            updateOrCreateDatabaseTrigger(trigger, triggers, sqlBuffer, force,
+                                    verifyInDatabase, histories, useTableCache);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException ex) {
+                        log.error("Failed to synchronize triggers", ex.getCause());
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                log.warn("Interrupted while synchronizing triggers");
+            } finally {
+                executor.shutdown();
+                reservedTriggerNames = null;
+            }
         }
     }
 
@@ -1559,6 +1723,12 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
                 table = platform.makeAllColumnsPrimaryKeys(table);
             }
 
+            if (prefetchedTables != null && !force
+                    && isTriggerUpToDate(trigger, table, activeTriggerHistories)) {
+                log.debug("Triggers for {} are up to date", table.getFullyQualifiedTableName());
+                return;
+            }
+
             TriggerHistory latestHistoryBeforeRebuild = getNewestTriggerHistoryForTrigger(
                     trigger.getTriggerId(),
                     trigger.isSourceCatalogNameWildCarded() ? table.getCatalog() : trigger.getSourceCatalogName(),
@@ -1643,6 +1813,38 @@ public class TriggerRouterService extends AbstractService implements ITriggerRou
         }
     }
 
+    /**
+     * Compare the table and trigger against the active trigger history in
+     * memory. The database is not checked to see whether the triggers still
+     * exist.
+     */
+    protected boolean isTriggerUpToDate(Trigger trigger, Table table,
+            List<TriggerHistory> activeTriggerHistories) {
+        String catalogName = trigger.isSourceCatalogNameWildCarded() ? table.getCatalog() : trigger
+                .getSourceCatalogName();
+        String schemaName = trigger.isSourceSchemaNameWildCarded() ? table.getSchema() : trigger
+                .getSourceSchemaName();
+        String tableName = trigger.isSourceTableNameWildCarded() ? table.getName() : trigger
+                .getSourceTableName();
+        TriggerHistory activeHistory = null;
+        synchronized (activeTriggerHistories) {
+            for (TriggerHistory triggerHistory : activeTriggerHistories) {
+                if (triggerHistory.getTriggerId().equals(trigger.getTriggerId())
+                        && tableName.equals(triggerHistory.getSourceTableName())
+                        && isSameCatalogAndSchema(triggerHistory, catalogName, schemaName)) {
+                    activeHistory = triggerHistory;
+                    break;
+                }
+            }
+        }
+        return activeHistory != null
+                && table.calculateTableHashcode() == activeHistory.getTableHash()
+                && !trigger.hasChangedSinceLastTriggerBuild(activeHistory.getCreateTime())
+                && trigger.toHashedValue() == activeHistory.getTriggerRowHash()
+                && symmetricDialect.getTriggerTemplate().toHashedValue() == activeHistory
+                        .getTriggerTemplateHash();
+    }
+
     protected TriggerHistory rebuildTriggerIfNecessary(StringBuilder sqlBuffer,
             boolean forceRebuild, Trigger trigger, DataEventType dmlType,
             TriggerReBuildReason reason, TriggerHistory oldhist, TriggerHistory hist,
@@ -55,12 +55,20 @@ public interface IStatisticManager {
     
     public void removeRouterStatsByBatch(Long batchId);
 
+    public void setRouterStatsByChannel(String channelId, RouterStats routerStats);
+
+    public Map<String, RouterStats> getRouterStatsByChannel();
+
     public void incrementDataLoadedErrors(String channelId, long count);
 
     public void incrementDataBytesLoaded(String channelId, long count);
     
     public void incrementDataLoaded(String channelId, long count);
 
+    public void addLoadStats(String channelId, long statementCount, long byteCount, long loadMillis);
+
+    public Map<String, LoadStats> getLoadStatsByChannel();
+
     public void incrementDataBytesSent(String channelId, long count);
     
     public void incrementDataSent(String channelId, long count);
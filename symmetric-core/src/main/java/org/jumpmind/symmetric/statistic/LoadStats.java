@@ -0,0 +1,94 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals of the batches a channel has loaded since startup.
+ */
+public class LoadStats {
+
+    private String channelId;
+
+    private AtomicLong batchCount = new AtomicLong();
+
+    private AtomicLong statementCount = new AtomicLong();
+
+    private AtomicLong byteCount = new AtomicLong();
+
+    private AtomicLong loadMillis = new AtomicLong();
+
+    public LoadStats(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public void add(long statementCount, long byteCount, long loadMillis) {
+        this.batchCount.incrementAndGet();
+        this.statementCount.addAndGet(statementCount);
+        this.byteCount.addAndGet(byteCount);
+        this.loadMillis.addAndGet(loadMillis);
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getStatementCount() {
+        return statementCount.get();
+    }
+
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    /**
+     * @return the total time spent loading batches. Batches of different
+     *         channels load at the same time, so the totals of all channels
+     *         can add up to more than the elapsed time.
+     */
+    public long getLoadMillis() {
+        return loadMillis.get();
+    }
+
+    public long getStatementsPerSecond() {
+        long millis = loadMillis.get();
+        return millis > 0 ? statementCount.get() * 1000 / millis : 0;
+    }
+
+    public long getBytesPerSecond() {
+        long millis = loadMillis.get();
+        return millis > 0 ? byteCount.get() * 1000 / millis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "channel=%s, batches=%d, statements=%d, bytes=%d, loadMs=%d, statements/s=%d, bytes/s=%d",
+                channelId, getBatchCount(), getStatementCount(), getByteCount(), getLoadMillis(),
+                getStatementsPerSecond(), getBytesPerSecond());
+    }
+
+}
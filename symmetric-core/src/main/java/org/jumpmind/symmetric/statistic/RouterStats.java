@@ -38,6 +38,18 @@ public class RouterStats {
     private List<DataGap> dataGaps;
     
     private Set<String> transactions;
+
+    private String channelId;
+
+    private String threadName;
+
+    private long startTime;
+
+    private long endTime;
+
+    private long dataRoutedCount;
+
+    private long dataEventsInsertedCount;
     
     public RouterStats() {
     }
@@ -52,11 +64,22 @@ public class RouterStats {
         this.transactions = transactions;
     }
     
+    /**
+     * @return the wall clock time in milliseconds that the channel spent being
+     *         routed
+     */
+    public long getRouteTimeMs() {
+        return endTime > startTime ? endTime - startTime : 0;
+    }
+
     @Override
     public String toString() {
-        return "{ startDataId: " + startDataId + ", endDataId: " + endDataId + ", dataReadCount: " + dataReadCount +
-                ", peekAheadFillCount: " + peekAheadFillCount + ", dataGaps: " + dataGaps.toString() + 
-                ", transactions: " + transactions.toString() + " }";
+        return "{ " + (channelId != null ? "channelId: " + channelId + ", threadName: " + threadName
+                + ", routeTimeMs: " + getRouteTimeMs() + ", dataRoutedCount: " + dataRoutedCount
+                + ", dataEventsInsertedCount: " + dataEventsInsertedCount + ", " : "")
+                + "startDataId: " + startDataId + ", endDataId: " + endDataId + ", dataReadCount: " + dataReadCount +
+                ", peekAheadFillCount: " + peekAheadFillCount + ", dataGaps: " + dataGaps + 
+                ", transactions: " + transactions + " }";
     }
 
     public long getStartDataId() {
@@ -106,4 +129,52 @@ public class RouterStats {
     public void setTransactions(Set<String> transactions) {
         this.transactions = transactions;
     }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public void setChannelId(String channelId) {
+        this.channelId = channelId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public void setThreadName(String threadName) {
+        this.threadName = threadName;
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(long startTime) {
+        this.startTime = startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(long endTime) {
+        this.endTime = endTime;
+    }
+
+    public long getDataRoutedCount() {
+        return dataRoutedCount;
+    }
+
+    public void setDataRoutedCount(long dataRoutedCount) {
+        this.dataRoutedCount = dataRoutedCount;
+    }
+
+    public long getDataEventsInsertedCount() {
+        return dataEventsInsertedCount;
+    }
+
+    public void setDataEventsInsertedCount(long dataEventsInsertedCount) {
+        this.dataEventsInsertedCount = dataEventsInsertedCount;
+    }
 }
@@ -69,6 +69,10 @@ public class StatisticManager implements IStatisticManager {
 
     private ConcurrentHashMap<Long, RouterStats> routerStatsByBatch = new ConcurrentHashMap<Long, RouterStats>();
 
+    private ConcurrentHashMap<String, RouterStats> routerStatsByChannel = new ConcurrentHashMap<String, RouterStats>();
+
+    private ConcurrentHashMap<String, LoadStats> loadStatsByChannel = new ConcurrentHashMap<String, LoadStats>();
+
     protected INodeService nodeService;
 
     protected IStatisticService statisticService;
@@ -194,6 +198,14 @@ public class StatisticManager implements IStatisticManager {
         routerStatsByBatch.remove(batchId);
     }
 
+    public void setRouterStatsByChannel(String channelId, RouterStats routerStats) {
+        routerStatsByChannel.put(channelId, routerStats);
+    }
+
+    public Map<String, RouterStats> getRouterStatsByChannel() {
+        return new HashMap<String, RouterStats>(routerStatsByChannel);
+    }
+
     public void incrementDataRouted(String channelId, long count) {
         channelStatsLock.acquireUninterruptibly();
         try {
@@ -284,6 +296,25 @@ public class StatisticManager implements IStatisticManager {
         }
     }
 
+    public void addLoadStats(String channelId, long statementCount, long byteCount, long loadMillis) {
+        if (channelId == null) {
+            channelId = UNKNOWN;
+        }
+        LoadStats stats = loadStatsByChannel.get(channelId);
+        if (stats == null) {
+            stats = new LoadStats(channelId);
+            LoadStats existing = loadStatsByChannel.putIfAbsent(channelId, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        stats.add(statementCount, byteCount, loadMillis);
+    }
+
+    public Map<String, LoadStats> getLoadStatsByChannel() {
+        return new HashMap<String, LoadStats>(loadStatsByChannel);
+    }
+
     public void incrementDataBytesLoaded(String channelId, long count) {
         channelStatsLock.acquireUninterruptibly();
         try {
@@ -362,4 +362,91 @@ public class ColumnMatchDataRouterTest {
         assertEquals(true, result.contains("100"));
         assertEquals(true, result.contains("300"));
     }
+
+    @Test
+    public void testExpressionEqualsOldColumnOnUpdate() {
+        ColumnMatchDataRouter router = new ColumnMatchDataRouter();
+        SimpleRouterContext routingContext = new SimpleRouterContext();
+        HashSet<Node> nodes = new HashSet<Node>();
+        nodes.add(new Node("100", "client"));
+        nodes.add(new Node("200", "client"));
+
+        TriggerHistory triggerHist = new TriggerHistory("mytable","ID","ID,NODE_ID,COLUMN2");
+        Data data = new Data();
+        data.setDataId(1);
+        data.setDataEventType(DataEventType.UPDATE);
+        data.setRowData("1,100,Super Dooper");
+        data.setOldData("1,200,Super Dooper");
+        data.setTriggerHistory(triggerHist);
+        Table table = new Table();
+        NodeChannel nodeChannel = new NodeChannel();
+        Router route = new Router();
+        route.setRouterExpression("old_node_id = :NODE_ID");
+        route.setRouterId("route1");
+        DataMetaData dataMetaData = new DataMetaData(data, table, route, nodeChannel);
+
+        Set<String> result = router.routeToNodes(routingContext, dataMetaData, nodes, false, false, null);
+        assertEquals(1, result.size());
+        assertEquals(true, result.contains("200"));
+    }
+
+    @Test
+    public void testExpressionUsesPkDataForDeleteWithoutOldData() {
+        ColumnMatchDataRouter router = new ColumnMatchDataRouter();
+        SimpleRouterContext routingContext = new SimpleRouterContext();
+        HashSet<Node> nodes = new HashSet<Node>();
+        nodes.add(new Node("100", "client"));
+        nodes.add(new Node("200", "client"));
+
+        TriggerHistory triggerHist = new TriggerHistory("mytable","NODE_ID","NODE_ID,COLUMN2");
+        Data data = new Data();
+        data.setDataId(1);
+        data.setDataEventType(DataEventType.DELETE);
+        data.setPkData("200");
+        data.setTriggerHistory(triggerHist);
+        Table table = new Table();
+        NodeChannel nodeChannel = new NodeChannel();
+        Router route = new Router();
+        route.setRouterExpression("NODE_ID = :NODE_ID");
+        route.setRouterId("route1");
+        DataMetaData dataMetaData = new DataMetaData(data, table, route, nodeChannel);
+
+        Set<String> result = router.routeToNodes(routingContext, dataMetaData, nodes, false, false, null);
+        assertEquals(1, result.size());
+        assertEquals(true, result.contains("200"));
+    }
+
+    @Test
+    public void testExpressionContainsExternalIdAfterNodesChange() {
+        ColumnMatchDataRouter router = new ColumnMatchDataRouter();
+        SimpleRouterContext routingContext = new SimpleRouterContext();
+        HashSet<Node> nodes = new HashSet<Node>();
+        nodes.add(new Node("1", "client"));
+        nodes.add(new Node("2", "client"));
+        nodes.add(new Node("3", "client"));
+
+        TriggerHistory triggerHist = new TriggerHistory("mytable","ID","ID,STORE_IDS");
+        Data data = new Data();
+        data.setDataId(1);
+        data.setDataEventType(DataEventType.INSERT);
+        data.setRowData("1,\"1,3,4\"");
+        data.setTriggerHistory(triggerHist);
+        Table table = new Table();
+        NodeChannel nodeChannel = new NodeChannel();
+        Router route = new Router();
+        route.setRouterExpression("STORE_IDS contains :EXTERNAL_ID");
+        route.setRouterId("route1");
+        DataMetaData dataMetaData = new DataMetaData(data, table, route, nodeChannel);
+
+        Set<String> result = router.routeToNodes(routingContext, dataMetaData, nodes, false, false, null);
+        assertEquals(2, result.size());
+        assertEquals(true, result.contains("1"));
+        assertEquals(true, result.contains("3"));
+
+        nodes = new HashSet<Node>(nodes);
+        nodes.add(new Node("4", "client"));
+        result = router.routeToNodes(routingContext, dataMetaData, nodes, false, false, null);
+        assertEquals(3, result.size());
+        assertEquals(true, result.contains("4"));
+    }
 }
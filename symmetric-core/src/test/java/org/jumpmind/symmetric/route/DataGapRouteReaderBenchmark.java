@@ -0,0 +1,206 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlReadCursor;
+import org.jumpmind.db.sql.ISqlRowMapper;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.symmetric.AbstractSymmetricEngine;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.AbstractSymmetricDialect;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.Data;
+import org.jumpmind.symmetric.model.DataGap;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeChannel;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.impl.DataService;
+import org.jumpmind.symmetric.service.impl.ExtensionService;
+import org.jumpmind.symmetric.service.impl.NodeService;
+import org.jumpmind.symmetric.service.impl.ParameterService;
+import org.jumpmind.symmetric.service.impl.RouterService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.StatisticManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long the {@link DataGapRouteReader} takes to read a channel's
+ * data through the peek ahead queue and the data gaps. Rows from several
+ * transactions are interleaved so the reader has to pull transactions out of
+ * the middle of the peek ahead queue.
+ * <p>
+ * Run with <code>gradle :symmetric-core:benchmark -Pbenchmarks=DataGapRouteReaderBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataGapRouteReaderBenchmark {
+
+    static final String NODE_ID = "00000";
+
+    @Param({ "100000" })
+    int dataCount;
+
+    @Param({ "2000", "50000" })
+    int peekAheadWindow;
+
+    @Param({ "10", "50000" })
+    int gapCount;
+
+    @Param({ "1", "16" })
+    int concurrentTransactions;
+
+    ISymmetricEngine engine;
+
+    NodeChannel nodeChannel;
+
+    ISqlTemplate sqlTemplate;
+
+    List<Data> data;
+
+    DataGapRouteReader reader;
+
+    @Setup(Level.Trial)
+    public void setupEngine() throws Exception {
+        nodeChannel = new NodeChannel("benchmark");
+        nodeChannel.setMaxDataToRoute(Integer.MAX_VALUE);
+        nodeChannel.setBatchAlgorithm(DefaultBatchAlgorithm.NAME);
+
+        IParameterService parameterService = mock(ParameterService.class);
+        when(parameterService.getEngineName()).thenReturn("benchmark");
+        when(parameterService.is(ParameterConstants.SYNCHRONIZE_ALL_JOBS)).thenReturn(true);
+        when(parameterService.getInt(ParameterConstants.ROUTING_WAIT_FOR_DATA_TIMEOUT_SECONDS))
+                .thenReturn(330);
+        when(parameterService.getInt(ParameterConstants.ROUTING_PEEK_AHEAD_MEMORY_THRESHOLD))
+                .thenReturn(100);
+        when(parameterService.getInt(ParameterConstants.ROUTING_PEEK_AHEAD_WINDOW)).thenReturn(
+                peekAheadWindow);
+        when(parameterService.getInt(ParameterConstants.ROUTING_MAX_GAPS_TO_QUALIFY_IN_SQL))
+                .thenReturn(100);
+        when(
+                parameterService
+                        .getInt(ParameterConstants.ROUTING_DATA_READER_THRESHOLD_GAPS_TO_USE_GREATER_QUERY))
+                .thenReturn(100);
+
+        IStatisticManager statisticManager = mock(StatisticManager.class);
+        when(statisticManager.newProcessInfo((ProcessInfoKey) any())).thenReturn(new ProcessInfo());
+
+        INodeService nodeService = mock(NodeService.class);
+        when(nodeService.findIdentity()).thenReturn(new Node(NODE_ID, "benchmark"));
+
+        sqlTemplate = mock(ISqlTemplate.class);
+        IDatabasePlatform platform = mock(IDatabasePlatform.class);
+        when(platform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(platform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+
+        ISymmetricDialect symmetricDialect = mock(AbstractSymmetricDialect.class);
+        when(symmetricDialect.supportsTransactionId()).thenReturn(true);
+        when(symmetricDialect.getPlatform()).thenReturn(platform);
+
+        List<DataGap> dataGaps = new ArrayList<DataGap>(gapCount);
+        long idsPerGap = Math.max(1, dataCount / gapCount);
+        for (int i = 0; i < gapCount - 1; i++) {
+            dataGaps.add(new DataGap(i * idsPerGap + 1, (i + 1) * idsPerGap));
+        }
+        dataGaps.add(new DataGap((gapCount - 1) * idsPerGap + 1, Long.MAX_VALUE));
+
+        DataService dataService = mock(DataService.class);
+        when(dataService.findDataGaps()).thenReturn(dataGaps);
+
+        engine = mock(AbstractSymmetricEngine.class);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getStatisticManager()).thenReturn(statisticManager);
+        when(engine.getNodeService()).thenReturn(nodeService);
+        when(engine.getDataService()).thenReturn(dataService);
+        when(engine.getSymmetricDialect()).thenReturn(symmetricDialect);
+        when(engine.getExtensionService()).thenReturn(mock(ExtensionService.class));
+        when(engine.getRouterService()).thenReturn(new RouterService(engine));
+
+        data = new ArrayList<Data>(dataCount);
+        for (int i = 1; i <= dataCount; i++) {
+            data.add(new Data(i, null, null, null, "table1", null, null, null, Integer
+                    .toString(i % concurrentTransactions), null));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Invocation)
+    public void setupReader() throws Exception {
+        when(
+                sqlTemplate.queryForCursor((String) any(), (ISqlRowMapper<Data>) any(),
+                        (Object[]) any(), (int[]) any())).thenReturn(new ListReadCursor(data));
+        reader = new DataGapRouteReader(new ChannelRouterContext(NODE_ID, nodeChannel,
+                mock(ISqlTransaction.class)), engine);
+    }
+
+    @Benchmark
+    public int readAllData() {
+        reader.execute();
+        return reader.getDataQueue().size();
+    }
+
+    static class ListReadCursor implements ISqlReadCursor<Data> {
+
+        Iterator<Data> iterator;
+
+        public ListReadCursor(List<Data> list) {
+            this.iterator = list.iterator();
+        }
+
+        public Data next() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        public void close() {
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DataIdRangeSetTest {
+
+    @Test
+    public void testConsecutiveIdsAreMerged() {
+        DataIdRangeSet set = new DataIdRangeSet(1);
+        set.addAll(Arrays.asList(5l, 3l, 4l, 10l, 8l, 9l, 4l));
+        assertEquals(2, set.getRangeCount());
+        assertEquals("[3-5, 8-10]", set.getRanges(0, 100).toString());
+        set.add(7);
+        set.add(6);
+        assertEquals(1, set.getRangeCount());
+        assertEquals("[3-10]", set.getRanges(0, 100).toString());
+    }
+
+    @Test
+    public void testIncrementBy() {
+        DataIdRangeSet set = new DataIdRangeSet(10);
+        set.addAll(Arrays.asList(1l, 21l, 11l, 41l));
+        assertEquals("[1-21, 41-41]", set.getRanges(0, 100).toString());
+        assertTrue(set.contains(11));
+        assertFalse(set.contains(12));
+        assertFalse(set.contains(31));
+    }
+
+    @Test
+    public void testGetRangesIsTrimmedToIdsInTheSet() {
+        DataIdRangeSet set = new DataIdRangeSet(10);
+        set.addAll(Arrays.asList(1l, 11l, 21l, 31l, 61l));
+        List<DataIdRangeSet.Range> ranges = set.getRanges(5, 25);
+        assertEquals(1, ranges.size());
+        assertEquals(11, ranges.get(0).getStartId());
+        assertEquals(21, ranges.get(0).getEndId());
+        assertEquals("[61-61]", set.getRanges(32, 61).toString());
+        assertEquals(0, set.getRanges(32, 60).size());
+        assertEquals(0, set.getRanges(25, 5).size());
+    }
+
+    @Test
+    public void testRemoveBefore() {
+        DataIdRangeSet set = new DataIdRangeSet(1);
+        set.addAll(Arrays.asList(1l, 2l, 3l, 4l, 10l, 20l, 21l));
+        set.removeBefore(3);
+        assertEquals("[3-4, 10-10, 20-21]", set.getRanges(0, 100).toString());
+        set.removeBefore(11);
+        assertEquals("[20-21]", set.getRanges(0, 100).toString());
+        set.removeBefore(22);
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testUnalignedIdInsideRange() {
+        DataIdRangeSet set = new DataIdRangeSet(10);
+        set.addAll(Arrays.asList(1l, 11l, 21l, 31l));
+        assertFalse(set.contains(15));
+        set.add(15);
+        assertTrue(set.contains(15));
+        assertTrue(set.contains(11));
+        assertTrue(set.contains(21));
+        assertFalse(set.contains(25));
+        assertEquals(3, set.getRangeCount());
+        assertEquals("[1-11, 15-15, 21-31]", set.getRanges(0, 100).toString());
+        set.add(21);
+        assertEquals(3, set.getRangeCount());
+        set.add(35);
+        assertEquals("[1-11, 15-15, 21-31, 35-35]", set.getRanges(0, 100).toString());
+    }
+
+}
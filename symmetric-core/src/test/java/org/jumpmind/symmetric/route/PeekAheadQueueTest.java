@@ -0,0 +1,122 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jumpmind.symmetric.model.Data;
+import org.junit.Test;
+
+public class PeekAheadQueueTest {
+
+    @Test
+    public void testPollInReadOrder() {
+        PeekAheadQueue queue = new PeekAheadQueue();
+        queue.add(data(1, "1"));
+        queue.add(data(2, "2"));
+        queue.add(data(3, null));
+        assertEquals(3, queue.size());
+        assertEquals(1, queue.poll().getDataId());
+        assertEquals(2, queue.poll().getDataId());
+        assertEquals(3, queue.poll().getDataId());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testPollByTransaction() {
+        PeekAheadQueue queue = new PeekAheadQueue();
+        queue.add(data(1, "1"));
+        queue.add(data(2, "2"));
+        queue.add(data(3, "1"));
+        queue.add(data(4, null));
+        queue.add(data(5, "1"));
+
+        assertEquals(1, queue.poll("1").getDataId());
+        assertEquals(3, queue.poll("1").getDataId());
+        assertEquals(3, queue.getLastPolledSequence());
+        assertEquals(5, queue.poll("1").getDataId());
+        assertNull(queue.poll("1"));
+        assertFalse(queue.containsTransaction("1"));
+        assertNull(queue.poll((String) null));
+
+        assertEquals(2, queue.size());
+        assertEquals(2, queue.poll().getDataId());
+        assertFalse(queue.containsTransaction("2"));
+        assertEquals(4, queue.poll().getDataId());
+    }
+
+    @Test
+    public void testCountAfter() {
+        PeekAheadQueue queue = new PeekAheadQueue();
+        for (int i = 1; i <= 10; i++) {
+            queue.add(data(i, Integer.toString(i % 2)));
+        }
+        queue.poll("0");
+        queue.poll("0");
+        assertEquals(4, queue.getLastPolledSequence());
+        assertEquals(6, queue.countAfter(queue.getLastPolledSequence()));
+        assertEquals(8, queue.countAfter(0));
+        queue.poll();
+        assertEquals(6, queue.countAfter(4));
+        assertEquals(0, queue.countAfter(10));
+    }
+
+    @Test
+    public void testCountAfterWhenWindowMovesPastTreeSize() {
+        PeekAheadQueue queue = new PeekAheadQueue();
+        queue.add(data(1, "stuck"));
+        for (int i = 2; i <= 4001; i++) {
+            queue.add(data(i, "moving"));
+            queue.poll("moving");
+        }
+        for (int i = 4002; i <= 4011; i++) {
+            queue.add(data(i, null));
+        }
+        assertEquals(11, queue.size());
+        assertEquals(11, queue.countAfter(0));
+        assertEquals(10, queue.countAfter(1));
+        assertEquals(5, queue.countAfter(4006));
+
+        assertEquals(1, queue.poll().getDataId());
+        for (int i = 4012; i <= 9000; i++) {
+            queue.add(data(i, null));
+            queue.poll();
+        }
+        assertEquals(10, queue.size());
+        assertEquals(10, queue.countAfter(1));
+        assertEquals(3, queue.countAfter(8997));
+
+        queue.clear();
+        assertEquals(0, queue.size());
+        queue.add(data(9001, "1"));
+        assertEquals(1, queue.countAfter(0));
+        assertEquals(0, queue.countAfter(9001));
+    }
+
+    protected Data data(long dataId, String transactionId) {
+        return new Data(dataId, null, null, null, "table1", null, null, null, transactionId,
+                null);
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.route;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class SubSelectDataRouterTest {
+
+    @Test
+    public void testParseParameters() {
+        SubSelectDataRouter router = new SubSelectDataRouter(null);
+        List<String> parameters = router.parseParameters(
+                "c.external_id in (select home_store from employee where employee_id in (:EMPLOYEE_ID, :OLD_EMPLOYEE_ID)) " +
+                "and c.node_group_id=:NODE_GROUP_ID and :EMPLOYEE_ID::varchar is not null");
+        assertEquals(2, parameters.size());
+        assertEquals("EMPLOYEE_ID", parameters.get(0));
+        assertEquals("OLD_EMPLOYEE_ID", parameters.get(1));
+    }
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.mapper.NumberMapper;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.io.stage.IStagedResource.State;
+import org.jumpmind.symmetric.io.stage.IStagingManager;
+import org.jumpmind.symmetric.model.BatchAck;
+import org.jumpmind.symmetric.model.BatchAckResult;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.OutgoingBatch.Status;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.IOutgoingBatchService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IRegistrationService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AcknowledgeServiceTest {
+
+    IOutgoingBatchService outgoingBatchService;
+
+    IRegistrationService registrationService;
+
+    IStatisticManager statisticManager;
+
+    IStagingManager stagingManager;
+
+    ISqlTemplate sqlTemplate;
+
+    ISqlTransaction transaction;
+
+    AcknowledgeService acknowledgeService;
+
+    @Before
+    public void setup() {
+        ISymmetricEngine engine = mock(ISymmetricEngine.class);
+        IParameterService parameterService = mock(IParameterService.class);
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        IDatabasePlatform databasePlatform = mock(IDatabasePlatform.class);
+        outgoingBatchService = mock(IOutgoingBatchService.class);
+        registrationService = mock(IRegistrationService.class);
+        statisticManager = mock(IStatisticManager.class);
+        stagingManager = mock(IStagingManager.class);
+        sqlTemplate = mock(ISqlTemplate.class);
+        transaction = mock(ISqlTransaction.class);
+        when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(databasePlatform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(transaction);
+        when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getSymmetricDialect()).thenReturn(symmetricDialect);
+        when(engine.getOutgoingBatchService()).thenReturn(outgoingBatchService);
+        when(engine.getRegistrationService()).thenReturn(registrationService);
+        when(engine.getStatisticManager()).thenReturn(statisticManager);
+        when(engine.getStagingManager()).thenReturn(stagingManager);
+        when(engine.getExtensionService()).thenReturn(mock(IExtensionService.class));
+        when(engine.getConfigurationService()).thenReturn(mock(IConfigurationService.class));
+        acknowledgeService = new AcknowledgeService(engine);
+    }
+
+    @Test
+    public void testAcksAreLookedUpPerNodeAndUpdatedTogether() {
+        OutgoingBatch batch1 = newOutgoingBatch("00001", 1);
+        OutgoingBatch batch2 = newOutgoingBatch("00001", 2);
+        OutgoingBatch batch3 = newOutgoingBatch("00002", 3);
+        when(outgoingBatchService.findOutgoingBatches("00001", Arrays.asList(1l, 2l)))
+                .thenReturn(Arrays.asList(batch1, batch2));
+        when(outgoingBatchService.findOutgoingBatches("00002", Arrays.asList(3l))).thenReturn(
+                Arrays.asList(batch3));
+        IStagedResource resource = mock(IStagedResource.class);
+        when(stagingManager.find(Constants.STAGING_CATEGORY_OUTGOING, "00001", 2l)).thenReturn(
+                resource);
+
+        List<BatchAckResult> results = acknowledgeService.ack(Arrays.asList(newAck("00001", 1),
+                newAck("00001", 2), newAck("00002", 3)));
+
+        assertEquals(3, results.size());
+        for (BatchAckResult result : results) {
+            assertTrue(result.isOk());
+        }
+        for (OutgoingBatch batch : new OutgoingBatch[] { batch1, batch2, batch3 }) {
+            assertEquals(Status.OK, batch.getStatus());
+            verify(statisticManager).removeRouterStatsByBatch(batch.getBatchId());
+        }
+        verify(resource).setState(State.DONE);
+        verify(outgoingBatchService).updateOutgoingBatches(transaction,
+                Arrays.asList(batch1, batch2, batch3));
+        verify(transaction).commit();
+        verify(outgoingBatchService, never()).findOutgoingBatch(anyLong(), anyString());
+        verify(outgoingBatchService, never()).updateOutgoingBatch(any(OutgoingBatch.class));
+    }
+
+    @Test
+    public void testAckOfMissingBatch() {
+        OutgoingBatch batch1 = newOutgoingBatch("00001", 1);
+        when(outgoingBatchService.findOutgoingBatches("00001", Arrays.asList(1l, 2l)))
+                .thenReturn(Arrays.asList(batch1));
+
+        List<BatchAckResult> results = acknowledgeService.ack(Arrays.asList(newAck("00001", 1),
+                newAck("00001", 2)));
+
+        assertTrue(results.get(0).isOk());
+        assertFalse(results.get(1).isOk());
+        verify(outgoingBatchService).updateOutgoingBatches(transaction, Arrays.asList(batch1));
+    }
+
+    @Test
+    public void testAckInError() {
+        OutgoingBatch batch1 = newOutgoingBatch("00001", 1);
+        OutgoingBatch batch2 = newOutgoingBatch("00001", 2);
+        when(outgoingBatchService.findOutgoingBatches("00001", Arrays.asList(1l, 2l)))
+                .thenReturn(Arrays.asList(batch1, batch2));
+        when(sqlTemplate.query(anyString(), any(NumberMapper.class), eq(2l))).thenReturn(
+                Arrays.<Number> asList(10, 11, 12));
+        BatchAck errorAck = new BatchAck(2, 2);
+        errorAck.setNodeId("00001");
+        errorAck.setSqlMessage("failed");
+
+        List<BatchAckResult> results = acknowledgeService.ack(Arrays.asList(newAck("00001", 1),
+                errorAck));
+
+        assertTrue(results.get(1).isOk());
+        assertEquals(Status.OK, batch1.getStatus());
+        assertEquals(Status.ER, batch2.getStatus());
+        assertTrue(batch2.isErrorFlag());
+        assertEquals("failed", batch2.getSqlMessage());
+        assertEquals(11, batch2.getFailedDataId());
+        verify(statisticManager).removeRouterStatsByBatch(1l);
+        verify(statisticManager, never()).removeRouterStatsByBatch(2l);
+    }
+
+    @Test
+    public void testFailedUpdateIsRolledBack() {
+        OutgoingBatch batch1 = newOutgoingBatch("00001", 1);
+        OutgoingBatch batch2 = newOutgoingBatch("00001", 2);
+        when(outgoingBatchService.findOutgoingBatches("00001", Arrays.asList(1l, 2l)))
+                .thenReturn(Arrays.asList(batch1, batch2));
+        RuntimeException failure = new RuntimeException("update failed");
+        doThrow(failure).when(outgoingBatchService).updateOutgoingBatches(eq(transaction),
+                anyListOf(OutgoingBatch.class));
+
+        try {
+            acknowledgeService.ack(Arrays.asList(newAck("00001", 1), newAck("00001", 2)));
+            fail("The update failure should have been thrown");
+        } catch (RuntimeException ex) {
+            assertEquals(failure, ex);
+        }
+        verify(transaction).rollback();
+        verify(transaction).close();
+        verify(transaction, never()).commit();
+        verify(statisticManager, never()).removeRouterStatsByBatch(anyLong());
+    }
+
+    @Test
+    public void testRegistrationAck() {
+        OutgoingBatch batch1 = newOutgoingBatch("00001", 1);
+        when(outgoingBatchService.findOutgoingBatches("00001", Arrays.asList(1l))).thenReturn(
+                Arrays.asList(batch1));
+
+        List<BatchAckResult> results = acknowledgeService.ack(Arrays.asList(
+                newAck("00001", Constants.VIRTUAL_BATCH_FOR_REGISTRATION), newAck("00001", 1)));
+
+        assertTrue(results.get(0).isOk());
+        verify(registrationService).markNodeAsRegistered("00001");
+        verify(outgoingBatchService).updateOutgoingBatches(transaction, Arrays.asList(batch1));
+    }
+
+    @Test
+    public void testSingleAck() {
+        OutgoingBatch batch1 = newOutgoingBatch("00001", 1);
+        when(outgoingBatchService.findOutgoingBatch(1, "00001")).thenReturn(batch1);
+
+        List<BatchAckResult> results = acknowledgeService.ack(Arrays.asList(newAck("00001", 1)));
+
+        assertTrue(results.get(0).isOk());
+        assertEquals(Status.OK, batch1.getStatus());
+        verify(outgoingBatchService).updateOutgoingBatch(batch1);
+        verify(sqlTemplate, never()).startSqlTransaction();
+    }
+
+    protected BatchAck newAck(String nodeId, long batchId) {
+        BatchAck ack = new BatchAck(batchId);
+        ack.setNodeId(nodeId);
+        return ack;
+    }
+
+    protected OutgoingBatch newOutgoingBatch(String nodeId, long batchId) {
+        OutgoingBatch batch = new OutgoingBatch(nodeId, "default", Status.LD);
+        batch.setBatchId(batchId);
+        return batch;
+    }
+
+}
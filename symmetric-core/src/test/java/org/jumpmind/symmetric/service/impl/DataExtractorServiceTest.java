@@ -0,0 +1,592 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.io.data.IDataWriter;
+import org.jumpmind.symmetric.io.data.transform.TransformPoint;
+import org.jumpmind.symmetric.io.data.writer.StagingDataWriter;
+import org.jumpmind.symmetric.io.data.writer.StructureDataWriter;
+import org.jumpmind.symmetric.io.data.writer.StructureDataWriter.PayloadType;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.io.stage.StagingManager;
+import org.jumpmind.symmetric.model.Channel;
+import org.jumpmind.symmetric.model.ChannelMap;
+import org.jumpmind.symmetric.model.ExtractRequest;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeGroupLink;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.OutgoingBatchWithPayload;
+import org.jumpmind.symmetric.model.OutgoingBatches;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.Router;
+import org.jumpmind.symmetric.model.Trigger;
+import org.jumpmind.symmetric.model.TriggerHistory;
+import org.jumpmind.symmetric.model.TriggerRouter;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IDataExtractorService.IPayloadListener;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.IOutgoingBatchService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.ITransformService;
+import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataExtractorServiceTest {
+
+    final static String STAGING_DIR = "target/test/staging.extractor";
+
+    final static Table TABLE = new Table("test_table", new Column("id", true), new Column("name"));
+
+    final static Table INTEGER_KEY_TABLE = new Table("test_table", new Column("id", true,
+            Types.INTEGER, 0, 0), new Column("name"));
+
+    IParameterService parameterService;
+
+    ITransformService transformService;
+
+    IOutgoingBatchService outgoingBatchService;
+
+    IConfigurationService configurationService;
+
+    StagingManager stagingManager;
+
+    IDatabasePlatform databasePlatform;
+
+    ISqlTemplate sqlTemplate;
+
+    DataExtractorService dataExtractorService;
+
+    Node sourceNode = new Node("00000", "corp");
+
+    Set<Long> pendingRequestIds = new HashSet<Long>();
+
+    int sharedExtractCount;
+
+    List<Integer> payloadsLeftAtEachExtract = new ArrayList<Integer>();
+
+    List<String> extractedPartitions = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(STAGING_DIR));
+        stagingManager = new StagingManager(STAGING_DIR);
+        ISymmetricEngine engine = mock(ISymmetricEngine.class);
+        parameterService = mock(IParameterService.class);
+        transformService = mock(ITransformService.class);
+        outgoingBatchService = mock(IOutgoingBatchService.class);
+        configurationService = mock(IConfigurationService.class);
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        databasePlatform = mock(IDatabasePlatform.class);
+        sqlTemplate = mock(ISqlTemplate.class);
+        when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(databasePlatform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
+        when(symmetricDialect.getInitialLoadTableAlias()).thenReturn("t");
+        when(symmetricDialect.getBinaryEncoding()).thenReturn(BinaryEncoding.BASE64);
+        when(engine.getDatabasePlatform()).thenReturn(databasePlatform);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getSymmetricDialect()).thenReturn(symmetricDialect);
+        when(engine.getExtensionService()).thenReturn(mock(IExtensionService.class));
+        when(engine.getTransformService()).thenReturn(transformService);
+        when(engine.getStagingManager()).thenReturn(stagingManager);
+        when(engine.getOutgoingBatchService()).thenReturn(outgoingBatchService);
+        when(engine.getConfigurationService()).thenReturn(configurationService);
+        when(configurationService.getSuspendIgnoreChannelLists("00001")).thenReturn(
+                new ChannelMap());
+        when(parameterService.is(ParameterConstants.INITIAL_LOAD_EXTRACT_SHARED_ENABLED, false))
+                .thenReturn(true);
+        when(parameterService.getLong(ParameterConstants.STREAM_TO_FILE_THRESHOLD)).thenReturn(
+                100000l);
+        when(parameterService.getEngineName()).thenReturn("test");
+        when(parameterService.getInt(ParameterConstants.INITIAL_LOAD_EXTRACT_PARTITION_THREAD_COUNT, 4))
+                .thenReturn(2);
+        dataExtractorService = new DataExtractorService(engine) {
+            @Override
+            protected Set<Long> findExtractRequestIds(TriggerRouter triggerRouter) {
+                return new HashSet<Long>(pendingRequestIds);
+            }
+
+            @Override
+            protected void extractSharedExtract(ProcessInfo processInfo, Node sourceNode,
+                    Node targetNode, SelectFromTableEvent event, SharedExtract sharedExtract,
+                    Set<Long> requestIds, Channel channel) {
+                sharedExtractCount++;
+                sharedExtract.requestIds = Collections.synchronizedSet(requestIds);
+                sharedExtract.resource = stageSharedExtract(1000 + sharedExtractCount, 3);
+                sharedExtract.resource.reference();
+            }
+
+            @Override
+            protected List<OutgoingBatch> extract(ProcessInfo processInfo, Node targetNode,
+                    List<OutgoingBatch> activeBatches, IDataWriter dataWriter, ExtractMode mode,
+                    IExtractListener listener) {
+                StructureDataWriter writer = (StructureDataWriter) dataWriter;
+                for (OutgoingBatch batch : activeBatches) {
+                    writer.getPayloadMap().put(batch.getBatchId(),
+                            Arrays.asList("insert " + batch.getBatchId()));
+                    listener.batchExtracted(batch);
+                    payloadsLeftAtEachExtract.add(writer.getPayloadMap().size());
+                }
+                return activeBatches;
+            }
+
+            @Override
+            protected void extractInitialLoadPartition(ProcessInfo processInfo,
+                    Node sourceNode, Node targetNode, SelectFromTableEvent event,
+                    List<OutgoingBatch> partitionBatches, Channel channel) {
+                if (event.getInitialLoadSelect().contains("fail")) {
+                    throw new IllegalStateException();
+                }
+                StringBuilder partition = new StringBuilder(event.getInitialLoadSelect());
+                for (OutgoingBatch batch : partitionBatches) {
+                    partition.append(",").append(batch.getBatchId());
+                }
+                extractedPartitions.add(partition.toString());
+            }
+        };
+    }
+
+    @Test
+    public void testSharedExtractKey() {
+        TriggerRouter triggerRouter = newTriggerRouter("default", null);
+        String key = getSharedExtractKey(triggerRouter, "store");
+        assertNotNull(key);
+        assertEquals(key, getSharedExtractKey(triggerRouter, "store"));
+        assertFalse(key.equals(getSharedExtractKey(newTriggerRouter("default", "id > 10"),
+                "store")));
+        assertNotNull(getSharedExtractKey(newTriggerRouter(null, null), "store"));
+    }
+
+    @Test
+    public void testNoSharedExtractKeyForNodeSpecificSelects() {
+        assertNull(getSharedExtractKey(newTriggerRouter("default", "node_id='$(nodeId)'"),
+                "store"));
+        assertNull(getSharedExtractKey(newTriggerRouter("default", "id='$(externalId)'"),
+                "store"));
+        assertNull(getSharedExtractKey(newTriggerRouter("default", "grp='$(groupId)'"),
+                "store"));
+    }
+
+    @Test
+    public void testNoSharedExtractKeyForRouterTypes() {
+        assertNull(getSharedExtractKey(newTriggerRouter("column", null), "store"));
+        assertNull(getSharedExtractKey(newTriggerRouter("subselect", null), "store"));
+    }
+
+    @Test
+    public void testNoSharedExtractKeyWithExtractTransforms() {
+        List<TransformTableNodeGroupLink> transforms = new ArrayList<TransformTableNodeGroupLink>();
+        transforms.add(new TransformTableNodeGroupLink());
+        when(transformService.findTransformsFor(eq(new NodeGroupLink("corp", "region")),
+                eq(TransformPoint.EXTRACT))).thenReturn(transforms);
+        TriggerRouter triggerRouter = newTriggerRouter("default", null);
+        assertNull(getSharedExtractKey(triggerRouter, "region"));
+        assertNotNull(getSharedExtractKey(triggerRouter, "store"));
+    }
+
+    @Test
+    public void testNoSharedExtractKeyWhenDisabled() {
+        when(parameterService.is(ParameterConstants.INITIAL_LOAD_EXTRACT_SHARED_ENABLED, false))
+                .thenReturn(false);
+        assertNull(getSharedExtractKey(newTriggerRouter("default", null), "store"));
+    }
+
+    @Test
+    public void testSharedExtractIsNotUsedForOneRequest() {
+        pendingRequestIds.add(1l);
+        assertFalse(extractFromSharedExtract("key", 1, "00001", 1, 2));
+        assertEquals(0, sharedExtractCount);
+        assertTrue(dataExtractorService.sharedExtracts.isEmpty());
+    }
+
+    @Test
+    public void testSharedExtractIsCopiedToEachRequestAndThenRemoved() throws Exception {
+        pendingRequestIds.addAll(Arrays.asList(1l, 2l));
+        assertTrue(extractFromSharedExtract("key", 1, "00001", 1, 2));
+        assertEquals(1, dataExtractorService.sharedExtracts.size());
+        IStagedResource sharedResource = dataExtractorService.sharedExtracts.get("key").resource;
+
+        assertTrue(extractFromSharedExtract("key", 2, "00002", 3, 4));
+        assertEquals(1, sharedExtractCount);
+        assertTrue(dataExtractorService.sharedExtracts.isEmpty());
+        assertFalse(sharedResource.exists());
+
+        assertBatchIsLabeled(1, "00001", 2);
+        assertBatchIsLabeled(2, "00001", 1);
+        assertBatchIsLabeled(3, "00002", 2);
+        assertBatchIsLabeled(4, "00002", 1);
+    }
+
+    @Test
+    public void testSharedExtractIsExtractedAgainForLaterRequests() {
+        pendingRequestIds.addAll(Arrays.asList(1l, 2l));
+        assertTrue(extractFromSharedExtract("key", 1, "00001", 1, 2));
+        pendingRequestIds.add(3l);
+        assertTrue(extractFromSharedExtract("key", 3, "00003", 5, 6));
+        assertEquals(2, sharedExtractCount);
+        assertEquals(1, dataExtractorService.sharedExtracts.size());
+    }
+
+    @Test
+    public void testPurgedSharedExtractsAreForgotten() {
+        pendingRequestIds.addAll(Arrays.asList(1l, 2l));
+        assertTrue(extractFromSharedExtract("key", 1, "00001", 1, 2));
+        dataExtractorService.sharedExtracts.get("key").resource.delete();
+        dataExtractorService.purgeSharedExtracts();
+        assertTrue(dataExtractorService.sharedExtracts.isEmpty());
+    }
+
+    @Test
+    public void testSharedExtractIsNotCleanedFromStaging() throws Exception {
+        pendingRequestIds.addAll(Arrays.asList(1l, 2l));
+        assertTrue(extractFromSharedExtract("key", 1, "00001", 1, 2));
+        IStagedResource sharedResource = dataExtractorService.sharedExtracts.get("key").resource;
+        Thread.sleep(10);
+        stagingManager.clean(1);
+        assertTrue(sharedResource.exists());
+
+        assertTrue(extractFromSharedExtract("key", 2, "00002", 3, 4));
+        assertEquals(1, sharedExtractCount);
+        assertBatchIsLabeled(3, "00002", 2);
+        assertBatchIsLabeled(4, "00002", 1);
+        assertFalse(sharedResource.exists());
+    }
+
+    @Test
+    public void testExpiredSharedExtractsArePurged() throws Exception {
+        pendingRequestIds.addAll(Arrays.asList(1l, 2l));
+        assertTrue(extractFromSharedExtract("key", 1, "00001", 1, 2));
+        IStagedResource sharedResource = dataExtractorService.sharedExtracts.get("key").resource;
+        when(parameterService.getLong(ParameterConstants.STREAM_TO_FILE_TIME_TO_LIVE_MS))
+                .thenReturn(60000l);
+        dataExtractorService.purgeSharedExtracts();
+        assertEquals(1, dataExtractorService.sharedExtracts.size());
+
+        Thread.sleep(10);
+        when(parameterService.getLong(ParameterConstants.STREAM_TO_FILE_TIME_TO_LIVE_MS))
+                .thenReturn(1l);
+        dataExtractorService.purgeSharedExtracts();
+        assertTrue(dataExtractorService.sharedExtracts.isEmpty());
+        assertFalse(sharedResource.exists());
+    }
+
+    @Test
+    public void testMultiBatchStagingWriterRelabelsSharedBatch() throws Exception {
+        List<OutgoingBatch> batches = Arrays.asList(newOutgoingBatch(1, "00001"),
+                newOutgoingBatch(2, "00001"));
+        DataExtractorService.MultiBatchStagingWriter writer = dataExtractorService.new MultiBatchStagingWriter(
+                "00000", stagingManager, batches, 2);
+        writer.open(new DataContext());
+        Batch sharedBatch = new Batch(BatchType.EXTRACT, 1000, "reload", BinaryEncoding.BASE64,
+                "00000", "00001", true);
+        writer.start(sharedBatch);
+        writer.start(TABLE);
+        for (int i = 0; i < 3; i++) {
+            writer.write(new CsvData(DataEventType.INSERT, new String[] { "" + i, "name" + i }));
+        }
+        writer.end(TABLE);
+        writer.end(sharedBatch, false);
+        writer.close();
+
+        assertBatchIsLabeled(1, "00001", 2);
+        assertBatchIsLabeled(2, "00001", 1);
+        assertNull(stagingManager.find(Constants.STAGING_CATEGORY_OUTGOING, "00001", 1000));
+    }
+
+    @Test
+    public void testExtractToPayloadHandsOffEachBatch() {
+        when(outgoingBatchService.getOutgoingBatches("00001", false)).thenReturn(
+                new OutgoingBatches(Arrays.asList(newOutgoingBatch(1, "00001"),
+                        newOutgoingBatch(2, "00001"))));
+        final List<OutgoingBatchWithPayload> payloads = new ArrayList<OutgoingBatchWithPayload>();
+        Node targetNode = new Node("00001", "store");
+        targetNode.setDatabaseType(DatabaseNamesConstants.H2);
+        List<OutgoingBatch> batches = dataExtractorService.extractToPayload(new ProcessInfo(),
+                targetNode, PayloadType.SQL, false, false, false, new IPayloadListener() {
+                    public void payloadExtracted(OutgoingBatchWithPayload batch) {
+                        payloads.add(batch);
+                    }
+                });
+        assertEquals(2, batches.size());
+        assertEquals(2, payloads.size());
+        for (int i = 0; i < payloads.size(); i++) {
+            OutgoingBatchWithPayload payload = payloads.get(i);
+            assertEquals(i + 1, payload.getBatchId());
+            assertEquals(PayloadType.SQL, payload.getPayloadType());
+            assertEquals(Arrays.asList("insert " + (i + 1)), payload.getPayload());
+        }
+        assertEquals(Arrays.asList(0, 0), payloadsLeftAtEachExtract);
+    }
+
+    @Test
+    public void testExtractToPayloadWithNoBatches() {
+        when(outgoingBatchService.getOutgoingBatches("00001", false)).thenReturn(
+                new OutgoingBatches());
+        Node targetNode = new Node("00001", "store");
+        targetNode.setDatabaseType(DatabaseNamesConstants.H2);
+        List<OutgoingBatch> batches = dataExtractorService.extractToPayload(new ProcessInfo(),
+                targetNode, PayloadType.SQL, false, false, false, new IPayloadListener() {
+                    public void payloadExtracted(OutgoingBatchWithPayload batch) {
+                        fail();
+                    }
+                });
+        assertTrue(batches.isEmpty());
+        assertTrue(payloadsLeftAtEachExtract.isEmpty());
+    }
+
+    @Test
+    public void testMultiBatchStagingWriterStagesLeftoverBatches() throws Exception {
+        List<OutgoingBatch> batches = Arrays.asList(newOutgoingBatch(1, "00001"),
+                newOutgoingBatch(2, "00001"), newOutgoingBatch(3, "00001"));
+        DataExtractorService.MultiBatchStagingWriter writer = dataExtractorService.new MultiBatchStagingWriter(
+                "00000", stagingManager, batches, 2);
+        writer.open(new DataContext());
+        Batch partitionBatch = new Batch(BatchType.EXTRACT, 1, "reload", BinaryEncoding.BASE64,
+                "00000", "00001", false);
+        writer.start(partitionBatch);
+        writer.start(TABLE);
+        for (int i = 0; i < 2; i++) {
+            writer.write(new CsvData(DataEventType.INSERT, new String[] { "" + i, "name" + i }));
+        }
+        writer.end(TABLE);
+        writer.end(partitionBatch, false);
+        writer.close();
+
+        assertBatchIsLabeled(1, "00001", 2);
+        assertBatchIsLabeled(2, "00001", 0);
+        assertBatchIsLabeled(3, "00001", 0);
+    }
+
+    @Test
+    public void testInitialLoadPartitionSelects() {
+        setupPartitioning(4, 1, 100);
+        List<String> selects = getInitialLoadPartitionSelects(null, 10);
+        assertEquals(Arrays.asList("(1=1) and t.\"id\" < 26",
+                "(1=1) and t.\"id\" >= 26 and t.\"id\" < 51",
+                "(1=1) and t.\"id\" >= 51 and t.\"id\" < 76", "(1=1) and t.\"id\" >= 76"),
+                selects);
+    }
+
+    @Test
+    public void testInitialLoadPartitionSelectsKeepInitialLoadSelect() {
+        setupPartitioning(2, -10, 9);
+        List<String> selects = getInitialLoadPartitionSelects("name='$(nodeId)'", 10);
+        assertEquals(Arrays.asList("(name='$(nodeId)') and t.\"id\" < 0",
+                "(name='$(nodeId)') and t.\"id\" >= 0"), selects);
+        verify(sqlTemplate).queryForRow(
+                "select min(t.\"id\") as min_value, max(t.\"id\") as max_value from \"test_table\" t where name='00001'");
+    }
+
+    @Test
+    public void testInitialLoadPartitionCountIsLimitedByBatches() {
+        setupPartitioning(4, 1, 100);
+        assertEquals(2, getInitialLoadPartitionSelects(null, 2).size());
+        assertTrue(getInitialLoadPartitionSelects(null, 1).isEmpty());
+    }
+
+    @Test
+    public void testNoInitialLoadPartitions() {
+        setupPartitioning(1, 1, 100);
+        assertTrue(getInitialLoadPartitionSelects(null, 10).isEmpty());
+
+        setupPartitioning(4, 1, 3);
+        assertTrue(getInitialLoadPartitionSelects(null, 10).isEmpty());
+
+        setupPartitioning(4, 1, 100);
+        when(sqlTemplate.queryForRow(anyString())).thenReturn(new Row(2));
+        assertTrue(getInitialLoadPartitionSelects(null, 10).isEmpty());
+
+        when(databasePlatform.getTableFromCache(null, null, TABLE.getName(), false)).thenReturn(
+                TABLE);
+        assertTrue(getInitialLoadPartitionSelects(null, 10).isEmpty());
+    }
+
+    @Test
+    public void testInitialLoadPartitionsDivideBatches() {
+        List<OutgoingBatch> batches = new ArrayList<OutgoingBatch>();
+        for (long batchId = 1; batchId <= 5; batchId++) {
+            batches.add(newOutgoingBatch(batchId, "00001"));
+        }
+        Node targetNode = new Node("00001", "store");
+        dataExtractorService.extractInitialLoadPartitions(new ProcessInfo(), sourceNode,
+                targetNode, newEvent(newTriggerRouter("default", null), targetNode),
+                Arrays.asList("a", "b"), batches, new Channel("reload", 1));
+        dataExtractorService.stop();
+        Collections.sort(extractedPartitions);
+        assertEquals(Arrays.asList("a,1,2", "b,3,4,5"), extractedPartitions);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testInitialLoadPartitionFailureIsRethrown() {
+        List<OutgoingBatch> batches = Arrays.asList(newOutgoingBatch(1, "00001"),
+                newOutgoingBatch(2, "00001"));
+        Node targetNode = new Node("00001", "store");
+        try {
+            dataExtractorService.extractInitialLoadPartitions(new ProcessInfo(), sourceNode,
+                    targetNode, newEvent(newTriggerRouter("default", null), targetNode),
+                    Arrays.asList("a", "fail"), batches, new Channel("reload", 1));
+        } finally {
+            dataExtractorService.stop();
+        }
+    }
+
+    protected void setupPartitioning(int partitionCount, long minValue, long maxValue) {
+        when(parameterService.getInt(ParameterConstants.INITIAL_LOAD_EXTRACT_PARTITION_COUNT, 1))
+                .thenReturn(partitionCount);
+        when(databasePlatform.getTableFromCache(null, null, TABLE.getName(), false)).thenReturn(
+                INTEGER_KEY_TABLE);
+        Row row = new Row(2);
+        row.put("min_value", minValue);
+        row.put("max_value", maxValue);
+        when(sqlTemplate.queryForRow(anyString())).thenReturn(row);
+    }
+
+    protected List<String> getInitialLoadPartitionSelects(String initialLoadSelect,
+            int batchCount) {
+        Node targetNode = new Node("00001", "store");
+        return dataExtractorService.getInitialLoadPartitionSelects(targetNode, newEvent(
+                newTriggerRouter("default", initialLoadSelect), targetNode), batchCount);
+    }
+
+    protected void assertBatchIsLabeled(long batchId, String nodeId, int rowCount)
+            throws Exception {
+        IStagedResource resource = stagingManager.find(Constants.STAGING_CATEGORY_OUTGOING,
+                nodeId, batchId);
+        assertNotNull(resource);
+        String content = IOUtils.toString(resource.getReader());
+        resource.close();
+        assertTrue(content, content.contains("batch," + batchId));
+        assertTrue(content, content.contains("commit," + batchId));
+        assertFalse(content, content.contains("batch,100"));
+        int inserts = content.split("\ninsert,").length - 1;
+        assertEquals(content, rowCount, inserts);
+    }
+
+    protected boolean extractFromSharedExtract(String key, long requestId, String nodeId,
+            long... batchIds) {
+        Node targetNode = new Node(nodeId, "store");
+        ExtractRequest request = new ExtractRequest();
+        request.setRequestId(requestId);
+        List<OutgoingBatch> batches = new ArrayList<OutgoingBatch>();
+        for (long batchId : batchIds) {
+            batches.add(newOutgoingBatch(batchId, nodeId));
+        }
+        Channel channel = new Channel("reload", 1);
+        channel.setMaxBatchSize(2);
+        boolean shared = dataExtractorService.extractFromSharedExtract(new ProcessInfo(),
+                sourceNode, targetNode, request, newEvent(newTriggerRouter("default", null),
+                        targetNode), key, batches, channel);
+        if (shared) {
+            pendingRequestIds.remove(requestId);
+        }
+        return shared;
+    }
+
+    protected IStagedResource stageSharedExtract(long batchId, int rowCount) {
+        Batch batch = new Batch(BatchType.EXTRACT, batchId, "reload", BinaryEncoding.BASE64,
+                "00000", "00001", true);
+        StagingDataWriter writer = new StagingDataWriter(100000, "00000",
+                Constants.STAGING_CATEGORY_OUTGOING, stagingManager);
+        writer.open(new DataContext());
+        writer.start(batch);
+        writer.start(TABLE);
+        for (int i = 0; i < rowCount; i++) {
+            writer.write(new CsvData(DataEventType.INSERT, new String[] { "" + i, "name" + i }));
+        }
+        writer.end(TABLE);
+        writer.end(batch, false);
+        writer.close();
+        return stagingManager.find(Constants.STAGING_CATEGORY_OUTGOING,
+                batch.getStagedLocation(), batchId);
+    }
+
+    protected OutgoingBatch newOutgoingBatch(long batchId, String nodeId) {
+        OutgoingBatch batch = new OutgoingBatch(nodeId, "reload", OutgoingBatch.Status.RQ);
+        batch.setBatchId(batchId);
+        return batch;
+    }
+
+    protected String getSharedExtractKey(TriggerRouter triggerRouter, String targetGroupId) {
+        Node targetNode = new Node("00001", targetGroupId);
+        return dataExtractorService.getSharedExtractKey(sourceNode, targetNode, newEvent(
+                triggerRouter, targetNode));
+    }
+
+    protected DataExtractorService.SelectFromTableEvent newEvent(TriggerRouter triggerRouter,
+            Node targetNode) {
+        TriggerHistory triggerHistory = new TriggerHistory(TABLE.getName(), "id", "id,name");
+        triggerHistory.setTriggerHistoryId(1);
+        return dataExtractorService.new SelectFromTableEvent(targetNode, triggerRouter,
+                triggerHistory, null);
+    }
+
+    protected TriggerRouter newTriggerRouter(String routerType, String initialLoadSelect) {
+        Trigger trigger = new Trigger(TABLE.getName(), "reload");
+        trigger.setTriggerId("test_trigger");
+        TriggerRouter triggerRouter = new TriggerRouter(trigger, new Router("test_router",
+                "corp", "store", routerType));
+        triggerRouter.setInitialLoadSelect(initialLoadSelect);
+        return triggerRouter;
+    }
+
+}
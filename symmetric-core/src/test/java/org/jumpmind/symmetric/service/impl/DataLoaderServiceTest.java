@@ -0,0 +1,451 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.UniqueKeyException;
+import org.jumpmind.exception.IoException;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.data.Batch.BatchType;
+import org.jumpmind.symmetric.io.data.DataContext;
+import org.jumpmind.symmetric.io.data.IDataReader;
+import org.jumpmind.symmetric.io.data.writer.DataWriterStatisticConstants;
+import org.jumpmind.symmetric.io.data.writer.DefaultDatabaseWriter;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.io.stage.IStagedResource.State;
+import org.jumpmind.symmetric.model.IncomingBatch;
+import org.jumpmind.symmetric.model.IncomingBatch.Status;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.IIncomingBatchService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.util.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class DataLoaderServiceTest {
+
+    DataLoaderService dataLoaderService;
+
+    IParameterService parameterService;
+
+    IIncomingBatchService incomingBatchService;
+
+    ISqlTransaction transaction;
+
+    Statistics writerStatistics;
+
+    List<Long> loadedBatchIds = Collections.synchronizedList(new ArrayList<Long>());
+
+    @Before
+    public void setup() {
+        ISymmetricEngine engine = mock(ISymmetricEngine.class);
+        parameterService = mock(IParameterService.class);
+        incomingBatchService = mock(IIncomingBatchService.class);
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        IDatabasePlatform databasePlatform = mock(IDatabasePlatform.class);
+        when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
+        when(engine.getDatabasePlatform()).thenReturn(databasePlatform);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getSymmetricDialect()).thenReturn(symmetricDialect);
+        when(engine.getExtensionService()).thenReturn(mock(IExtensionService.class));
+        when(engine.getIncomingBatchService()).thenReturn(incomingBatchService);
+        when(engine.getStatisticManager()).thenReturn(mock(IStatisticManager.class));
+        when(parameterService.getEngineName()).thenReturn("test");
+        when(parameterService.is(ParameterConstants.DATA_LOADER_ENABLED)).thenReturn(true);
+        when(parameterService.is(ParameterConstants.INCOMING_BATCH_RECORD_IN_LOAD_TRANSACTION))
+                .thenReturn(true);
+        when(incomingBatchService.isRecordOkBatchesEnabled()).thenReturn(true);
+        when(incomingBatchService.acquireIncomingBatch(any(IncomingBatch.class), eq(true)))
+                .thenReturn(true);
+        dataLoaderService = new DataLoaderService(engine);
+    }
+
+    @Test
+    public void testBatchIsRecordedInLoadTransaction() {
+        DataLoaderService.ManageIncomingBatchListener listener = dataLoaderService.new ManageIncomingBatchListener();
+        DataContext ctx = newLoadContext(newBatch(1));
+        assertTrue(listener.beforeBatchStarted(ctx));
+        IncomingBatch incomingBatch = listener.getBatchesProcessed().get(0);
+
+        listener.beforeBatchEnd(ctx);
+        verify(incomingBatchService).insertIncomingBatch(transaction, incomingBatch);
+        assertEquals(Status.OK, incomingBatch.getStatus());
+
+        writerStatistics.set(DataWriterStatisticConstants.DATABASEMILLIS, 50);
+        listener.batchSuccessful(ctx);
+        assertEquals(50, incomingBatch.getDatabaseMillis());
+        verify(incomingBatchService, never()).updateIncomingBatch(incomingBatch);
+        verify(incomingBatchService, never()).insertIncomingBatch(incomingBatch);
+    }
+
+    @Test
+    public void testRetriedBatchIsUpdatedInLoadTransaction() {
+        when(incomingBatchService.acquireIncomingBatch(any(IncomingBatch.class), eq(true)))
+                .thenAnswer(new Answer<Boolean>() {
+                    public Boolean answer(InvocationOnMock invocation) {
+                        ((IncomingBatch) invocation.getArguments()[0]).setRetry(true);
+                        return true;
+                    }
+                });
+        DataLoaderService.ManageIncomingBatchListener listener = dataLoaderService.new ManageIncomingBatchListener();
+        DataContext ctx = newLoadContext(newBatch(1));
+        assertTrue(listener.beforeBatchStarted(ctx));
+        IncomingBatch incomingBatch = listener.getBatchesProcessed().get(0);
+
+        listener.beforeBatchEnd(ctx);
+        verify(incomingBatchService).updateIncomingBatch(transaction, incomingBatch);
+        verify(incomingBatchService, never()).insertIncomingBatch(transaction, incomingBatch);
+    }
+
+    @Test
+    public void testFailedBatchIsRecordedInError() {
+        DataLoaderService.ManageIncomingBatchListener listener = dataLoaderService.new ManageIncomingBatchListener();
+        DataContext ctx = newLoadContext(newBatch(1));
+        assertTrue(listener.beforeBatchStarted(ctx));
+        IncomingBatch incomingBatch = listener.getBatchesProcessed().get(0);
+        listener.beforeBatchEnd(ctx);
+
+        /*
+         * The OK row was rolled back with the load, so the batch is inserted
+         * again as ER
+         */
+        listener.batchInError(ctx, new RuntimeException("flush failed"));
+        assertEquals(Status.ER, incomingBatch.getStatus());
+        verify(incomingBatchService, times(2)).insertIncomingBatch(transaction, incomingBatch);
+        verify(incomingBatchService, never()).updateIncomingBatch(transaction, incomingBatch);
+    }
+
+    @Test
+    public void testFailedBatchUpdatesRowFromAnotherInstance() {
+        DataLoaderService.ManageIncomingBatchListener listener = dataLoaderService.new ManageIncomingBatchListener();
+        DataContext ctx = newLoadContext(newBatch(1));
+        assertTrue(listener.beforeBatchStarted(ctx));
+        IncomingBatch incomingBatch = listener.getBatchesProcessed().get(0);
+        when(incomingBatchService.refreshIncomingBatch(incomingBatch)).thenReturn(true);
+
+        listener.batchInError(ctx, new RuntimeException("load failed"));
+        assertEquals(Status.ER, incomingBatch.getStatus());
+        verify(incomingBatchService).updateIncomingBatch(transaction, incomingBatch);
+        verify(incomingBatchService, never()).insertIncomingBatch(transaction, incomingBatch);
+    }
+
+    @Test
+    public void testFailedBatchUpdatesRowOnUniqueKey() {
+        DataLoaderService.ManageIncomingBatchListener listener = dataLoaderService.new ManageIncomingBatchListener();
+        DataContext ctx = newLoadContext(newBatch(1));
+        assertTrue(listener.beforeBatchStarted(ctx));
+        IncomingBatch incomingBatch = listener.getBatchesProcessed().get(0);
+        doThrow(new UniqueKeyException()).when(incomingBatchService).insertIncomingBatch(
+                transaction, incomingBatch);
+
+        listener.batchInError(ctx, new RuntimeException("load failed"));
+        assertEquals(Status.ER, incomingBatch.getStatus());
+        verify(incomingBatchService).updateIncomingBatch(transaction, incomingBatch);
+    }
+
+    @Test(timeout = 10000)
+    public void testPipelinedLoadsInArrivalOrder() {
+        DataLoaderService.PipelinedLoadIntoDatabaseListener loader = newPipelinedLoader(1, null,
+                null);
+        DataContext ctx = new DataContext();
+        for (long batchId = 1; batchId <= 5; batchId++) {
+            loader.end(ctx, newBatch(batchId), mock(IStagedResource.class));
+        }
+        loader.finish(true);
+        assertEquals(5, loadedBatchIds.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i + 1, loadedBatchIds.get(i).longValue());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testPipelinedLoadFailureIsThrownOnReadingThread() {
+        RuntimeException failure = new RuntimeException("load failed");
+        DataLoaderService.PipelinedLoadIntoDatabaseListener loader = newPipelinedLoader(1,
+                failure, null);
+        DataContext ctx = new DataContext();
+        List<IStagedResource> resources = new ArrayList<IStagedResource>();
+        try {
+            for (long batchId = 1; batchId <= 10; batchId++) {
+                IStagedResource resource = mock(IStagedResource.class);
+                loader.start(ctx, newBatch(batchId));
+                resources.add(resource);
+                loader.end(ctx, newBatch(batchId), resource);
+            }
+            loader.finish(true);
+            fail("The load failure should have been thrown");
+        } catch (RuntimeException ex) {
+            assertSame(failure, ex);
+        }
+        loader.finish(false);
+        assertEquals(1, loadedBatchIds.size());
+        for (IStagedResource resource : resources.subList(1, resources.size())) {
+            verify(resource).setState(State.DONE);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testReadingThreadDoesNotBlockWhenLoaderIsInterrupted() throws Exception {
+        final Thread[] loaderThread = new Thread[1];
+        final CountDownLatch loaded = new CountDownLatch(1);
+        DataLoaderService.PipelinedLoadIntoDatabaseListener loader = newPipelinedLoader(1, null,
+                new Runnable() {
+                    public void run() {
+                        loaderThread[0] = Thread.currentThread();
+                        loaded.countDown();
+                    }
+                });
+        DataContext ctx = new DataContext();
+        loader.end(ctx, newBatch(1), mock(IStagedResource.class));
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        loaderThread[0].interrupt();
+        while (loader.getError() == null) {
+            Thread.sleep(10);
+        }
+
+        /*
+         * The queue only holds one batch, so the second put would wait
+         * forever for the stopped loader
+         */
+        List<IStagedResource> resources = new ArrayList<IStagedResource>();
+        for (long batchId = 2; batchId <= 3; batchId++) {
+            IStagedResource resource = mock(IStagedResource.class);
+            resources.add(resource);
+            assertFalse(loader.put(new DataLoaderService.StagedBatch(newBatch(batchId), resource, 0)));
+        }
+        try {
+            loader.finish(true);
+            fail("The interrupt should have been thrown");
+        } catch (IoException ex) {
+            assertTrue(ex.getCause() instanceof InterruptedException);
+        }
+        assertEquals(1, loadedBatchIds.size());
+        for (IStagedResource resource : resources) {
+            verify(resource).setState(State.DONE);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelChannelLoadsInArrivalOrder() {
+        DataLoaderService.ManageIncomingBatchListener batchesListener = dataLoaderService.new ManageIncomingBatchListener();
+        DataLoaderService.ParallelChannelLoadIntoDatabaseListener loader = newParallelChannelLoader(
+                batchesListener, 0);
+        DataContext ctx = new DataContext();
+        String[] channels = { "a", "b", "a", "b", "b", "a" };
+        for (int i = 0; i < channels.length; i++) {
+            loader.end(ctx, newBatch(i + 1, channels[i]), mock(IStagedResource.class));
+        }
+        loader.finish(true);
+
+        assertEquals(6, loadedBatchIds.size());
+        assertTrue(loadedBatchIds.indexOf(1l) < loadedBatchIds.indexOf(3l));
+        assertTrue(loadedBatchIds.indexOf(3l) < loadedBatchIds.indexOf(6l));
+        assertTrue(loadedBatchIds.indexOf(2l) < loadedBatchIds.indexOf(4l));
+        assertTrue(loadedBatchIds.indexOf(4l) < loadedBatchIds.indexOf(5l));
+        List<IncomingBatch> batches = batchesListener.getBatchesProcessed();
+        assertEquals(6, batches.size());
+        for (int i = 0; i < batches.size(); i++) {
+            assertEquals(i + 1, batches.get(i).getBatchId());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelChannelFailureOnlyStopsItsChannel() {
+        DataLoaderService.ManageIncomingBatchListener batchesListener = dataLoaderService.new ManageIncomingBatchListener();
+        DataLoaderService.ParallelChannelLoadIntoDatabaseListener loader = newParallelChannelLoader(
+                batchesListener, 1);
+        DataContext ctx = new DataContext();
+        List<IStagedResource> failedChannelResources = new ArrayList<IStagedResource>();
+        for (long batchId = 1; batchId <= 6; batchId++) {
+            IStagedResource resource = mock(IStagedResource.class);
+            boolean failedChannel = batchId % 2 == 1;
+            if (failedChannel) {
+                failedChannelResources.add(resource);
+            }
+            loader.end(ctx, newBatch(batchId, failedChannel ? "a" : "b"), resource);
+        }
+        try {
+            loader.finish(true);
+            fail("The load failure should have been thrown");
+        } catch (RuntimeException ex) {
+            assertEquals("load failed", ex.getMessage());
+        }
+
+        assertEquals(3, loadedBatchIds.size());
+        assertTrue(loadedBatchIds.containsAll(Arrays.asList(2l, 4l, 6l)));
+        for (IStagedResource resource : failedChannelResources) {
+            verify(resource).setState(State.DONE);
+        }
+        assertEquals(3, batchesListener.getBatchesProcessed().size());
+    }
+
+    @Test(timeout = 10000)
+    public void testParallelChannelLoadsFinishBeforeConfigBatch() {
+        final List<Long> loadedBeforeConfig = new ArrayList<Long>();
+        DataLoaderService.ManageIncomingBatchListener batchesListener = dataLoaderService.new ManageIncomingBatchListener();
+        DataLoaderService.ParallelChannelLoadIntoDatabaseListener loader = dataLoaderService.new ParallelChannelLoadIntoDatabaseListener(
+                new ProcessInfo(), "source", batchesListener, new DataContext(), 1) {
+            @Override
+            protected void load(DataContext ctx, Batch batch, IStagedResource resource,
+                    long networkMillis) {
+                loadedBeforeConfig.addAll(loadedBatchIds);
+                loadedBatchIds.add(batch.getBatchId());
+                listener.getBatchesProcessed().add(new IncomingBatch(batch));
+            }
+
+            @Override
+            protected DataLoaderService.PipelinedLoadIntoDatabaseListener newLoader(
+                    DataLoaderService.ManageIncomingBatchListener channelListener,
+                    DataContext ctx, int queueSize) {
+                return newPipelinedLoader(channelListener, queueSize, -1);
+            }
+        };
+        DataContext ctx = new DataContext();
+        loader.end(ctx, newBatch(1, "a"), mock(IStagedResource.class));
+        loader.end(ctx, newBatch(2, "b"), mock(IStagedResource.class));
+        loader.end(ctx, newBatch(3, Constants.CHANNEL_CONFIG), mock(IStagedResource.class));
+        loader.end(ctx, newBatch(4, "a"), mock(IStagedResource.class));
+        loader.finish(true);
+
+        assertEquals(2, loadedBeforeConfig.size());
+        assertTrue(loadedBeforeConfig.containsAll(Arrays.asList(1l, 2l)));
+        assertEquals(4, loadedBatchIds.get(3).longValue());
+        List<IncomingBatch> batches = batchesListener.getBatchesProcessed();
+        for (int i = 0; i < batches.size(); i++) {
+            assertEquals(i + 1, batches.get(i).getBatchId());
+        }
+    }
+
+    protected DataLoaderService.ParallelChannelLoadIntoDatabaseListener newParallelChannelLoader(
+            DataLoaderService.ManageIncomingBatchListener batchesListener, final long failingBatchId) {
+        return dataLoaderService.new ParallelChannelLoadIntoDatabaseListener(new ProcessInfo(),
+                "source", batchesListener, new DataContext(), 1) {
+            @Override
+            protected DataLoaderService.PipelinedLoadIntoDatabaseListener newLoader(
+                    DataLoaderService.ManageIncomingBatchListener channelListener,
+                    DataContext ctx, int queueSize) {
+                return newPipelinedLoader(channelListener, queueSize, failingBatchId);
+            }
+        };
+    }
+
+    protected DataLoaderService.PipelinedLoadIntoDatabaseListener newPipelinedLoader(
+            DataLoaderService.ManageIncomingBatchListener channelListener, int queueSize,
+            final long failingBatchId) {
+        return dataLoaderService.new PipelinedLoadIntoDatabaseListener(new ProcessInfo(),
+                "source", channelListener, new DataContext(), queueSize) {
+            @Override
+            protected void load(DataContext ctx, Batch batch, IStagedResource resource,
+                    long networkMillis) {
+                resource.setState(State.DONE);
+                if (batch.getBatchId() == failingBatchId) {
+                    throw new RuntimeException("load failed");
+                }
+                loadedBatchIds.add(batch.getBatchId());
+                listener.getBatchesProcessed().add(new IncomingBatch(batch));
+            }
+        };
+    }
+
+    protected DataContext newLoadContext(Batch batch) {
+        transaction = mock(ISqlTransaction.class);
+        writerStatistics = new Statistics();
+        Map<Batch, Statistics> writerStatisticsByBatch = new HashMap<Batch, Statistics>();
+        writerStatisticsByBatch.put(batch, writerStatistics);
+        Map<Batch, Statistics> readerStatisticsByBatch = new HashMap<Batch, Statistics>();
+        readerStatisticsByBatch.put(batch, new Statistics());
+        IDataReader reader = mock(IDataReader.class);
+        when(reader.getStatistics()).thenReturn(readerStatisticsByBatch);
+        final DefaultDatabaseWriter databaseWriter = mock(DefaultDatabaseWriter.class);
+        when(databaseWriter.getStatistics()).thenReturn(writerStatisticsByBatch);
+        when(databaseWriter.getTransaction()).thenReturn(transaction);
+        DataContext ctx = new DataContext(reader) {
+            {
+                setWriter(databaseWriter);
+            }
+        };
+        ctx.setBatch(batch);
+        return ctx;
+    }
+
+    protected Batch newBatch(long batchId) {
+        return newBatch(batchId, "default");
+    }
+
+    protected Batch newBatch(long batchId, String channelId) {
+        return new Batch(BatchType.LOAD, batchId, channelId, null, "source", "target", false);
+    }
+
+    protected DataLoaderService.PipelinedLoadIntoDatabaseListener newPipelinedLoader(
+            int queueSize, final RuntimeException failure, final Runnable afterLoad) {
+        return dataLoaderService.new PipelinedLoadIntoDatabaseListener(new ProcessInfo(),
+                "source", dataLoaderService.new ManageIncomingBatchListener(), new DataContext(),
+                queueSize) {
+            @Override
+            protected void load(DataContext ctx, Batch batch, IStagedResource resource,
+                    long networkMillis) {
+                loadedBatchIds.add(batch.getBatchId());
+                resource.setState(State.DONE);
+                if (failure != null) {
+                    throw failure;
+                }
+                if (afterLoad != null) {
+                    afterLoad.run();
+                }
+            }
+        };
+    }
+
+}
@@ -0,0 +1,329 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ColumnNotFoundException;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.db.sql.PositionalRow;
+import org.jumpmind.db.sql.Row;
+import org.jumpmind.db.sql.SqlException;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.io.data.CsvData;
+import org.jumpmind.symmetric.io.data.DataEventType;
+import org.jumpmind.symmetric.job.IJob;
+import org.jumpmind.symmetric.job.IJobManager;
+import org.jumpmind.symmetric.model.Data;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeGroupLink;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.Router;
+import org.jumpmind.symmetric.model.Trigger;
+import org.jumpmind.symmetric.model.TriggerRouter;
+import org.jumpmind.symmetric.route.DataGapDetector;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.IOutgoingBatchService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.IRouterService;
+import org.jumpmind.symmetric.service.ITransformService;
+import org.jumpmind.symmetric.service.ITriggerRouterService;
+import org.jumpmind.symmetric.service.impl.DataService.CachedRowCount;
+import org.jumpmind.symmetric.service.impl.TransformService.TransformTableNodeGroupLink;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+public class DataServiceTest {
+
+    final static Table TABLE = new Table("test_table", new Column("id", true), new Column("name"));
+
+    ISymmetricEngine engine;
+
+    IParameterService parameterService;
+
+    IDatabasePlatform databasePlatform;
+
+    ISqlTemplate sqlTemplate;
+
+    ITransformService transformService;
+
+    DataService dataService;
+
+    Node targetNode;
+
+    @Before
+    public void setup() throws Exception {
+        engine = mock(ISymmetricEngine.class);
+        parameterService = mock(IParameterService.class);
+        transformService = mock(ITransformService.class);
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        databasePlatform = mock(IDatabasePlatform.class);
+        sqlTemplate = mock(ISqlTemplate.class);
+        when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(databasePlatform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
+        when(engine.getParameterService()).thenReturn(parameterService);
+        when(engine.getSymmetricDialect()).thenReturn(symmetricDialect);
+        when(engine.getTransformService()).thenReturn(transformService);
+        when(engine.getTriggerRouterService()).thenReturn(mock(ITriggerRouterService.class));
+        when(parameterService.getLong(ParameterConstants.CACHE_TIMEOUT_ROW_COUNT_IN_MS, 600000))
+                .thenReturn(600000l);
+        when(parameterService.is(ParameterConstants.INITIAL_LOAD_USE_ESTIMATED_COUNTS, false))
+                .thenReturn(true);
+        dataService = new DataService(engine, mock(IExtensionService.class));
+
+        targetNode = new Node("00001", "store");
+        targetNode.setExternalId("00001");
+    }
+
+    @Test
+    public void testEstimatedRowCount() {
+        when(databasePlatform.getEstimatedRowCount(TABLE)).thenReturn(500l);
+        assertEquals(500, dataService.getInitialLoadRowCount(targetNode, newTriggerRouter(null), TABLE));
+        verify(sqlTemplate, never()).queryForLong(anyString());
+    }
+
+    @Test
+    public void testCountWhenEstimatesAreDisabled() {
+        when(parameterService.is(ParameterConstants.INITIAL_LOAD_USE_ESTIMATED_COUNTS, false))
+                .thenReturn(false);
+        when(sqlTemplate.queryForLong(anyString())).thenReturn(20l);
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, newTriggerRouter(null), TABLE));
+        verify(databasePlatform, never()).getEstimatedRowCount(TABLE);
+    }
+
+    @Test
+    public void testCountWhenThereIsNoEstimate() {
+        when(databasePlatform.getEstimatedRowCount(TABLE)).thenReturn(0l);
+        when(sqlTemplate.queryForLong(anyString())).thenReturn(20l);
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, newTriggerRouter(null), TABLE));
+    }
+
+    @Test
+    public void testCountWhenTheEstimateFails() {
+        when(databasePlatform.getEstimatedRowCount(TABLE)).thenThrow(new SqlException("no stats"));
+        when(sqlTemplate.queryForLong(anyString())).thenReturn(20l);
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, newTriggerRouter(null), TABLE));
+    }
+
+    @Test
+    public void testCountWithInitialLoadSelect() {
+        when(databasePlatform.getEstimatedRowCount(TABLE)).thenReturn(500l);
+        when(sqlTemplate.queryForLong(contains("where id > 10"))).thenReturn(20l);
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, newTriggerRouter("id > 10"), TABLE));
+        verify(databasePlatform, never()).getEstimatedRowCount(TABLE);
+    }
+
+    @Test
+    public void testCountIsCached() {
+        when(sqlTemplate.queryForLong(anyString())).thenReturn(20l);
+        TriggerRouter triggerRouter = newTriggerRouter("id > 10");
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, triggerRouter, TABLE));
+        assertEquals(20, dataService.getInitialLoadRowCount(new Node("00002", "store"), triggerRouter, TABLE));
+        verify(sqlTemplate, times(1)).queryForLong(anyString());
+        assertEquals(1, dataService.rowCountCache.size());
+    }
+
+    @Test
+    public void testNodeSpecificCountIsNotCached() {
+        when(sqlTemplate.queryForLong(contains("where id = '00001'"))).thenReturn(20l);
+        TriggerRouter triggerRouter = newTriggerRouter("id = '$(nodeId)'");
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, triggerRouter, TABLE));
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, triggerRouter, TABLE));
+        verify(sqlTemplate, times(2)).queryForLong(anyString());
+        assertTrue(dataService.rowCountCache.isEmpty());
+    }
+
+    @Test
+    public void testExpiredCountsAreEvicted() {
+        CachedRowCount expired = new CachedRowCount(10);
+        expired.countTime -= 600000;
+        dataService.rowCountCache.put("select count(*) from other_table where 1=1", expired);
+        when(sqlTemplate.queryForLong(anyString())).thenReturn(20l);
+        assertEquals(20, dataService.getInitialLoadRowCount(targetNode, newTriggerRouter("id > 10"), TABLE));
+        assertEquals(1, dataService.rowCountCache.size());
+        assertFalse(dataService.rowCountCache.containsKey("select count(*) from other_table where 1=1"));
+    }
+
+    @Test
+    public void testTransformCountsByTable() {
+        NodeGroupLink corpToStore = new NodeGroupLink("corp", "store");
+        NodeGroupLink corpToRegion = new NodeGroupLink("corp", "region");
+        List<TransformTableNodeGroupLink> transforms = new ArrayList<TransformTableNodeGroupLink>();
+        transforms.add(newTransform(corpToStore, "a"));
+        transforms.add(newTransform(corpToStore, "a"));
+        transforms.add(newTransform(corpToStore, "b"));
+        transforms.add(newTransform(corpToRegion, "a"));
+        when(transformService.getTransformTables(false)).thenReturn(transforms);
+
+        Map<NodeGroupLink, Map<String, Integer>> counts = dataService.getTransformCountsByTable();
+        assertEquals(2, counts.size());
+        assertEquals(Integer.valueOf(2), counts.get(corpToStore).get("a"));
+        assertEquals(Integer.valueOf(1), counts.get(corpToStore).get("b"));
+        assertEquals(Integer.valueOf(1), counts.get(corpToRegion).get("a"));
+        assertNull(counts.get(corpToRegion).get("b"));
+    }
+
+    @Test
+    public void testInsertDataWakesUpRouting() {
+        IJobManager jobManager = mock(IJobManager.class);
+        IJob routingJob = mock(IJob.class);
+        ISqlTransaction transaction = mock(ISqlTransaction.class);
+        when(engine.getJobManager()).thenReturn(jobManager);
+        when(jobManager.getJob(Constants.ROUTE_JOB_TIMER)).thenReturn(routingJob);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(transaction);
+        Data data = new Data();
+        data.setTableName("test_table");
+        data.setDataEventType(DataEventType.INSERT);
+
+        dataService.insertData(data);
+
+        InOrder inOrder = inOrder(transaction, routingJob);
+        inOrder.verify(transaction).commit();
+        inOrder.verify(routingJob).wakeUp();
+    }
+
+    @Test
+    public void testInsertDataWithoutJobManager() {
+        when(sqlTemplate.startSqlTransaction()).thenReturn(mock(ISqlTransaction.class));
+        Data data = new Data();
+        data.setTableName("test_table");
+        data.setDataEventType(DataEventType.INSERT);
+        dataService.insertData(data);
+    }
+
+    @Test
+    public void testDataIsMappedTheSameByNameAndPosition() {
+        Date createTime = new Date();
+        Row row = new Row(14);
+        row.put("ROW_DATA", "\"1\",\"a\"");
+        row.put("PK_DATA", "\"1\"");
+        row.put("OLD_DATA", null);
+        row.put("CHANNEL_ID", "default");
+        row.put("TRANSACTION_ID", "tx1");
+        row.put("TABLE_NAME", "test_table");
+        row.put("EVENT_TYPE", "I");
+        row.put("SOURCE_NODE_ID", "00001");
+        row.put("EXTERNAL_DATA", null);
+        row.put("NODE_LIST", null);
+        row.put("DATA_ID", 100l);
+        row.put("CREATE_TIME", createTime);
+        row.put("ROUTER_ID", "test_router");
+        row.put("TRIGGER_HIST_ID", 3);
+
+        Data byName = dataService.mapData(row);
+        Data byPosition = dataService.mapData(new PositionalRow(row));
+        for (Data data : new Data[] { byName, byPosition }) {
+            assertEquals("\"1\",\"a\"", data.getCsvData(CsvData.ROW_DATA));
+            assertEquals("\"1\"", data.getCsvData(CsvData.PK_DATA));
+            assertNull(data.getCsvData(CsvData.OLD_DATA));
+            assertEquals("default", data.getChannelId());
+            assertEquals("tx1", data.getTransactionId());
+            assertEquals("test_table", data.getTableName());
+            assertEquals(DataEventType.INSERT, data.getDataEventType());
+            assertEquals("00001", data.getSourceNodeId());
+            assertEquals(100, data.getDataId());
+            assertEquals(createTime, data.getCreateTime());
+            assertEquals(3, data.getTriggerHistory().getTriggerHistoryId());
+        }
+    }
+
+    @Test
+    public void testMissingDataColumnIsReported() {
+        Row row = new Row(1);
+        row.put("DATA_ID", 100l);
+        try {
+            dataService.mapData(row);
+            fail();
+        } catch (ColumnNotFoundException ex) {
+        }
+        try {
+            dataService.mapData(new PositionalRow(row));
+            fail();
+        } catch (ColumnNotFoundException ex) {
+        }
+    }
+
+    @Test
+    public void testDataIdIsGivenToGapDetectorAfterCommit() {
+        IOutgoingBatchService outgoingBatchService = mock(IOutgoingBatchService.class);
+        IRouterService routerService = mock(IRouterService.class);
+        DataGapDetector gapDetector = mock(DataGapDetector.class);
+        when(engine.getOutgoingBatchService()).thenReturn(outgoingBatchService);
+        when(engine.getRouterService()).thenReturn(routerService);
+        when(routerService.getDataGapDetector()).thenReturn(gapDetector);
+        ISqlTransaction transaction = mock(ISqlTransaction.class);
+
+        dataService.insertDataEventAndOutgoingBatch(transaction, 100, "reload", "00001",
+                DataEventType.RELOAD, Constants.UNKNOWN_ROUTER_ID, true, 1, "test",
+                OutgoingBatch.Status.NE);
+        verify(gapDetector, never()).addDataId(100);
+
+        ArgumentCaptor<Runnable> callback = ArgumentCaptor.forClass(Runnable.class);
+        verify(transaction).addCommitCallback(callback.capture());
+        callback.getValue().run();
+        verify(gapDetector).addDataId(100);
+    }
+
+    protected TriggerRouter newTriggerRouter(String initialLoadSelect) {
+        Trigger trigger = new Trigger(TABLE.getName(), "reload");
+        trigger.setTriggerId("test_trigger");
+        TriggerRouter triggerRouter = new TriggerRouter(trigger, new Router("test_router",
+                "corp", "store", "default"));
+        triggerRouter.setInitialLoadSelect(initialLoadSelect);
+        return triggerRouter;
+    }
+
+    protected TransformTableNodeGroupLink newTransform(NodeGroupLink nodeGroupLink, String sourceTableName) {
+        TransformTableNodeGroupLink transform = new TransformTableNodeGroupLink();
+        transform.setNodeGroupLink(nodeGroupLink);
+        transform.setSourceTableName(sourceTableName);
+        return transform;
+    }
+
+}
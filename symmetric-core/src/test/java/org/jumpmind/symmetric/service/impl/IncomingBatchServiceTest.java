@@ -0,0 +1,175 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.BatchId;
+import org.jumpmind.symmetric.model.IncomingBatch;
+import org.jumpmind.symmetric.model.IncomingBatch.Status;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IncomingBatchServiceTest {
+
+    IParameterService parameterService;
+
+    IClusterService clusterService;
+
+    IncomingBatchService incomingBatchService;
+
+    Map<String, BatchId> maxBatchIds = new HashMap<String, BatchId>();
+
+    Map<Long, IncomingBatch> existingBatches = new HashMap<Long, IncomingBatch>();
+
+    List<Long> foundBatchIds = new ArrayList<Long>();
+
+    List<IncomingBatch> updatedBatches = new ArrayList<IncomingBatch>();
+
+    int seedCount;
+
+    @Before
+    public void setup() {
+        parameterService = mock(IParameterService.class);
+        clusterService = mock(IClusterService.class);
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        IDatabasePlatform databasePlatform = mock(IDatabasePlatform.class);
+        when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
+        when(parameterService.is(ParameterConstants.INCOMING_BATCH_SKIP_DUPLICATE_BATCHES_ENABLED))
+                .thenReturn(true);
+        maxBatchIds.put("default", new BatchId(10, "00001"));
+        incomingBatchService = new IncomingBatchService(parameterService, symmetricDialect,
+                clusterService) {
+            @Override
+            public Map<String, BatchId> findMaxBatchIdsByChannel(String nodeId) {
+                seedCount++;
+                return maxBatchIds;
+            }
+
+            @Override
+            public IncomingBatch findIncomingBatch(long batchId, String nodeId) {
+                foundBatchIds.add(batchId);
+                return existingBatches.get(batchId);
+            }
+
+            @Override
+            public int updateIncomingBatch(IncomingBatch batch) {
+                updatedBatches.add(batch);
+                return 1;
+            }
+        };
+    }
+
+    @Test
+    public void testAdvanceMaxBatchId() {
+        assertFalse(incomingBatchService.advanceMaxBatchId(newBatch(9, "default")));
+        assertFalse(incomingBatchService.advanceMaxBatchId(newBatch(10, "default")));
+        assertTrue(incomingBatchService.advanceMaxBatchId(newBatch(12, "default")));
+        assertFalse(incomingBatchService.advanceMaxBatchId(newBatch(11, "default")));
+        assertFalse(incomingBatchService.advanceMaxBatchId(newBatch(12, "default")));
+        assertTrue(incomingBatchService.advanceMaxBatchId(newBatch(13, "default")));
+        assertEquals(1, seedCount);
+    }
+
+    @Test
+    public void testAdvanceMaxBatchIdForNewChannel() {
+        assertTrue(incomingBatchService.advanceMaxBatchId(newBatch(1, "other")));
+        assertFalse(incomingBatchService.advanceMaxBatchId(newBatch(1, "other")));
+        assertFalse(incomingBatchService.advanceMaxBatchId(newBatch(10, "default")));
+    }
+
+    @Test
+    public void testDeferredAcquireOfNewBatch() {
+        IncomingBatch batch = newBatch(11, "default");
+        assertTrue(incomingBatchService.acquireIncomingBatch(batch, true));
+        assertFalse(batch.isRetry());
+        assertTrue(foundBatchIds.isEmpty());
+        assertTrue(updatedBatches.isEmpty());
+    }
+
+    @Test
+    public void testDeferredAcquireOfBatchThatWasNeverRecorded() {
+        IncomingBatch batch = newBatch(5, "default");
+        assertTrue(incomingBatchService.acquireIncomingBatch(batch, true));
+        assertFalse(batch.isRetry());
+        assertEquals(5, foundBatchIds.get(0).longValue());
+    }
+
+    @Test
+    public void testDeferredAcquireRetriesBatchInError() {
+        existingBatches.put(5l, newBatch(5, "default", Status.ER));
+        IncomingBatch batch = newBatch(5, "default");
+        assertTrue(incomingBatchService.acquireIncomingBatch(batch, true));
+        assertTrue(batch.isRetry());
+        assertEquals(1, updatedBatches.size());
+        assertEquals(Status.LD, updatedBatches.get(0).getStatus());
+    }
+
+    @Test
+    public void testDeferredAcquireSkipsLoadedBatch() {
+        existingBatches.put(5l, newBatch(5, "default", Status.OK));
+        IncomingBatch batch = newBatch(5, "default");
+        assertFalse(incomingBatchService.acquireIncomingBatch(batch, true));
+        assertEquals(Status.OK, batch.getStatus());
+        assertEquals(1, batch.getSkipCount());
+    }
+
+    @Test
+    public void testDeferredAcquireLooksUpBatchWhenClustered() {
+        when(clusterService.isClusteringEnabled()).thenReturn(true);
+        existingBatches.put(11l, newBatch(11, "default", Status.ER));
+        IncomingBatch batch = newBatch(11, "default");
+        assertTrue(incomingBatchService.acquireIncomingBatch(batch, true));
+        assertTrue(batch.isRetry());
+        assertEquals(11, foundBatchIds.get(0).longValue());
+        assertEquals(0, seedCount);
+    }
+
+    protected IncomingBatch newBatch(long batchId, String channelId) {
+        return newBatch(batchId, channelId, Status.LD);
+    }
+
+    protected IncomingBatch newBatch(long batchId, String channelId, Status status) {
+        IncomingBatch batch = new IncomingBatch();
+        batch.setBatchId(batchId);
+        batch.setNodeId("00001");
+        batch.setChannelId(channelId);
+        batch.setStatus(status);
+        return batch;
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.OutgoingBatch;
+import org.jumpmind.symmetric.model.OutgoingBatch.Status;
+import org.jumpmind.symmetric.service.IClusterService;
+import org.jumpmind.symmetric.service.IConfigurationService;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.INodeService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.service.ISequenceService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class OutgoingBatchServiceTest {
+
+    OutgoingBatchService outgoingBatchService;
+
+    IParameterService parameterService;
+
+    @Before
+    public void setup() {
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        IDatabasePlatform databasePlatform = mock(IDatabasePlatform.class);
+        when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
+        when(symmetricDialect.getSqlReplacementTokens()).thenReturn(new HashMap<String, String>());
+        parameterService = mock(IParameterService.class);
+        when(parameterService.getInt(ParameterConstants.REST_PULL_MAX_WAITING_THREADS, 10))
+                .thenReturn(10);
+        outgoingBatchService = new OutgoingBatchService(parameterService,
+                symmetricDialect, mock(INodeService.class), mock(IConfigurationService.class),
+                mock(ISequenceService.class), mock(IClusterService.class),
+                mock(IExtensionService.class));
+    }
+
+    @Test
+    public void testBatchesAreUpdatedInBatchMode() {
+        ISqlTransaction transaction = mock(ISqlTransaction.class);
+        when(transaction.addRow(any(), any(Object[].class), any(int[].class))).thenReturn(0);
+        when(transaction.flush()).thenReturn(2);
+        OutgoingBatch batch1 = new OutgoingBatch("00001", "default", Status.OK);
+        OutgoingBatch batch2 = new OutgoingBatch("00002", "default", Status.OK);
+        outgoingBatchService.updateOutgoingBatches(transaction, Arrays.asList(batch1, batch2));
+
+        InOrder inOrder = inOrder(transaction);
+        inOrder.verify(transaction).setInBatchMode(true);
+        inOrder.verify(transaction).prepare(anyString());
+        inOrder.verify(transaction).addRow(eq(batch1), any(Object[].class), any(int[].class));
+        inOrder.verify(transaction).addRow(eq(batch2), any(Object[].class), any(int[].class));
+        inOrder.verify(transaction).flush();
+        inOrder.verify(transaction).setInBatchMode(false);
+        assertNotNull(batch1.getLastUpdatedTime());
+    }
+
+    @Test
+    public void testBatchesRoutedCountIsPerNode() {
+        assertEquals(0, outgoingBatchService.getBatchesRoutedCount("00001"));
+        outgoingBatchService.notifyBatchesRouted("00001");
+        outgoingBatchService.notifyBatchesRouted("00001");
+        outgoingBatchService.notifyBatchesRouted("00002");
+        assertEquals(2, outgoingBatchService.getBatchesRoutedCount("00001"));
+        assertEquals(1, outgoingBatchService.getBatchesRoutedCount("00002"));
+        assertEquals(0, outgoingBatchService.getBatchesRoutedCount("00003"));
+    }
+
+    @Test
+    public void testWaitReturnsAtOnceWhenAlreadyRouted() {
+        long count = outgoingBatchService.getBatchesRoutedCount("00001");
+        outgoingBatchService.notifyBatchesRouted("00001");
+        long ts = System.currentTimeMillis();
+        assertTrue(outgoingBatchService.waitForBatchesRouted("00001", count, 10000));
+        assertTrue(System.currentTimeMillis() - ts < 5000);
+    }
+
+    @Test
+    public void testWaitTimesOut() {
+        long count = outgoingBatchService.getBatchesRoutedCount("00001");
+        outgoingBatchService.notifyBatchesRouted("00002");
+        long ts = System.currentTimeMillis();
+        assertFalse(outgoingBatchService.waitForBatchesRouted("00001", count, 100));
+        assertTrue(System.currentTimeMillis() - ts >= 100);
+        assertFalse(outgoingBatchService.waitForBatchesRouted("00001", count, 0));
+    }
+
+    @Test
+    public void testWaitIsWokenByRouting() throws Exception {
+        long count = outgoingBatchService.getBatchesRoutedCount("00001");
+        Thread router = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                }
+                outgoingBatchService.notifyBatchesRouted("00001");
+            }
+        };
+        router.start();
+        long ts = System.currentTimeMillis();
+        assertTrue(outgoingBatchService.waitForBatchesRouted("00001", count, 10000));
+        assertTrue(System.currentTimeMillis() - ts < 5000);
+        router.join();
+    }
+
+    @Test
+    public void testWaitReturnsAtOnceWhenTooManyAreWaiting() throws Exception {
+        when(parameterService.getInt(ParameterConstants.REST_PULL_MAX_WAITING_THREADS, 10))
+                .thenReturn(1);
+        final long count = outgoingBatchService.getBatchesRoutedCount("00001");
+        Thread waiter = new Thread() {
+            public void run() {
+                outgoingBatchService.waitForBatchesRouted("00001", count, 10000);
+            }
+        };
+        waiter.start();
+        Thread.sleep(100);
+        long ts = System.currentTimeMillis();
+        assertFalse(outgoingBatchService.waitForBatchesRouted("00002", 0, 10000));
+        assertTrue(System.currentTimeMillis() - ts < 5000);
+
+        outgoingBatchService.notifyBatchesRouted("00001");
+        waiter.join();
+        ts = System.currentTimeMillis();
+        assertFalse(outgoingBatchService.waitForBatchesRouted("00002", 0, 100));
+        assertTrue(System.currentTimeMillis() - ts >= 100);
+    }
+
+}
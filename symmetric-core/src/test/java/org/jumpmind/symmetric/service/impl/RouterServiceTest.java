@@ -1,22 +1,41 @@
 package org.jumpmind.symmetric.service.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.jumpmind.db.platform.DatabaseInfo;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.common.ParameterConstants;
 import org.jumpmind.symmetric.db.ISymmetricDialect;
 import org.jumpmind.symmetric.model.Channel;
+import org.jumpmind.symmetric.model.Node;
+import org.jumpmind.symmetric.model.NodeChannel;
+import org.jumpmind.symmetric.model.ProcessInfo;
+import org.jumpmind.symmetric.model.ProcessInfoKey;
 import org.jumpmind.symmetric.model.Router;
 import org.jumpmind.symmetric.model.Trigger;
 import org.jumpmind.symmetric.model.TriggerRouter;
+import org.jumpmind.symmetric.route.DataGapDetector;
+import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.INodeService;
 import org.jumpmind.symmetric.service.IParameterService;
+import org.jumpmind.symmetric.statistic.IStatisticManager;
+import org.jumpmind.symmetric.statistic.RouterStats;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -29,11 +48,15 @@ public class RouterServiceTest {
     final static String TARGET_NODE_GROUP = "target";
 
     RouterService routerService;
+
+    ISymmetricEngine engine;
+
+    IParameterService parameterService;
     
     @Before
     public void setup() {
-        ISymmetricEngine engine = mock(ISymmetricEngine.class);
-        IParameterService parameterService = mock(IParameterService.class);
+        engine = mock(ISymmetricEngine.class);
+        parameterService = mock(IParameterService.class);
         ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
         IDatabasePlatform databasePlatform = mock(IDatabasePlatform.class);        
         IExtensionService extensionService = mock(IExtensionService.class);
@@ -106,6 +129,109 @@ public class RouterServiceTest {
         triggerRouters.add(new TriggerRouter(tableTrigger3, new Router("test", TARGET_NODE_GROUP, SOURCE_NODE_GROUP, "default")));
         assertTrue(routerService.producesCommonBatches(CHANNEL_2_TEST, SOURCE_NODE_GROUP, triggerRouters));
     }
-    
+
+    @Test
+    public void testChannelsAreRoutedConcurrentlyOnRouterThreads() throws Exception {
+        setupChannelRouting(2, "a", "b", "c");
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+        RouterService service = new RouterService(engine) {
+            @Override
+            protected int routeDataForChannel(ProcessInfo processInfo, NodeChannel nodeChannel,
+                    Node sourceNode, DataGapDetector gapDetector) {
+                threadNames.add(Thread.currentThread().getName());
+                bothRunning.countDown();
+                try {
+                    bothRunning.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return 1;
+            }
+        };
+        try {
+            assertEquals(3, service.routeDataForEachChannel(null));
+            assertEquals(0, bothRunning.getCount());
+            assertEquals(2, threadNames.size());
+            for (String threadName : threadNames) {
+                assertTrue(threadName, threadName.startsWith("test-router-channel-"));
+            }
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    public void testChannelsAreRoutedOnCallingThreadByDefault() throws Exception {
+        setupChannelRouting(1, "a", "b");
+        final Set<String> threadNames = Collections.synchronizedSet(new HashSet<String>());
+        RouterService service = new RouterService(engine) {
+            @Override
+            protected int routeDataForChannel(ProcessInfo processInfo, NodeChannel nodeChannel,
+                    Node sourceNode, DataGapDetector gapDetector) {
+                threadNames.add(Thread.currentThread().getName());
+                return 2;
+            }
+        };
+        assertEquals(4, service.routeDataForEachChannel(null));
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), threadNames);
+        assertEquals(null, service.getChannelRouterThreads());
+    }
+
+    @Test
+    public void testChannelFailureIsRethrown() throws Exception {
+        setupChannelRouting(2, "a", "b", "c");
+        final IllegalStateException failure = new IllegalStateException("b failed");
+        RouterService service = new RouterService(engine) {
+            @Override
+            protected int routeDataForChannel(ProcessInfo processInfo, NodeChannel nodeChannel,
+                    Node sourceNode, DataGapDetector gapDetector) {
+                if (nodeChannel.getChannelId().equals("b")) {
+                    throw failure;
+                }
+                return 1;
+            }
+        };
+        try {
+            service.routeDataForEachChannel(null);
+            fail("Expected the failure of the b channel to be rethrown");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex == failure);
+        } finally {
+            service.stop();
+        }
+    }
+
+    @Test
+    public void testRouterStatsToStringWithoutGapsOrTransactions() {
+        RouterStats stats = new RouterStats();
+        stats.setChannelId("a");
+        assertTrue(stats.toString().contains("channelId: a"));
+    }
+
+    protected void setupChannelRouting(int threadCount, String... channelIds) {
+        when(parameterService.getInt(ParameterConstants.ROUTING_CHANNEL_THREAD_COUNT, 1))
+                .thenReturn(threadCount);
+        when(parameterService.getEngineName()).thenReturn("test");
+
+        INodeService nodeService = mock(INodeService.class);
+        when(nodeService.findIdentity()).thenReturn(new Node("00000", SOURCE_NODE_GROUP));
+        when(engine.getNodeService()).thenReturn(nodeService);
+
+        IStatisticManager statisticManager = mock(IStatisticManager.class);
+        when(statisticManager.newProcessInfo(any(ProcessInfoKey.class))).thenReturn(
+                new ProcessInfo());
+        when(statisticManager.getRouterStatsByChannel()).thenReturn(
+                new HashMap<String, RouterStats>());
+        when(engine.getStatisticManager()).thenReturn(statisticManager);
+
+        List<NodeChannel> nodeChannels = new ArrayList<NodeChannel>();
+        for (String channelId : channelIds) {
+            nodeChannels.add(new NodeChannel(channelId));
+        }
+        IConfigurationService configurationService = mock(IConfigurationService.class);
+        when(configurationService.getNodeChannels(false)).thenReturn(nodeChannels);
+        when(engine.getConfigurationService()).thenReturn(configurationService);
+    }
 
 }
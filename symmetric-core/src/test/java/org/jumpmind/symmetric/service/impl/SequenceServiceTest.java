@@ -0,0 +1,180 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
+import org.jumpmind.symmetric.common.Constants;
+import org.jumpmind.symmetric.common.ParameterConstants;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.Sequence;
+import org.jumpmind.symmetric.model.SequenceBlockStats;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SequenceServiceTest {
+
+    IParameterService parameterService;
+
+    ISqlTransaction transaction;
+
+    SequenceService sequenceService;
+
+    long currentValue = 0;
+
+    AtomicInteger updateCount = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        parameterService = mock(IParameterService.class);
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        IDatabasePlatform databasePlatform = mock(IDatabasePlatform.class);
+        ISqlTemplate sqlTemplate = mock(ISqlTemplate.class);
+        transaction = mock(ISqlTransaction.class);
+        when(databasePlatform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(databasePlatform.getSqlTemplate()).thenReturn(sqlTemplate);
+        when(symmetricDialect.getPlatform()).thenReturn(databasePlatform);
+        when(sqlTemplate.startSqlTransaction()).thenReturn(transaction);
+        when(parameterService.getLong(ParameterConstants.SEQUENCE_TIMEOUT_MS, 5000)).thenReturn(5000l);
+        when(parameterService.getInt(ParameterConstants.SEQUENCE_BLOCK_SIZE, 1)).thenReturn(10);
+        sequenceService = new SequenceService(parameterService, symmetricDialect) {
+            @Override
+            public long currVal(ISqlTransaction transaction, String name) {
+                synchronized (SequenceServiceTest.this) {
+                    return currentValue;
+                }
+            }
+
+            @Override
+            protected boolean updateCurrentValue(ISqlTransaction transaction, String name,
+                    long newVal, long expectedVal) {
+                return update(newVal, expectedVal);
+            }
+
+            @Override
+            protected Sequence getSequenceDefinition(ISqlTransaction transaction, String name) {
+                return new Sequence(name, 0, 1, 1, 25, "test", false);
+            }
+        };
+    }
+
+    synchronized boolean update(long newValue, long expectedValue) {
+        if (currentValue == expectedValue) {
+            currentValue = newValue;
+            updateCount.incrementAndGet();
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    @Test
+    public void testValuesAreHandedOutFromReservedBlocks() {
+        for (int i = 1; i <= 12; i++) {
+            assertEquals(i, sequenceService.nextVal(transaction, Constants.SEQUENCE_OUTGOING_BATCH));
+        }
+        assertEquals(20, currentValue);
+        assertEquals(2, updateCount.get());
+
+        SequenceBlockStats stats = sequenceService.getSequenceBlockStats().get(
+                Constants.SEQUENCE_OUTGOING_BATCH);
+        assertEquals(2, stats.getRefillCount());
+        assertEquals(10, stats.getBlockSize());
+    }
+
+    @Test
+    public void testLastBlockIsCutOffAtMaxValue() {
+        for (int i = 1; i <= 25; i++) {
+            assertEquals(i, sequenceService.nextVal(Constants.SEQUENCE_OUTGOING_BATCH_LOAD_ID));
+        }
+        assertEquals(25, currentValue);
+        assertEquals(5, sequenceService.getSequenceBlockStats()
+                .get(Constants.SEQUENCE_OUTGOING_BATCH_LOAD_ID).getBlockSize());
+    }
+
+    @Test
+    public void testOtherSequencesAreNotBlockAllocated() {
+        assertEquals(1, sequenceService.nextVal(transaction, Constants.SEQUENCE_TRIGGER_HIST));
+        assertEquals(2, sequenceService.nextVal(transaction, Constants.SEQUENCE_TRIGGER_HIST));
+        assertEquals(2, currentValue);
+        assertTrue(sequenceService.getSequenceBlockStats().isEmpty());
+    }
+
+    @Test
+    public void testDiscardedBlocksAreReservedAgain() {
+        assertEquals(1, sequenceService.nextVal(transaction, Constants.SEQUENCE_OUTGOING_BATCH));
+        assertEquals(2, sequenceService.nextVal(Constants.SEQUENCE_OUTGOING_BATCH));
+
+        /* another cluster node reserves the next block */
+        assertTrue(update(20, 10));
+
+        sequenceService.discardReservedBlocks();
+        assertEquals(21, sequenceService.nextVal(transaction, Constants.SEQUENCE_OUTGOING_BATCH));
+        assertEquals(22, sequenceService.nextVal(Constants.SEQUENCE_OUTGOING_BATCH));
+        assertEquals(25, currentValue);
+        assertEquals(2, sequenceService.getSequenceBlockStats()
+                .get(Constants.SEQUENCE_OUTGOING_BATCH).getRefillCount());
+    }
+
+    @Test
+    public void testConcurrentCallersGetUniqueValues() throws Exception {
+        when(parameterService.getInt(ParameterConstants.SEQUENCE_BLOCK_SIZE, 1)).thenReturn(3);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<Long>>> futures = new ArrayList<Future<List<Long>>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(new Callable<List<Long>>() {
+                public List<Long> call() {
+                    List<Long> values = new ArrayList<Long>();
+                    for (int j = 0; j < 6; j++) {
+                        values.add(sequenceService.nextVal(Constants.SEQUENCE_OUTGOING_BATCH));
+                    }
+                    return values;
+                }
+            }));
+        }
+        Set<Long> values = new HashSet<Long>();
+        for (Future<List<Long>> future : futures) {
+            values.addAll(future.get());
+        }
+        executor.shutdown();
+        assertEquals(24, values.size());
+        assertEquals(8, updateCount.get());
+    }
+
+}
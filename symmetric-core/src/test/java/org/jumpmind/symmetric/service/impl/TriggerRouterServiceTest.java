@@ -0,0 +1,228 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
+import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.IDdlReader;
+import org.jumpmind.symmetric.ISymmetricEngine;
+import org.jumpmind.symmetric.db.AbstractTriggerTemplate;
+import org.jumpmind.symmetric.db.ISymmetricDialect;
+import org.jumpmind.symmetric.model.Trigger;
+import org.jumpmind.symmetric.model.TriggerHistory;
+import org.jumpmind.symmetric.service.IExtensionService;
+import org.jumpmind.symmetric.service.IParameterService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class TriggerRouterServiceTest {
+
+    IDdlReader ddlReader;
+
+    AbstractTriggerTemplate triggerTemplate;
+
+    TriggerRouterService triggerRouterService;
+
+    List<String> readSchemas = new ArrayList<String>();
+
+    @Before
+    public void setup() {
+        ISymmetricEngine engine = mock(ISymmetricEngine.class);
+        ISymmetricDialect symmetricDialect = mock(ISymmetricDialect.class);
+        IDatabasePlatform platform = mock(IDatabasePlatform.class);
+        ddlReader = mock(IDdlReader.class);
+        triggerTemplate = mock(AbstractTriggerTemplate.class);
+        when(engine.getParameterService()).thenReturn(mock(IParameterService.class));
+        when(engine.getSymmetricDialect()).thenReturn(symmetricDialect);
+        when(engine.getExtensionService()).thenReturn(mock(IExtensionService.class));
+        when(symmetricDialect.getPlatform()).thenReturn(platform);
+        when(symmetricDialect.getSqlReplacementTokens()).thenReturn(new HashMap<String, String>());
+        when(symmetricDialect.getTriggerTemplate()).thenReturn(triggerTemplate);
+        when(platform.getDatabaseInfo()).thenReturn(new DatabaseInfo());
+        when(platform.getDdlReader()).thenReturn(ddlReader);
+        when(platform.getDefaultCatalog()).thenReturn("sym");
+        when(platform.getDefaultSchema()).thenReturn("public");
+        when(ddlReader.readTablesByName(anyString(), anyString(), anyCollectionOf(String.class)))
+                .thenAnswer(new Answer<List<Table>>() {
+                    @SuppressWarnings("unchecked")
+                    public List<Table> answer(InvocationOnMock invocation) throws Throwable {
+                        Object[] args = invocation.getArguments();
+                        readSchemas.add(args[0] + "." + args[1]);
+                        List<Table> tables = new ArrayList<Table>();
+                        for (String tableName : (Collection<String>) args[2]) {
+                            if (!tableName.startsWith("missing")) {
+                                tables.add(newTable(null, null, tableName));
+                            }
+                        }
+                        return tables;
+                    }
+                });
+        triggerRouterService = new TriggerRouterService(engine);
+    }
+
+    @Test
+    public void testReadTablesInBulkGroupsBySchema() {
+        Map<String, Table> tables = triggerRouterService.readTablesInBulk(Arrays.asList(
+                newTrigger("1", null, null, "a"), newTrigger("2", null, null, "b"),
+                newTrigger("3", null, "other", "c"), newTrigger("4", null, null, "missing")));
+        assertEquals(2, readSchemas.size());
+        assertTrue(readSchemas.contains("sym.public"));
+        assertTrue(readSchemas.contains("sym.other"));
+        assertEquals("a", tables.get("sym.public.a").getName());
+        assertEquals("b", tables.get("sym.public.b").getName());
+        assertEquals("c", tables.get("sym.other.c").getName());
+        assertSame(tables.get("sym.public.a"), tables.get("SYM.PUBLIC.A"));
+        assertNull(tables.get("sym.public.missing"));
+    }
+
+    @Test
+    public void testReadTablesInBulkSkipsWildcards() {
+        Map<String, Table> tables = triggerRouterService.readTablesInBulk(Arrays.asList(
+                newTrigger("1", null, null, "a*"), newTrigger("2", null, "s*", "b"),
+                newTrigger("3", null, null, "c,d")));
+        assertTrue(readSchemas.isEmpty());
+        assertTrue(tables.isEmpty());
+    }
+
+    @Test
+    public void testReadTablesInBulkFailureFallsBack() {
+        when(ddlReader.readTablesByName(eq("sym"), eq("broken"), anyCollectionOf(String.class)))
+                .thenThrow(new IllegalStateException());
+        Map<String, Table> tables = triggerRouterService.readTablesInBulk(Arrays.asList(
+                newTrigger("1", null, "broken", "a"), newTrigger("2", null, null, "b")));
+        assertEquals(2, tables.size());
+        assertEquals("b", tables.get("sym.public.b").getName());
+        assertNull(tables.get("sym.broken.a"));
+    }
+
+    @Test
+    public void testGetPrefetchedTable() {
+        assertNull(triggerRouterService.getPrefetchedTable("sym", "public", "a", true));
+        triggerRouterService.prefetchedTables = triggerRouterService.readTablesInBulk(Arrays
+                .asList(newTrigger("1", null, null, "Mixed")));
+        assertEquals("Mixed", triggerRouterService.getPrefetchedTable("sym", "public", "Mixed", false)
+                .getName());
+        assertNull(triggerRouterService.getPrefetchedTable("sym", "public", "mixed", false));
+        assertEquals("Mixed", triggerRouterService.getPrefetchedTable("sym", "public", "mixed", true)
+                .getName());
+        assertNull(triggerRouterService.getPrefetchedTable("sym", "other", "Mixed", true));
+    }
+
+    @Test
+    public void testTriggerNameInUseByActiveHistory() {
+        List<TriggerHistory> histories = new ArrayList<TriggerHistory>();
+        TriggerHistory history = new TriggerHistory(newTrigger("1", null, null, "a"));
+        history.setNameForInsertTrigger("on_i_a");
+        histories.add(history);
+        assertTrue(triggerRouterService.isTriggerNameInUse(histories, "2", "on_i_a"));
+        assertFalse(triggerRouterService.isTriggerNameInUse(histories, "1", "on_i_a"));
+        assertFalse(triggerRouterService.isTriggerNameInUse(histories, "2", "on_i_b"));
+    }
+
+    @Test
+    public void testTriggerNameReservedWhileSyncingInParallel() {
+        List<TriggerHistory> histories = new ArrayList<TriggerHistory>();
+        assertFalse(triggerRouterService.isTriggerNameInUse(histories, "1", "on_i_a"));
+        assertFalse(triggerRouterService.isTriggerNameInUse(histories, "2", "on_i_a"));
+
+        triggerRouterService.reservedTriggerNames = new ConcurrentHashMap<String, String>();
+        assertFalse(triggerRouterService.isTriggerNameInUse(histories, "1", "on_i_a"));
+        assertFalse(triggerRouterService.isTriggerNameInUse(histories, "1", "on_i_a"));
+        assertTrue(triggerRouterService.isTriggerNameInUse(histories, "2", "on_i_a"));
+        assertFalse(triggerRouterService.isTriggerNameInUse(histories, "2", "on_i_b"));
+    }
+
+    @Test
+    public void testTriggerUpToDate() {
+        Trigger trigger = newTrigger("1", null, null, "a");
+        trigger.setLastUpdateTime(new Date(System.currentTimeMillis() - 60000));
+        Table table = newTable(null, null, "a");
+        List<TriggerHistory> histories = new ArrayList<TriggerHistory>();
+        assertFalse(triggerRouterService.isTriggerUpToDate(trigger, table, histories));
+
+        TriggerHistory history = new TriggerHistory(table, trigger, triggerTemplate);
+        history.setCreateTime(new Date());
+        histories.add(history);
+        assertTrue(triggerRouterService.isTriggerUpToDate(trigger, table, histories));
+
+        trigger.setLastUpdateTime(new Date(System.currentTimeMillis() + 60000));
+        assertFalse(triggerRouterService.isTriggerUpToDate(trigger, table, histories));
+    }
+
+    @Test
+    public void testTriggerNotUpToDateWhenTableChanged() {
+        Trigger trigger = newTrigger("1", null, null, "a");
+        trigger.setLastUpdateTime(new Date(System.currentTimeMillis() - 60000));
+        Table table = newTable(null, null, "a");
+        TriggerHistory history = new TriggerHistory(table, trigger, triggerTemplate);
+        history.setCreateTime(new Date());
+        List<TriggerHistory> histories = new ArrayList<TriggerHistory>();
+        histories.add(history);
+
+        table.addColumn(new Column("note", false, Types.VARCHAR, 50, 0));
+        assertFalse(triggerRouterService.isTriggerUpToDate(trigger, table, histories));
+
+        when(triggerTemplate.toHashedValue()).thenReturn(1);
+        assertFalse(triggerRouterService.isTriggerUpToDate(trigger, newTable(null, null, "a"),
+                histories));
+    }
+
+    protected Trigger newTrigger(String triggerId, String catalogName, String schemaName,
+            String tableName) {
+        Trigger trigger = new Trigger(tableName, "default");
+        trigger.setTriggerId(triggerId);
+        trigger.setSourceCatalogName(catalogName);
+        trigger.setSourceSchemaName(schemaName);
+        return trigger;
+    }
+
+    protected Table newTable(String catalogName, String schemaName, String tableName) {
+        Table table = new Table(catalogName, schemaName, tableName);
+        table.addColumn(new Column("id", true, Types.INTEGER, 0, 0));
+        return table;
+    }
+
+}
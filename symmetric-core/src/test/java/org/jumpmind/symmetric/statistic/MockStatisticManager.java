@@ -112,6 +112,13 @@ public class MockStatisticManager implements IStatisticManager {
     public void incrementDataLoaded(String channelId, long count) {
     }
 
+    public void addLoadStats(String channelId, long statementCount, long byteCount, long loadMillis) {
+    }
+
+    public Map<String, LoadStats> getLoadStatsByChannel() {
+        return null;
+    }
+
     public void incrementDataSent(String channelId, long count) {
     };
 
@@ -170,5 +177,12 @@ public class MockStatisticManager implements IStatisticManager {
 
     public void removeRouterStatsByBatch(Long batchId) {
     }
+
+    public void setRouterStatsByChannel(String channelId, RouterStats routerStats) {
+    }
+
+    public Map<String, RouterStats> getRouterStatsByChannel() {
+        return null;
+    }
     
 }
\ No newline at end of file
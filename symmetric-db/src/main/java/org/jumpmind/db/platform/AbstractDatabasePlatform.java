@@ -33,12 +33,19 @@ import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.apache.commons.codec.DecoderException;
@@ -86,9 +93,17 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     protected IDdlBuilder ddlBuilder;
 
-    protected Map<String, Table> tableCache = new HashMap<String, Table>();
+    protected ConcurrentMap<String, CachedTable> tableCache = new ConcurrentHashMap<String, CachedTable>();
 
-    private long lastTimeCachedModelClearedInMs = System.currentTimeMillis();
+    /* Table reads in progress, so that concurrent misses on a table share one read */
+    protected ConcurrentMap<String, FutureTask<Table>> tableReads = new ConcurrentHashMap<String, FutureTask<Table>>();
+
+    /* Incremented on every invalidation so that reads started before it are not cached */
+    protected AtomicLong tableCacheVersion = new AtomicLong();
+
+    protected AtomicLong tableCacheHitCount = new AtomicLong();
+
+    protected AtomicLong tableCacheMissCount = new AtomicLong();
 
     protected long clearCacheModelTimeoutInMs = DateUtils.MILLIS_PER_HOUR;
 
@@ -305,38 +320,115 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
     }
 
     public void resetCachedTableModel() {
-        synchronized (this.getClass()) {
-            this.tableCache = new HashMap<String, Table>();
-            lastTimeCachedModelClearedInMs = System.currentTimeMillis();
+        tableCacheVersion.incrementAndGet();
+        tableCache.clear();
+    }
+
+    public void resetCachedTableModel(String catalogName, String schemaName, String tableName) {
+        tableCacheVersion.incrementAndGet();
+        Iterator<CachedTable> i = tableCache.values().iterator();
+        while (i.hasNext()) {
+            if (i.next().matches(catalogName, schemaName, tableName)) {
+                i.remove();
+            }
         }
     }
 
+    public long getTableCacheHitCount() {
+        return tableCacheHitCount.get();
+    }
+
+    public long getTableCacheMissCount() {
+        return tableCacheMissCount.get();
+    }
+
     public Table getTableFromCache(String tableName, boolean forceReread) {
         return getTableFromCache(getDefaultCatalog(), getDefaultSchema(), tableName, forceReread);
     }
 
     public Table getTableFromCache(String catalogName, String schemaName, String tableName,
             boolean forceReread) {
-        if (System.currentTimeMillis() - lastTimeCachedModelClearedInMs > clearCacheModelTimeoutInMs) {
-            resetCachedTableModel();
-        }
-        Map<String, Table> model = tableCache;
         String key = Table.getFullyQualifiedTableName(catalogName, schemaName, tableName);
-        Table retTable = model != null ? model.get(key) : null;
-        if (retTable == null || forceReread) {
-            synchronized (this.getClass()) {
-                try {
-                    Table table = readTableFromDatabase(catalogName, schemaName, tableName);
-                    tableCache.put(key, table);
-                    retTable = table;
-                } catch (RuntimeException ex) {
-                    throw ex;
-                } catch (Exception ex) {
-                    throw new RuntimeException(ex);
+        if (!forceReread) {
+            CachedTable cachedTable = tableCache.get(key);
+            if (cachedTable != null) {
+                long age = System.currentTimeMillis() - cachedTable.getReadTime();
+                if (age < clearCacheModelTimeoutInMs) {
+                    tableCacheHitCount.incrementAndGet();
+                    if (age > clearCacheModelTimeoutInMs * 3 / 4
+                            && cachedTable.startRefresh()) {
+                        /*
+                         * Refresh ahead of expiry on this thread only. Other
+                         * threads keep using the cached table in the meantime.
+                         */
+                        try {
+                            return readTable(key, catalogName, schemaName, tableName);
+                        } catch (RuntimeException ex) {
+                            cachedTable.refreshFailed();
+                            log.warn("Failed to refresh the cached definition of {}: {}", key, ex.getMessage());
+                        }
+                    }
+                    return cachedTable.getTable();
                 }
             }
+            tableCacheMissCount.incrementAndGet();
+            return readTableOnce(key, catalogName, schemaName, tableName);
+        } else {
+            tableCacheMissCount.incrementAndGet();
+            return readTable(key, catalogName, schemaName, tableName);
+        }
+    }
+
+    /*
+     * Reads a table that is missing from the cache. Threads that miss on the
+     * same table at the same time wait for the first one's read.
+     */
+    protected Table readTableOnce(final String key, final String catalogName,
+            final String schemaName, final String tableName) {
+        FutureTask<Table> read = new FutureTask<Table>(new Callable<Table>() {
+            public Table call() throws Exception {
+                return readTable(key, catalogName, schemaName, tableName);
+            }
+        });
+        FutureTask<Table> readInProgress = tableReads.putIfAbsent(key, read);
+        if (readInProgress == null) {
+            try {
+                read.run();
+            } finally {
+                tableReads.remove(key, read);
+            }
+            readInProgress = read;
+        }
+        try {
+            return readInProgress.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
         }
-        return retTable;
+    }
+
+    protected Table readTable(String key, String catalogName, String schemaName, String tableName) {
+        long version = tableCacheVersion.get();
+        Table table = readTableFromDatabase(catalogName, schemaName, tableName);
+        if (table != null) {
+            CachedTable cachedTable = new CachedTable(table, catalogName, schemaName, tableName);
+            tableCache.put(key, cachedTable);
+            if (version != tableCacheVersion.get()) {
+                tableCache.remove(key, cachedTable);
+            }
+        } else {
+            tableCache.remove(key);
+        }
+        return table;
     }
 
     public Object[] getObjectValues(BinaryEncoding encoding, Table table, String[] columnNames,
@@ -382,6 +474,89 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
         }
     }
     
+    public ObjectValueConverter[] getObjectValueConverters(BinaryEncoding encoding,
+            Column[] orderedMetaData, boolean useVariableDates, boolean fitToColumn) {
+        ObjectValueConverter[] converters = new ObjectValueConverter[orderedMetaData.length];
+        for (int i = 0; i < orderedMetaData.length; i++) {
+            if (orderedMetaData[i] != null) {
+                converters[i] = createObjectValueConverter(orderedMetaData[i], encoding,
+                        useVariableDates, fitToColumn);
+            }
+        }
+        return converters;
+    }
+
+    public Object[] getObjectValues(ObjectValueConverter[] converters, String[] values) {
+        if (values != null) {
+            List<Object> list = new ArrayList<Object>(values.length);
+            for (int i = 0; i < values.length; i++) {
+                ObjectValueConverter converter = converters.length > i ? converters[i] : null;
+                if (converter != null) {
+                    try {
+                        list.add(converter.convert(values[i]));
+                    } catch (Exception ex) {
+                        String valueTrimmed = FormatUtils.abbreviateForLogging(values[i]);
+                        log.error("Could not convert a value of {} for column {} of type {}",
+                                new Object[] { valueTrimmed, converter.getColumn().getName(),
+                                        converter.getColumn().getMappedType() });
+                        log.error("", ex);
+                        throw new RuntimeException(ex);
+                    }
+                }
+            }
+            return list.toArray();
+        } else {
+            return null;
+        }
+    }
+
+    /*
+     * Picks the conversion that getObjectValue would make for the column so
+     * that it does not have to be worked out again for every value.
+     */
+    protected ObjectValueConverter createObjectValueConverter(Column column,
+            BinaryEncoding encoding, boolean useVariableDates, boolean fitToColumn) {
+        DatabaseInfo databaseInfo = getDdlBuilder().getDatabaseInfo();
+        int type = column.getMappedTypeCode();
+        if (type == Types.DATE || type == Types.TIMESTAMP || type == Types.TIME) {
+            boolean useTimestamp = type == Types.TIMESTAMP
+                    || (type == Types.DATE && databaseInfo.isDateOverridesToTimestamp());
+            return new DateObjectValueConverter(column, fitToColumn, useVariableDates, useTimestamp);
+        } else if (type == Types.CHAR) {
+            return new TextObjectValueConverter(column, fitToColumn, databaseInfo, true);
+        } else if (type == Types.BIGINT) {
+            return new BigIntegerObjectValueConverter(column, fitToColumn);
+        } else if (type == Types.INTEGER || type == Types.SMALLINT || type == Types.BIT
+                || type == Types.TINYINT) {
+            return new IntegerObjectValueConverter(column, fitToColumn);
+        } else if (type == Types.FLOAT) {
+            return new FloatObjectValueConverter(column, fitToColumn);
+        } else if (type == Types.NUMERIC || type == Types.DECIMAL || type == Types.DOUBLE
+                || type == Types.REAL) {
+            return new BigDecimalObjectValueConverter(column, fitToColumn);
+        } else if (type == Types.BOOLEAN) {
+            return new BooleanObjectValueConverter(column, fitToColumn);
+        } else if (!(column.getJdbcTypeName() != null && column.getJdbcTypeName().toUpperCase()
+                .contains(TypeMap.GEOMETRY))
+                && !(column.getJdbcTypeName() != null && column.getJdbcTypeName().toUpperCase()
+                        .contains(TypeMap.GEOGRAPHY))
+                && (type == Types.BLOB || type == Types.LONGVARBINARY || type == Types.BINARY
+                        || type == Types.VARBINARY ||
+                // SQLServer ntext type
+                type == -10)) {
+            if (encoding == BinaryEncoding.NONE || encoding == BinaryEncoding.BASE64
+                    || encoding == BinaryEncoding.HEX) {
+                return new BinaryObjectValueConverter(column, fitToColumn, encoding);
+            } else {
+                return new TextObjectValueConverter(column, fitToColumn, databaseInfo, false);
+            }
+        } else if (type == Types.ARRAY) {
+            return new DefaultObjectValueConverter(column, encoding, useVariableDates, fitToColumn);
+        } else {
+            return new TextObjectValueConverter(column, fitToColumn, databaseInfo, false);
+        }
+    }
+
     protected Object getObjectValue(String value, Column column, BinaryEncoding encoding,
             boolean useVariableDates, boolean fitToColumn) throws DecoderException {
         Object objectValue = value;
@@ -563,11 +738,19 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
 
     public java.util.Date parseDate(int type, String value, boolean useVariableDates) {
         if (StringUtils.isNotBlank(value)) {
-            try {
-                boolean useTimestamp = (type == Types.TIMESTAMP)
-                        || (type == Types.DATE && getDdlBuilder().getDatabaseInfo()
-                                .isDateOverridesToTimestamp());
+            boolean useTimestamp = (type == Types.TIMESTAMP)
+                    || (type == Types.DATE && getDdlBuilder().getDatabaseInfo()
+                            .isDateOverridesToTimestamp());
+            return parseDate(type, value, useVariableDates, useTimestamp);
+        } else {
+            return null;
+        }
+    }
 
+    protected java.util.Date parseDate(int type, String value, boolean useVariableDates,
+            boolean useTimestamp) {
+        if (StringUtils.isNotBlank(value)) {
+            try {
                 if (useVariableDates && value.startsWith("${curdate")) {
                     long time = Long.parseLong(value.substring(10, value.length() - 1));
                     if (value.substring(9, 10).equals("-")) {
@@ -593,6 +776,10 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
                            return FormatUtils.parseDate(value, FormatUtils.TIME_PATTERNS);
                         }
                     } else {
+                        java.util.Date date = FormatUtils.parseCanonicalDate(value);
+                        if (date != null) {
+                            return date;
+                        }
                         return FormatUtils.parseDate(value, FormatUtils.TIMESTAMP_PATTERNS);
                     }
                 }
@@ -873,8 +1060,23 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
     public boolean canColumnBeUsedInWhereClause(Column column) {
         return true;
     }
+
+    public long getEstimatedRowCount(Table table) {
+        return -1;
+    }
+
+    protected long queryForEstimatedRowCount(String sql, Object... args) {
+        Long rowCount = getSqlTemplate().queryForObject(sql, Long.class, args);
+        return rowCount != null ? rowCount : -1;
+    }
     
     public java.util.Date parseTimestamp(int type, String value) {
+        if (value.length() > 10) {
+            java.util.Date date = FormatUtils.parseCanonicalDate(value);
+            if (date != null) {
+                return new Timestamp(date.getTime());
+            }
+        }
         try {
             return Timestamp.valueOf(value);
         } catch (IllegalArgumentException ex) {
@@ -918,4 +1120,236 @@ public abstract class AbstractDatabasePlatform implements IDatabasePlatform {
         }
     }
 
+    protected abstract class AbstractObjectValueConverter extends ObjectValueConverter {
+
+        protected boolean fitToColumn;
+
+        protected int size;
+
+        public AbstractObjectValueConverter(Column column, boolean fitToColumn) {
+            super(column);
+            this.fitToColumn = fitToColumn;
+            this.size = column.getSizeAsInt();
+        }
+
+        protected Object cleanText(Object objectValue) {
+            if (objectValue instanceof String) {
+                String stringValue = cleanTextForTextBasedColumns((String) objectValue);
+                if (fitToColumn && size > 0 && stringValue.length() > size) {
+                    stringValue = stringValue.substring(0, size);
+                }
+                return stringValue;
+            }
+            return objectValue;
+        }
+    }
+
+    protected class DefaultObjectValueConverter extends ObjectValueConverter {
+
+        protected BinaryEncoding encoding;
+
+        protected boolean useVariableDates;
+
+        protected boolean fitToColumn;
+
+        public DefaultObjectValueConverter(Column column, BinaryEncoding encoding,
+                boolean useVariableDates, boolean fitToColumn) {
+            super(column);
+            this.encoding = encoding;
+            this.useVariableDates = useVariableDates;
+            this.fitToColumn = fitToColumn;
+        }
+
+        public Object convert(String value) throws Exception {
+            return getObjectValue(value, column, encoding, useVariableDates, fitToColumn);
+        }
+    }
+
+    protected class TextObjectValueConverter extends AbstractObjectValueConverter {
+
+        protected boolean requiredText;
+
+        protected boolean emptyStringNulled;
+
+        protected boolean blankPadded;
+
+        protected boolean nonBlankPadded;
+
+        public TextObjectValueConverter(Column column, boolean fitToColumn,
+                DatabaseInfo databaseInfo, boolean padded) {
+            super(column, fitToColumn);
+            this.requiredText = column.isRequired() && column.isOfTextType();
+            this.emptyStringNulled = databaseInfo.isEmptyStringNulled();
+            this.blankPadded = padded && databaseInfo.isBlankCharColumnSpacePadded();
+            this.nonBlankPadded = padded && databaseInfo.isNonBlankCharColumnSpacePadded();
+        }
+
+        public Object convert(String value) {
+            String stringValue = value;
+            if (requiredText && (value == null || (emptyStringNulled && value.equals("")))) {
+                stringValue = REQUIRED_FIELD_NULL_SUBSTITUTE;
+            }
+            if (value != null && (blankPadded || nonBlankPadded)) {
+                boolean blank = StringUtils.isBlank(value);
+                if ((blank && blankPadded) || (!blank && nonBlankPadded)) {
+                    stringValue = StringUtils.rightPad(value, size, ' ');
+                }
+            }
+            return cleanText(stringValue);
+        }
+    }
+
+    protected class DateObjectValueConverter extends AbstractObjectValueConverter {
+
+        protected int type;
+
+        protected boolean useVariableDates;
+
+        protected boolean useTimestamp;
+
+        public DateObjectValueConverter(Column column, boolean fitToColumn,
+                boolean useVariableDates, boolean useTimestamp) {
+            super(column, fitToColumn);
+            this.type = column.getMappedTypeCode();
+            this.useVariableDates = useVariableDates;
+            this.useTimestamp = useTimestamp;
+        }
+
+        public Object convert(String value) {
+            return value != null ? parseDate(type, value, useVariableDates, useTimestamp) : null;
+        }
+    }
+
+    protected class BigIntegerObjectValueConverter extends AbstractObjectValueConverter {
+
+        public BigIntegerObjectValueConverter(Column column, boolean fitToColumn) {
+            super(column, fitToColumn);
+        }
+
+        public Object convert(String value) {
+            return value != null ? cleanText(parseBigInteger(value)) : null;
+        }
+    }
+
+    protected class IntegerObjectValueConverter extends AbstractObjectValueConverter {
+
+        public IntegerObjectValueConverter(Column column, boolean fitToColumn) {
+            super(column, fitToColumn);
+        }
+
+        public Object convert(String value) {
+            return value != null ? cleanText(parseInteger(value)) : null;
+        }
+    }
+
+    protected class FloatObjectValueConverter extends AbstractObjectValueConverter {
+
+        public FloatObjectValueConverter(Column column, boolean fitToColumn) {
+            super(column, fitToColumn);
+        }
+
+        public Object convert(String value) {
+            return value != null ? cleanText(parseFloat(value)) : null;
+        }
+    }
+
+    protected class BigDecimalObjectValueConverter extends AbstractObjectValueConverter {
+
+        public BigDecimalObjectValueConverter(Column column, boolean fitToColumn) {
+            super(column, fitToColumn);
+        }
+
+        public Object convert(String value) {
+            return value != null ? cleanText(parseBigDecimal(value)) : null;
+        }
+    }
+
+    protected class BooleanObjectValueConverter extends AbstractObjectValueConverter {
+
+        public BooleanObjectValueConverter(Column column, boolean fitToColumn) {
+            super(column, fitToColumn);
+        }
+
+        public Object convert(String value) {
+            if (value != null) {
+                return value.equals("1") ? Boolean.TRUE : Boolean.FALSE;
+            }
+            return null;
+        }
+    }
+
+    protected class BinaryObjectValueConverter extends AbstractObjectValueConverter {
+
+        protected BinaryEncoding encoding;
+
+        public BinaryObjectValueConverter(Column column, boolean fitToColumn,
+                BinaryEncoding encoding) {
+            super(column, fitToColumn);
+            this.encoding = encoding;
+        }
+
+        public Object convert(String value) throws DecoderException {
+            if (value == null) {
+                return null;
+            } else if (encoding == BinaryEncoding.BASE64) {
+                return Base64.decodeBase64(value.getBytes());
+            } else if (encoding == BinaryEncoding.HEX) {
+                return Hex.decodeHex(value.toCharArray());
+            } else {
+                return value.getBytes();
+            }
+        }
+    }
+
+    protected static class CachedTable {
+
+        private Table table;
+
+        private String catalogName;
+
+        private String schemaName;
+
+        private String tableName;
+
+        private long readTime = System.currentTimeMillis();
+
+        private AtomicBoolean refreshing = new AtomicBoolean();
+
+        public CachedTable(Table table, String catalogName, String schemaName, String tableName) {
+            this.table = table;
+            this.catalogName = catalogName;
+            this.schemaName = schemaName;
+            this.tableName = tableName;
+        }
+
+        public Table getTable() {
+            return table;
+        }
+
+        public long getReadTime() {
+            return readTime;
+        }
+
+        public boolean startRefresh() {
+            return refreshing.compareAndSet(false, true);
+        }
+
+        public void refreshFailed() {
+            refreshing.set(false);
+        }
+
+        /*
+         * A blank catalog or schema on either side matches any, because
+         * callers use both blank and explicit default names for the same
+         * table.
+         */
+        public boolean matches(String catalogName, String schemaName, String tableName) {
+            return StringUtils.equalsIgnoreCase(this.tableName, tableName)
+                    && (StringUtils.isBlank(catalogName) || StringUtils.isBlank(this.catalogName) || catalogName
+                            .equalsIgnoreCase(this.catalogName))
+                    && (StringUtils.isBlank(schemaName) || StringUtils.isBlank(this.schemaName) || schemaName
+                            .equalsIgnoreCase(this.schemaName));
+        }
+    }
+
 }
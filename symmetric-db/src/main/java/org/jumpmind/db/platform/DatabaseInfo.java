@@ -169,6 +169,12 @@ public class DatabaseInfo {
      */
     private int maxForeignKeyNameLength = -1;
 
+    /**
+     * Specifies the maximum number of bind parameters that a single statement
+     * can have for this database (-1 if there is no limit).
+     */
+    private int maxBindParameters = -1;
+
     /**
      * The string used for delimiting SQL identifiers, eg. table names, column
      * names etc.
@@ -825,6 +831,27 @@ public class DatabaseInfo {
         this.maxForeignKeyNameLength = maxForeignKeyNameLength;
     }
 
+    /**
+     * Returns the maximum number of bind parameters that a single statement
+     * can have.
+     * 
+     * @return The maximum number of parameters, -1 if unlimited
+     */
+    public int getMaxBindParameters() {
+        return maxBindParameters;
+    }
+
+    /**
+     * Sets the maximum number of bind parameters that a single statement can
+     * have.
+     * 
+     * @param maxBindParameters
+     *            The maximum number of parameters, -1 if unlimited
+     */
+    public void setMaxBindParameters(int maxBindParameters) {
+        this.maxBindParameters = maxBindParameters;
+    }
+
     /**
      * Returns the text that is used to delimit identifiers (eg. table names).
      * Per default, this is a double quotation character (").
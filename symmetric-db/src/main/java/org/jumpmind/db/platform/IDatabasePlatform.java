@@ -91,6 +91,16 @@ public interface IDatabasePlatform {
     
     public void resetCachedTableModel();
 
+    /**
+     * Remove a table from the table metadata cache. A blank catalog or schema
+     * matches any.
+     */
+    public void resetCachedTableModel(String catalogName, String schemaName, String tableName);
+
+    public long getTableCacheHitCount();
+
+    public long getTableCacheMissCount();
+
     public Table getTableFromCache(String tableName, boolean forceReread);
 
     public Table getTableFromCache(String catalogName, String schemaName, String tableName,
@@ -131,6 +141,16 @@ public interface IDatabasePlatform {
     public Object[] getObjectValues(BinaryEncoding encoding, String[] values,
             Column[] orderedMetaData, boolean useVariableDates, boolean fitToColumn);
 
+    /**
+     * Pick a converter for each column once so that
+     * {@link #getObjectValues(ObjectValueConverter[], String[])} can convert
+     * many rows without checking the column types for every value.
+     */
+    public ObjectValueConverter[] getObjectValueConverters(BinaryEncoding encoding,
+            Column[] orderedMetaData, boolean useVariableDates, boolean fitToColumn);
+
+    public Object[] getObjectValues(ObjectValueConverter[] converters, String[] values);
+
     public String[] getStringValues(BinaryEncoding encoding, Column[] metaData, Row row, boolean useVariableDates, boolean indexByPosition);
 
     public Database readDatabaseFromXml(String filePath, boolean alterCaseToMatchDatabaseDefaultCase);
@@ -182,5 +202,12 @@ public interface IDatabasePlatform {
     public boolean canColumnBeUsedInWhereClause(Column column);
     
     public void makePlatformSpecific(Database database);
+
+    /**
+     * @return an estimate of the number of rows in the table taken from the
+     *         statistics the database keeps, or -1 if the platform can not
+     *         estimate it
+     */
+    public long getEstimatedRowCount(Table table);
     
 }
@@ -21,6 +21,7 @@
 package org.jumpmind.db.platform;
 
 
+import java.util.Collection;
 import java.util.List;
 
 import org.jumpmind.db.model.Database;
@@ -31,6 +32,8 @@ public interface IDdlReader {
     public Database readTables(String catalog, String schema, String[] tableTypes);
 
     public Table readTable(String catalog, String schema, String tableName);
+
+    public List<Table> readTablesByName(String catalog, String schema, Collection<String> tableNames);
     
     public List<String> getTableTypes();
     
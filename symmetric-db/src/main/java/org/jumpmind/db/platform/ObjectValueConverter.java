@@ -0,0 +1,47 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import org.jumpmind.db.model.Column;
+
+/**
+ * Converts the string form of a column value into the object that is bound to
+ * a statement. A converter is picked once for a column so that loading a row
+ * does not have to look at the column type again.
+ * 
+ * @see IDatabasePlatform#getObjectValueConverters(org.jumpmind.db.util.BinaryEncoding,
+ *      Column[], boolean, boolean)
+ */
+public abstract class ObjectValueConverter {
+
+    protected Column column;
+
+    public ObjectValueConverter(Column column) {
+        this.column = column;
+    }
+
+    public Column getColumn() {
+        return column;
+    }
+
+    public abstract Object convert(String value) throws Exception;
+
+}
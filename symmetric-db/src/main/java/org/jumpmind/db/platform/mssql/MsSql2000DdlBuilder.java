@@ -99,6 +99,7 @@ public class MsSql2000DdlBuilder extends AbstractDdlBuilder {
     
     protected void setup() {
         databaseInfo.setMaxIdentifierLength(128);
+        databaseInfo.setMaxBindParameters(2100);
         databaseInfo.addNativeTypeMapping(Types.ARRAY, "IMAGE", Types.LONGVARBINARY);
         // BIGINT will be mapped back to BIGINT by the model reader
         //databaseInfo.addNativeTypeMapping(Types.BIGINT, "DECIMAL(19,0)");
@@ -42,6 +42,7 @@ public class SqliteDdlBuilder extends AbstractDdlBuilder {
         databaseInfo.setNonPKIdentityColumnsSupported(false);
         databaseInfo.setIdentityOverrideAllowed(false);
         databaseInfo.setSystemForeignKeyIndicesAlwaysNonUnique(true);
+        databaseInfo.setMaxBindParameters(999);
         databaseInfo.setNullAsDefaultValueRequired(false);
         databaseInfo.setRequiresAutoCommitForDdl(true);
 
@@ -21,6 +21,7 @@
 package org.jumpmind.db.platform.sqlite;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -72,6 +73,17 @@ public class SqliteDdlReader implements IDdlReader {
         }
         return database;
     }
+
+    public List<Table> readTablesByName(String catalog, String schema, Collection<String> tableNames) {
+        List<Table> tables = new ArrayList<Table>(tableNames.size());
+        for (String tableName : tableNames) {
+            Table table = readTable(catalog, schema, tableName);
+            if (table != null) {
+                tables.add(table);
+            }
+        }
+        return tables;
+    }
     
     protected void checkForAutoIncrementColumn(List<Column> columns, String tableName) {
         String ddl = platform.getSqlTemplate().queryForObject("select sql from sqlite_master where tbl_name=?", String.class, tableName);
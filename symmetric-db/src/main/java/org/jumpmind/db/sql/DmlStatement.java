@@ -37,6 +37,8 @@ import org.jumpmind.db.model.Column;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.model.TypeMap;
 import org.jumpmind.db.platform.DatabaseInfo;
+import org.jumpmind.db.platform.IDatabasePlatform;
+import org.jumpmind.db.platform.ObjectValueConverter;
 import org.jumpmind.db.util.BinaryEncoding;
 import org.jumpmind.util.FormatUtils;
 import org.slf4j.Logger;
@@ -72,6 +74,14 @@ public class DmlStatement {
     protected boolean[] nullKeyValues;
     
     protected String textColumnExpression;
+
+    protected ObjectValueConverter[] converters;
+
+    protected BinaryEncoding convertersEncoding;
+
+    protected boolean convertersUseVariableDates;
+
+    protected boolean convertersFitToColumn;
     
     public DmlStatement(DmlType type, String catalogName, String schemaName, String tableName,
             Column[] keysColumns, Column[] columns, boolean[] nullKeyValues, 
@@ -355,6 +365,27 @@ public class DmlStatement {
         return sql;
     }
 
+    /**
+     * @return the insert statement with its values list repeated for
+     *         rowCount rows. The values of all of the rows are bound one row
+     *         after the other using {@link #getTypes()} for each row.
+     */
+    public String buildMultiRowInsertSql(int rowCount) {
+        StringBuilder values = new StringBuilder("(");
+        appendColumnParameters(values, columns);
+        values.append(")");
+        if (dmlType != DmlType.INSERT || !sql.endsWith(values.toString())) {
+            throw new IllegalStateException("Cannot build a multiple row insert from: " + sql);
+        }
+        StringBuilder multiRowSql = new StringBuilder(sql.length() + (values.length() + 2)
+                * (rowCount - 1));
+        multiRowSql.append(sql);
+        for (int i = 1; i < rowCount; i++) {
+            multiRowSql.append(", ").append(values);
+        }
+        return multiRowSql.toString();
+    }
+
     public DmlType getDmlType() {
         return dmlType;
     }
@@ -389,6 +420,26 @@ public class DmlStatement {
     public Column[] getKeys() {
         return keys;
     }
+
+    /**
+     * @return the converters for the values of {@link #getMetaData()}. They
+     *         are built on first use and kept for as long as the same settings
+     *         are asked for.
+     */
+    public ObjectValueConverter[] getObjectValueConverters(IDatabasePlatform platform,
+            BinaryEncoding encoding, boolean useVariableDates, boolean fitToColumn) {
+        if (converters == null || convertersEncoding != encoding
+                || convertersUseVariableDates != useVariableDates
+                || convertersFitToColumn != fitToColumn) {
+            Column[] metaData = getMetaData();
+            converters = metaData != null ? platform.getObjectValueConverters(encoding, metaData,
+                    useVariableDates, fitToColumn) : new ObjectValueConverter[0];
+            convertersEncoding = encoding;
+            convertersUseVariableDates = useVariableDates;
+            convertersFitToColumn = fitToColumn;
+        }
+        return converters;
+    }
    
     @SuppressWarnings("unchecked")
     public <T> T[] getValueArray(T[] columnValues, T[] keyValues) {
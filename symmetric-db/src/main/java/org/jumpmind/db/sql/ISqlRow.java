@@ -0,0 +1,47 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.sql;
+
+import java.util.Date;
+
+/**
+ * The column values of one row of a result set, read by column name. Reading
+ * a column that is not in the result set raises a
+ * {@link ColumnNotFoundException} unless the read is asked not to check for
+ * the column.
+ */
+public interface ISqlRow {
+
+    public String getString(String columnName);
+
+    public String getString(String columnName, boolean checkForColumn);
+
+    public int getInt(String columnName);
+
+    public long getLong(String columnName);
+
+    public boolean getBoolean(String columnName);
+
+    public Date getDateTime(String columnName);
+
+    public byte[] getBytes(String columnName);
+
+}
@@ -51,6 +51,13 @@ public interface ISqlTransaction {
 
     public void commit();
 
+    /**
+     * Run the callback after the work done so far has been committed. The
+     * callback is dropped if the transaction is rolled back or closed without
+     * being committed.
+     */
+    public void addCommitCallback(Runnable callback);
+
     public void rollback();
 
     public void close();
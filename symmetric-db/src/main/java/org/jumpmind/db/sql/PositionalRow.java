@@ -0,0 +1,191 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.sql;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * A row of a result set whose values are held by column index instead of in a
+ * map keyed by column name. Column names are resolved to indexes once for a
+ * result set and the same row instance is refilled for each row of the result
+ * set, so a mapper must not hold on to it after it returns.
+ * <p>
+ * Column indexes are zero based. An index of -1, which is what
+ * {@link #indexOf(String)} returns for a column that is not in the result
+ * set, always reads as null. Reading a column that is not in the result set
+ * by name raises a {@link ColumnNotFoundException}, the same as {@link Row}.
+ */
+public class PositionalRow implements ISqlRow {
+
+    protected String[] columnNames;
+
+    protected Map<String, Integer> columnIndexes;
+
+    protected Object[] values;
+
+    protected String[] lastResolvedColumnNames;
+
+    protected int[] lastResolvedColumnIndexes;
+
+    public PositionalRow(String[] columnNames) {
+        this.columnNames = columnNames;
+        this.values = new Object[columnNames.length];
+        this.columnIndexes = new HashMap<String, Integer>(columnNames.length * 2);
+        for (int i = 0; i < columnNames.length; i++) {
+            this.columnIndexes.put(columnNames[i].toLowerCase(), i);
+        }
+    }
+
+    public PositionalRow(Row row) {
+        this(row.keySet().toArray(new String[row.size()]));
+        Iterator<Object> iterator = row.values().iterator();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = iterator.next();
+        }
+    }
+
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    public String getColumnName(int index) {
+        return columnNames[index];
+    }
+
+    public int indexOf(String columnName) {
+        Integer index = columnIndexes.get(columnName);
+        if (index == null) {
+            index = columnIndexes.get(columnName.toLowerCase());
+            if (index == null) {
+                index = -1;
+            }
+            /*
+             * Remember the name as the mapper spells it so the same name is
+             * found without lower casing it for the next row
+             */
+            columnIndexes.put(columnName, index);
+        }
+        return index;
+    }
+
+    /**
+     * Resolve a set of column names to their indexes in this row. The result
+     * is cached for the array that is passed in, so a mapper that passes the
+     * same constant array for every row only resolves it once for the result
+     * set.
+     */
+    public int[] getColumnIndexes(String[] names) {
+        if (names != lastResolvedColumnNames) {
+            int[] indexes = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                indexes[i] = indexOf(names[i]);
+            }
+            lastResolvedColumnIndexes = indexes;
+            lastResolvedColumnNames = names;
+        }
+        return lastResolvedColumnIndexes;
+    }
+
+    public void set(int index, Object value) {
+        values[index] = value;
+    }
+
+    public Object get(int index) {
+        return index >= 0 ? values[index] : null;
+    }
+
+    public String getString(int index) {
+        Object obj = get(index);
+        return obj != null ? obj.toString() : null;
+    }
+
+    public int getInt(int index) {
+        return Row.toInt(get(index));
+    }
+
+    public long getLong(int index) {
+        return Row.toLong(get(index));
+    }
+
+    public boolean getBoolean(int index) {
+        return Row.toBoolean(get(index));
+    }
+
+    public Date getDateTime(int index) {
+        return Row.toDateTime(get(index));
+    }
+
+    public byte[] getBytes(int index) {
+        return Row.toBytes(get(index));
+    }
+
+    public String getString(String columnName) {
+        return getString(columnName, true);
+    }
+
+    public String getString(String columnName, boolean checkForColumn) {
+        int index = indexOf(columnName);
+        if (index < 0 && checkForColumn) {
+            throw new ColumnNotFoundException(columnName);
+        }
+        return getString(index);
+    }
+
+    public int getInt(String columnName) {
+        return getInt(checkForColumn(columnName));
+    }
+
+    public long getLong(String columnName) {
+        return getLong(checkForColumn(columnName));
+    }
+
+    public boolean getBoolean(String columnName) {
+        return getBoolean(checkForColumn(columnName));
+    }
+
+    public Date getDateTime(String columnName) {
+        return getDateTime(checkForColumn(columnName));
+    }
+
+    public byte[] getBytes(String columnName) {
+        return getBytes(indexOf(columnName));
+    }
+
+    protected int checkForColumn(String columnName) {
+        int index = indexOf(columnName);
+        if (index < 0) {
+            throw new ColumnNotFoundException(columnName);
+        }
+        return index;
+    }
+
+    public Row toRow() {
+        Row row = new Row(values.length);
+        for (int i = 0; i < values.length; i++) {
+            row.put(columnNames[i], values[i]);
+        }
+        return row;
+    }
+
+}
@@ -35,7 +35,7 @@ import org.jumpmind.exception.ParseException;
 import org.jumpmind.util.FormatUtils;
 import org.jumpmind.util.LinkedCaseInsensitiveMap;
 
-public class Row extends LinkedCaseInsensitiveMap<Object> {
+public class Row extends LinkedCaseInsensitiveMap<Object> implements ISqlRow {
 
     private static final long serialVersionUID = 1L;
 
@@ -53,7 +53,7 @@ public class Row extends LinkedCaseInsensitiveMap<Object> {
         return toBytes(obj);
     }
 
-    protected byte[] toBytes(Object obj) {
+    protected static byte[] toBytes(Object obj) {
         if (obj != null) {
             if (obj instanceof byte[]) {
                 return (byte[]) obj;
@@ -149,10 +149,8 @@ public class Row extends LinkedCaseInsensitiveMap<Object> {
 
     public int getInt(String columnName) {
         Object obj = this.get(columnName);
-        if (obj instanceof Number) {
-            return ((Number) obj).intValue();
-        } else if (obj instanceof String) {
-            return Integer.parseInt(obj.toString());
+        if (obj instanceof Number || obj instanceof String) {
+            return toInt(obj);
         } else {
             checkForColumn(columnName);
             return 0;
@@ -161,10 +159,8 @@ public class Row extends LinkedCaseInsensitiveMap<Object> {
 
     public long getLong(String columnName) {
         Object obj = this.get(columnName);
-        if (obj instanceof Number) {
-            return ((Number) obj).longValue();
-        } else if (obj instanceof String) {
-            return Long.parseLong(obj.toString());
+        if (obj instanceof Number || obj instanceof String) {
+            return toLong(obj);
         } else {
             checkForColumn(columnName);
             return 0;
@@ -173,15 +169,8 @@ public class Row extends LinkedCaseInsensitiveMap<Object> {
 
     public boolean getBoolean(String columnName) {
         Object obj = this.get(columnName);
-        if ("1".equals(obj)) {
-            return true;
-        } else if (obj instanceof Number) {
-            int value = ((Number) obj).intValue();
-            return value > 0 ? true : false;
-        } else if (obj instanceof Boolean) {
-            return (Boolean) obj;
-        } else if (obj instanceof String) {
-            return Boolean.parseBoolean((String) obj);
+        if (obj instanceof Number || obj instanceof Boolean || obj instanceof String) {
+            return toBoolean(obj);
         } else {
             checkForColumn(columnName);
             return false;
@@ -200,6 +189,61 @@ public class Row extends LinkedCaseInsensitiveMap<Object> {
 
     public Date getDateTime(String columnName) {
         Object obj = this.get(columnName);
+        if (obj instanceof Number || obj instanceof Date || obj instanceof String) {
+            return toDateTime(obj);
+        } else {
+            checkForColumn(columnName);
+            return null;
+        }
+    }
+
+    protected void checkForColumn(String columnName) {
+        if (!containsKey(columnName)) {
+            throw new ColumnNotFoundException(columnName);
+        }
+    }
+
+    /*
+     * The conversions below are shared with PositionalRow. A value of a type
+     * that cannot be converted reads as null, 0 or false.
+     */
+
+    protected static int toInt(Object obj) {
+        if (obj instanceof Number) {
+            return ((Number) obj).intValue();
+        } else if (obj instanceof String) {
+            return Integer.parseInt(obj.toString());
+        } else {
+            return 0;
+        }
+    }
+
+    protected static long toLong(Object obj) {
+        if (obj instanceof Number) {
+            return ((Number) obj).longValue();
+        } else if (obj instanceof String) {
+            return Long.parseLong(obj.toString());
+        } else {
+            return 0;
+        }
+    }
+
+    protected static boolean toBoolean(Object obj) {
+        if ("1".equals(obj)) {
+            return true;
+        } else if (obj instanceof Number) {
+            int value = ((Number) obj).intValue();
+            return value > 0 ? true : false;
+        } else if (obj instanceof Boolean) {
+            return (Boolean) obj;
+        } else if (obj instanceof String) {
+            return Boolean.parseBoolean((String) obj);
+        } else {
+            return false;
+        }
+    }
+
+    protected static Date toDateTime(Object obj) {
         if (obj instanceof Number) {
             long value = ((Number) obj).longValue();
             return new Date(value);
@@ -207,26 +251,15 @@ public class Row extends LinkedCaseInsensitiveMap<Object> {
             return (Date) obj;
         } else if (obj instanceof String) {
             try {
-                return getDate((String) obj, FormatUtils.TIMESTAMP_PATTERNS);
+                return FormatUtils.parseDate((String) obj, FormatUtils.TIMESTAMP_PATTERNS);
             } catch (ParseException ex) {
                 // on xerial sqlite jdbc dates come back as longs
                 return new Date(Long.parseLong((String) obj));
             }
         } else {
-            checkForColumn(columnName);
             return null;
         }
     }
-
-    protected void checkForColumn(String columnName) {
-        if (!containsKey(columnName)) {
-            throw new ColumnNotFoundException(columnName);
-        }
-    }
-
-    final private java.util.Date getDate(String value, String[] pattern) {
-        return FormatUtils.parseDate(value, pattern);
-    }
     
     public Object[] toArray(String[] keys) {
         Object[] values = new Object[keys.length];
@@ -25,9 +25,14 @@ import static org.junit.Assert.*;
 import java.sql.Timestamp;
 import java.sql.Types;
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.h2.H2DdlBuilder;
 import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.util.BinaryEncoding;
 import org.junit.Test;
 
 public class AbstractDatabasePlatformTest {
@@ -49,6 +54,32 @@ public class AbstractDatabasePlatformTest {
         }
     }
     
+    @Test
+    public void testObjectValueConvertersMatchObjectValues() {
+        Column[] columns = new Column[] { new Column("ID", true, Types.INTEGER, 10, 0),
+                new Column("BIG_ID", false, Types.BIGINT, 19, 0),
+                new Column("AMOUNT", false, Types.DECIMAL, 10, 2),
+                new Column("NAME", false, Types.VARCHAR, 50, 0),
+                new Column("CODE", false, Types.CHAR, 5, 0),
+                new Column("CREATE_DATE", false, Types.DATE, 0, 0),
+                new Column("CREATE_TIME", false, Types.TIMESTAMP, 0, 0),
+                new Column("ENABLED", false, Types.BOOLEAN, 0, 0),
+                new Column("DATA", false, Types.VARBINARY, 50, 0) };
+        String[][] rows = new String[][] {
+                { "1", "9223372036854775807", "10.25", "name", "ab", "2015-11-03",
+                        "2015-11-03 01:35:03.714", "1", "aGVsbG8=" },
+                { "2", "3", "-1.5", "", "", "2015-11-03 00:00:00.000",
+                        "2015-11-03 01:35:03.714566", "false", "" },
+                { null, null, null, null, null, null, "2015-11-03 01:35:03", null, null } };
+        ObjectValueConverter[] converters = testDatabasePlatform.getObjectValueConverters(
+                BinaryEncoding.BASE64, columns, false, false);
+        for (String[] row : rows) {
+            assertArrayEquals(
+                    testDatabasePlatform.getObjectValues(BinaryEncoding.BASE64, row, columns, false, false),
+                    testDatabasePlatform.getObjectValues(converters, row));
+        }
+    }
+
     @Test
     public void testParseTimeZone() {
         assertEquals(-18000000, testDatabasePlatform.getTimeZone("EST").getRawOffset());
@@ -78,6 +109,104 @@ public class AbstractDatabasePlatformTest {
         assertEquals(3, testDatabasePlatform.parseQualifiedTableName("\"CATALOG\".\"SCHEMA\".\"TABLE\"").size());
     }
     
+    @Test
+    public void testTableCacheHitsAndTargetedReset() {
+        CountingDatabasePlatform platform = new CountingDatabasePlatform();
+        Table table = platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE1", false);
+        assertEquals("TABLE1", table.getName());
+        assertSame(table, platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE1", false));
+        platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE2", false);
+        assertEquals(2, platform.reads.get());
+        assertEquals(1, platform.getTableCacheHitCount());
+        assertEquals(2, platform.getTableCacheMissCount());
+
+        platform.resetCachedTableModel(null, null, "table1");
+        assertNotSame(table, platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE1", false));
+        platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE2", false);
+        assertEquals(3, platform.reads.get());
+
+        platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE2", true);
+        assertEquals(4, platform.reads.get());
+    }
+
+    @Test
+    public void testTableCacheExpires() {
+        CountingDatabasePlatform platform = new CountingDatabasePlatform();
+        platform.setClearCacheModelTimeoutInMs(0);
+        platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE1", false);
+        platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE1", false);
+        assertEquals(2, platform.reads.get());
+    }
+
+    @Test
+    public void testTableCacheReadsOnceForConcurrentMisses() throws Exception {
+        final CountingDatabasePlatform platform = new CountingDatabasePlatform();
+        platform.readLatch = new CountDownLatch(1);
+        Thread[] threads = new Thread[5];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    platform.getTableFromCache("CATALOG", "SCHEMA", "TABLE1", false);
+                }
+            };
+            threads[i].start();
+        }
+        while (platform.reads.get() == 0) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        platform.readLatch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, platform.reads.get());
+    }
+
+    class CountingDatabasePlatform extends AbstractDatabasePlatform {
+
+        AtomicInteger reads = new AtomicInteger();
+
+        CountDownLatch readLatch;
+
+        @Override
+        public Table readTableFromDatabase(String catalogName, String schemaName, String tableName) {
+            reads.incrementAndGet();
+            if (readLatch != null) {
+                try {
+                    readLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new Table(catalogName, schemaName, tableName);
+        }
+
+        @Override
+        public String getName() {
+            return "Test";
+        }
+
+        @Override
+        public String getDefaultSchema() {
+            return null;
+        }
+
+        @Override
+        public String getDefaultCatalog() {
+            return null;
+        }
+
+        @Override
+        public <T> T getDataSource() {
+            return null;
+        }
+
+        @Override
+        public ISqlTemplate getSqlTemplate() {
+            return null;
+        }
+    }
+
     private AbstractDatabasePlatform testDatabasePlatform = new AbstractDatabasePlatform() {
         @Override
         public String getName() {
@@ -0,0 +1,144 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.platform;
+
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import org.jumpmind.db.model.Column;
+import org.jumpmind.db.platform.h2.H2DdlBuilder;
+import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.util.BinaryEncoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares converting the string values of loaded rows to objects by
+ * dispatching on each column's type for every value against converting them
+ * with the per column {@link ObjectValueConverter}s that are built once for a
+ * statement.
+ * <p>
+ * Run with <code>gradle :symmetric-db:benchmark -Pbenchmarks=ObjectValueConverterBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ObjectValueConverterBenchmark {
+
+    @Param({ "10000" })
+    int rowCount;
+
+    AbstractDatabasePlatform platform;
+
+    Column[] columns;
+
+    ObjectValueConverter[] converters;
+
+    String[][] rows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        platform = new AbstractDatabasePlatform() {
+            {
+                ddlBuilder = new H2DdlBuilder();
+            }
+
+            @Override
+            public String getName() {
+                return "Benchmark";
+            }
+
+            @Override
+            public String getDefaultSchema() {
+                return null;
+            }
+
+            @Override
+            public String getDefaultCatalog() {
+                return null;
+            }
+
+            @Override
+            public <T> T getDataSource() {
+                return null;
+            }
+
+            @Override
+            public ISqlTemplate getSqlTemplate() {
+                return null;
+            }
+        };
+
+        columns = new Column[] { new Column("ID", true, Types.INTEGER, 10, 0),
+                new Column("BIG_ID", false, Types.BIGINT, 19, 0),
+                new Column("AMOUNT", false, Types.DECIMAL, 10, 2),
+                new Column("NAME", false, Types.VARCHAR, 50, 0),
+                new Column("CODE", false, Types.CHAR, 5, 0),
+                new Column("CREATE_DATE", false, Types.DATE, 0, 0),
+                new Column("CREATE_TIME", false, Types.TIMESTAMP, 0, 0),
+                new Column("LAST_UPDATE_TIME", false, Types.TIMESTAMP, 0, 0),
+                new Column("ENABLED", false, Types.BOOLEAN, 0, 0),
+                new Column("DATA", false, Types.VARBINARY, 50, 0) };
+
+        converters = platform.getObjectValueConverters(BinaryEncoding.BASE64, columns, false,
+                false);
+
+        rows = new String[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = new String[] { Integer.toString(i), Long.toString(i * 1000000l),
+                    (i % 1000) + ".25", "name " + i, "ab", "2015-11-03",
+                    "2015-11-03 01:35:03." + (100 + i % 900), "2015-11-03 01:35:03",
+                    i % 2 == 0 ? "1" : "0", "aGVsbG8=" };
+        }
+    }
+
+    @Benchmark
+    public int getObjectValues() {
+        int count = 0;
+        for (String[] row : rows) {
+            count += platform.getObjectValues(BinaryEncoding.BASE64, row, columns, false, false).length;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int getObjectValuesWithConverters() {
+        int count = 0;
+        for (String[] row : rows) {
+            count += platform.getObjectValues(converters, row).length;
+        }
+        return count;
+    }
+
+}
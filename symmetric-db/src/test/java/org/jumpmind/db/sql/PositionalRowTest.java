@@ -0,0 +1,97 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+
+import org.junit.Test;
+
+public class PositionalRowTest {
+
+    @Test
+    public void testReadByIndex() {
+        PositionalRow row = new PositionalRow(new String[] { "DATA_ID", "CHANNEL_ID", "CREATE_TIME", "LOAD_FLAG" });
+        row.set(0, new Long(10));
+        row.set(1, "default");
+        row.set(2, new Date(1000));
+        row.set(3, "1");
+
+        int[] columns = row.getColumnIndexes(new String[] { "data_id", "Channel_Id", "create_time", "load_flag", "router_id" });
+        assertEquals(10, row.getLong(columns[0]));
+        assertEquals("default", row.getString(columns[1]));
+        assertEquals(1000, row.getDateTime(columns[2]).getTime());
+        assertEquals(true, row.getBoolean(columns[3]));
+        assertEquals(-1, columns[4]);
+        assertNull(row.getString(columns[4]));
+        assertEquals(0, row.getLong(columns[4]));
+        assertFalse(row.getBoolean(columns[4]));
+    }
+
+    @Test
+    public void testReadByName() {
+        PositionalRow row = new PositionalRow(new String[] { "DATA_ID", "CHANNEL_ID", "OLD_DATA" });
+        row.set(0, "10");
+        row.set(1, "default");
+        assertEquals(10, row.getLong("data_id"));
+        assertEquals(10, row.getLong("DATA_ID"));
+        assertEquals("default", row.getString("Channel_Id"));
+        assertNull(row.getString("old_data"));
+        assertNull(row.getString("router_id", false));
+        try {
+            row.getString("router_id");
+            fail();
+        } catch (ColumnNotFoundException ex) {
+        }
+        try {
+            row.getLong("router_id");
+            fail();
+        } catch (ColumnNotFoundException ex) {
+        }
+    }
+
+    @Test
+    public void testColumnIndexesResolvedOnce() {
+        String[] names = new String[] { "B", "A" };
+        PositionalRow row = new PositionalRow(new String[] { "A", "B" });
+        int[] columns = row.getColumnIndexes(names);
+        assertEquals(1, columns[0]);
+        assertEquals(0, columns[1]);
+        assertSame(columns, row.getColumnIndexes(names));
+    }
+
+    @Test
+    public void testFromRow() {
+        Row row = new Row(2);
+        row.put("batch_id", "12");
+        row.put("status", "OK");
+        PositionalRow positionalRow = new PositionalRow(row);
+        assertEquals(12, positionalRow.getLong(positionalRow.indexOf("BATCH_ID")));
+        assertEquals("OK", positionalRow.getString(positionalRow.indexOf("STATUS")));
+        assertEquals(row, positionalRow.toRow());
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.db.sql;
+
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares materializing each row of a sym_data select as a {@link Row} and
+ * reading it by column name against refilling one {@link PositionalRow} and
+ * reading it by column indexes that are resolved once for the result set. The
+ * values are held in memory so that only the row handling is measured.
+ * <p>
+ * Run with <code>gradle :symmetric-db:benchmark -Pbenchmarks=RowMappingBenchmark</code>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    static final String[] COLUMN_NAMES = { "DATA_ID", "TABLE_NAME", "EVENT_TYPE", "ROW_DATA",
+            "PK_DATA", "OLD_DATA", "CREATE_TIME", "TRIGGER_HIST_ID", "CHANNEL_ID",
+            "TRANSACTION_ID", "SOURCE_NODE_ID", "EXTERNAL_DATA", "NODE_LIST", "ROUTER_ID" };
+
+    @Param({ "10000" })
+    int rowCount;
+
+    Object[][] rows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Timestamp createTime = new Timestamp(System.currentTimeMillis());
+        rows = new Object[rowCount][];
+        for (int i = 0; i < rowCount; i++) {
+            rows[i] = new Object[] { new Long(i), "ITEM_SELLING_PRICE", "U",
+                    "\"" + i + "\",\"store " + i + "\",\"10.99\"", "\"" + i + "\"", null,
+                    createTime, new Integer(3), "default", "tx" + (i / 10), null, null, null,
+                    "corp_2_store" };
+        }
+    }
+
+    @Benchmark
+    public long mapRow() {
+        long count = 0;
+        for (Object[] values : rows) {
+            Row row = new Row(COLUMN_NAMES.length);
+            for (int i = 0; i < COLUMN_NAMES.length; i++) {
+                row.put(COLUMN_NAMES[i], values[i]);
+            }
+            count += row.getLong("DATA_ID");
+            count += row.getString("TABLE_NAME").length();
+            count += row.getString("EVENT_TYPE").length();
+            count += length(row.getString("ROW_DATA", false));
+            count += length(row.getString("PK_DATA", false));
+            count += length(row.getString("OLD_DATA", false));
+            count += row.getDateTime("CREATE_TIME").getTime() > 0 ? 1 : 0;
+            count += row.getInt("TRIGGER_HIST_ID");
+            count += row.getString("CHANNEL_ID").length();
+            count += length(row.getString("TRANSACTION_ID", false));
+            count += length(row.getString("SOURCE_NODE_ID"));
+            count += length(row.getString("EXTERNAL_DATA"));
+            count += length(row.getString("NODE_LIST"));
+            count += length(row.getString("ROUTER_ID", false));
+        }
+        return count;
+    }
+
+    @Benchmark
+    public long mapPositionalRow() {
+        long count = 0;
+        PositionalRow row = new PositionalRow(COLUMN_NAMES);
+        for (Object[] values : rows) {
+            for (int i = 0; i < values.length; i++) {
+                row.set(i, values[i]);
+            }
+            int[] columns = row.getColumnIndexes(COLUMN_NAMES);
+            count += row.getLong(columns[0]);
+            count += row.getString(columns[1]).length();
+            count += row.getString(columns[2]).length();
+            count += length(row.getString(columns[3]));
+            count += length(row.getString(columns[4]));
+            count += length(row.getString(columns[5]));
+            count += row.getDateTime(columns[6]).getTime() > 0 ? 1 : 0;
+            count += row.getInt(columns[7]);
+            count += row.getString(columns[8]).length();
+            count += length(row.getString(columns[9]));
+            count += length(row.getString(columns[10]));
+            count += length(row.getString(columns[11]));
+            count += length(row.getString(columns[12]));
+            count += length(row.getString(columns[13]));
+        }
+        return count;
+    }
+
+    static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+}
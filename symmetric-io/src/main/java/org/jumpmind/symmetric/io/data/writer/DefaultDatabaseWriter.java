@@ -513,7 +513,9 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
                 platform.createDatabase(db, writerSettings.isCreateTableDropFirst(), !writerSettings.isCreateTableFailOnError());
             }
 
-            platform.resetCachedTableModel();
+            for (Table table : db.getTables()) {
+                platform.resetCachedTableModel(table.getCatalog(), table.getSchema(), table.getName());
+            }
             statistics.get(batch).increment(DataWriterStatisticConstants.CREATECOUNT);
             return true;
         } catch (RuntimeException ex) {
@@ -781,8 +783,8 @@ public class DefaultDatabaseWriter extends AbstractDatabaseWriter {
     }
 
     protected int execute(CsvData data, String[] values) {
-        currentDmlValues = platform.getObjectValues(batch.getBinaryEncoding(), values,
-                currentDmlStatement.getMetaData(), false, writerSettings.isFitToColumn());
+        currentDmlValues = platform.getObjectValues(currentDmlStatement.getObjectValueConverters(
+                platform, batch.getBinaryEncoding(), false, writerSettings.isFitToColumn()), values);
         if (log.isDebugEnabled()) {
             log.debug("Submitting data {} with types {}", Arrays.toString(currentDmlValues),
                     Arrays.toString(this.currentDmlStatement.getTypes()));
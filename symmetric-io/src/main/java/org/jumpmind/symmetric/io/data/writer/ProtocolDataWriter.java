@@ -20,6 +20,7 @@
  */
 package org.jumpmind.symmetric.io.data.writer;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
@@ -27,10 +28,13 @@ import java.util.List;
 
 import org.jumpmind.exception.IoException;
 import org.jumpmind.symmetric.io.data.Batch;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
 import org.jumpmind.util.FormatUtils;
 
 public class ProtocolDataWriter extends AbstractProtocolDataWriter {
 
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
     private BufferedWriter writer;
     
     public ProtocolDataWriter(String sourceNodeId, Writer writer, boolean backwardsCompatible) {
@@ -46,6 +50,47 @@ public class ProtocolDataWriter extends AbstractProtocolDataWriter {
         }
     }
 
+    /**
+     * Copy a batch that was written by a {@link StagingDataWriter} straight to
+     * the output without parsing it. The staged batch carries its own node id,
+     * binary encoding and table definitions so it can be appended as is. This
+     * is only valid when this writer is not backwards compatible because
+     * staged batches are always written in the current protocol format.
+     * 
+     * @return the number of characters that were copied
+     */
+    public long writeStagedBatch(IStagedResource resource) {
+        long charCount = 0;
+        try {
+            writer.flush();
+            BufferedReader reader = resource.getReader();
+            char[] buffer = new char[COPY_BUFFER_SIZE];
+            int count = 0;
+            while ((count = reader.read(buffer)) != -1) {
+                writer.write(buffer, 0, count);
+                charCount += count;
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new IoException(e);
+        } finally {
+            resource.close();
+        }
+
+        /*
+         * The receiver now knows the table definitions that were in the staged
+         * batch, so make sure the next batch written by this writer describes
+         * its tables again
+         */
+        processedTables.clear();
+        table = null;
+        return charCount;
+    }
+
+    public boolean isBackwardsCompatible() {
+        return backwardsCompatible;
+    }
+
     @Override
     protected void endBatch(Batch batch) {
         try {
@@ -94,6 +94,7 @@ public class StagingDataWriter extends AbstractProtocolDataWriter {
     protected void endBatch(Batch batch) {
         IStagedResource resource = getStagedResource(batch);
         resource.close();
+        resource.setStatistics(statistics.get(batch));
         resource.setState(State.READY);
         flushNodeId = true;
         processedTables.clear();
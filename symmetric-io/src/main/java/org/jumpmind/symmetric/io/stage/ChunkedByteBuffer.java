@@ -0,0 +1,235 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.stage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An append only buffer of bytes that is stored as a list of fixed size
+ * chunks. The first chunk starts small and doubles until it reaches the chunk
+ * size so small content does not hold on to a full chunk. After that, growing
+ * the buffer never copies what has already been written. The content can be
+ * read back through an {@link InputStream} view without copying it.
+ * <p>
+ * The buffer is written by one thread. Readers should only be opened after
+ * writing has finished.
+ */
+public class ChunkedByteBuffer {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+
+    public static final int INITIAL_CHUNK_SIZE = 256;
+
+    private int chunkSize;
+
+    private List<byte[]> chunks = new ArrayList<byte[]>();
+
+    private long size;
+
+    private long capacity;
+
+    public ChunkedByteBuffer() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public ChunkedByteBuffer(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void write(byte[] b, int off, int len) {
+        while (len > 0) {
+            int offsetInChunk = (int) (size % chunkSize);
+            int count = Math.min(len, chunkSize - offsetInChunk);
+            byte[] chunk = getChunkToWrite(offsetInChunk, count);
+            System.arraycopy(b, off, chunk, offsetInChunk, count);
+            off += count;
+            len -= count;
+            size += count;
+        }
+    }
+
+    public void write(int b) {
+        int offsetInChunk = (int) (size % chunkSize);
+        getChunkToWrite(offsetInChunk, 1)[offsetInChunk] = (byte) b;
+        size++;
+    }
+
+    protected byte[] getChunkToWrite(int offsetInChunk, int count) {
+        if (offsetInChunk == 0) {
+            byte[] chunk = new byte[chunks.isEmpty() ? getGrownChunkSize(0, count) : chunkSize];
+            chunks.add(chunk);
+            capacity += chunk.length;
+            return chunk;
+        }
+        byte[] chunk = chunks.get(chunks.size() - 1);
+        if (offsetInChunk + count > chunk.length) {
+            byte[] grown = new byte[getGrownChunkSize(chunk.length, offsetInChunk + count)];
+            System.arraycopy(chunk, 0, grown, 0, offsetInChunk);
+            chunks.set(chunks.size() - 1, grown);
+            capacity += grown.length - chunk.length;
+            chunk = grown;
+        }
+        return chunk;
+    }
+
+    protected int getGrownChunkSize(int length, int needed) {
+        int grown = Math.max(INITIAL_CHUNK_SIZE, length * 2);
+        while (grown < needed) {
+            grown *= 2;
+        }
+        return Math.min(grown, chunkSize);
+    }
+
+    /**
+     * @return the number of bytes the buffer has allocated, which can be more
+     *         than the number of bytes that have been written
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of bytes the buffer would have to allocate to write
+     *         len more bytes
+     */
+    public long getCapacityNeeded(int len) {
+        long end = size + len;
+        if (end <= capacity) {
+            return 0;
+        } else if (end <= chunkSize) {
+            return getGrownChunkSize((int) capacity, (int) end) - capacity;
+        } else {
+            return ((end + chunkSize - 1) / chunkSize) * chunkSize - capacity;
+        }
+    }
+
+    public void writeTo(OutputStream os) throws IOException {
+        long remaining = size;
+        for (byte[] chunk : chunks) {
+            int count = (int) Math.min(remaining, chunkSize);
+            os.write(chunk, 0, count);
+            remaining -= count;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return a stream that reads the bytes that were written up until now.
+     *         Clearing the buffer does not affect streams that are already
+     *         open.
+     */
+    public InputStream getInputStream() {
+        return new ChunkInputStream(chunks, chunkSize, size);
+    }
+
+    public void clear() {
+        chunks = new ArrayList<byte[]>();
+        size = 0;
+        capacity = 0;
+    }
+
+    static class ChunkInputStream extends InputStream {
+
+        private List<byte[]> chunks;
+
+        private int chunkSize;
+
+        private long size;
+
+        private long position;
+
+        private long mark;
+
+        ChunkInputStream(List<byte[]> chunks, int chunkSize, long size) {
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            byte b = chunks.get((int) (position / chunkSize))[(int) (position % chunkSize)];
+            position++;
+            return b & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            int total = 0;
+            while (len > 0 && position < size) {
+                int offsetInChunk = (int) (position % chunkSize);
+                byte[] chunk = chunks.get((int) (position / chunkSize));
+                int count = (int) Math.min(Math.min(len, chunkSize - offsetInChunk), size
+                        - position);
+                System.arraycopy(chunk, offsetInChunk, b, off, count);
+                off += count;
+                len -= count;
+                total += count;
+                position += count;
+            }
+            return total;
+        }
+
+        @Override
+        public long skip(long n) {
+            long count = Math.max(0, Math.min(n, size - position));
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            mark = position;
+        }
+
+        @Override
+        public synchronized void reset() {
+            position = mark;
+        }
+    }
+
+}
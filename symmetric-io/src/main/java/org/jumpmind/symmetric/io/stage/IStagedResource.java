@@ -26,6 +26,8 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import org.jumpmind.util.Statistics;
+
 public interface IStagedResource {
 
     public enum State {
@@ -69,4 +71,22 @@ public interface IStagedResource {
     
     public boolean isInUse();
 
+    /**
+     * Keep the resource in use, so the staging purge does not delete it, until
+     * {@link #dereference()} is called. Use this for a resource that is read
+     * again later, after its readers are closed.
+     */
+    public void reference();
+
+    public void dereference();
+
+    /**
+     * @return the statistics that were recorded when the resource was
+     *         written, or null if they are not known (for example, when the
+     *         resource was found on disk after a restart)
+     */
+    public Statistics getStatistics();
+
+    public void setStatistics(Statistics statistics);
+
 }
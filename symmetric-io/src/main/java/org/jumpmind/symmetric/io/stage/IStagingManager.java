@@ -34,4 +34,16 @@ public interface IStagingManager {
     
     public Collection<String> getResourceReferences();
 
+    /**
+     * @return the number of bytes that staged resources are currently holding
+     *         in memory
+     */
+    public long getMemoryUsedInBytes();
+
+    /**
+     * @return the number of bytes staged resources may hold in memory before
+     *         they are written to files, or zero if there is no limit
+     */
+    public long getMemoryBudgetInBytes();
+
 }
@@ -32,14 +32,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.StringReader;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.jumpmind.exception.IoException;
 import org.jumpmind.symmetric.io.IoConstants;
+import org.jumpmind.util.Statistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,7 +56,7 @@ public class StagedResource implements IStagedResource {
 
     private File file;
 
-    private StringBuilder memoryBuffer;
+    private ChunkedByteBuffer memoryBuffer;
 
     private long lastUpdateTime;
 
@@ -71,6 +72,10 @@ public class StagedResource implements IStagedResource {
     
     private StagingManager stagingManager;
 
+    private Statistics statistics;
+
+    private AtomicInteger references = new AtomicInteger();
+
     public StagedResource(long threshold, File directory, File file, StagingManager stagingManager) {
         this.threshold = threshold;
         this.directory = directory;
@@ -106,9 +111,25 @@ public class StagedResource implements IStagedResource {
     public boolean isInUse() {
         return readers.size() > 0 || writer != null || 
                 (inputStreams != null && inputStreams.size() > 0) ||
-                outputStream != null;
+                outputStream != null || references.get() > 0;
+    }
+
+    public void reference() {
+        references.incrementAndGet();
+    }
+
+    public void dereference() {
+        references.decrementAndGet();
     }
     
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    public void setStatistics(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
     public boolean isFileResource() {     
         return file != null && file.exists();
     }
@@ -158,8 +179,7 @@ public class StagedResource implements IStagedResource {
         } 
         
         if (memoryBuffer != null && state == State.DONE) {
-            this.memoryBuffer.setLength(0);
-            this.memoryBuffer = null;
+            releaseMemoryBuffer();
         }
         refreshLastUpdateTime();
         this.state = state;
@@ -177,9 +197,14 @@ public class StagedResource implements IStagedResource {
                 } catch (IOException ex) {
                     throw new IoException(ex);
                 }
-            } else if (memoryBuffer != null && memoryBuffer.length() > 0) {
-                reader = new BufferedReader(new StringReader(memoryBuffer.toString()));
-                readers.put(thread, reader);
+            } else if (memoryBuffer != null && memoryBuffer.size() > 0) {
+                try {
+                    reader = new BufferedReader(new InputStreamReader(
+                            memoryBuffer.getInputStream(), IoConstants.ENCODING));
+                    readers.put(thread, reader);
+                } catch (IOException ex) {
+                    throw new IoException(ex);
+                }
             } else {
                 throw new IllegalStateException(
                         "There is no content to read.  Memory buffer was empty and "
@@ -247,6 +272,9 @@ public class StagedResource implements IStagedResource {
                 } catch (IOException ex) {
                     throw new IoException(ex);
                 }
+            } else if (memoryBuffer != null && memoryBuffer.size() > 0) {
+                reader = memoryBuffer.getInputStream();
+                inputStreams.put(thread, reader);
             } else {
                 throw new IllegalStateException("There is no content to read. "
                         + file.getAbsolutePath() + " was not found.");
@@ -257,16 +285,17 @@ public class StagedResource implements IStagedResource {
     
     public BufferedWriter getWriter() {
         if (writer == null) {
+            statistics = null;
             if (file.exists()) {
                 log.warn("We had to delete {} because it already existed", file.getAbsolutePath());
                 file.delete();
             } else if (this.memoryBuffer != null) {
                 log.warn("We had to delete the memory buffer for {} because it already existed", getPath());
-                this.memoryBuffer = null;
+                releaseMemoryBuffer();
             }
-            this.memoryBuffer = new StringBuilder();
+            this.memoryBuffer = new ChunkedByteBuffer();
             writer = new BufferedWriter(new ThresholdFileWriter(threshold, this.memoryBuffer,
-                    this.file));
+                    this.file, stagingManager));
         }
         return writer;
     }
@@ -275,14 +304,14 @@ public class StagedResource implements IStagedResource {
         if (file.exists()) {
             return file.length();
         } else if (memoryBuffer != null) {
-            return memoryBuffer.length();
+            return memoryBuffer.size();
         } else {
             return 0;
         }
     }
 
     public boolean exists() {
-        return (file.exists() && file.length() > 0) || (memoryBuffer != null && memoryBuffer.length() > 0);
+        return (file.exists() && file.length() > 0) || (memoryBuffer != null && memoryBuffer.size() > 0);
     }
 
     public long getLastUpdateTime() {
@@ -290,7 +319,11 @@ public class StagedResource implements IStagedResource {
     }
     
     public void refreshLastUpdateTime() {
+        long previousUpdateTime = this.lastUpdateTime;
         this.lastUpdateTime = System.currentTimeMillis();
+        if (stagingManager != null) {
+            stagingManager.updateExpiryIndex(this, previousUpdateTime);
+        }
     }
 
     public boolean delete() {
@@ -305,8 +338,7 @@ public class StagedResource implements IStagedResource {
         }
 
         if (memoryBuffer != null) {
-            memoryBuffer.setLength(0);
-            memoryBuffer = null;
+            releaseMemoryBuffer();
         }
         
         if (deleted) {
@@ -317,6 +349,14 @@ public class StagedResource implements IStagedResource {
         
     }
 
+    protected void releaseMemoryBuffer() {
+        if (stagingManager != null) {
+            stagingManager.releaseMemory(memoryBuffer.capacity());
+        }
+        memoryBuffer.clear();
+        memoryBuffer = null;
+    }
+
     public File getFile() {
         return file;
     }
@@ -328,7 +368,7 @@ public class StagedResource implements IStagedResource {
     @Override
     public String toString() {
         return file.exists() ? file.getAbsolutePath() : String.format("%d bytes in memory",
-                memoryBuffer.length());
+                memoryBuffer.size());
     }
 
 }
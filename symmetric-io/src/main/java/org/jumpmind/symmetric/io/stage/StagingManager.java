@@ -21,11 +21,19 @@
 package org.jumpmind.symmetric.io.stage;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
@@ -37,43 +45,142 @@ public class StagingManager implements IStagingManager {
 
     protected static final Logger log = LoggerFactory.getLogger(StagingManager.class);
 
+    protected static final String[] EXTENSIONS = new String[] {
+            State.CREATE.getExtensionName(), State.READY.getExtensionName(),
+            State.DONE.getExtensionName() };
+
     protected File directory;
 
     protected Map<String, IStagedResource> resourceList = new ConcurrentHashMap<String, IStagedResource>();
 
+    /**
+     * Resources ordered by the last time they were updated so that
+     * {@link #clean(long)} only has to visit the resources that are old enough
+     * to be purged. A resource gets a new entry each time it is updated. Older
+     * entries are dropped when they are visited.
+     */
+    protected ConcurrentSkipListSet<ExpiryEntry> expiryIndex = new ConcurrentSkipListSet<ExpiryEntry>();
+
+    protected ReentrantLock cleanLock = new ReentrantLock();
+
+    protected long memoryBudgetInBytes;
+
+    protected AtomicLong memoryUsedInBytes = new AtomicLong();
+
     public StagingManager(String directory) {
+        this(directory, 0);
+    }
+
+    /**
+     * @param memoryBudgetInBytes
+     *            The total number of bytes that staged resources may hold in
+     *            memory before new content is written to files. Zero or less
+     *            means there is no limit.
+     */
+    public StagingManager(String directory, long memoryBudgetInBytes) {
         log.info("The staging directory was initialized at the following location: " + directory);
+        this.memoryBudgetInBytes = memoryBudgetInBytes;
         this.directory = new File(directory);
         this.directory.mkdirs();
         refreshResourceList();
     }
     
     public Collection<String> getResourceReferences() {
-        synchronized (StagingManager.class) {
-            return resourceList.keySet();
-        }
+        return Collections.unmodifiableCollection(resourceList.keySet());
     }
 
+    /**
+     * Scan the staging directory for resources. Each category/node directory
+     * is scanned on its own thread.
+     */
     protected void refreshResourceList() {
-        synchronized (StagingManager.class) {
-            Collection<File> files = FileUtils.listFiles(this.directory,
-                    new String[] { State.CREATE.getExtensionName(), State.READY.getExtensionName(),
-                            State.DONE.getExtensionName() }, true);
-            for (File file : files) {
+        List<File> directories = new ArrayList<File>();
+        File[] categories = directory.listFiles();
+        if (categories != null) {
+            for (File category : categories) {
+                if (category.isDirectory()) {
+                    File[] children = category.listFiles();
+                    if (children != null) {
+                        for (File child : children) {
+                            if (child.isDirectory()) {
+                                directories.add(child);
+                            } else {
+                                addResource(child);
+                            }
+                        }
+                    }
+                } else {
+                    addResource(category);
+                }
+            }
+        }
+
+        int threadCount = Math.min(directories.size(), Runtime.getRuntime().availableProcessors());
+        if (threadCount > 1) {
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            try {
+                List<Future<?>> futures = new ArrayList<Future<?>>(directories.size());
+                for (final File dir : directories) {
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            addResources(dir);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (Exception ex) {
+                        log.warn("Failed to scan a staging directory", ex);
+                    }
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } else {
+            for (File dir : directories) {
+                addResources(dir);
+            }
+        }
+    }
+
+    protected void addResources(File dir) {
+        Collection<File> files = FileUtils.listFiles(dir, EXTENSIONS, true);
+        for (File file : files) {
+            addResource(file);
+        }
+    }
+
+    protected void addResource(File file) {
+        String name = file.getName();
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith("." + extension)) {
                 try {
-                    StagedResource resource = new StagedResource(0, directory,
-                            file, this);
+                    StagedResource resource = new StagedResource(0, directory, file, this);
                     String path = resource.getPath();
                     if (!resourceList.containsKey(path)) {
                         resourceList.put(path, resource);
+                        updateExpiryIndex(resource);
                     }
                 } catch (IllegalStateException ex) {
                     log.warn(ex.getMessage());
                 }
+                break;
             }
         }
     }
 
+    protected void updateExpiryIndex(IStagedResource resource) {
+        expiryIndex.add(new ExpiryEntry(resource.getLastUpdateTime(), resource.getPath()));
+    }
+
+    protected void updateExpiryIndex(IStagedResource resource, long previousUpdateTime) {
+        if (previousUpdateTime != resource.getLastUpdateTime()) {
+            expiryIndex.remove(new ExpiryEntry(previousUpdateTime, resource.getPath()));
+            updateExpiryIndex(resource);
+        }
+    }
+
     /**
      * Clean up resources that are older than the passed in parameter.
      * 
@@ -82,67 +189,138 @@ public class StagingManager implements IStagingManager {
      *            will be purged
      */
     public long clean(long ttlInMs) {
-        synchronized (StagingManager.class) {
+        cleanLock.lock();
+        try {
             log.trace("Cleaning staging area");
-            Set<String> keys = new HashSet<String>(resourceList.keySet());
-            long purgedFileCount = 0;
-            long purgedFileSize = 0;
-            long purgedMemCount = 0;
-            long purgedMemSize = 0;
-            for (String key : keys) {
-                IStagedResource resource = resourceList.get(key);
-                /* resource could have deleted itself between the time the keys were cloned and now */
-                if (resource != null) {
-                    boolean resourceIsOld = (System.currentTimeMillis() - resource
-                            .getLastUpdateTime()) > ttlInMs;
-                    if ((resource.getState() == State.DONE ||
-                            (resource.getState() == State.READY && resource.getPath().contains("/common/")) ||
-                            (resource.getState() == State.READY && ttlInMs == 0)) 
-                            && (resourceIsOld || !resource.exists())) {
-                        if (!resource.isInUse()) {
-                            boolean file = resource.isFileResource();
-                            long size = resource.getSize();
-                            if (resource.delete()) {
-                                if (file) {
-                                    purgedFileCount++;
-                                    purgedFileSize += size;
-                                } else {
-                                    purgedMemCount++;
-                                    purgedMemSize += size;
-                                }
-                                resourceList.remove(key);
-                            } else {
-                                log.warn("Failed to delete the '{}' staging resource",
-                                        resource.getPath());
-                            }
-                        } else {
-                            log.info(
-                                    "The '{}' staging resource qualified for being cleaned, but was in use.  It will not be cleaned right now",
-                                    resource.getPath());
-                        }
+            CleanStats stats = new CleanStats();
+            if (ttlInMs == 0) {
+                /* Everything qualifies, so there is nothing to gain from the index */
+                for (String key : new ArrayList<String>(resourceList.keySet())) {
+                    IStagedResource resource = resourceList.get(key);
+                    /* resource could have deleted itself between the time the keys were cloned and now */
+                    if (resource != null) {
+                        clean(resource, ttlInMs, stats);
+                    }
+                }
+                expiryIndex.clear();
+                for (IStagedResource resource : resourceList.values()) {
+                    updateExpiryIndex(resource);
+                }
+            } else {
+                long expireBefore = System.currentTimeMillis() - ttlInMs;
+                Iterator<ExpiryEntry> i = expiryIndex.iterator();
+                while (i.hasNext()) {
+                    ExpiryEntry entry = i.next();
+                    if (entry.lastUpdateTime >= expireBefore) {
+                        break;
+                    }
+                    IStagedResource resource = resourceList.get(entry.path);
+                    if (resource == null || resource.getLastUpdateTime() != entry.lastUpdateTime) {
+                        /* the resource is gone or has a newer entry */
+                        i.remove();
+                    } else if (clean(resource, ttlInMs, stats) || !isWaitingToBeCleaned(resource)) {
+                        /*
+                         * a resource that is not done yet will get a new entry
+                         * when its state changes
+                         */
+                        i.remove();
                     }
                 }
             }
-            if (purgedFileCount > 0) {
-                if (purgedFileSize < 1000) {
+            if (stats.purgedFileCount > 0) {
+                if (stats.purgedFileSize < 1000) {
                     log.debug("Purged {} staged files, freeing {} bytes of disk space",
-                            purgedFileCount, (int) (purgedFileSize));
+                            stats.purgedFileCount, (int) (stats.purgedFileSize));
                 } else {
                     log.debug("Purged {} staged files, freeing {} kbytes of disk space",
-                            purgedFileCount, (int) (purgedFileSize / 1000));
+                            stats.purgedFileCount, (int) (stats.purgedFileSize / 1000));
                 }
             }
-            if (purgedMemCount > 0) {
-                if (purgedMemSize < 1000) {
+            if (stats.purgedMemCount > 0) {
+                if (stats.purgedMemSize < 1000) {
                     log.debug("Purged {} staged memory buffers, freeing {} bytes of memory",
-                            purgedMemCount, (int) (purgedMemSize));
+                            stats.purgedMemCount, (int) (stats.purgedMemSize));
                 } else {
                     log.debug("Purged {} staged memory buffers, freeing {} kbytes of memory",
-                            purgedMemCount, (int) (purgedMemSize / 1000));
+                            stats.purgedMemCount, (int) (stats.purgedMemSize / 1000));
+                }
+            }
+            return stats.purgedFileCount + stats.purgedMemCount;
+        } finally {
+            cleanLock.unlock();
+        }
+    }
+
+    protected boolean isWaitingToBeCleaned(IStagedResource resource) {
+        return resource.getState() == State.DONE
+                || (resource.getState() == State.READY && resource.getPath().contains("/common/"))
+                || resource.isInUse();
+    }
+
+    /**
+     * @return true if the resource was purged
+     */
+    protected boolean clean(IStagedResource resource, long ttlInMs, CleanStats stats) {
+        boolean resourceIsOld = (System.currentTimeMillis() - resource.getLastUpdateTime()) > ttlInMs;
+        if ((resource.getState() == State.DONE
+                || (resource.getState() == State.READY && resource.getPath().contains("/common/"))
+                || (resource.getState() == State.READY && ttlInMs == 0))
+                && (resourceIsOld || !resource.exists())) {
+            if (!resource.isInUse()) {
+                boolean file = resource.isFileResource();
+                long size = resource.getSize();
+                if (resource.delete()) {
+                    if (file) {
+                        stats.purgedFileCount++;
+                        stats.purgedFileSize += size;
+                    } else {
+                        stats.purgedMemCount++;
+                        stats.purgedMemSize += size;
+                    }
+                    resourceList.remove(resource.getPath());
+                    return true;
+                } else {
+                    log.warn("Failed to delete the '{}' staging resource", resource.getPath());
                 }
+            } else {
+                log.info(
+                        "The '{}' staging resource qualified for being cleaned, but was in use.  It will not be cleaned right now",
+                        resource.getPath());
             }
-            return purgedFileCount + purgedMemCount;
         }
+        return false;
+    }
+
+    /**
+     * Reserve memory for a staged resource's buffer.
+     * 
+     * @return false if the memory budget would be exceeded, in which case the
+     *         caller should write to a file instead
+     */
+    public boolean reserveMemory(long bytes) {
+        while (true) {
+            long used = memoryUsedInBytes.get();
+            if (memoryBudgetInBytes > 0 && used + bytes > memoryBudgetInBytes) {
+                return false;
+            }
+            if (memoryUsedInBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    public void releaseMemory(long bytes) {
+        if (bytes > 0) {
+            memoryUsedInBytes.addAndGet(-bytes);
+        }
+    }
+
+    public long getMemoryUsedInBytes() {
+        return memoryUsedInBytes.get();
+    }
+
+    public long getMemoryBudgetInBytes() {
+        return memoryBudgetInBytes;
     }
 
     /**
@@ -153,6 +331,7 @@ public class StagingManager implements IStagingManager {
         StagedResource resource = new StagedResource(memoryThresholdInBytes, directory, filePath,
                 this);
         this.resourceList.put(filePath, resource);
+        updateExpiryIndex(resource);
         return resource;
     }
 
@@ -188,4 +367,44 @@ public class StagingManager implements IStagingManager {
         return find(buildFilePath(path));
     }
 
+    static class CleanStats {
+        long purgedFileCount;
+        long purgedFileSize;
+        long purgedMemCount;
+        long purgedMemSize;
+    }
+
+    static class ExpiryEntry implements Comparable<ExpiryEntry> {
+
+        long lastUpdateTime;
+
+        String path;
+
+        ExpiryEntry(long lastUpdateTime, String path) {
+            this.lastUpdateTime = lastUpdateTime;
+            this.path = path;
+        }
+
+        public int compareTo(ExpiryEntry o) {
+            if (lastUpdateTime != o.lastUpdateTime) {
+                return lastUpdateTime < o.lastUpdateTime ? -1 : 1;
+            }
+            return path.compareTo(o.path);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof ExpiryEntry) {
+                ExpiryEntry o = (ExpiryEntry) obj;
+                return lastUpdateTime == o.lastUpdateTime && path.equals(o.path);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() + (int) lastUpdateTime;
+        }
+    }
+
 }
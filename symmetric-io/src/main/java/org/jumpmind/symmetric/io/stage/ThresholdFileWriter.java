@@ -20,15 +20,15 @@
  */
 package org.jumpmind.symmetric.io.stage;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.StringReader;
 import java.io.Writer;
 
 import org.jumpmind.symmetric.io.IoConstants;
@@ -37,25 +37,49 @@ import org.jumpmind.symmetric.io.IoConstants;
  * Write to an internal buffer up until the threshold. When the threshold is
  * reached, flush the buffer to the file and write to the file from that point
  * forward.
+ * <p>
+ * Characters are encoded as they are written so the buffer holds the same
+ * bytes that would have been written to the file. If a {@link StagingManager}
+ * is passed in, the memory the buffer allocates counts against its memory
+ * budget and the buffer is also flushed to the file once the budget has been used up.
  */
 public class ThresholdFileWriter extends Writer {
 
-    private File file;    
+    private File file;
 
-    private BufferedWriter fileWriter;
+    private OutputStream fileStream;
 
-    private StringBuilder buffer;
+    private ChunkedByteBuffer buffer;
 
     private long threshhold;
 
+    private StagingManager stagingManager;
+
+    private Writer encoder;
+
     /**
      * @param threshold The number of bytes at which to start writing to a file
      * @param file The file to write to after the threshold has been reached
      */
-    public ThresholdFileWriter(long threshold, StringBuilder buffer, File file) {
+    public ThresholdFileWriter(long threshold, ChunkedByteBuffer buffer, File file) {
+        this(threshold, buffer, file, null);
+    }
+
+    /**
+     * @param stagingManager The staging manager whose memory budget the
+     *            buffer is accounted against. May be null.
+     */
+    public ThresholdFileWriter(long threshold, ChunkedByteBuffer buffer, File file,
+            StagingManager stagingManager) {
         this.file = file;
         this.buffer = buffer;
         this.threshhold = threshold;
+        this.stagingManager = stagingManager;
+        try {
+            this.encoder = new OutputStreamWriter(new ThresholdOutputStream(), IoConstants.ENCODING);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
     }
     
     public File getFile() {
@@ -68,40 +92,34 @@ public class ThresholdFileWriter extends Writer {
 
     @Override
     public void close() throws IOException {
-        if (fileWriter != null) {
-            fileWriter.close();
-            fileWriter = null;            
+        encoder.flush();
+        if (fileStream != null) {
+            fileStream.close();
+            fileStream = null;
         }
     }
 
     @Override
     public void flush() throws IOException {
-        if (fileWriter != null) {
-            fileWriter.flush();
-        }
+        encoder.flush();
     }
 
     @Override
     public void write(char[] cbuf, int off, int len) throws IOException {
-        if (fileWriter != null) {
-            fileWriter.write(cbuf, off, len);
-        } else if (len + buffer.length() > threshhold) {
-            file.getParentFile().mkdirs();
-            fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), IoConstants.ENCODING));
-            fileWriter.write(buffer.toString());
-            fileWriter.write(cbuf, off, len);
-            fileWriter.flush();
-            buffer.setLength(0);
-        } else {
-            buffer.append(new String(cbuf), off, len);
-        }
+        encoder.write(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        encoder.write(str, off, len);
     }
 
     public BufferedReader getReader() throws IOException {
+        encoder.flush();
         if (file != null && file.exists()) {
             return new BufferedReader(new InputStreamReader(new FileInputStream(file), IoConstants.ENCODING));
         } else {
-            return new BufferedReader(new StringReader(buffer.toString()));
+            return new BufferedReader(new InputStreamReader(buffer.getInputStream(), IoConstants.ENCODING));
         }
     }
     
@@ -110,8 +128,58 @@ public class ThresholdFileWriter extends Writer {
             file.delete();
         }
         file = null;
-        buffer.setLength(0);
-        buffer.trimToSize();
+        releaseBuffer();
+    }
+
+    protected void releaseBuffer() {
+        if (stagingManager != null) {
+            stagingManager.releaseMemory(buffer.capacity());
+        }
+        buffer.clear();
+    }
+
+    protected boolean fitsInMemory(int len) {
+        if (len + buffer.size() > threshhold) {
+            return false;
+        }
+        long capacityNeeded = buffer.getCapacityNeeded(len);
+        return capacityNeeded == 0 || stagingManager == null
+                || stagingManager.reserveMemory(capacityNeeded);
+    }
+
+    protected void spillToFile() throws IOException {
+        file.getParentFile().mkdirs();
+        fileStream = new BufferedOutputStream(new FileOutputStream(file));
+        buffer.writeTo(fileStream);
+        releaseBuffer();
+    }
+
+    class ThresholdOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (fileStream == null && !fitsInMemory(len)) {
+                spillToFile();
+            }
+
+            if (fileStream != null) {
+                fileStream.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (fileStream != null) {
+                fileStream.flush();
+            }
+        }
     }
 
-}
\ No newline at end of file
+}
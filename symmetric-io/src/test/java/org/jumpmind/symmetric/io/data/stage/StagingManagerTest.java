@@ -0,0 +1,97 @@
+/**
+ * Licensed to JumpMind Inc under one or more contributor
+ * license agreements.  See the NOTICE file distributed
+ * with this work for additional information regarding
+ * copyright ownership.  JumpMind Inc licenses this file
+ * to you under the GNU General Public License, version 3.0 (GPLv3)
+ * (the "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * You should have received a copy of the GNU General Public License,
+ * version 3.0 (GPLv3) along with this library; if not, see
+ * <http://www.gnu.org/licenses/>.
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jumpmind.symmetric.io.data.stage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.jumpmind.symmetric.io.stage.IStagedResource;
+import org.jumpmind.symmetric.io.stage.IStagedResource.State;
+import org.jumpmind.symmetric.io.stage.StagingManager;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StagingManagerTest {
+
+    static final File DIR = new File("target/test/staging.manager");
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(DIR);
+    }
+
+    @Test
+    public void testCleanOnlyPurgesExpiredResources() throws Exception {
+        StagingManager stagingManager = new StagingManager(DIR.getAbsolutePath());
+        IStagedResource done = write(stagingManager, "outgoing", "00001", 1);
+        done.setState(State.DONE);
+        IStagedResource ready = write(stagingManager, "outgoing", "00001", 2);
+
+        assertEquals(0, stagingManager.clean(60000));
+        assertNotNull(stagingManager.find("outgoing", "00001", 1));
+
+        Thread.sleep(20);
+        IStagedResource recent = write(stagingManager, "outgoing", "00001", 3);
+        recent.setState(State.DONE);
+
+        assertEquals(1, stagingManager.clean(10));
+        assertNull(stagingManager.find("outgoing", "00001", 1));
+        assertNotNull(stagingManager.find("outgoing", "00001", 2));
+        assertNotNull(stagingManager.find("outgoing", "00001", 3));
+
+        /* a ready resource becomes eligible once it is done */
+        ready.setState(State.DONE);
+        Thread.sleep(20);
+        assertEquals(2, stagingManager.clean(10));
+        assertEquals(0, stagingManager.getResourceReferences().size());
+    }
+
+    @Test
+    public void testRefreshFindsResourcesInEveryDirectory() throws Exception {
+        StagingManager stagingManager = new StagingManager(DIR.getAbsolutePath());
+        for (int i = 1; i <= 3; i++) {
+            write(stagingManager, "outgoing", "00001", i);
+            write(stagingManager, "outgoing", "00002", i);
+            write(stagingManager, "incoming", "00003", i);
+        }
+
+        stagingManager = new StagingManager(DIR.getAbsolutePath());
+        assertEquals(9, stagingManager.getResourceReferences().size());
+        assertNotNull(stagingManager.find("incoming", "00003", 2));
+
+        assertEquals(9, stagingManager.clean(0));
+        assertEquals(0, stagingManager.getResourceReferences().size());
+    }
+
+    protected IStagedResource write(StagingManager stagingManager, String category,
+            String nodeId, long batchId) throws Exception {
+        IStagedResource resource = stagingManager.create(0, category, nodeId, batchId);
+        resource.getWriter().write("batch," + batchId + "\n");
+        resource.close();
+        resource.setState(State.READY);
+        return resource;
+    }
+
+}
@@ -24,6 +24,8 @@ import java.io.BufferedReader;
 import java.io.File;
 
 import org.apache.commons.io.IOUtils;
+import org.jumpmind.symmetric.io.stage.ChunkedByteBuffer;
+import org.jumpmind.symmetric.io.stage.StagingManager;
 import org.jumpmind.symmetric.io.stage.ThresholdFileWriter;
 import static org.junit.Assert.*;
 import org.junit.Test;
@@ -35,7 +37,7 @@ public class ThresholdFileWriterTest {
     @Test
     public void testNoWriteToFile() throws Exception {
         File file = getTestFile();
-        ThresholdFileWriter writer = new ThresholdFileWriter(TEST_STR.length() + 1, new StringBuilder(), file);
+        ThresholdFileWriter writer = new ThresholdFileWriter(TEST_STR.length() + 1, new ChunkedByteBuffer(), file);
         writer.write(TEST_STR);
 
         // File does not exist since we did not meet the threshold
@@ -52,7 +54,7 @@ public class ThresholdFileWriterTest {
         File file = getTestFile();
         assertFalse(file.exists());
 
-        ThresholdFileWriter writer = new ThresholdFileWriter( TEST_STR.length() - 1, new StringBuilder(), file);
+        ThresholdFileWriter writer = new ThresholdFileWriter( TEST_STR.length() - 1, new ChunkedByteBuffer(), file);
         writer.write(TEST_STR);
         writer.close();
 
@@ -66,6 +68,91 @@ public class ThresholdFileWriterTest {
         assertTrue(file.delete());
     }
 
+    @Test
+    public void testMultiByteCharactersAreCountedInBytes() throws Exception {
+        File file = getTestFile();
+        String str = "\u00e9\u00e8\u00ea";
+        ChunkedByteBuffer buffer = new ChunkedByteBuffer(4);
+        ThresholdFileWriter writer = new ThresholdFileWriter(10, buffer, file);
+        writer.write(str);
+        writer.flush();
+
+        assertFalse(file.exists());
+        assertEquals(6, buffer.size());
+        assertEquals(str, IOUtils.toString(writer.getReader()));
+
+        writer.close();
+    }
+
+    @Test
+    public void testWriteToFileWhenMemoryBudgetIsUsed() throws Exception {
+        File file = getTestFile();
+        StagingManager stagingManager = new StagingManager("target/test/staging", TEST_STR.length() + 1);
+        assertTrue(stagingManager.reserveMemory(2));
+
+        ThresholdFileWriter writer = new ThresholdFileWriter(TEST_STR.length() + 1,
+                new ChunkedByteBuffer(), file, stagingManager);
+        writer.write(TEST_STR);
+        writer.close();
+
+        // The threshold was not met, but there was not enough memory left in the budget
+        assertTrue(file.exists());
+        assertEquals(2, stagingManager.getMemoryUsedInBytes());
+
+        BufferedReader reader = writer.getReader();
+        assertEquals(TEST_STR, IOUtils.toString(reader));
+        reader.close();
+
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testMemoryBudgetCountsAllocatedCapacity() throws Exception {
+        File file = getTestFile();
+        StagingManager stagingManager = new StagingManager("target/test/staging", 100000);
+        ChunkedByteBuffer buffer = new ChunkedByteBuffer(1024);
+        ThresholdFileWriter writer = new ThresholdFileWriter(100000, buffer, file, stagingManager);
+        writer.write(TEST_STR);
+        writer.flush();
+        assertEquals(ChunkedByteBuffer.INITIAL_CHUNK_SIZE, buffer.capacity());
+        assertEquals(buffer.capacity(), stagingManager.getMemoryUsedInBytes());
+
+        StringBuilder str = new StringBuilder(TEST_STR);
+        for (int i = 0; i < 50; i++) {
+            str.append(TEST_STR);
+        }
+        writer.write(str.toString());
+        writer.flush();
+        assertFalse(file.exists());
+        assertEquals(3072, buffer.capacity());
+        assertEquals(buffer.capacity(), stagingManager.getMemoryUsedInBytes());
+        assertEquals(TEST_STR + str, IOUtils.toString(writer.getReader()));
+
+        writer.delete();
+        assertEquals(0, stagingManager.getMemoryUsedInBytes());
+    }
+
+    @Test
+    public void testFirstChunkGrows() throws Exception {
+        ChunkedByteBuffer buffer = new ChunkedByteBuffer(1024);
+        assertEquals(ChunkedByteBuffer.INITIAL_CHUNK_SIZE, buffer.getCapacityNeeded(1));
+        byte[] bytes = new byte[1500];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        for (int i = 0; i < 300; i++) {
+            buffer.write(bytes[i]);
+        }
+        assertEquals(512, buffer.capacity());
+        assertEquals(512, buffer.capacity() + buffer.getCapacityNeeded(200));
+        assertEquals(1024, buffer.capacity() + buffer.getCapacityNeeded(213));
+        assertEquals(2048, buffer.capacity() + buffer.getCapacityNeeded(1200));
+        buffer.write(bytes, 300, 1200);
+        assertEquals(2048, buffer.capacity());
+        assertEquals(1500, buffer.size());
+        assertArrayEquals(bytes, IOUtils.toByteArray(buffer.getInputStream()));
+    }
+
     private File getTestFile() {
         File file = new File("target/test/buffered.file.writer.tst");
         file.getParentFile().mkdirs();
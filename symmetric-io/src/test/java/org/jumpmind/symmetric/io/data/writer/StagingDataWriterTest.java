@@ -29,6 +29,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -90,6 +91,14 @@ public class StagingDataWriterTest {
 
         StagedResource resource = (StagedResource) stagingManager.find("test", "aaa", 1);
         assertNotNull(resource);
+        assertNotNull(resource.getStatistics());
+        assertTrue(resource.getStatistics().get(DataWriterStatisticConstants.STATEMENTCOUNT) > 0);
+
+        StringWriter copy = new StringWriter();
+        ProtocolDataWriter protocolWriter = new ProtocolDataWriter("aaa", copy, false);
+        protocolWriter.writeStagedBatch(resource);
+        assertEquals(convertEol(origCsv), convertEol(copy.toString()));
+
         if (threshold > origCsv.length()) {
             assertFalse(resource.getFile().exists());
         } else {
@@ -107,6 +107,12 @@ public abstract class AbstractJdbcDdlReader implements IDdlReader {
     /* The table types to recognize per default. */
     private String[] _defaultTableTypes = { "TABLE" };
 
+    /*
+     * Column meta data rows read for a whole schema at once, keyed by table
+     * name. Only set while {@link #readTablesByName} is running.
+     */
+    private ThreadLocal<Map<String, List<Map<String, Object>>>> prefetchedColumns = new ThreadLocal<Map<String, List<Map<String, Object>>>>();
+
     public AbstractJdbcDdlReader(IDatabasePlatform platform) {
         this.platform = platform;
 
@@ -578,6 +584,62 @@ public abstract class AbstractJdbcDdlReader implements IDdlReader {
         }
     }
 
+    /*
+     * Reads the named tables of a catalog and schema on a single connection.
+     * The table list and the columns of the whole schema are each read with
+     * one meta data call instead of one call per table. Names are matched
+     * case insensitively. Tables that do not exist are not returned.
+     */
+    public List<Table> readTablesByName(final String catalog, final String schema,
+            final Collection<String> tableNames) {
+        final Set<String> names = new HashSet<String>(tableNames.size());
+        for (String tableName : tableNames) {
+            names.add(tableName.toUpperCase());
+        }
+        JdbcSqlTemplate sqlTemplate = (JdbcSqlTemplate) platform.getSqlTemplate();
+        return sqlTemplate.execute(new IConnectionCallback<List<Table>>() {
+            public List<Table> execute(Connection connection) throws SQLException {
+                DatabaseMetaDataWrapper metaData = new DatabaseMetaDataWrapper();
+                metaData.setMetaData(connection.getMetaData());
+                metaData.setCatalog(catalog);
+                metaData.setSchemaPattern(schema);
+                metaData.setTableTypes(null);
+
+                List<Map<String, Object>> tableValues = new ArrayList<Map<String, Object>>();
+                ResultSet tableData = null;
+                try {
+                    tableData = metaData.getTables(getDefaultTablePattern());
+                    while (tableData.next()) {
+                        Map<String, Object> values = readMetaData(tableData, initColumnsForTable());
+                        String tableName = (String) values.get("TABLE_NAME");
+                        if (tableName != null && names.contains(tableName.toUpperCase())) {
+                            tableValues.add(values);
+                        }
+                    }
+                } finally {
+                    close(tableData);
+                }
+
+                if (catalog != null || schema != null) {
+                    prefetchedColumns.set(readColumnMetaData(metaData));
+                }
+                try {
+                    List<Table> tables = new ArrayList<Table>(tableValues.size());
+                    for (Map<String, Object> values : tableValues) {
+                        Table table = postprocessTableFromDatabase(readTable(connection,
+                                metaData, values));
+                        if (table != null) {
+                            tables.add(table);
+                        }
+                    }
+                    return tables;
+                } finally {
+                    prefetchedColumns.remove();
+                }
+            }
+        });
+    }
+
     protected Table postprocessTableFromDatabase(Table table) {
         if (table != null) {
             for (int columnIdx = 0; columnIdx < table.getColumnCount(); columnIdx++) {
@@ -853,28 +915,65 @@ public abstract class AbstractJdbcDdlReader implements IDdlReader {
      */
     protected Collection<Column> readColumns(DatabaseMetaDataWrapper metaData, String tableName)
             throws SQLException {
+        Map<String, List<Map<String, Object>>> prefetched = prefetchedColumns.get();
+        if (prefetched != null && prefetched.containsKey(tableName)) {
+            return readColumns(metaData, prefetched.get(tableName));
+        }
+
         ResultSet columnData = null;        
         try {
-            Set<String> columnNames = new HashSet<String>();
+            List<Map<String, Object>> rows = new ArrayList<Map<String, Object>>();
             columnData = metaData.getColumns(getTableNamePattern(tableName),
                     getDefaultColumnPattern());
+            while (columnData.next()) {
+                rows.add(readMetaData(columnData, getColumnsForColumn()));
+            }
+            return readColumns(metaData, rows);
+        } finally {
+            close(columnData);
+        }
+    }
+
+    protected Collection<Column> readColumns(DatabaseMetaDataWrapper metaData,
+            List<Map<String, Object>> rows) throws SQLException {
+        Set<String> columnNames = new HashSet<String>();
+        List<Column> columns = new ArrayList<Column>();
+        for (Map<String, Object> values : rows) {
+            Column column = readColumn(metaData, values);
+            if (!columnNames.contains(column.getName())) {
+                columnNames.add(column.getName());
+                columns.add(column);
+            }
 
-            List<Column> columns = new ArrayList<Column>();
+            genericizeDefaultValuesAndUpdatePlatformColumn(column);
+        }
+        return columns;
+    }
 
+    /*
+     * Reads the column meta data of every table in the current catalog and
+     * schema with a single call, grouped by table name.
+     */
+    protected Map<String, List<Map<String, Object>>> readColumnMetaData(
+            DatabaseMetaDataWrapper metaData) throws SQLException {
+        Map<String, List<Map<String, Object>>> columnsByTable = new HashMap<String, List<Map<String, Object>>>();
+        ResultSet columnData = null;
+        try {
+            columnData = metaData.getColumns(getDefaultTablePattern(), getDefaultColumnPattern());
             while (columnData.next()) {
                 Map<String, Object> values = readMetaData(columnData, getColumnsForColumn());
-                Column column = readColumn(metaData, values);
-                if (!columnNames.contains(column.getName())) {
-                    columnNames.add(column.getName());
-                    columns.add(column);
+                String tableName = (String) values.get("TABLE_NAME");
+                List<Map<String, Object>> rows = columnsByTable.get(tableName);
+                if (rows == null) {
+                    rows = new ArrayList<Map<String, Object>>();
+                    columnsByTable.put(tableName, rows);
                 }
-                
-                genericizeDefaultValuesAndUpdatePlatformColumn(column);
+                rows.add(values);
             }
-            return columns;
         } finally {
             close(columnData);
         }
+        return columnsByTable;
     }
     
     protected void genericizeDefaultValuesAndUpdatePlatformColumn(Column column) {
@@ -23,6 +23,7 @@ package org.jumpmind.db.platform.mssql;
 import javax.sql.DataSource;
 
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.platform.IDdlBuilder;
 import org.jumpmind.db.sql.SqlTemplateSettings;
@@ -57,4 +58,19 @@ public class MsSql2005DatabasePlatform extends MsSql2000DatabasePlatform {
         }
         return defaultSchema;
     }
+
+    @Override
+    public long getEstimatedRowCount(Table table) {
+        if (StringUtils.isNotBlank(table.getCatalog())
+                && !table.getCatalog().equalsIgnoreCase(getDefaultCatalog())) {
+            return -1;
+        }
+        return queryForEstimatedRowCount(
+                "select sum(p.rows) from sys.partitions p "
+                        + "inner join sys.tables t on t.object_id = p.object_id "
+                        + "inner join sys.schemas s on s.schema_id = t.schema_id "
+                        + "where s.name = ? and t.name = ? and p.index_id in (0, 1)",
+                StringUtils.isBlank(table.getSchema()) ? getDefaultSchema() : table.getSchema(),
+                table.getName());
+    }
 }
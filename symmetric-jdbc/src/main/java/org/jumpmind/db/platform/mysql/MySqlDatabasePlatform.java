@@ -22,6 +22,7 @@ package org.jumpmind.db.platform.mysql;
 import javax.sql.DataSource;
 
 import org.apache.commons.lang.StringUtils;
+import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.AbstractJdbcDatabasePlatform;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.sql.SqlTemplateSettings;
@@ -89,4 +90,12 @@ public class MySqlDatabasePlatform extends AbstractJdbcDatabasePlatform {
         return defaultCatalog;
     }
 
+    @Override
+    public long getEstimatedRowCount(Table table) {
+        return queryForEstimatedRowCount(
+                "select table_rows from information_schema.tables where table_schema = ? and table_name = ?",
+                StringUtils.isBlank(table.getCatalog()) ? getDefaultCatalog() : table.getCatalog(),
+                table.getName());
+    }
+
 }
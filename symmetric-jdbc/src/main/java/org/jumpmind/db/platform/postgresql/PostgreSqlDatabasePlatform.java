@@ -30,8 +30,10 @@ import javax.sql.rowset.serial.SerialBlob;
 
 import org.apache.commons.lang.StringUtils;
 import org.jumpmind.db.model.Column;
+import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.AbstractJdbcDatabasePlatform;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.platform.ObjectValueConverter;
 import org.jumpmind.db.sql.SqlTemplateSettings;
 import org.jumpmind.db.sql.SymmetricLobHandler;
 import org.jumpmind.db.util.BinaryEncoding;
@@ -99,6 +101,16 @@ public class PostgreSqlDatabasePlatform extends AbstractJdbcDatabasePlatform {
         return defaultSchema;
     }
     
+    @Override
+    public long getEstimatedRowCount(Table table) {
+        return queryForEstimatedRowCount(
+                "select cast(c.reltuples as bigint) from pg_catalog.pg_class c "
+                        + "inner join pg_catalog.pg_namespace n on n.oid = c.relnamespace "
+                        + "where n.nspname = ? and c.relname = ?",
+                StringUtils.isBlank(table.getSchema()) ? getDefaultSchema() : table.getSchema(),
+                table.getName());
+    }
+
     public String getDefaultCatalog() {
         return null;
     }
@@ -194,5 +206,22 @@ public class PostgreSqlDatabasePlatform extends AbstractJdbcDatabasePlatform {
         }
         return objectValues;
     }
+
+    @Override
+    protected ObjectValueConverter createObjectValueConverter(Column column,
+            BinaryEncoding encoding, boolean useVariableDates, boolean fitToColumn) {
+        final ObjectValueConverter converter = super.createObjectValueConverter(column, encoding,
+                useVariableDates, fitToColumn);
+        if (column.getMappedTypeCode() == Types.BLOB) {
+            return new ObjectValueConverter(column) {
+                public Object convert(String value) throws Exception {
+                    Object objectValue = converter.convert(value);
+                    return objectValue != null ? new SerialBlob((byte[]) objectValue) : null;
+                }
+            };
+        } else {
+            return converter;
+        }
+    }
     
 }
@@ -32,6 +32,7 @@ import org.jumpmind.db.model.Database;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.platform.AbstractJdbcDatabasePlatform;
 import org.jumpmind.db.platform.DatabaseNamesConstants;
+import org.jumpmind.db.platform.ObjectValueConverter;
 import org.jumpmind.db.sql.ISqlTemplate;
 import org.jumpmind.db.sql.SqlTemplateSettings;
 import org.jumpmind.db.sql.SymmetricLobHandler;
@@ -83,6 +84,12 @@ public class VoltDbDatabasePlatform extends AbstractJdbcDatabasePlatform {
         return objectValue;
     }
 
+    @Override
+    protected ObjectValueConverter createObjectValueConverter(Column column,
+            BinaryEncoding encoding, boolean useVariableDates, boolean fitToColumn) {
+        return new DefaultObjectValueConverter(column, encoding, useVariableDates, fitToColumn);
+    }
+
     @Override
     public String getDefaultSchema() {
         return null;
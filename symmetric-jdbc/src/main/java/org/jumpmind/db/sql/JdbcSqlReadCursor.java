@@ -50,6 +50,8 @@ public class JdbcSqlReadCursor<T> implements ISqlReadCursor<T> {
     
     protected int originalIsolationLevel;
 
+    protected PositionalRow positionalRow;
+
     public JdbcSqlReadCursor() {
     }
 
@@ -108,11 +110,19 @@ public class JdbcSqlReadCursor<T> implements ISqlReadCursor<T> {
         }
     }
 
+    @SuppressWarnings("unchecked")
     public T next() {
         try {
             while (rs!=null && rs.next()) {
-                Row row = getMapForRow(rs, sqlTemplate.getSettings().isReadStringsAsBytes());
-                T value = mapper.mapRow(row);
+                T value = null;
+                if (mapper instanceof ISqlPositionalRowMapper) {
+                    positionalRow = getPositionalRow(rs, sqlTemplate.getSettings()
+                            .isReadStringsAsBytes(), positionalRow);
+                    value = ((ISqlPositionalRowMapper<T>) mapper).mapRow(positionalRow);
+                } else {
+                    Row row = getMapForRow(rs, sqlTemplate.getSettings().isReadStringsAsBytes());
+                    value = mapper.mapRow(row);
+                }
                 if (value != null) {
                     return value;
                 }
@@ -135,6 +145,27 @@ public class JdbcSqlReadCursor<T> implements ISqlReadCursor<T> {
         return mapOfColValues;
     }
 
+    /**
+     * Fill a positional row with the values of the current row. The column
+     * names are only looked up when the row is null, which is the first time
+     * it is called for a result set.
+     */
+    protected static PositionalRow getPositionalRow(ResultSet rs, boolean readStringsAsBytes,
+            PositionalRow row) throws SQLException {
+        if (row == null) {
+            ResultSetMetaData rsmd = rs.getMetaData();
+            String[] columnNames = new String[rsmd.getColumnCount()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = JdbcSqlTemplate.lookupColumnName(rsmd, i + 1);
+            }
+            row = new PositionalRow(columnNames);
+        }
+        for (int i = 0; i < row.getColumnCount(); i++) {
+            row.set(i, JdbcSqlTemplate.getResultSetValue(rs, i + 1, readStringsAsBytes));
+        }
+        return row;
+    }
+
 	public void close() {
 		JdbcSqlTemplate.close(rs);
 		JdbcSqlTemplate.close(st);
@@ -60,6 +60,8 @@ public class JdbcSqlTransaction implements ISqlTransaction {
     protected boolean oldAutoCommitValue;
 
     protected List<Object> markers = new ArrayList<Object>();
+
+    protected List<Runnable> commitCallbacks = new ArrayList<Runnable>();
     
     protected LogSqlBuilder logSqlBuilder;
 
@@ -112,6 +114,21 @@ public class JdbcSqlTransaction implements ISqlTransaction {
             } catch (SQLException ex) {
                 throw jdbcSqlTemplate.translate(ex);
             }
+            runCommitCallbacks();
+        }
+    }
+
+    public void addCommitCallback(Runnable callback) {
+        commitCallbacks.add(callback);
+    }
+
+    protected void runCommitCallbacks() {
+        if (commitCallbacks.size() > 0) {
+            List<Runnable> callbacks = new ArrayList<Runnable>(commitCallbacks);
+            commitCallbacks.clear();
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
         }
     }
 
@@ -126,6 +143,7 @@ public class JdbcSqlTransaction implements ISqlTransaction {
                 if (clearMarkers) {
                     markers.clear();
                 }
+                commitCallbacks.clear();
                 if (!autoCommit) {
                     connection.rollback();
                 }
@@ -136,6 +154,7 @@ public class JdbcSqlTransaction implements ISqlTransaction {
     }
 
     public void close() {
+        commitCallbacks.clear();
         if (connection != null) {
             JdbcSqlTemplate.close(pstmt);
             try {
@@ -233,6 +252,7 @@ public class JdbcSqlTransaction implements ISqlTransaction {
     public <T> List<T> query(final String sql, final ISqlRowMapper<T> mapper, final Object[] args,
             final int[] types) {
         return executeCallback(new IConnectionCallback<List<T>>() {
+            @SuppressWarnings("unchecked")
             public List<T> execute(Connection c) throws SQLException {
                 PreparedStatement st = null;
                 ResultSet rs = null;
@@ -248,9 +268,17 @@ public class JdbcSqlTransaction implements ISqlTransaction {
                     long endTime = System.currentTimeMillis();
                     logSqlBuilder.logSql(log, sql, args, null, (endTime-startTime));
                     List<T> list = new ArrayList<T>();
+                    PositionalRow positionalRow = null;
                     while (rs.next()) {
-                        Row row = JdbcSqlReadCursor.getMapForRow(rs, jdbcSqlTemplate.getSettings().isReadStringsAsBytes());
-                        T value = mapper.mapRow(row);
+                        T value = null;
+                        if (mapper instanceof ISqlPositionalRowMapper) {
+                            positionalRow = JdbcSqlReadCursor.getPositionalRow(rs, jdbcSqlTemplate
+                                    .getSettings().isReadStringsAsBytes(), positionalRow);
+                            value = ((ISqlPositionalRowMapper<T>) mapper).mapRow(positionalRow);
+                        } else {
+                            Row row = JdbcSqlReadCursor.getMapForRow(rs, jdbcSqlTemplate.getSettings().isReadStringsAsBytes());
+                            value = mapper.mapRow(row);
+                        }
                         list.add(value);
                     }
                     return list;
@@ -22,6 +22,9 @@ package org.jumpmind.db;
 
 import java.io.InputStreamReader;
 import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -34,6 +37,7 @@ import org.jumpmind.db.platform.DatabaseNamesConstants;
 import org.jumpmind.db.platform.IDatabasePlatform;
 import org.jumpmind.db.platform.IDdlBuilder;
 import org.jumpmind.db.sql.ISqlTemplate;
+import org.jumpmind.db.sql.ISqlTransaction;
 import org.jumpmind.db.sql.SqlScript;
 
 import static org.junit.Assert.*;
@@ -285,8 +289,22 @@ public class DatabasePlatformTest {
         assertEquals("The id column was not read in as an autoincrement column", true, table
                 .getColumnWithName("id").isAutoIncrement());
     }
-    
-    
+
+    @Test
+    public void testReadTablesByName() throws Exception {
+        List<Table> tables = platform.getDdlReader().readTablesByName(
+                platform.getDefaultCatalog(), platform.getDefaultSchema(),
+                Arrays.asList(SIMPLE_TABLE, UPPERCASE_TABLE.toLowerCase(), "test_does_not_exist"));
+        assertEquals(2, tables.size());
+        for (Table table : tables) {
+            Table tableFromCache = platform.getTableFromCache(table.getName(), true);
+            assertNotNull(tableFromCache);
+            assertEquals(tableFromCache.getColumnCount(), table.getColumnCount());
+            assertEquals(tableFromCache.getPrimaryKeyColumnCount(), table.getPrimaryKeyColumnCount());
+            assertTrue(table.getColumnWithName("id").isAutoIncrement());
+        }
+    }
+
     @Test
     public void testNvarcharType() {
         Table table = new Table("test_nvarchar");
@@ -295,4 +313,30 @@ public class DatabasePlatformTest {
         platform.createTables(true, false, table);
     }
 
+    @Test
+    public void testCommitCallbacksRunAfterCommit() {
+        final AtomicInteger callbackCount = new AtomicInteger();
+        Runnable callback = new Runnable() {
+            public void run() {
+                callbackCount.incrementAndGet();
+            }
+        };
+        ISqlTransaction transaction = platform.getSqlTemplate().startSqlTransaction();
+        try {
+            transaction.addCommitCallback(callback);
+            transaction.rollback();
+            transaction.commit();
+            assertEquals(0, callbackCount.get());
+
+            transaction.addCommitCallback(callback);
+            assertEquals(0, callbackCount.get());
+            transaction.commit();
+            assertEquals(1, callbackCount.get());
+            transaction.commit();
+            assertEquals(1, callbackCount.get());
+        } finally {
+            transaction.close();
+        }
+    }
+
 }
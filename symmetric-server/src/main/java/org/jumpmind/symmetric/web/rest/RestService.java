@@ -44,6 +44,9 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.MDC;
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.map.ObjectMapper;
 import org.jumpmind.db.model.Table;
 import org.jumpmind.db.sql.ISqlTemplate;
 import org.jumpmind.db.sql.Row;
@@ -72,6 +75,7 @@ import org.jumpmind.symmetric.model.TriggerRouter;
 import org.jumpmind.symmetric.service.IAcknowledgeService;
 import org.jumpmind.symmetric.service.IConfigurationService;
 import org.jumpmind.symmetric.service.IDataExtractorService;
+import org.jumpmind.symmetric.service.IDataExtractorService.IPayloadListener;
 import org.jumpmind.symmetric.service.IDataLoaderService;
 import org.jumpmind.symmetric.service.IDataService;
 import org.jumpmind.symmetric.service.INodeService;
@@ -949,13 +953,8 @@ public class RestService {
                                 useDelimitedIdentifiers);
                 List<Batch> batches = new ArrayList<Batch>();
                 for (OutgoingBatchWithPayload outgoingBatchWithPayload : extractedBatches) {
-                    if (outgoingBatchWithPayload.getStatus() == org.jumpmind.symmetric.model.OutgoingBatch.Status.LD
-                            || outgoingBatchWithPayload.getStatus() == org.jumpmind.symmetric.model.OutgoingBatch.Status.IG) {
-                        Batch batch = new Batch();
-                        batch.setBatchId(outgoingBatchWithPayload.getBatchId());
-                        batch.setChannelId(outgoingBatchWithPayload.getChannelId());
-                        batch.setSqlStatements(outgoingBatchWithPayload.getPayload());
-                        batches.add(batch);
+                    if (isPulled(outgoingBatchWithPayload)) {
+                        batches.add(toBatch(outgoingBatchWithPayload));
                     }
                 }
                 results.setBatches(batches);
@@ -981,6 +980,145 @@ public class RestService {
         }
     }
 
+    /**
+     * Pulls pending batches (data) for a given node like
+     * {@link #getPullData(String, String, boolean, boolean, boolean, String)},
+     * but writes each batch to the client as soon as it is extracted instead
+     * of building the whole response first. The json response has the same
+     * fields, except that nbrBatches comes after the batches.
+     * 
+     * @param waitMs
+     *            If there are no batches to pull, hold the request until
+     *            batches are routed for the node or until this many
+     *            milliseconds have passed. The wait is capped by the
+     *            rest.api.pull.max.wait.ms parameter. The request does not
+     *            wait if rest.api.pull.max.waiting.threads requests are
+     *            already waiting.
+     */
+    @ApiOperation(value = "Stream pending batches for the specified node for the single engine")
+    @RequestMapping(value = "/engine/pulldatastream", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public final void getPullDataStream(
+            @RequestParam(value = WebConstants.NODE_ID) String nodeId,
+            @ApiParam(value="This the password for the nodeId being passed in.  The password is stored in the node_security table") 
+            @RequestParam(value = WebConstants.SECURITY_TOKEN) String securityToken,
+            @RequestParam(value = "useJdbcTimestampFormat", required = false, defaultValue = "true") boolean useJdbcTimestampFormat,
+            @RequestParam(value = "useUpsertStatements", required = false, defaultValue = "false") boolean useUpsertStatements,
+            @RequestParam(value = "useDelimitedIdentifiers", required = false, defaultValue = "true") boolean useDelimitedIdentifiers,
+            @RequestParam(value = "hostName", required = false) String hostName,
+            @RequestParam(value = "waitMs", required = false, defaultValue = "0") long waitMs,
+            HttpServletResponse resp) {
+        getPullDataStream(getSymmetricEngine().getEngineName(), nodeId, securityToken,
+                useJdbcTimestampFormat, useUpsertStatements, useDelimitedIdentifiers, hostName,
+                waitMs, resp);
+    }
+
+    @ApiOperation(value = "Stream pending batches for the specified node for the specified engine")
+    @RequestMapping(value = "/engine/{engine}/pulldatastream", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    public final void getPullDataStream(
+            @PathVariable("engine") String engineName,
+            @RequestParam(value = WebConstants.NODE_ID) String nodeId,
+            @ApiParam(value="This the password for the nodeId being passed in.  The password is stored in the node_security table.") 
+            @RequestParam(value = WebConstants.SECURITY_TOKEN) String securityToken,
+            @RequestParam(value = "useJdbcTimestampFormat", required = false, defaultValue = "true") boolean useJdbcTimestampFormat,
+            @RequestParam(value = "useUpsertStatements", required = false, defaultValue = "false") boolean useUpsertStatements,
+            @RequestParam(value = "useDelimitedIdentifiers", required = false, defaultValue = "true") boolean useDelimitedIdentifiers,
+            @RequestParam(value = "hostName", required = false) String hostName,
+            @RequestParam(value = "waitMs", required = false, defaultValue = "0") long waitMs,
+            HttpServletResponse resp) {
+
+        ISymmetricEngine engine = getSymmetricEngine(engineName);
+
+        IDataExtractorService dataExtractorService = engine.getDataExtractorService();
+        IOutgoingBatchService outgoingBatchService = engine.getOutgoingBatchService();
+        IStatisticManager statisticManager = engine.getStatisticManager();
+        INodeService nodeService = engine.getNodeService();
+        org.jumpmind.symmetric.model.Node targetNode = nodeService.findNode(nodeId);
+
+        if (securityVerified(nodeId, engine, securityToken)) {
+            ProcessInfo processInfo = statisticManager.newProcessInfo(new ProcessInfoKey(
+                    nodeService.findIdentityNodeId(), nodeId, ProcessType.REST_PULL_HANLDER));
+            try {
+                resp.setContentType("application/json");
+                final JsonGenerator generator = new ObjectMapper().getJsonFactory()
+                        .createJsonGenerator(resp.getOutputStream(), JsonEncoding.UTF8);
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("batches");
+
+                final List<Long> batchIds = new ArrayList<Long>();
+                IPayloadListener listener = new IPayloadListener() {
+                    public void payloadExtracted(OutgoingBatchWithPayload batch) {
+                        if (isPulled(batch)) {
+                            try {
+                                generator.writeObject(toBatch(batch));
+                                generator.flush();
+                            } catch (IOException e) {
+                                throw new IoException(e);
+                            }
+                            batchIds.add(batch.getBatchId());
+                        }
+                    }
+                };
+
+                long maxWaitMs = engine.getParameterService().getLong(
+                        ParameterConstants.REST_PULL_MAX_WAIT_MS, 60000);
+                long waitUntil = System.currentTimeMillis() + Math.min(waitMs, maxWaitMs);
+                while (true) {
+                    long batchesRoutedCount = outgoingBatchService.getBatchesRoutedCount(nodeId);
+                    dataExtractorService.extractToPayload(processInfo, targetNode,
+                            PayloadType.SQL, useJdbcTimestampFormat, useUpsertStatements,
+                            useDelimitedIdentifiers, listener);
+                    long timeLeft = waitUntil - System.currentTimeMillis();
+                    if (batchIds.size() > 0
+                            || timeLeft <= 0
+                            || !outgoingBatchService.waitForBatchesRouted(nodeId,
+                                    batchesRoutedCount, timeLeft)) {
+                        break;
+                    }
+                }
+
+                generator.writeEndArray();
+                generator.writeNumberField("nbrBatches", batchIds.size());
+                generator.writeEndObject();
+                generator.close();
+                processInfo.setStatus(org.jumpmind.symmetric.model.ProcessInfo.Status.OK);
+
+                if (engine.getParameterService().is(ParameterConstants.REST_HEARTBEAT_ON_PULL)
+                        && hostName != null) {
+                    Heartbeat heartbeat = new Heartbeat();
+                    heartbeat.setNodeId(nodeId);
+                    heartbeat.setHeartbeatTime(new Date());
+                    heartbeat.setHostName(hostName);
+                    this.heartbeatImpl(engine, heartbeat);
+                }
+            } catch (IOException e) {
+                throw new IoException(e);
+            } finally {
+                if (processInfo.getStatus() != org.jumpmind.symmetric.model.ProcessInfo.Status.OK) {
+                    processInfo.setStatus(org.jumpmind.symmetric.model.ProcessInfo.Status.ERROR);
+                }
+            }
+        } else {
+            throw new NotAllowedException();
+        }
+    }
+
+    private boolean isPulled(OutgoingBatchWithPayload outgoingBatchWithPayload) {
+        return outgoingBatchWithPayload.getStatus() == org.jumpmind.symmetric.model.OutgoingBatch.Status.LD
+                || outgoingBatchWithPayload.getStatus() == org.jumpmind.symmetric.model.OutgoingBatch.Status.IG;
+    }
+
+    private Batch toBatch(OutgoingBatchWithPayload outgoingBatchWithPayload) {
+        Batch batch = new Batch();
+        batch.setBatchId(outgoingBatchWithPayload.getBatchId());
+        batch.setChannelId(outgoingBatchWithPayload.getChannelId());
+        batch.setSqlStatements(outgoingBatchWithPayload.getPayload());
+        return batch;
+    }
+
     /**
      * Sends a heartbeat to the server for the given node.
      * 
@@ -24,7 +24,9 @@ import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +52,13 @@ public final class FormatUtils {
 
     public static final FastDateFormat TIME_FORMATTER = FastDateFormat.getInstance("HH:mm:ss.SSS");
 
+    private static final ThreadLocal<Calendar> CANONICAL_DATE_CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return new GregorianCalendar();
+        }
+    };
+
     public final static String WILDCARD = "*";
     
     public final static String NEGATE_TOKEN = "!";
@@ -257,6 +266,66 @@ public final class FormatUtils {
         return parseDate(str, parsePatterns, null);
     }
 
+    /**
+     * Parses the canonical yyyy-MM-dd, yyyy-MM-dd HH:mm:ss and yyyy-MM-dd
+     * HH:mm:ss.SSS forms in the default time zone without trying each of the
+     * {@link #TIMESTAMP_PATTERNS}. Returns null when the string is in any other
+     * form so the caller can fall back to {@link #parseDate(String, String[])}.
+     */
+    public static Date parseCanonicalDate(String str) {
+        int length = str.length();
+        if ((length != 10 && length != 19 && length != 23) || str.charAt(4) != '-'
+                || str.charAt(7) != '-') {
+            return null;
+        }
+        if (length > 10
+                && (str.charAt(10) != ' ' || str.charAt(13) != ':' || str.charAt(16) != ':')) {
+            return null;
+        }
+        if (length == 23 && str.charAt(19) != '.') {
+            return null;
+        }
+
+        int year = parseDigits(str, 0, 4);
+        int month = parseDigits(str, 5, 2);
+        int day = parseDigits(str, 8, 2);
+        int hour = 0, minute = 0, second = 0, millis = 0;
+        if (length > 10) {
+            hour = parseDigits(str, 11, 2);
+            minute = parseDigits(str, 14, 2);
+            second = parseDigits(str, 17, 2);
+        }
+        if (length == 23) {
+            millis = parseDigits(str, 20, 3);
+        }
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+            return null;
+        }
+
+        Calendar calendar = CANONICAL_DATE_CALENDAR.get();
+        TimeZone timeZone = TimeZone.getDefault();
+        if (!timeZone.equals(calendar.getTimeZone())) {
+            calendar.setTimeZone(timeZone);
+        }
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, second);
+        calendar.set(Calendar.MILLISECOND, millis);
+        return calendar.getTime();
+    }
+
+    private static int parseDigits(String str, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = str.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
     public static Date parseDate(String str, String[] parsePatterns, TimeZone timeZone) {
         if (str == null || parsePatterns == null) {
             throw new IllegalArgumentException("Date and Patterns must not be null");
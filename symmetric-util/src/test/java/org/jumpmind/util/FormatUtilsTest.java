@@ -60,4 +60,19 @@ public class FormatUtilsTest {
         assertTrue(FormatUtils.isWildCardMatch("A_B", "*A*B"));        
         assertFalse(FormatUtils.isWildCardMatch("TEST_NO_MATCH", "TEST_*,!TEST_NO_MATCH"));
     }
+
+    @Test
+    public void testParseCanonicalDate() {
+        String[] values = { "2015-11-03", "2015-11-03 01:35:03", "2015-11-03 01:35:03.714",
+                "2016-02-30 23:59:59.999", "1970-01-01 00:00:00.000" };
+        for (String value : values) {
+            assertEquals(value, FormatUtils.parseDate(value, FormatUtils.TIMESTAMP_PATTERNS),
+                    FormatUtils.parseCanonicalDate(value));
+        }
+        assertNull(FormatUtils.parseCanonicalDate("2015-11-03 01:35:03.7"));
+        assertNull(FormatUtils.parseCanonicalDate("2015-11-03 01:35"));
+        assertNull(FormatUtils.parseCanonicalDate("2015-13-03"));
+        assertNull(FormatUtils.parseCanonicalDate("2015/11/03"));
+        assertNull(FormatUtils.parseCanonicalDate("01:35:03"));
+    }
 }